@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform;
+
+import org.junit.Test;
+import org.pentaho.platform.api.scheduler2.Job;
+import org.pentaho.platform.web.http.api.resources.JobScheduleRequest;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Startup and concurrent-request benchmarks for {@link JaxbContextResolver}. The timings are printed rather than
+ * asserted on; the assertions check that lookups never rebuild a context.
+ */
+@SuppressWarnings( "nls" )
+public class JaxbContextResolverIT {
+
+  private static final int STARTUP_RUNS = 5;
+  private static final int THREADS = 16;
+  private static final int LOOKUPS_PER_THREAD = 100000;
+
+  @XmlRootElement
+  public static class Unregistered {
+    public List<String> names = new ArrayList<>();
+  }
+
+  @Test
+  public void benchmarkStartup() throws Exception {
+    long total = 0;
+    for ( int i = 0; i < STARTUP_RUNS; i++ ) {
+      long start = System.nanoTime();
+      JaxbContextResolver resolver = new JaxbContextResolver();
+      total += System.nanoTime() - start;
+      assertNotNull( resolver.getContext( JobScheduleRequest.class ) );
+    }
+    System.out.println( "JaxbContextResolver startup: " + TimeUnit.NANOSECONDS.toMillis( total / STARTUP_RUNS )
+      + " ms on average over " + STARTUP_RUNS + " runs, " + JaxbContextResolver.REGISTERED_TYPES.size()
+      + " registered types" );
+  }
+
+  @Test
+  public void benchmarkConcurrentRequests() throws Exception {
+    final JaxbContextResolver resolver = new JaxbContextResolver();
+    final JAXBContext registered = resolver.getContext( Job.class );
+    final List<Class<?>> types = JaxbContextResolver.REGISTERED_TYPES;
+    final Set<JAXBContext> unregistered = ConcurrentHashMap.newKeySet();
+    final CountDownLatch ready = new CountDownLatch( THREADS );
+    ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+    try {
+      List<Future<Long>> results = new ArrayList<>();
+      for ( int t = 0; t < THREADS; t++ ) {
+        results.add( executor.submit( new Callable<Long>() {
+          public Long call() throws Exception {
+            ready.countDown();
+            ready.await();
+            long start = System.nanoTime();
+            unregistered.add( resolver.getContext( Unregistered.class ) );
+            for ( int i = 0; i < LOOKUPS_PER_THREAD; i++ ) {
+              assertSame( registered, resolver.getContext( types.get( i % types.size() ) ) );
+            }
+            return System.nanoTime() - start;
+          }
+        } ) );
+      }
+      long slowest = 0;
+      for ( Future<Long> result : results ) {
+        slowest = Math.max( slowest, result.get() );
+      }
+      System.out.println( "JaxbContextResolver lookups: " + THREADS * LOOKUPS_PER_THREAD + " from " + THREADS
+        + " threads in " + TimeUnit.NANOSECONDS.toMillis( slowest ) + " ms" );
+    } finally {
+      executor.shutdownNow();
+    }
+    // threads racing on a new type may each build a context, but they all get the one that was published
+    assertEquals( 1, unregistered.size() );
+    assertSame( unregistered.iterator().next(), resolver.getContext( Unregistered.class ) );
+  }
+}
@@ -13,10 +13,26 @@ package org.pentaho.platform;
 
 import com.sun.jersey.api.json.JSONConfiguration;
 import com.sun.jersey.api.json.JSONJAXBContext;
+import org.pentaho.platform.api.scheduler2.ComplexJobTrigger;
 import org.pentaho.platform.api.scheduler2.CronJobTrigger;
 import org.pentaho.platform.api.scheduler2.Job;
 import org.pentaho.platform.api.scheduler2.SimpleJobTrigger;
+import org.pentaho.platform.web.http.api.proxies.BackgroundRunProxy;
+import org.pentaho.platform.web.http.api.proxies.BlockStatusProxy;
+import org.pentaho.platform.web.http.api.proxies.CriticalPathProxy;
+import org.pentaho.platform.web.http.api.proxies.CriticalPathStepProxy;
+import org.pentaho.platform.web.http.api.proxies.FireTimeForecastProxy;
+import org.pentaho.platform.web.http.api.proxies.ForecastContributorProxy;
+import org.pentaho.platform.web.http.api.proxies.JobEventProxy;
+import org.pentaho.platform.web.http.api.proxies.JobEventsProxy;
+import org.pentaho.platform.web.http.api.proxies.MisfireRecoveryStatusProxy;
+import org.pentaho.platform.web.http.api.proxies.TriggerNowProxy;
+import org.pentaho.platform.web.http.api.resources.ComplexJobTriggerProxy;
 import org.pentaho.platform.web.http.api.resources.JaxbList;
+import org.pentaho.platform.web.http.api.resources.JobRequest;
+import org.pentaho.platform.web.http.api.resources.JobScheduleRequest;
+import org.pentaho.platform.web.http.api.resources.JobsRequest;
+import org.pentaho.platform.web.http.api.resources.JobsResponse;
 import org.pentaho.platform.web.http.api.resources.Setting;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,68 +43,131 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Provide a customized JAXBContext that makes the concrete implementations
  * known and available for marshalling
+ * <p/>
+ * The types the scheduler endpoints read and write are registered up front and share a single context, built once
+ * in the constructor. Lookups read an immutable map and never lock; a type outside the registry gets a context of
+ * its own the first time it is seen, published by replacing the map, so a context handed out is never rebuilt.
  *
  * @author Michael Irwin
  */
 @Provider
 public class JaxbContextResolver implements ContextResolver<JAXBContext> {
 
-  private JAXBContext context;
-  @SuppressWarnings( "rawtypes" )
-  private final ArrayList<Class> types = new ArrayList<Class>();
-  private final ArrayList<String> arrays = new ArrayList<String>();
+  /**
+   * The types registered at startup.
+   */
+  static final List<Class<?>> REGISTERED_TYPES = Collections.unmodifiableList( Arrays.<Class<?>>asList(
+    ArrayList.class,
+    JaxbList.class,
+    Setting.class,
+    Job.class,
+    JobsResponse.class,
+    JobRequest.class,
+    JobsRequest.class,
+    JobScheduleRequest.class,
+    ComplexJobTriggerProxy.class,
+    SimpleJobTrigger.class,
+    ComplexJobTrigger.class,
+    CronJobTrigger.class,
+    BlockStatusProxy.class,
+    TriggerNowProxy.class,
+    MisfireRecoveryStatusProxy.class,
+    FireTimeForecastProxy.class,
+    ForecastContributorProxy.class,
+    CriticalPathProxy.class,
+    CriticalPathStepProxy.class,
+    JobEventsProxy.class,
+    JobEventProxy.class,
+    BackgroundRunProxy.class ) );
+
+  private static final String[] BASE_ARRAYS = { "list", "values", "setting" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+  private final Set<String> registeredArrays;
+  private final AtomicReference<Map<Class<?>, JAXBContext>> contexts = new AtomicReference<>();
   private final Logger logger = LoggerFactory.getLogger( getClass() );
 
   public JaxbContextResolver() throws Exception {
-    types.add( ArrayList.class );
-    types.add( JaxbList.class );
-    types.add( Setting.class );
-    arrays.add( "list" );
-    arrays.add( "values" );
-    arrays.add( "setting" );
-    JSONConfiguration config =
-      JSONConfiguration.mapped().rootUnwrapping( true ).arrays( arrays.toArray( new String[] {} ) ).build();
-    context = new JSONJAXBContext( config, types.toArray( new Class[] {} ) );
+    Set<String> arrays = new LinkedHashSet<>( Arrays.asList( BASE_ARRAYS ) );
+    for ( Class<?> type : REGISTERED_TYPES ) {
+      // the base types have always been marshalled with the base arrays only
+      if ( type != ArrayList.class && type != JaxbList.class && type != Setting.class ) {
+        addArrays( arrays, type );
+      }
+    }
+    registeredArrays = Collections.unmodifiableSet( arrays );
+    JAXBContext context = createContext( registeredArrays, REGISTERED_TYPES );
+    Map<Class<?>, JAXBContext> registered = new HashMap<>();
+    for ( Class<?> type : REGISTERED_TYPES ) {
+      registered.put( type, context );
+    }
+    contexts.set( Collections.unmodifiableMap( registered ) );
   }
 
   public JAXBContext getContext( Class<?> objectType ) {
-    synchronized ( types ) {
-      if ( types.contains( objectType ) ) {
+    JAXBContext context = contexts.get().get( objectType );
+    if ( context != null ) {
+      return context;
+    }
+
+    // an unregistered type: build its context without holding anything, then publish it unless another thread won
+    Set<String> arrays = new LinkedHashSet<>( registeredArrays );
+    addArrays( arrays, objectType );
+    List<Class<?>> types = new ArrayList<>( REGISTERED_TYPES );
+    types.add( objectType );
+    try {
+      context = createContext( arrays, types );
+    } catch ( JAXBException e ) {
+      logger.error( "Error creating JAXBContext for class " + objectType, e );
+      return null;
+    }
+    while ( true ) {
+      Map<Class<?>, JAXBContext> current = contexts.get();
+      JAXBContext published = current.get( objectType );
+      if ( published != null ) {
+        return published;
+      }
+      Map<Class<?>, JAXBContext> next = new HashMap<>( current );
+      next.put( objectType, context );
+      if ( contexts.compareAndSet( current, Collections.unmodifiableMap( next ) ) ) {
         return context;
       }
     }
+  }
 
-    // need to see if class has any ArrayList types, if so, add those to arrays
-    Field[] fields = objectType.getDeclaredFields();
-    for ( int i = 0; i < fields.length; i++ ) {
-      if ( fields[i].getType().isAssignableFrom( ArrayList.class ) ) {
-        String simpleName = fields[i].getName();
-        simpleName = simpleName.substring( 0, 1 ).toLowerCase() + simpleName.substring( 1 );
-        arrays.add( simpleName );
+  /**
+   * Adds the JSON names that must always be written as arrays for <code>type</code>: its list fields, and the type
+   * itself for when it is marshalled in a list.
+   */
+  static void addArrays( Set<String> arrays, Class<?> type ) {
+    for ( Field field : type.getDeclaredFields() ) {
+      if ( field.getType().isAssignableFrom( ArrayList.class ) ) {
+        arrays.add( decapitalize( field.getName() ) );
       }
     }
+    arrays.add( decapitalize( type.getSimpleName() ) );
+  }
 
-    String simpleName = objectType.getSimpleName();
-    simpleName = simpleName.substring( 0, 1 ).toLowerCase() + simpleName.substring( 1 );
-    arrays.add( simpleName );
-    try {
-      JSONConfiguration config =
-        JSONConfiguration.mapped().rootUnwrapping( true ).arrays( arrays.toArray( new String[arrays.size()] ) )
-          .build();
+  private static String decapitalize( String name ) {
+    return name.substring( 0, 1 ).toLowerCase() + name.substring( 1 );
+  }
 
-      synchronized ( types ) {
-        types.add( objectType );
-        context = new JSONJAXBContext( config, types.toArray( new Class[types.size()] ) );
-      }
-      return context;
-    } catch ( JAXBException e ) {
-      logger.error( "Error creating JAXBContext for class " + objectType, e );
-    }
-    return null;
+  private static JAXBContext createContext( Set<String> arrays, List<Class<?>> types ) throws JAXBException {
+    JSONConfiguration config =
+      JSONConfiguration.mapped().rootUnwrapping( true ).arrays( arrays.toArray( new String[ arrays.size() ] ) )
+        .build();
+    return new JSONJAXBContext( config, types.toArray( new Class[ types.size() ] ) );
   }
 
 }
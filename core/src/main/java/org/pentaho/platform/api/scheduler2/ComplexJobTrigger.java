@@ -16,17 +16,11 @@ package org.pentaho.platform.api.scheduler2;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.TreeSet;
 
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
 
-import com.cronutils.descriptor.CronDescriptor;
-import com.cronutils.model.CronType;
-import com.cronutils.model.definition.CronDefinition;
-import com.cronutils.model.definition.CronDefinitionBuilder;
-import com.cronutils.parser.CronParser;
 import org.pentaho.platform.api.scheduler2.wrappers.DayOfMonthWrapper;
 import org.pentaho.platform.api.scheduler2.wrappers.DayOfWeekWrapper;
 import org.pentaho.platform.api.scheduler2.wrappers.HourlyWrapper;
@@ -35,6 +29,7 @@ import org.pentaho.platform.api.scheduler2.wrappers.MinuteWrapper;
 import org.pentaho.platform.api.scheduler2.wrappers.MonthlyWrapper;
 import org.pentaho.platform.api.scheduler2.wrappers.SecondWrapper;
 import org.pentaho.platform.api.scheduler2.wrappers.YearlyWrapper;
+import org.pentaho.platform.scheduler2.CronDescriptionService;
 import org.pentaho.platform.scheduler2.quartz.QuartzCronStringFactory;
 import org.pentaho.platform.scheduler2.recur.ITimeRecurrence;
 import org.pentaho.platform.scheduler2.recur.RecurrenceList;
@@ -79,7 +74,6 @@ public class ComplexJobTrigger extends JobTrigger implements IComplexJobTrigger
   private MinuteWrapper minuteRecurrences = new MinuteWrapper();
   private SecondWrapper secondRecurrences = new SecondWrapper();
   private long repeatInterval = 0;
-  private String cronDescription;
 
   public long getRepeatInterval() {
     return repeatInterval;
@@ -611,14 +605,12 @@ public class ComplexJobTrigger extends JobTrigger implements IComplexJobTrigger
     getCronDescription();
   }
 
+  /**
+   * Describes the cron string in the locale of the current user; the descriptions are cached per locale by
+   * {@link CronDescriptionService}, not by the trigger, which users of different locales may share.
+   */
   @Override
   public String getCronDescription() {
-    if(getCronString() != null && !getCronString().isEmpty() && (cronDescription == null || cronDescription.isEmpty())) {
-      CronDefinition cronDefinition = CronDefinitionBuilder.instanceDefinitionFor(CronType.QUARTZ);
-      CronDescriptor descriptor = CronDescriptor.instance(Locale.US);
-      CronParser parser = new CronParser(cronDefinition);
-      cronDescription = descriptor.describe(parser.parse(getCronString()));
-    }
-    return cronDescription;
+    return CronDescriptionService.getInstance().describe( getCronString() );
   }
 }
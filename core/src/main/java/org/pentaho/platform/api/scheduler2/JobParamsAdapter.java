@@ -16,8 +16,10 @@ package org.pentaho.platform.api.scheduler2;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import javax.xml.bind.annotation.adapters.XmlAdapter;
 
 public class JobParamsAdapter extends XmlAdapter<JobParams, Map<String, Object>> {
@@ -26,53 +28,47 @@ public class JobParamsAdapter extends XmlAdapter<JobParams, Map<String, Object>>
   private static final String PARAMETERS = "parameters";
 
   public JobParams marshal( Map<String, Object> v ) throws Exception {
-    Object variables = v.get( VARIABLES );
+    ArrayList<JobParam> params = new ArrayList<JobParam>();
+    forEachParam( v, ( name, value ) -> {
+      JobParam jobParam = new JobParam();
+      jobParam.name = name;
+      jobParam.value = value;
+      params.add( jobParam );
+    } );
+    JobParams jobParams = new JobParams();
+    jobParams.jobParams = params.toArray( new JobParam[0] );
+    return jobParams;
+  }
+
+  /**
+   * Hands <code>consumer</code> the name and value of each parameter that {@link #marshal(Map)} writes, in order.
+   */
+  public static void forEachParam( Map<String, Object> v, BiConsumer<String, String> consumer ) {
+    // variables that a parameter overrides are left out; the job's own map is shared with the job store, so it is
+    // read only
     Object parameters = v.get( PARAMETERS );
-    if ( parameters != null && parameters instanceof Map
-            && variables != null && variables instanceof Map ) {
-      Map<String, String> paramMap = (Map) parameters;
-      Map<String, String> variableMap = (Map) variables;
-      if ( !paramMap.isEmpty() && !variableMap.isEmpty() ) {
-        for ( Map.Entry<String, String> paramEntry : paramMap.entrySet() ) {
-          if ( variableMap.containsKey( paramEntry.getKey() ) && paramEntry.getValue() != null ) {
-            variableMap.remove( paramEntry.getKey() );
-          }
-        }
-      }
-    }
+    final Map<String, Object> paramMap = parameters instanceof Map ? (Map) parameters : Collections.emptyMap();
 
-    ArrayList<JobParam> params = new ArrayList<JobParam>();
     for ( Map.Entry<String, Object> entry : v.entrySet() ) {
       if ( entry != null && entry.getKey() != null && entry.getValue() != null ) {
+        final boolean isVariables = VARIABLES.equals( entry.getKey() );
         if ( entry.getValue() instanceof Collection ) {
           for ( Object iValue : (Collection<?>) entry.getValue() ) {
             if ( iValue != null ) {
-              JobParam jobParam = new JobParam();
-              jobParam.name = entry.getKey();
-              jobParam.value = iValue.toString();
-              params.add( jobParam );
+              consumer.accept( entry.getKey(), iValue.toString() );
             }
           }
         } else if ( entry.getValue() instanceof Map ) {
           ( (Map<String, Object>) entry.getValue() ).forEach( ( key, value ) -> {
-            if ( value != null ) {
-              JobParam jobParam = new JobParam();
-              jobParam.name = key;
-              jobParam.value = value.toString();
-              params.add( jobParam );
+            if ( value != null && !( isVariables && paramMap.get( key ) != null ) ) {
+              consumer.accept( key, value.toString() );
             }
           } );
         } else {
-          JobParam jobParam = new JobParam();
-          jobParam.name = entry.getKey();
-          jobParam.value = entry.getValue().toString();
-          params.add( jobParam );
+          consumer.accept( entry.getKey(), entry.getValue().toString() );
         }
       }
     }
-    JobParams jobParams = new JobParams();
-    jobParams.jobParams = params.toArray( new JobParam[0] );
-    return jobParams;
   }
 
   public Map<String, Object> unmarshal( JobParams v ) throws Exception {
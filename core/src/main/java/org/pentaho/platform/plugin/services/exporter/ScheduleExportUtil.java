@@ -27,20 +27,32 @@ import org.pentaho.platform.api.util.IRepositoryExportLogger;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.api.importexport.ExportException;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportManifest;
+import org.pentaho.platform.scheduler2.ISchedulerJobLookup;
 import org.pentaho.platform.scheduler2.messsages.Messages;
+import org.pentaho.platform.scheduler2.quartz.ExecutionDurations;
+import org.pentaho.platform.scheduler2.quartz.QuartzScheduler;
 import org.pentaho.platform.repository.RepositoryFilenameUtils;
 import org.pentaho.platform.web.http.api.resources.JobScheduleParam;
 import org.pentaho.platform.web.http.api.resources.JobScheduleRequest;
 import org.pentaho.platform.web.http.api.resources.RepositoryFileStreamProvider;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 public class ScheduleExportUtil implements IExportHelper {
   public static final String RUN_PARAMETERS_KEY = "parameters";
 
+  static final int EXPORT_PAGE_SIZE = 500;
+
+  static final int EXPORT_PARALLELISM = 4;
+
+  private static final String VERSION_CHECK_JOB_NAME = "PentahoSystemVersionCheck";
+
   private ExportManifest exportManifest;
   protected IRepositoryExportLogger log;
 
@@ -59,6 +71,18 @@ public class ScheduleExportUtil implements IExportHelper {
     }
     IScheduler scheduler = PentahoSystem.get( IScheduler.class, "IScheduler2", null ); //$NON-NLS-1$
     assert scheduler != null;
+    return createJobScheduleRequest( job, scheduler );
+  }
+
+  /**
+   * Like {@link #createJobScheduleRequest(Job)}, with the scheduler looked up once by the caller; safe to call from
+   * several threads.
+   */
+  static JobScheduleRequest createJobScheduleRequest( Job job, IScheduler scheduler ) {
+    if ( job == null ) {
+      throw new IllegalArgumentException(
+          Messages.getInstance().getString( "ScheduleExportUtil.JOB_MUST_NOT_BE_NULL" ) );
+    }
     JobScheduleRequest schedule = (JobScheduleRequest) scheduler.createJobScheduleRequest();
     schedule.setJobName( job.getJobName() );
     schedule.setDuration( job.getJobTrigger().getDuration() );
@@ -137,6 +161,13 @@ public class ScheduleExportUtil implements IExportHelper {
         }
       }
     }
+    // the recorded execution times go along, so that a restore or an offline simulation still has them
+    Object lineageId = jobParams.get( IScheduler.RESERVEDMAPKEY_LINEAGE_ID );
+    String durations = lineageId == null ? null : ExecutionDurations.getInstance().format( lineageId.toString() );
+    if ( durations != null ) {
+      schedule.getJobParameters().add(
+        new JobScheduleParam( QuartzScheduler.RESERVEDMAPKEY_EXECUTION_DURATIONS, durations ) );
+    }
 
     if ( job.getJobTrigger() instanceof SimpleJobTrigger ) {
       SimpleJobTrigger jobTrigger = (SimpleJobTrigger) job.getJobTrigger();
@@ -170,51 +201,108 @@ public class ScheduleExportUtil implements IExportHelper {
   private void setRepositoryExportLogger( IRepositoryExportLogger repositoryExportLogger ) {
     this.log = repositoryExportLogger;
   }
+
+  /**
+   * Adds every schedule to the manifest. When the scheduler can pass its jobs one at a time
+   * ({@link ISchedulerJobLookup#forEachJob}), the job list is never materialized: the jobs are read in pages of
+   * {@link #EXPORT_PAGE_SIZE}, each page converted on up to {@link #EXPORT_PARALLELISM} threads and added to the
+   * manifest in the order the jobs were read.
+   */
   protected void exportSchedules() throws ExportException {
     log.info( Messages.getString( "PentahoPlatformExporter.INFO_START_EXPORT_SCHEDULE" ) );
 
-    int jobListSize = 0;
-    int successfulJobExportCount = 0;
+    int[] counts = new int[ 2 ]; // jobs read, schedules exported
+    ForkJoinPool pool = null;
     try {
       IScheduler scheduler = PentahoSystem.get( IScheduler.class, "IScheduler2", null );
       if ( scheduler == null ) {
         throw new ExportException( " Unable to retrieve scheduler service. Failed to export schedules" );
       }
-      List<Job> jobs = (List<Job>) (List<?>) scheduler.getJobs( null );
-      if ( jobs != null ) {
-        jobListSize = jobs.size();
-      }
-      log.info( Messages.getInstance().getString( "PentahoPlatformExporter.INFO_COUNT_SCHEDULE_TO_EXPORT", jobListSize ) );
-
-      for ( Job job : jobs ) {
-        if ( job.getJobName().equals( "PentahoSystemVersionCheck" ) ) {
-          // don't bother exporting the Version Checker schedule, it gets created automatically on server start
-          // if it doesn't exist and fails if you try to import it due to a null ActionClass
-          log.debug( " Skipping the version check schedule [ " + job.getJobName() + " ]" );
-          continue;
+      pool = new ForkJoinPool( EXPORT_PARALLELISM );
+      List<Job> page = new ArrayList<>( EXPORT_PAGE_SIZE );
+      if ( scheduler instanceof ISchedulerJobLookup ) {
+        ForkJoinPool exportPool = pool;
+        ( (ISchedulerJobLookup) scheduler ).forEachJob( null, null, job -> {
+          counts[ 0 ]++;
+          page.add( (Job) job );
+          if ( page.size() == EXPORT_PAGE_SIZE ) {
+            counts[ 1 ] += exportPage( page, scheduler, exportPool );
+          }
+        } );
+        log.info( Messages.getInstance().getString( "PentahoPlatformExporter.INFO_COUNT_SCHEDULE_TO_EXPORT", counts[ 0 ] ) );
+      } else {
+        List<Job> jobs = (List<Job>) (List<?>) scheduler.getJobs( null );
+        if ( jobs != null ) {
+          counts[ 0 ] = jobs.size();
         }
-        try {
-          log.trace( " Creating a job scheduling request for [ " + job.getJobName() + " ]" );
-          JobScheduleRequest scheduleRequest = ScheduleExportUtil.createJobScheduleRequest( job );
-          log.trace( " Successfully finish creating a job scheduling request for [ " + job.getJobName() + " ]" );
-          exportManifest.addSchedule( scheduleRequest );
-          successfulJobExportCount++;
-          log.trace( " Successfully added job scheduling request to manifest [ " + job.getJobName() + " ]" );
-          log.debug( " Successfully added schedule [ " + job.getJobName() + " ] to the manifest" );
-        } catch ( IllegalArgumentException e ) {
-          log.info( Messages.getInstance().getString( "PentahoPlatformExporter.ERROR_SCHEDULE_EXPORT", job.getJobName(), e.getMessage() ) );
-          log.debug( Messages.getInstance().getString( "PentahoPlatformExporter.ERROR_SCHEDULE_EXPORT", job.getJobName(), e.getMessage(), e ) );
+        log.info( Messages.getInstance().getString( "PentahoPlatformExporter.INFO_COUNT_SCHEDULE_TO_EXPORT", counts[ 0 ] ) );
+
+        for ( Job job : jobs ) {
+          page.add( job );
+          if ( page.size() == EXPORT_PAGE_SIZE ) {
+            counts[ 1 ] += exportPage( page, scheduler, pool );
+          }
         }
       }
+      counts[ 1 ] += exportPage( page, scheduler, pool );
     } catch ( SchedulerException e ) {
       throw new ExportException( Messages.getInstance().getString( "PentahoPlatformExporter.ERROR_EXPORTING_JOBS" ), e );
     } finally {
-      log.info( Messages.getInstance().getString( "PentahoPlatformExporter.INFO_SUCCESSFUL_SCHEDULE_EXPORT_COUNT", successfulJobExportCount, jobListSize ) );
+      if ( pool != null ) {
+        pool.shutdown();
+      }
+      log.info( Messages.getInstance().getString( "PentahoPlatformExporter.INFO_SUCCESSFUL_SCHEDULE_EXPORT_COUNT", counts[ 1 ], counts[ 0 ] ) );
 
       log.info( Messages.getInstance().getString( "PentahoPlatformExporter.INFO_END_EXPORT_SCHEDULE" ) );
     }
   }
 
+  /**
+   * Converts the jobs of <code>page</code> in parallel and adds them to the manifest in order, then empties the page.
+   *
+   * @return how many schedules were added
+   */
+  private int exportPage( List<Job> page, IScheduler scheduler, ForkJoinPool pool ) {
+    List<Object> converted = pool.submit( () -> page.parallelStream()
+      .map( job -> convert( job, scheduler ) )
+      .collect( Collectors.toList() ) ).join();
+
+    int exported = 0;
+    for ( int i = 0; i < page.size(); i++ ) {
+      Job job = page.get( i );
+      if ( converted.get( i ) == null ) {
+        // don't bother exporting the Version Checker schedule, it gets created automatically on server start
+        // if it doesn't exist and fails if you try to import it due to a null ActionClass
+        log.debug( " Skipping the version check schedule [ " + job.getJobName() + " ]" );
+      } else if ( converted.get( i ) instanceof IllegalArgumentException ) {
+        IllegalArgumentException e = (IllegalArgumentException) converted.get( i );
+        log.info( Messages.getInstance().getString( "PentahoPlatformExporter.ERROR_SCHEDULE_EXPORT", job.getJobName(), e.getMessage() ) );
+        log.debug( Messages.getInstance().getString( "PentahoPlatformExporter.ERROR_SCHEDULE_EXPORT", job.getJobName(), e.getMessage(), e ) );
+      } else {
+        exportManifest.addSchedule( (JobScheduleRequest) converted.get( i ) );
+        exported++;
+        log.debug( " Successfully added schedule [ " + job.getJobName() + " ] to the manifest" );
+      }
+    }
+    page.clear();
+    return exported;
+  }
+
+  /**
+   * @return the schedule request of <code>job</code>, the {@link IllegalArgumentException} that tells why it cannot
+   * be exported, or <code>null</code> if it is not exported
+   */
+  private static Object convert( Job job, IScheduler scheduler ) {
+    if ( VERSION_CHECK_JOB_NAME.equals( job.getJobName() ) ) {
+      return null;
+    }
+    try {
+      return createJobScheduleRequest( job, scheduler );
+    } catch ( IllegalArgumentException e ) {
+      return e;
+    }
+  }
+
   @Override
   public void doExport( Object exportArg ) throws ExportException {
     PentahoPlatformExporter exporter = (PentahoPlatformExporter) exportArg;
@@ -1,6 +1,7 @@
 package org.pentaho.platform.plugin.services.importer;
 
 import org.apache.commons.collections.CollectionUtils;
+import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.importexport.IImportHelper;
 import org.pentaho.platform.api.importexport.ImportException;
 import org.pentaho.platform.api.repository2.unified.RepositoryFile;
@@ -11,21 +12,38 @@ import org.pentaho.platform.api.scheduler2.IJobScheduleRequest;
 import org.pentaho.platform.api.scheduler2.IScheduler;
 import org.pentaho.platform.api.scheduler2.ISchedulerResource;
 import org.pentaho.platform.api.scheduler2.JobState;
+import org.pentaho.platform.api.scheduler2.SchedulerException;
+import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.plugin.services.importexport.ImportSession;
 import org.pentaho.platform.plugin.services.messages.Messages;
+import org.pentaho.platform.scheduler2.SchedulerJobLookupUtil;
+import org.pentaho.platform.scheduler2.quartz.ExecutionDurations;
+import org.pentaho.platform.scheduler2.quartz.QuartzScheduler;
 
 import javax.ws.rs.core.Response;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ScheduleImportUtil implements IImportHelper {
   private static final String RESERVEDMAPKEY_LINEAGE_ID = "lineage-id";
   private static final String SCHEDULE_IMPORT_UTIL_NAME ="schedule-import-util";
+  private static final int IMPORT_PARALLELISM = 4;
+  private static final int IMPORT_BATCH_SIZE = 500;
 
   public ScheduleImportUtil() {
     super();
@@ -46,7 +64,6 @@ public class ScheduleImportUtil implements IImportHelper {
       if ( solutionImportHandler.isPerformingRestore() ) {
         solutionImportHandler.getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_COUNT_SCHEDULUE", scheduleList.size() ) );
       }
-      int successfulScheduleImportCount = 0;
       IScheduler scheduler = PentahoSystem.get( IScheduler.class, "IScheduler2", null ); //$NON-NLS-1$
       ISchedulerResource schedulerResource = scheduler.createSchedulerResource();
       if ( solutionImportHandler.isPerformingRestore() ) {
@@ -56,108 +73,86 @@ public class ScheduleImportUtil implements IImportHelper {
       if ( solutionImportHandler.isPerformingRestore() ) {
         solutionImportHandler.getLogger().debug( "Successfully paused the scheduler" );
       }
+      // one lookup of the existing jobs for the whole manifest, instead of one per schedule
+      Set<String> lineageIds = new HashSet<>();
+      for ( IJobScheduleRequest jobScheduleRequest : scheduleList ) {
+        String lineageId = getLineageId( jobScheduleRequest );
+        if ( lineageId != null ) {
+          lineageIds.add( lineageId );
+        }
+      }
+      Map<String, List<IJob>> existingJobs = null;
+      String lookupError = null;
+      try {
+        existingJobs = SchedulerJobLookupUtil.getJobsByLineageIds( scheduler, lineageIds );
+      } catch ( SchedulerException e ) {
+        lookupError = e.getMessage();
+        solutionImportHandler.getLogger().error( "Could not look up the existing schedules", e );
+      }
+
+      List<IJobScheduleRequest> jobsToCreate = new ArrayList<>();
+      List<String> jobIdsToRemove = new ArrayList<>();
+      // the lineage ids of this manifest, by their place in jobsToCreate
+      Map<String, Integer> plannedLineageIds = new HashMap<>();
       for ( IJobScheduleRequest jobScheduleRequest : scheduleList ) {
         if ( solutionImportHandler.isPerformingRestore() ) {
           solutionImportHandler.getLogger().debug( "Restoring schedule name [ " + jobScheduleRequest.getJobName() + "] inputFile [ " + jobScheduleRequest.getInputFile() + " ] outputFile [ " + jobScheduleRequest.getOutputFile() + "]" );
         }
-        boolean jobExists = false;
-
-        List<IJob> jobs = schedulerResource.getJobsList();
-        if ( jobs != null ) {
+        String lineageId = getLineageId( jobScheduleRequest );
+        if ( lineageId != null && existingJobs == null ) {
+          solutionImportHandler.getLogger().error( Messages.getInstance()
+            .getString( "SolutionImportHandler.ERROR_0001_ERROR_CREATING_SCHEDULE", "[ " + jobScheduleRequest.getJobName() + " ] cause [ " + lookupError + " ]" ) );
+          continue;
+        }
 
-          //paramRequest to map<String, Serializable>
-          Map<String, Serializable> mapParamsRequest = new HashMap<>();
-          for ( IJobScheduleParam paramRequest : jobScheduleRequest.getJobParameters() ) {
-            mapParamsRequest.put( paramRequest.getName(), paramRequest.getValue() );
+        // We will check the existing job in the repository. If the job being imported exists, we will remove it from the repository
+        Integer planned = lineageId != null ? plannedLineageIds.get( lineageId ) : null;
+        List<IJob> jobs = lineageId != null ? existingJobs.get( lineageId ) : null;
+        if ( planned != null || jobs != null ) {
+          if ( !solutionImportHandler.overwriteFile ) {
+            solutionImportHandler.getLogger().info( Messages.getInstance()
+              .getString( "DefaultImportHandler.ERROR_0009_OVERWRITE_CONTENT", jobScheduleRequest.toString() ) );
+            continue;
           }
-
-          // We will check the existing job in the repository. If the job being imported exists, we will remove it from the repository
-          for ( IJob job : jobs ) {
-
-            if ( ( mapParamsRequest.get( RESERVEDMAPKEY_LINEAGE_ID ) != null )
-              && ( mapParamsRequest.get( RESERVEDMAPKEY_LINEAGE_ID )
-              .equals( job.getJobParams().get( RESERVEDMAPKEY_LINEAGE_ID ) ) ) ) {
-              jobExists = true;
-            }
-
-            if ( solutionImportHandler.overwriteFile && jobExists ) {
-              if ( solutionImportHandler.isPerformingRestore() ) {
-                solutionImportHandler.getLogger().debug( "Schedule  [ " + jobScheduleRequest.getJobName() + "] already exists and overwrite flag is set to true. Removing the job so we can add it again" );
-              }
-              IJobRequest jobRequest = scheduler.createJobRequest();
-              jobRequest.setJobId( job.getJobId() );
-              schedulerResource.removeJob( jobRequest );
-              jobExists = false;
-              break;
-            }
+          if ( solutionImportHandler.isPerformingRestore() ) {
+            solutionImportHandler.getLogger().debug( "Schedule  [ " + jobScheduleRequest.getJobName() + "] already exists and overwrite flag is set to true. Removing the job so we can add it again" );
           }
+          if ( planned != null ) {
+            // the manifest lists the lineage more than once; the last one wins
+            jobsToCreate.set( planned, jobScheduleRequest );
+            continue;
+          }
+          jobIdsToRemove.add( jobs.get( 0 ).getJobId() );
+        }
+        if ( lineageId != null ) {
+          plannedLineageIds.put( lineageId, jobsToCreate.size() );
         }
+        jobsToCreate.add( jobScheduleRequest );
+      }
 
-        if ( !jobExists ) {
-          try {
-            Response response = createSchedulerJob( schedulerResource, jobScheduleRequest );
-            if ( response.getStatus() == Response.Status.OK.getStatusCode() ) {
-              if ( response.getEntity() != null ) {
-                // get the schedule job id from the response and add it to the import session
-                ImportSession.getSession().addImportedScheduleJobId( response.getEntity().toString() );
-                if ( solutionImportHandler.isPerformingRestore() ) {
-                  solutionImportHandler.getLogger().debug( "Successfully restored schedule [ " + jobScheduleRequest.getJobName() + " ] " );
-                }
-                successfulScheduleImportCount++;
-              }
-            } else {
-              solutionImportHandler.getLogger().error( Messages.getInstance().getString( "SolutionImportHandler.ERROR_IMPORTING_SCHEDULE", jobScheduleRequest.getJobName(), response.getEntity() != null
-                ? response.getEntity().toString() : "" ) );
-            }
-          } catch ( Exception e ) {
-            // there is a scenario where if the file scheduled has a space in the file name, that it won't work. the
-            // di server
-
-            // replaces spaces with underscores and the export mechanism can't determine if it needs this to happen
-            // or not
-            // so, if we failed to import and there is a space in the path, try again but this time with replacing
-            // the space(s)
-            if ( jobScheduleRequest.getInputFile().contains( " " ) || jobScheduleRequest.getOutputFile()
-              .contains( " " ) ) {
-              solutionImportHandler.getLogger().debug( Messages.getInstance()
-                .getString( "SolutionImportHandler.SchedulesWithSpaces", jobScheduleRequest.getInputFile() ) );
-              File inFile = new File( jobScheduleRequest.getInputFile() );
-              File outFile = new File( jobScheduleRequest.getOutputFile() );
-              String inputFileName = inFile.getParent() + RepositoryFile.SEPARATOR
-                + inFile.getName().replace( " ", "_" );
-              String outputFileName = outFile.getParent() + RepositoryFile.SEPARATOR
-                + outFile.getName().replace( " ", "_" );
-              jobScheduleRequest.setInputFile( inputFileName );
-              jobScheduleRequest.setOutputFile( outputFileName );
-              try {
-                if ( !File.separator.equals( RepositoryFile.SEPARATOR ) ) {
-                  // on windows systems, the backslashes will result in the file not being found in the repository
-                  jobScheduleRequest.setInputFile( inputFileName.replace( File.separator, RepositoryFile.SEPARATOR ) );
-                  jobScheduleRequest
-                    .setOutputFile( outputFileName.replace( File.separator, RepositoryFile.SEPARATOR ) );
-                }
-                Response response = createSchedulerJob( schedulerResource, jobScheduleRequest );
-                if ( response.getStatus() == Response.Status.OK.getStatusCode() ) {
-                  if ( response.getEntity() != null ) {
-                    // get the schedule job id from the response and add it to the import session
-                    ImportSession.getSession().addImportedScheduleJobId( response.getEntity().toString() );
-                    successfulScheduleImportCount++;
-                  }
-                }
-              } catch ( Exception ex ) {
-                // log it and keep going. we shouldn't stop processing all schedules just because one fails.
-                solutionImportHandler.getLogger().error( Messages.getInstance()
-                  .getString( "SolutionImportHandler.ERROR_0001_ERROR_CREATING_SCHEDULE", "[ " + jobScheduleRequest.getJobName() + " ] cause [ " + ex.getMessage() + " ]" ), ex );
-              }
-            } else {
-              // log it and keep going. we shouldn't stop processing all schedules just because one fails.
-              solutionImportHandler.getLogger().error( Messages.getInstance()
-                .getString( "SolutionImportHandler.ERROR_0001_ERROR_CREATING_SCHEDULE", "[ " + jobScheduleRequest.getJobName() + " ]" ) );
-            }
-          }
-        } else {
-          solutionImportHandler.getLogger().info( Messages.getInstance()
-            .getString( "DefaultImportHandler.ERROR_0009_OVERWRITE_CONTENT", jobScheduleRequest.toString() ) );
+      // the exported execution times are not a job parameter; they go back to where the jobs record them
+      Map<String, String> executionDurations = new HashMap<>();
+      for ( IJobScheduleRequest jobScheduleRequest : jobsToCreate ) {
+        String durations = removeExecutionDurations( jobScheduleRequest );
+        String lineageId = getLineageId( jobScheduleRequest );
+        if ( durations != null && lineageId != null ) {
+          executionDurations.put( lineageId, durations );
+        }
+      }
+
+      for ( String jobId : jobIdsToRemove ) {
+        IJobRequest jobRequest = scheduler.createJobRequest();
+        jobRequest.setJobId( jobId );
+        schedulerResource.removeJob( jobRequest );
+      }
+      if ( !jobIdsToRemove.isEmpty() && solutionImportHandler.isPerformingRestore() ) {
+        solutionImportHandler.getLogger().info( "Removed " + jobIdsToRemove.size() + " existing schedules to overwrite" );
+      }
+
+      int successfulScheduleImportCount = createSchedulerJobs( solutionImportHandler, schedulerResource, jobsToCreate );
+      for ( Map.Entry<String, String> durations : executionDurations.entrySet() ) {
+        if ( ExecutionDurations.getInstance().getDurations( durations.getKey() ).length == 0 ) {
+          ExecutionDurations.getInstance().parse( durations.getKey(), durations.getValue() );
         }
       }
       if ( solutionImportHandler.isPerformingRestore() ) {
@@ -174,6 +169,190 @@ public class ScheduleImportUtil implements IImportHelper {
     }
   }
 
+  private static String getLineageId( IJobScheduleRequest jobScheduleRequest ) {
+    Serializable lineageId = null;
+    if ( jobScheduleRequest.getJobParameters() != null ) {
+      for ( IJobScheduleParam paramRequest : jobScheduleRequest.getJobParameters() ) {
+        if ( RESERVEDMAPKEY_LINEAGE_ID.equals( paramRequest.getName() ) ) {
+          lineageId = paramRequest.getValue();
+        }
+      }
+    }
+    return lineageId != null ? lineageId.toString() : null;
+  }
+
+  /**
+   * Takes the exported execution times off the parameters of a schedule.
+   *
+   * @return the execution times, or <code>null</code> if the schedule has none
+   */
+  private static String removeExecutionDurations( IJobScheduleRequest jobScheduleRequest ) {
+    String durations = null;
+    if ( jobScheduleRequest.getJobParameters() != null ) {
+      Iterator<IJobScheduleParam> params = jobScheduleRequest.getJobParameters().iterator();
+      while ( params.hasNext() ) {
+        IJobScheduleParam param = params.next();
+        if ( QuartzScheduler.RESERVEDMAPKEY_EXECUTION_DURATIONS.equals( param.getName() ) ) {
+          durations = param.getValue() != null ? param.getValue().toString() : null;
+          params.remove();
+        }
+      }
+    }
+    return durations;
+  }
+
+  /**
+   * Creates the schedules in batches of {@link #IMPORT_BATCH_SIZE}, each spread over up to
+   * {@link #getImportParallelism()} threads in the session of the import, and logs the progress after each batch.
+   *
+   * @return how many schedules were created
+   */
+  int createSchedulerJobs( SolutionImportHandler solutionImportHandler, ISchedulerResource schedulerResource,
+                           List<IJobScheduleRequest> jobScheduleRequests ) {
+    int parallelism = Math.min( getImportParallelism(), jobScheduleRequests.size() );
+    ExecutorService executor = null;
+    if ( parallelism > 1 ) {
+      AtomicInteger threads = new AtomicInteger();
+      executor = Executors.newFixedThreadPool( parallelism, runnable -> {
+        Thread thread = new Thread( runnable, SCHEDULE_IMPORT_UTIL_NAME + "-" + threads.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    }
+    IPentahoSession session = PentahoSessionHolder.getSession();
+    long start = System.currentTimeMillis();
+    int createdCount = 0;
+    try {
+      for ( int from = 0; from < jobScheduleRequests.size(); from += IMPORT_BATCH_SIZE ) {
+        List<IJobScheduleRequest> batch =
+          jobScheduleRequests.subList( from, Math.min( from + IMPORT_BATCH_SIZE, jobScheduleRequests.size() ) );
+        List<Future<String>> jobIds = new ArrayList<>();
+        for ( IJobScheduleRequest jobScheduleRequest : batch ) {
+          if ( executor == null ) {
+            jobIds.add( CompletableFuture.completedFuture(
+              importSchedule( solutionImportHandler, schedulerResource, jobScheduleRequest ) ) );
+          } else {
+            jobIds.add( executor.submit( () -> {
+              PentahoSessionHolder.setSession( session );
+              try {
+                return importSchedule( solutionImportHandler, schedulerResource, jobScheduleRequest );
+              } finally {
+                PentahoSessionHolder.removeSession();
+              }
+            } ) );
+          }
+        }
+        for ( Future<String> jobId : jobIds ) {
+          String createdJobId = jobId.get();
+          if ( createdJobId != null ) {
+            // the import session belongs to this thread
+            ImportSession.getSession().addImportedScheduleJobId( createdJobId );
+            createdCount++;
+          }
+        }
+        logProgress( solutionImportHandler, from + batch.size(), jobScheduleRequests.size(), start );
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      solutionImportHandler.getLogger().error( "Interrupted while importing schedules", e );
+    } catch ( ExecutionException e ) {
+      // importSchedule handles its own failures
+      solutionImportHandler.getLogger().error( "Could not import the schedules", e.getCause() );
+    } finally {
+      if ( executor != null ) {
+        executor.shutdownNow();
+      }
+    }
+    return createdCount;
+  }
+
+  private void logProgress( SolutionImportHandler solutionImportHandler, int done, int total, long start ) {
+    long elapsedMillis = Math.max( 1, System.currentTimeMillis() - start );
+    String progress = "Imported " + done + " of " + total + " schedules in " + elapsedMillis + " ms ("
+      + ( done * 1000L / elapsedMillis ) + " per second)";
+    if ( solutionImportHandler.isPerformingRestore() ) {
+      solutionImportHandler.getLogger().info( progress );
+    } else {
+      solutionImportHandler.getLogger().debug( progress );
+    }
+  }
+
+  /**
+   * Creates one schedule, logging its failure.
+   *
+   * @return the id of the job, or <code>null</code> if it was not created
+   */
+  private String importSchedule( SolutionImportHandler solutionImportHandler, ISchedulerResource schedulerResource,
+                                 IJobScheduleRequest jobScheduleRequest ) {
+    try {
+      Response response = createSchedulerJob( schedulerResource, jobScheduleRequest );
+      if ( response.getStatus() == Response.Status.OK.getStatusCode() ) {
+        if ( response.getEntity() != null ) {
+          if ( solutionImportHandler.isPerformingRestore() ) {
+            solutionImportHandler.getLogger().debug( "Successfully restored schedule [ " + jobScheduleRequest.getJobName() + " ] " );
+          }
+          // the schedule job id, for the import session
+          return response.getEntity().toString();
+        }
+      } else {
+        solutionImportHandler.getLogger().error( Messages.getInstance().getString( "SolutionImportHandler.ERROR_IMPORTING_SCHEDULE", jobScheduleRequest.getJobName(), response.getEntity() != null
+          ? response.getEntity().toString() : "" ) );
+      }
+    } catch ( Exception e ) {
+      // there is a scenario where if the file scheduled has a space in the file name, that it won't work. the
+      // di server
+
+      // replaces spaces with underscores and the export mechanism can't determine if it needs this to happen
+      // or not
+      // so, if we failed to import and there is a space in the path, try again but this time with replacing
+      // the space(s)
+      if ( jobScheduleRequest.getInputFile().contains( " " ) || jobScheduleRequest.getOutputFile()
+        .contains( " " ) ) {
+        solutionImportHandler.getLogger().debug( Messages.getInstance()
+          .getString( "SolutionImportHandler.SchedulesWithSpaces", jobScheduleRequest.getInputFile() ) );
+        File inFile = new File( jobScheduleRequest.getInputFile() );
+        File outFile = new File( jobScheduleRequest.getOutputFile() );
+        String inputFileName = inFile.getParent() + RepositoryFile.SEPARATOR
+          + inFile.getName().replace( " ", "_" );
+        String outputFileName = outFile.getParent() + RepositoryFile.SEPARATOR
+          + outFile.getName().replace( " ", "_" );
+        jobScheduleRequest.setInputFile( inputFileName );
+        jobScheduleRequest.setOutputFile( outputFileName );
+        try {
+          if ( !File.separator.equals( RepositoryFile.SEPARATOR ) ) {
+            // on windows systems, the backslashes will result in the file not being found in the repository
+            jobScheduleRequest.setInputFile( inputFileName.replace( File.separator, RepositoryFile.SEPARATOR ) );
+            jobScheduleRequest
+              .setOutputFile( outputFileName.replace( File.separator, RepositoryFile.SEPARATOR ) );
+          }
+          Response response = createSchedulerJob( schedulerResource, jobScheduleRequest );
+          if ( response.getStatus() == Response.Status.OK.getStatusCode() ) {
+            if ( response.getEntity() != null ) {
+              // the schedule job id, for the import session
+              return response.getEntity().toString();
+            }
+          }
+        } catch ( Exception ex ) {
+          // log it and keep going. we shouldn't stop processing all schedules just because one fails.
+          solutionImportHandler.getLogger().error( Messages.getInstance()
+            .getString( "SolutionImportHandler.ERROR_0001_ERROR_CREATING_SCHEDULE", "[ " + jobScheduleRequest.getJobName() + " ] cause [ " + ex.getMessage() + " ]" ), ex );
+        }
+      } else {
+        // log it and keep going. we shouldn't stop processing all schedules just because one fails.
+        solutionImportHandler.getLogger().error( Messages.getInstance()
+          .getString( "SolutionImportHandler.ERROR_0001_ERROR_CREATING_SCHEDULE", "[ " + jobScheduleRequest.getJobName() + " ]" ) );
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return how many schedules are created at the same time
+   */
+  int getImportParallelism() {
+    return IMPORT_PARALLELISM;
+  }
+
   public Response createSchedulerJob( ISchedulerResource scheduler, IJobScheduleRequest jobScheduleRequest )
     throws IOException {
     Response rs = scheduler != null ? (Response) scheduler.createJob( jobScheduleRequest ) : null;
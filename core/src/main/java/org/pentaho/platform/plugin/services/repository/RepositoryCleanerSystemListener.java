@@ -27,6 +27,7 @@ import org.pentaho.platform.api.scheduler2.IScheduler;
 import org.pentaho.platform.api.scheduler2.SchedulerException;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.scheduler2.SchedulerJobLookupUtil;
 import org.pentaho.platform.util.StringUtil;
 
 import java.util.ArrayList;
@@ -145,7 +146,7 @@ public class RepositoryCleanerSystemListener implements IPluginLifecycleListener
     }
 
     try {
-      List<IJob> jobs = scheduler.getJobs( this );
+      List<IJob> jobs = SchedulerJobLookupUtil.getJobsByName( scheduler, RepositoryGcJob.JOB_NAME );
       if ( gcEnabled ) {
         if ( jobs.isEmpty() ) {
           scheduleJob( scheduler );
@@ -0,0 +1,101 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.cronutils.descriptor.CronDescriptor;
+import com.cronutils.model.CronType;
+import com.cronutils.model.definition.CronDefinitionBuilder;
+import com.cronutils.parser.CronParser;
+import org.pentaho.platform.util.messages.LocaleHelper;
+
+/**
+ * Human readable descriptions of Quartz cron expressions. The parser is shared, descriptors are kept per locale and
+ * the descriptions themselves in a bounded LRU, since the same few cron strings are described over and over again for
+ * every job listing.
+ */
+public class CronDescriptionService {
+
+  public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+  private static final CronDescriptionService instance = new CronDescriptionService( DEFAULT_MAX_ENTRIES );
+
+  private final CronParser parser = new CronParser( CronDefinitionBuilder.instanceDefinitionFor( CronType.QUARTZ ) );
+
+  private final Map<Locale, CronDescriptor> descriptors = new ConcurrentHashMap<>();
+
+  private final Map<String, String> descriptions;
+
+  CronDescriptionService( final int maxEntries ) {
+    descriptions = new LinkedHashMap<String, String>( 16, 0.75f, true ) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry( Map.Entry<String, String> eldest ) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  public static CronDescriptionService getInstance() {
+    return instance;
+  }
+
+  /**
+   * Describes <code>cronString</code> in the locale of the current user.
+   */
+  public String describe( String cronString ) {
+    return describe( cronString, LocaleHelper.getLocale() );
+  }
+
+  /**
+   * @throws IllegalArgumentException if <code>cronString</code> is not a valid Quartz cron expression
+   */
+  public String describe( String cronString, Locale locale ) {
+    if ( cronString == null || cronString.isEmpty() ) {
+      return null;
+    }
+    Locale descriptionLocale = locale == null ? Locale.US : locale;
+    String key = descriptionLocale.toLanguageTag() + '\n' + cronString;
+    synchronized ( descriptions ) {
+      String description = descriptions.get( key );
+      if ( description != null ) {
+        return description;
+      }
+    }
+    // describe outside the lock, a duplicate computation now and then is cheaper than serializing all callers
+    String description = descriptors.computeIfAbsent( descriptionLocale, CronDescriptor::instance )
+      .describe( parser.parse( cronString ) );
+    synchronized ( descriptions ) {
+      descriptions.put( key, description );
+    }
+    return description;
+  }
+
+  int size() {
+    synchronized ( descriptions ) {
+      return descriptions.size();
+    }
+  }
+
+  void clear() {
+    synchronized ( descriptions ) {
+      descriptions.clear();
+    }
+  }
+}
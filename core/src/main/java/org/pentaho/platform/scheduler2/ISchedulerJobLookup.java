@@ -0,0 +1,62 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.pentaho.platform.api.scheduler2.IJob;
+import org.pentaho.platform.api.scheduler2.IJobFilter;
+import org.pentaho.platform.api.scheduler2.SchedulerException;
+
+/**
+ * Targeted job lookups for schedulers that can answer them without walking every job.
+ * <p/>
+ * Callers holding an {@link org.pentaho.platform.api.scheduler2.IScheduler} should check for this interface and fall
+ * back to {@link org.pentaho.platform.api.scheduler2.IScheduler#getJobs(IJobFilter)} when it is not implemented.
+ */
+public interface ISchedulerJobLookup {
+
+  /**
+   * Returns the jobs owned by <code>userName</code>. The cost is proportional to that user's own job count.
+   *
+   * @param userName the job owner
+   * @param filter   optional additional filter, may be <code>null</code>
+   */
+  List<IJob> getJobsByOwner( String userName, IJobFilter filter ) throws SchedulerException;
+
+  /**
+   * Passes the jobs to <code>consumer</code> one at a time as they are read, without collecting them first.
+   *
+   * @param userName the job owner, or <code>null</code> for the jobs of every owner
+   * @param filter   optional filter, may be <code>null</code>
+   */
+  void forEachJob( String userName, IJobFilter filter, Consumer<IJob> consumer ) throws SchedulerException;
+
+  /**
+   * Returns the jobs named exactly <code>jobName</code>.
+   */
+  List<IJob> getJobsByName( String jobName ) throws SchedulerException;
+
+  /**
+   * Returns the jobs whose {@link org.pentaho.platform.api.scheduler2.IScheduler#RESERVEDMAPKEY_LINEAGE_ID} parameter
+   * equals <code>lineageId</code>.
+   */
+  List<IJob> getJobsByLineageId( String lineageId ) throws SchedulerException;
+
+  /**
+   * Returns the jobs scheduled for the repository file <code>inputFile</code>.
+   */
+  List<IJob> getJobsByInputFile( String inputFile ) throws SchedulerException;
+}
@@ -0,0 +1,91 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.pentaho.platform.api.scheduler2.IJob;
+import org.pentaho.platform.api.scheduler2.IScheduler;
+import org.pentaho.platform.api.scheduler2.SchedulerException;
+import org.pentaho.platform.util.ActionUtil;
+
+/**
+ * Uses the {@link ISchedulerJobLookup} indexes when the scheduler provides them, and falls back to a filtered
+ * {@link IScheduler#getJobs} scan otherwise.
+ */
+public class SchedulerJobLookupUtil {
+
+  private SchedulerJobLookupUtil() {
+  }
+
+  public static List<IJob> getJobsByName( IScheduler scheduler, String jobName ) throws SchedulerException {
+    if ( scheduler instanceof ISchedulerJobLookup ) {
+      return ( (ISchedulerJobLookup) scheduler ).getJobsByName( jobName );
+    }
+    return scheduler.getJobs( job -> jobName != null && jobName.equals( job.getJobName() ) );
+  }
+
+  public static List<IJob> getJobsByLineageId( IScheduler scheduler, String lineageId ) throws SchedulerException {
+    if ( scheduler instanceof ISchedulerJobLookup ) {
+      return ( (ISchedulerJobLookup) scheduler ).getJobsByLineageId( lineageId );
+    }
+    return scheduler.getJobs( job -> lineageId != null && job.getJobParams() != null
+      && lineageId.equals( job.getJobParams().get( IScheduler.RESERVEDMAPKEY_LINEAGE_ID ) ) );
+  }
+
+  /**
+   * Looks up the jobs of many lineage ids at once, through the index or else with a single scan.
+   *
+   * @return the jobs by lineage id, without the lineage ids that have none
+   */
+  public static Map<String, List<IJob>> getJobsByLineageIds( IScheduler scheduler, Collection<String> lineageIds )
+    throws SchedulerException {
+    Map<String, List<IJob>> jobsByLineageId = new HashMap<>();
+    if ( lineageIds.isEmpty() ) {
+      return jobsByLineageId;
+    }
+    if ( scheduler instanceof ISchedulerJobLookup ) {
+      for ( String lineageId : lineageIds ) {
+        List<IJob> jobs = ( (ISchedulerJobLookup) scheduler ).getJobsByLineageId( lineageId );
+        if ( !jobs.isEmpty() ) {
+          jobsByLineageId.put( lineageId, jobs );
+        }
+      }
+      return jobsByLineageId;
+    }
+    Set<String> wanted = new HashSet<>( lineageIds );
+    List<IJob> jobs = scheduler.getJobs( job -> job.getJobParams() != null
+      && job.getJobParams().get( IScheduler.RESERVEDMAPKEY_LINEAGE_ID ) instanceof String
+      && wanted.contains( job.getJobParams().get( IScheduler.RESERVEDMAPKEY_LINEAGE_ID ) ) );
+    for ( IJob job : jobs ) {
+      jobsByLineageId.computeIfAbsent( (String) job.getJobParams().get( IScheduler.RESERVEDMAPKEY_LINEAGE_ID ),
+        lineageId -> new ArrayList<>() ).add( job );
+    }
+    return jobsByLineageId;
+  }
+
+  public static List<IJob> getJobsByInputFile( IScheduler scheduler, String inputFile ) throws SchedulerException {
+    if ( scheduler instanceof ISchedulerJobLookup ) {
+      return ( (ISchedulerJobLookup) scheduler ).getJobsByInputFile( inputFile );
+    }
+    return scheduler.getJobs( job -> inputFile != null && job.getJobParams() != null
+      && inputFile.equals( job.getJobParams().get( ActionUtil.QUARTZ_STREAMPROVIDER_INPUT_FILE ) ) );
+  }
+}
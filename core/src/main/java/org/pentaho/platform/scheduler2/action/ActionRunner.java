@@ -27,10 +27,12 @@ import org.pentaho.platform.api.repository2.unified.ISourcesStreamEvents;
 import org.pentaho.platform.api.repository2.unified.IStreamListener;
 import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
 import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.data.simple.SimpleRepositoryFileData;
 import org.pentaho.platform.api.scheduler2.IBackgroundExecutionStreamProvider;
 import org.pentaho.platform.api.scheduler2.SchedulerException;
 import org.pentaho.platform.engine.core.output.FileContentItem;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.engine.security.SecurityHelper;
 import org.pentaho.platform.engine.services.solution.ActionSequenceCompatibilityFormatter;
 import org.pentaho.platform.scheduler2.ISchedulerOutputPathResolver;
 import org.pentaho.platform.scheduler2.messsages.Messages;
@@ -39,12 +41,19 @@ import org.pentaho.platform.util.beans.ActionHarness;
 import org.pentaho.platform.util.messages.LocaleHelper;
 import org.pentaho.platform.workitem.WorkItemLifecycleEventUtil;
 import org.pentaho.platform.workitem.WorkItemLifecyclePhase;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 
 public class ActionRunner implements IActionRunner {
@@ -99,6 +108,10 @@ public class ActionRunner implements IActionRunner {
     final String workItemName = ActionUtil.extractName( params );
     try {
       final ExecutionResult result = callImpl();
+      if ( result.isDeferred() ) {
+        // published once the follower's output is in place, when the shared execution's leader completed
+        return result.updateRequired();
+      }
       if ( result.isSuccess() ) {
         WorkItemLifecycleEventUtil.publish( workItemName, params, WorkItemLifecyclePhase.SUCCEEDED );
       } else {
@@ -121,17 +134,14 @@ public class ActionRunner implements IActionRunner {
   private ExecutionResult callImpl() throws Exception {
     boolean executionStatus = true;
 
-    final Object locale = params.get( LocaleHelper.USER_LOCALE_PARAM );
-    if ( locale instanceof Locale ) {
-      LocaleHelper.setThreadLocaleOverride( (Locale) locale );
-    } else {
-      LocaleHelper.setThreadLocaleOverride( new Locale( (String) locale ) );
-    }
+    setThreadLocale();
     // sync job params to the action bean
     ActionHarness actionHarness = new ActionHarness( actionBean );
 
     final Map<String, Object> actionParams = new HashMap<>();
     actionParams.putAll( params );
+    final Object fingerprint = actionParams.remove( SharedExecutions.FINGERPRINT_PARAM );
+    final Object followerListener = actionParams.remove( SharedExecutions.FOLLOWER_LISTENER_PARAM );
     if ( streamProvider != null ) {
       actionParams.put( "inputStream", streamProvider.getInputStream() );
     }
@@ -191,20 +201,40 @@ public class ActionRunner implements IActionRunner {
       actionHarness.setValues( actionParams );
     }
 
-    actionBean.execute();
-    executionStatus = actionBean.isExecutionSuccessful();
-    if ( stream != null ) {
-      IOUtils.closeQuietly( stream );
+    SharedExecutions.Execution sharedExecution = null;
+    if ( fingerprint != null && followerListener instanceof SharedExecutions.FollowerListener && waitForFileCreated
+      && !( actionBean instanceof IPostProcessingAction ) ) {
+      sharedExecution = joinSharedExecution( fingerprint.toString() );
+    }
+    if ( sharedExecution != null && !sharedExecution.isLeader() ) {
+      // the leader hands over its output when it completes; this thread is not held up meanwhile
+      final OutputStream followerStream = stream;
+      final SharedExecutions.FollowerListener listener = (SharedExecutions.FollowerListener) followerListener;
+      listener.deferred();
+      sharedExecution.whenDone( sourcePath -> listener.finished(
+        finishSharedExecution( sourcePath, followerStream, actionParams ) ) );
+      return new ExecutionResult( false, true, true );
     }
 
-    if ( waitForFileCreated ) {
-      synchronized ( lock ) {
-        while ( outputFilePath == null && !streamComplete ) {
-          lock.wait( 1000 );
-        }
+    boolean completed = false;
+    try {
+      actionBean.execute();
+      executionStatus = actionBean.isExecutionSuccessful();
+      if ( stream != null ) {
+        IOUtils.closeQuietly( stream );
+      }
+
+      if ( waitForFileCreated ) {
+        awaitOutputFile();
+        completed = true;
+        sendEmail( actionParams );
+        deleteFileIfEmpty();
+      }
+    } finally {
+      if ( sharedExecution != null ) {
+        SharedExecutions.getInstance().complete( sharedExecution, outputFilePath, completed && executionStatus,
+          System.currentTimeMillis() );
       }
-      sendEmail( actionParams );
-      deleteFileIfEmpty();
     }
     if ( actionBean instanceof IPostProcessingAction ) {
       closeContentOutputStreams( (IPostProcessingAction) actionBean );
@@ -215,6 +245,110 @@ public class ActionRunner implements IActionRunner {
     return new ExecutionResult( false, executionStatus );
   }
 
+  private void setThreadLocale() {
+    final Object locale = params.get( LocaleHelper.USER_LOCALE_PARAM );
+    if ( locale instanceof Locale ) {
+      LocaleHelper.setThreadLocaleOverride( (Locale) locale );
+    } else {
+      LocaleHelper.setThreadLocaleOverride( new Locale( (String) locale ) );
+    }
+  }
+
+  private void awaitOutputFile() throws InterruptedException {
+    synchronized ( lock ) {
+      while ( outputFilePath == null && !streamComplete ) {
+        lock.wait( 1000 );
+      }
+    }
+  }
+
+  /**
+   * Joins the execution shared by the identical jobs of the owners with the same roles as the current user.
+   *
+   * @return the shared execution, or <code>null</code> if the current user is unknown
+   */
+  protected SharedExecutions.Execution joinSharedExecution( String fingerprint ) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if ( authentication == null || isAnonymous() ) {
+      return null;
+    }
+    List<String> roles = new ArrayList<>();
+    for ( GrantedAuthority authority : authentication.getAuthorities() ) {
+      roles.add( authority.getAuthority() );
+    }
+    return SharedExecutions.getInstance().join( SharedExecutions.withPermissionScope( fingerprint, roles ),
+      System.currentTimeMillis() );
+  }
+
+  /**
+   * Completes the execution of a follower of a shared execution, once the leader completed and as the follower's
+   * owner: copies the leader's output, or runs the action if the leader has none, then sends the follower's email.
+   *
+   * @param sourcePath the repository path of the leader's output, or <code>null</code> if the leader failed
+   * @return whether the follower's output is in place
+   */
+  protected boolean finishSharedExecution( String sourcePath, OutputStream stream, Map<String, Object> actionParams ) {
+    final String workItemName = ActionUtil.extractName( params );
+    try {
+      boolean executionStatus = runAsActionUser( () -> {
+        boolean succeeded = true;
+        setThreadLocale();
+        if ( sourcePath != null && copySharedOutput( sourcePath, stream ) ) {
+          logger.info( Messages.getInstance().getSharedExecutionOutputCopied( actionBean.getClass().getName(),
+            actionUser ) );
+        } else {
+          actionBean.execute();
+          succeeded = actionBean.isExecutionSuccessful();
+        }
+        IOUtils.closeQuietly( stream );
+        awaitOutputFile();
+        sendEmail( actionParams );
+        deleteFileIfEmpty();
+        return succeeded;
+      } );
+      WorkItemLifecycleEventUtil.publish( workItemName, params,
+        executionStatus ? WorkItemLifecyclePhase.SUCCEEDED : WorkItemLifecyclePhase.FAILED );
+      return executionStatus;
+    } catch ( final Throwable t ) {
+      IOUtils.closeQuietly( stream );
+      logger.error( Messages.getInstance().getActionFailedToExecute( actionBean.getClass().getName() ), t );
+      WorkItemLifecycleEventUtil.publish( workItemName, params, WorkItemLifecyclePhase.FAILED, t.toString() );
+      return false;
+    }
+  }
+
+  private <T> T runAsActionUser( Callable<T> callable ) throws Exception {
+    return isAnonymous() ? SecurityHelper.getInstance().runAsAnonymous( callable )
+      : SecurityHelper.getInstance().runAsUser( actionUser, callable );
+  }
+
+  private boolean isAnonymous() {
+    // as DefaultActionInvoker runs the jobs of system users, see PPP-2350
+    return actionUser == null || actionUser.isEmpty() || "system session".equals( actionUser ); //$NON-NLS-1$
+  }
+
+  /**
+   * Copies the output of the leader of a shared execution to <code>stream</code>. The leader's output is read as the
+   * system, as it may be in the leader's home folder: the leader is either the same owner or, for jobs shared with
+   * {@link SharedExecutions#ANY_OWNER}, an owner with the same roles running the same action with the same parameters,
+   * whose output the job declared does not depend on the user.
+   *
+   * @return whether the output was copied; if not, nothing was written and the action should run
+   */
+  protected boolean copySharedOutput( final String sourcePath, OutputStream stream ) throws Exception {
+    return SecurityHelper.getInstance().runAsSystem( () -> {
+      IUnifiedRepository repo = PentahoSystem.get( IUnifiedRepository.class );
+      RepositoryFile source = repo.getFile( sourcePath );
+      if ( source == null ) {
+        return false;
+      }
+      try ( InputStream in = repo.getDataForRead( source.getId(), SimpleRepositoryFileData.class ).getInputStream() ) {
+        IOUtils.copy( in, stream );
+      }
+      return true;
+    } );
+  }
+
   /**
    * Get full path parent directory of a given full path filename.
    * @param path
@@ -343,10 +477,20 @@ public class ActionRunner implements IActionRunner {
   private class ExecutionResult {
     private boolean updateRequired;
     private boolean isSuccess;
+    private boolean deferred;
 
     public ExecutionResult( Boolean updateRequired, Boolean isSuccess ) {
+      this( updateRequired, isSuccess, false );
+    }
+
+    public ExecutionResult( Boolean updateRequired, Boolean isSuccess, Boolean deferred ) {
       this.updateRequired = updateRequired;
       this.isSuccess = isSuccess;
+      this.deferred = deferred;
+    }
+
+    public Boolean isDeferred() {
+      return deferred;
     }
     public Boolean updateRequired() {
       return updateRequired;
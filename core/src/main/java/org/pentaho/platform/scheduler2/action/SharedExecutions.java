@@ -0,0 +1,325 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.action;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs identical scheduled executions once. Schedules that opted in with the <code>share-execution</code> parameter
+ * and fire in the same minute for the same action, input file and parameters share a fingerprint; the first execution
+ * to arrive with it (the leader) runs the action. The others (the followers) do not wait for it: they leave a callback
+ * that runs, on a pool of its own, when the leader completes, which copies its output to their own output path and
+ * sends their own emails. The scheduler is told a follower completed only then, see {@link FollowerListener}.
+ * <p/>
+ * Only the jobs of the same owner share an execution, unless a job opted in with {@link #ANY_OWNER}, declaring that
+ * its output does not depend on the user running it. Even then the fingerprint of each execution also covers the roles
+ * of its owner ({@link ActionRunner} adds them), so only owners with the same permissions share an execution. A
+ * follower whose leader failed runs the action itself.
+ */
+public class SharedExecutions {
+
+  /**
+   * The parameter through which the fingerprint travels from the scheduler to the {@link ActionRunner}.
+   */
+  public static final String FINGERPRINT_PARAM = "shared-execution-fingerprint"; //$NON-NLS-1$
+
+  /**
+   * The parameter through which the {@link FollowerListener} of an execution travels from the scheduler to the
+   * {@link ActionRunner}; an execution without one is not shared.
+   */
+  public static final String FOLLOWER_LISTENER_PARAM = "shared-execution-follower-listener"; //$NON-NLS-1$
+
+  /**
+   * The <code>share-execution</code> value sharing an execution with the identical jobs of other owners.
+   */
+  public static final String ANY_OWNER = "any-owner"; //$NON-NLS-1$
+
+  /**
+   * How long a completed execution is kept for followers that fire late, e.g. behind a busy worker pool.
+   */
+  static final long RETENTION_MILLIS = TimeUnit.HOURS.toMillis( 1 );
+
+  private static final long BUCKET_MILLIS = TimeUnit.MINUTES.toMillis( 1 );
+
+  private static final int FOLLOWER_THREADS = 4;
+
+  private static final int FOLLOWER_QUEUE_SIZE = 256;
+
+  private static final AtomicInteger followerThreadCount = new AtomicInteger();
+
+  /**
+   * Parameters that differ between the owners of identical schedules without changing what the action produces.
+   */
+  private static final String[] OWNER_PARAMS = {
+    "ActionAdapterQuartzJob-ActionUser", //$NON-NLS-1$
+    "ActionAdapterQuartzJob-StreamProvider", //$NON-NLS-1$
+    "ActionAdapterQuartzJob-Restart", //$NON-NLS-1$
+    "lineage-id", //$NON-NLS-1$
+    "uiPassParam", //$NON-NLS-1$
+    "workItemUid", //$NON-NLS-1$
+    "autoCreateUniqueFilename", //$NON-NLS-1$
+    "appendDateFormat", //$NON-NLS-1$
+    "share-execution", //$NON-NLS-1$
+    "depends-on", //$NON-NLS-1$
+    "dependency-policy", //$NON-NLS-1$
+    "dependency-completed", //$NON-NLS-1$
+    "dependency-released", //$NON-NLS-1$
+    "concurrency-policy", //$NON-NLS-1$
+    "load-leveling-window", //$NON-NLS-1$
+    FINGERPRINT_PARAM
+  };
+
+  private static final String EMAIL_PARAM_PREFIX = "_SCH_EMAIL_"; //$NON-NLS-1$
+
+  private static final Log logger = LogFactory.getLog( SharedExecutions.class );
+
+  private static final SharedExecutions instance = new SharedExecutions();
+
+  private final Map<String, Shared> executions = new HashMap<>();
+
+  private final Executor followerExecutor;
+
+  /**
+   * Told how the execution of a follower ends, which is after the job that fired it returned.
+   */
+  public interface FollowerListener {
+
+    /**
+     * The follower returns without having run; it is finished later, in another thread.
+     */
+    void deferred();
+
+    /**
+     * @param succeeded whether the follower's output is in place
+     */
+    void finished( boolean succeeded );
+  }
+
+  /**
+   * An execution shared by every job with the same fingerprint.
+   */
+  public static class Execution {
+    private final boolean leader;
+    private final Shared shared;
+
+    Execution( boolean leader, Shared shared ) {
+      this.leader = leader;
+      this.shared = shared;
+    }
+
+    /**
+     * @return whether this job runs the action for everyone
+     */
+    public boolean isLeader() {
+      return leader;
+    }
+
+    /**
+     * Hands <code>follower</code> the leader's output once the leader completes, in a thread of the follower pool;
+     * right away, in the calling thread, if it already has.
+     *
+     * @param follower receives the repository path of the leader's output, or <code>null</code> if the leader failed
+     *                 or produced no output
+     */
+    public void whenDone( Consumer<String> follower ) {
+      synchronized ( shared ) {
+        if ( !shared.done ) {
+          shared.followers.add( follower );
+          return;
+        }
+      }
+      follower.accept( shared.getOutput() );
+    }
+  }
+
+  private static final class Shared {
+    private final List<Consumer<String>> followers = new ArrayList<>();
+    private boolean done;
+    private boolean succeeded;
+    private String outputFilePath;
+    private long completedTime = -1;
+
+    synchronized String getOutput() {
+      return succeeded ? outputFilePath : null;
+    }
+  }
+
+  SharedExecutions() {
+    this( createFollowerExecutor() );
+  }
+
+  SharedExecutions( Executor followerExecutor ) {
+    this.followerExecutor = followerExecutor;
+  }
+
+  private static Executor createFollowerExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor( FOLLOWER_THREADS, FOLLOWER_THREADS, 60, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>( FOLLOWER_QUEUE_SIZE ), runnable -> {
+        Thread thread = new Thread( runnable, "SharedExecutions-follower-" + followerThreadCount.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      }, new ThreadPoolExecutor.CallerRunsPolicy() );
+    // no thread is kept while no execution is shared; beyond the queue, the leader's thread finishes its followers
+    executor.allowCoreThreadTimeOut( true );
+    return executor;
+  }
+
+  public static SharedExecutions getInstance() {
+    return instance;
+  }
+
+  /**
+   * @param action    the action id, or the action class if there is none
+   * @param inputFile the repository path of the file the action runs
+   * @param params    the job parameters
+   * @param fireTime  the scheduled fire time
+   * @return the fingerprint of the execution, or <code>null</code> if it cannot be shared
+   */
+  public static String fingerprint( String action, String inputFile, Map<String, Object> params, long fireTime ) {
+    if ( action == null || inputFile == null || params == null ) {
+      return null;
+    }
+    Map<String, String> effective = new TreeMap<>();
+    for ( Map.Entry<String, Object> param : params.entrySet() ) {
+      if ( param.getKey() != null && !isOwnerParam( param.getKey() ) ) {
+        effective.put( param.getKey(), canonical( param.getValue() ) );
+      }
+    }
+    return digest( action + '\n' + inputFile + '\n' + effective + '\n' + Math.floorDiv( fireTime, BUCKET_MILLIS ) );
+  }
+
+  /**
+   * @return <code>fingerprint</code> narrowed to the jobs of <code>owner</code>
+   */
+  public static String withOwnerScope( String fingerprint, String owner ) {
+    return digest( fingerprint + "\nowner:" + owner ); //$NON-NLS-1$
+  }
+
+  /**
+   * @return <code>fingerprint</code> narrowed to owners with exactly <code>roles</code>
+   */
+  public static String withPermissionScope( String fingerprint, Collection<String> roles ) {
+    return digest( fingerprint + '\n' + new TreeSet<>( roles ) );
+  }
+
+  /**
+   * Joins the execution with the given fingerprint, as its leader if there is none yet. A leader must call
+   * {@link #complete(Execution, String, boolean, long)} once its output is written, whether it succeeded or not.
+   */
+  public synchronized Execution join( String fingerprint, long now ) {
+    prune( now );
+    Shared shared = executions.get( fingerprint );
+    if ( shared == null ) {
+      shared = new Shared();
+      executions.put( fingerprint, shared );
+      return new Execution( true, shared );
+    }
+    return new Execution( false, shared );
+  }
+
+  /**
+   * Runs the callbacks the followers of <code>execution</code> left on the follower pool, so that the leader's worker
+   * thread is not held up by them. A callback that fails does not keep the others from running.
+   *
+   * @param outputFilePath the repository path of the output, if any
+   */
+  public void complete( Execution execution, String outputFilePath, boolean succeeded, long now ) {
+    Shared shared = execution.shared;
+    List<Consumer<String>> followers;
+    synchronized ( shared ) {
+      if ( !execution.isLeader() || shared.done ) {
+        return;
+      }
+      shared.outputFilePath = outputFilePath;
+      shared.succeeded = succeeded;
+      shared.completedTime = now;
+      shared.done = true;
+      followers = new ArrayList<>( shared.followers );
+      shared.followers.clear();
+    }
+    String output = shared.getOutput();
+    for ( Consumer<String> follower : followers ) {
+      followerExecutor.execute( () -> {
+        try {
+          follower.accept( output );
+        } catch ( RuntimeException e ) {
+          logger.error( e.getMessage(), e );
+        }
+      } );
+    }
+  }
+
+  private void prune( long now ) {
+    for ( Iterator<Shared> i = executions.values().iterator(); i.hasNext(); ) {
+      Shared shared = i.next();
+      // a running leader is always kept, so that its followers are handed its output
+      synchronized ( shared ) {
+        if ( shared.done && now - shared.completedTime > RETENTION_MILLIS ) {
+          i.remove();
+        }
+      }
+    }
+  }
+
+  private static boolean isOwnerParam( String name ) {
+    return name.startsWith( EMAIL_PARAM_PREFIX ) || Arrays.asList( OWNER_PARAMS ).contains( name );
+  }
+
+  private static String canonical( Object value ) {
+    if ( value instanceof Object[] ) {
+      return Arrays.deepToString( (Object[]) value );
+    }
+    if ( value instanceof Map ) {
+      Map<String, String> sorted = new TreeMap<>();
+      for ( Map.Entry<?, ?> entry : ( (Map<?, ?>) value ).entrySet() ) {
+        sorted.put( String.valueOf( entry.getKey() ), canonical( entry.getValue() ) );
+      }
+      return sorted.toString();
+    }
+    return String.valueOf( value );
+  }
+
+  private static String digest( String text ) {
+    try {
+      StringBuilder hex = new StringBuilder();
+      MessageDigest digest = MessageDigest.getInstance( "SHA-256" ); //$NON-NLS-1$
+      for ( byte b : digest.digest( text.getBytes( StandardCharsets.UTF_8 ) ) ) {
+        hex.append( Character.forDigit( ( b >> 4 ) & 0xf, 16 ) ).append( Character.forDigit( b & 0xf, 16 ) );
+      }
+      return hex.toString();
+    } catch ( NoSuchAlgorithmException e ) {
+      throw new IllegalStateException( e );
+    }
+  }
+}
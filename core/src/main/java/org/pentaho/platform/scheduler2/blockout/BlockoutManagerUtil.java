@@ -26,8 +26,10 @@ import org.pentaho.platform.api.scheduler2.Job;
 import org.pentaho.platform.api.scheduler2.SchedulerException;
 import org.pentaho.platform.api.scheduler2.SimpleJobTrigger;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.scheduler2.quartz.CronEvaluator;
 import org.pentaho.platform.scheduler2.quartz.QuartzJobKey;
 import org.pentaho.platform.scheduler2.quartz.QuartzScheduler;
+import org.quartz.CronTrigger;
 import org.quartz.Trigger;
 
 public class BlockoutManagerUtil {
@@ -321,9 +323,22 @@ public class BlockoutManagerUtil {
             }
           }
         }
-          
+
+        // plain cron expressions are walked on bit masks instead of through Quartz's calendar arithmetic
+        CronEvaluator evaluator = null;
+        if ( trigger instanceof CronTrigger ) {
+          CronTrigger cronTrigger = (CronTrigger) trigger;
+          evaluator = CronEvaluator.compile( cronTrigger.getCronExpression(), cronTrigger.getTimeZone() );
+        }
+
         for ( int i = 0; i < n; i++ ) {
-          Date nextFireTime = trigger.getFireTimeAfter( startDate );
+          Date nextFireTime;
+          if ( evaluator != null ) {
+            long next = evaluator.getFireTimeAfter( startDate.getTime(), trigger.getStartTime(), trigger.getEndTime() );
+            nextFireTime = next < 0 ? null : new Date( next );
+          } else {
+            nextFireTime = trigger.getFireTimeAfter( startDate );
+          }
 
           if ( ( nextFireTime == null )
               || ( nextFireTime.after( endDate ) || ( !endDateIsNull
@@ -23,6 +23,7 @@ import org.pentaho.platform.api.scheduler2.IJobTrigger;
 import org.pentaho.platform.api.scheduler2.IScheduler;
 import org.pentaho.platform.api.scheduler2.SchedulerException;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.scheduler2.SchedulerJobLookupUtil;
 import org.pentaho.platform.scheduler2.quartz.BlockingQuartzJob;
 
 public class PentahoBlockoutManager implements IBlockoutManager {
@@ -47,15 +48,10 @@ public class PentahoBlockoutManager implements IBlockoutManager {
   @Override
   public List<IJob> getBlockOutJobs() {
     try {
-      List<IJob> jobs = scheduler.getJobs( new IJobFilter() {
-        @Override public boolean accept( IJob job ) {
-          if ( BLOCK_OUT_JOB_NAME.equals( job.getJobName() ) ) {
-            job.getJobTrigger().setDuration( ( (Number) job.getJobParams().get( DURATION_PARAM ) ).longValue() );
-            return true;
-          }
-          return false;
-        }
-      } );
+      List<IJob> jobs = SchedulerJobLookupUtil.getJobsByName( scheduler, BLOCK_OUT_JOB_NAME );
+      for ( IJob job : jobs ) {
+        job.getJobTrigger().setDuration( ( (Number) job.getJobParams().get( DURATION_PARAM ) ).longValue() );
+      }
       return jobs;
     } catch ( SchedulerException e ) {
       throw new RuntimeException( e );
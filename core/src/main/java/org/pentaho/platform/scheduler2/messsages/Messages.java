@@ -123,6 +123,10 @@ public class Messages implements Serializable {
     return getString( "ActionInvoker.WARN_0001_SKIP_REMOVING_OUTPUT_FILE", fileName );
   }
 
+  public String getSharedExecutionOutputCopied( final String actionIdentifier, final String user ) {
+    return getString( "ActionInvoker.INFO_0002_SHARED_EXECUTION_OUTPUT_COPIED", actionIdentifier, user );
+  }
+
   public String getCannotGetRepoFile( final String fileName, final String msg ) {
     return getErrorString( "ActionInvoker.ERROR_0010_CANNOT_GET_REPO_FILE", fileName, msg );
   }
@@ -26,6 +26,7 @@ import org.pentaho.platform.api.scheduler2.SimpleJobTrigger;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.security.SecurityHelper;
 import org.pentaho.platform.scheduler2.action.DefaultActionInvoker;
+import org.pentaho.platform.scheduler2.action.SharedExecutions;
 import org.pentaho.platform.scheduler2.blockout.BlockoutAction;
 import org.pentaho.platform.scheduler2.messsages.Messages;
 import org.pentaho.platform.scheduler2.ws.ListParamValue;
@@ -59,6 +60,12 @@ public class ActionAdapterQuartzJob implements Job {
 
   static final Log log = LogFactory.getLog( ActionAdapterQuartzJob.class );
 
+  /**
+   * Set in the context of an execution that returned before it finished, as the follower of a shared execution; its
+   * completion, failure and duration are told by its {@link SharedExecutionFollower} instead.
+   */
+  static final String DEFERRED_KEY = "ActionAdapterQuartzJob-Deferred"; //$NON-NLS-1$
+
   private IActionInvoker actionInvoker = new DefaultActionInvoker(); // default
 
   @Override
@@ -73,6 +80,7 @@ public class ActionAdapterQuartzJob implements Job {
       invokeAction( actionClassName, actionId, actionUser, context, jobDataMap.getWrappedMap() );
 
     } catch ( Throwable t ) {
+      fireJobFailed( jobDataMap.getWrappedMap() );
       // We should not distinguish between checked and unchecked exceptions here. All job execution failures
       // should result in a rethrow of a quartz exception
       throw new LoggingJobExecutionException( Messages.getInstance().getErrorString(
@@ -81,6 +89,18 @@ public class ActionAdapterQuartzJob implements Job {
     }
   }
 
+  private static void fireJobFailed( Map<String, Object> params ) {
+    try {
+      IScheduler scheduler = PentahoSystem.get( IScheduler.class, "IScheduler2", null ); //$NON-NLS-1$
+      if ( scheduler instanceof QuartzScheduler ) {
+        ( (QuartzScheduler) scheduler ).fireJobFailed( params );
+      }
+    } catch ( RuntimeException e ) {
+      // the failure itself is what gets reported
+      log.debug( e.getMessage(), e );
+    }
+  }
+
   private static String getActionIdentifier( final IAction actionBean, final String actionClassName, final String
     actionId ) {
     if ( actionBean != null ) {
@@ -169,8 +189,23 @@ public class ActionAdapterQuartzJob implements Job {
       params.put( IBlockoutManager.SCHEDULED_FIRE_TIME, context.getScheduledFireTime() );
     }
 
+    final Map<String, Object> actionParams = getSerializableMap( params );
+    String fingerprint = getSharedExecutionFingerprint( actionClassName, actionId, context, params );
+    SharedExecutionFollower follower = null;
+    if ( fingerprint != null ) {
+      follower = new SharedExecutionFollower( actionBean, actionUser, context, params );
+      actionParams.put( SharedExecutions.FINGERPRINT_PARAM, fingerprint );
+      actionParams.put( SharedExecutions.FOLLOWER_LISTENER_PARAM, follower );
+    }
+
     // Invoke the action and get the status of the invocation
-    final IActionInvokeStatus status = actionInvoker.invokeAction( actionBean, actionUser, getSerializableMap( params ) );
+    final IActionInvokeStatus status = actionInvoker.invokeAction( actionBean, actionUser, actionParams );
+
+    if ( follower != null && follower.isDeferred() ) {
+      // the follower has not run yet; it tells the scheduler how it ended once the leader hands over its output
+      context.put( DEFERRED_KEY, Boolean.TRUE );
+      return;
+    }
 
     // Status may not be available for remote execution, which is expected
     if ( status == null ) {
@@ -269,6 +304,84 @@ public class ActionAdapterQuartzJob implements Job {
     }
   }
 
+  /**
+   * @return the fingerprint under which a scheduled fire of a job that opted into sharing its execution is run once
+   * for all identical jobs of its owner, or of any owner if it opted in with {@link SharedExecutions#ANY_OWNER}, see
+   * {@link SharedExecutions}; <code>null</code> if the execution is not shared
+   */
+  static String getSharedExecutionFingerprint( final String actionClassName, final String actionId,
+                                               final JobExecutionContext context, final Map<String, Object> params ) {
+    String sharing = String.valueOf( params.get( QuartzScheduler.RESERVEDMAPKEY_SHARE_EXECUTION ) );
+    boolean anyOwner = SharedExecutions.ANY_OWNER.equalsIgnoreCase( sharing );
+    if ( !anyOwner && !Boolean.parseBoolean( sharing )
+      || context.getScheduledFireTime() == null || context.getTrigger() == null || context.getTrigger().getKey() == null
+      || context.getTrigger().getKey().getName().startsWith( "MT_" ) ) { //$NON-NLS-1$
+      // runs by hand are not shared; they are meant to produce fresh output
+      return null;
+    }
+    Object inputFile = params.get( ActionUtil.QUARTZ_STREAMPROVIDER_INPUT_FILE );
+    String fingerprint = SharedExecutions.fingerprint( StringUtil.isEmpty( actionId ) ? actionClassName : actionId,
+      inputFile == null ? null : inputFile.toString(), params, context.getScheduledFireTime().getTime() );
+    if ( fingerprint == null || anyOwner ) {
+      return fingerprint;
+    }
+    return SharedExecutions.withOwnerScope( fingerprint,
+      String.valueOf( params.get( QuartzScheduler.RESERVEDMAPKEY_ACTIONUSER ) ) );
+  }
+
+  /**
+   * Tells the scheduler that the follower of a shared execution completed or failed, and how long it took from its
+   * fire, once its output is in place; see {@link SharedExecutions}.
+   */
+  static class SharedExecutionFollower implements SharedExecutions.FollowerListener {
+    private final IAction actionBean;
+    private final String actionUser;
+    private final JobExecutionContext context;
+    private final Map<String, Object> params;
+    private final long start = System.currentTimeMillis();
+    private volatile boolean deferred;
+
+    SharedExecutionFollower( IAction actionBean, String actionUser, JobExecutionContext context,
+                             Map<String, Object> params ) {
+      this.actionBean = actionBean;
+      this.actionUser = actionUser;
+      this.context = context;
+      this.params = params;
+    }
+
+    @Override
+    public void deferred() {
+      deferred = true;
+    }
+
+    boolean isDeferred() {
+      return deferred;
+    }
+
+    @Override
+    public void finished( boolean succeeded ) {
+      Object lineageId = params.get( QuartzScheduler.RESERVEDMAPKEY_LINEAGE_ID );
+      ExecutionDurations.getInstance().record( lineageId == null ? null : lineageId.toString(), start,
+        System.currentTimeMillis() );
+      IScheduler scheduler = PentahoSystem.get( IScheduler.class, "IScheduler2", null ); //$NON-NLS-1$
+      if ( succeeded ) {
+        Object streamProvider = params.get( QuartzScheduler.RESERVEDMAPKEY_STREAMPROVIDER );
+        try {
+          scheduler.fireJobCompleted( actionBean, actionUser, params,
+            streamProvider instanceof IBackgroundExecutionStreamProvider
+              ? (IBackgroundExecutionStreamProvider) streamProvider : null );
+        } catch ( Exception e ) {
+          log.error( e.getMessage(), e );
+        }
+      } else {
+        fireJobFailed( params );
+      }
+      if ( scheduler instanceof QuartzScheduler ) {
+        ( (QuartzScheduler) scheduler ).getJobEvents().recordFinished( context, !succeeded );
+      }
+    }
+  }
+
   class LoggingJobExecutionException extends JobExecutionException {
     private static final long serialVersionUID = -4124907454208034326L;
 
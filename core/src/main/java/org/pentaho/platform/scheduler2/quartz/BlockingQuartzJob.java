@@ -48,9 +48,26 @@ public class BlockingQuartzJob implements Job {
     String messageType = jobRestarted ? MessageTypes.RECREATED_INSTANCE_START : MessageTypes.INSTANCE_START;
     long start = System.currentTimeMillis();
     long end = start;
+    boolean executed = false;
+    String concurrencyPolicy = JobConcurrency.getPolicy( jobDataMap == null ? null
+      : jobDataMap.get( QuartzScheduler.RESERVEDMAPKEY_CONCURRENCY_POLICY ) );
+    String jobId = null;
+    boolean admitted = true;
+    if ( !JobConcurrency.POLICY_ALLOW.equals( concurrencyPolicy ) ) {
+      jobId = jobExecutionContext.getJobDetail().getKey().getName();
+      admitted = JobConcurrency.getInstance().start( jobId, concurrencyPolicy, isRequestedRun( jobExecutionContext ) );
+    }
     try {
-      if ( getBlockoutManager().shouldFireNow() || isBlockoutAction( jobExecutionContext ) ) { // We should always let the blockouts fire //$NON-NLS-1$
+      if ( !admitted ) {
+        getLogger().info( "Job '" + jobId + "' was not executed now: it is already running and its concurrency "
+          + "policy is " + concurrencyPolicy );
+      } else if ( jobDataMap != null && jobDataMap.containsKey( QuartzScheduler.RESERVEDMAPKEY_DEPENDS_ON )
+        && !JobDependencies.shouldRunScheduledFire( jobExecutionContext ) ) {
+        getLogger().info( "Job '" + jobExecutionContext.getJobDetail().getKey().getName()
+          + "' was not executed: it already ran for this batch, or the jobs it depends on did not complete" );
+      } else if ( getBlockoutManager().shouldFireNow() || isBlockoutAction( jobExecutionContext ) ) { // We should always let the blockouts fire //$NON-NLS-1$
         makeAuditRecord( 0, messageType, jobExecutionContext );
+        executed = true;
         createUnderlyingJob().execute( jobExecutionContext );
         end = System.currentTimeMillis();
         messageType = jobRestarted ? MessageTypes.RECREATED_INSTANCE_END : MessageTypes.INSTANCE_END;
@@ -64,17 +81,49 @@ public class BlockingQuartzJob implements Job {
       // no point in trying to execute the job again
       end = System.currentTimeMillis();
       messageType = jobRestarted ? MessageTypes.RECREATED_INSTANCE_FAILED : MessageTypes.INSTANCE_FAILED;
+      // the failure is not thrown, so tell the job listeners
+      jobExecutionContext.put( JobEvents.FAILED_KEY, Boolean.TRUE );
     } catch ( SchedulerException e ) {
       end = System.currentTimeMillis();
       messageType = jobRestarted ? MessageTypes.RECREATED_INSTANCE_FAILED : MessageTypes.INSTANCE_FAILED;
       getLogger().warn(
           "Got Exception retrieving the Blockout Manager for job '" + jobExecutionContext.getJobDetail().getKey().getName()
               + "'. Executing the underlying job anyway", e );
+      executed = true;
       createUnderlyingJob().execute( jobExecutionContext );
       end = System.currentTimeMillis();
       messageType = jobRestarted ? MessageTypes.RECREATED_INSTANCE_END : MessageTypes.INSTANCE_END;
     } finally {
       makeAuditRecord( ( (float) ( end - start ) / 1000 ), messageType, jobExecutionContext );
+      if ( executed && end > start && jobDataMap != null
+        && !Boolean.TRUE.equals( jobExecutionContext.get( ActionAdapterQuartzJob.DEFERRED_KEY ) ) ) {
+        // feeds the capacity simulator and the critical path of dependency chains
+        ExecutionDurations.getInstance().record( jobDataMap.getString( QuartzScheduler.RESERVEDMAPKEY_LINEAGE_ID ),
+          start, end );
+      }
+      if ( jobId != null && admitted && JobConcurrency.getInstance().finish( jobId ) ) {
+        runQueued( jobExecutionContext, jobId );
+      }
+    }
+  }
+
+  /**
+   * @return whether this fire is a run admitted by {@link JobConcurrency#requestRun}, rather than one triggered by
+   * dependencies or misfire recovery
+   */
+  private boolean isRequestedRun( JobExecutionContext jobExecutionContext ) {
+    return jobExecutionContext.getTrigger() != null && jobExecutionContext.getTrigger().getJobDataMap() != null
+      && jobExecutionContext.getTrigger().getJobDataMap().containsKey( JobConcurrency.REQUESTED_RUN_KEY );
+  }
+
+  private void runQueued( JobExecutionContext jobExecutionContext, String jobId ) {
+    try {
+      JobDataMap requestedRun = new JobDataMap();
+      requestedRun.put( JobConcurrency.REQUESTED_RUN_KEY, true );
+      jobExecutionContext.getScheduler().triggerJob( jobExecutionContext.getJobDetail().getKey(), requestedRun );
+    } catch ( SchedulerException | RuntimeException e ) {
+      JobConcurrency.getInstance().cancelRun( jobId );
+      getLogger().warn( "Could not run the queued execution of job '" + jobId + "'", e );
     }
   }
 
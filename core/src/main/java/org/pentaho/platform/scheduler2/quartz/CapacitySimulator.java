@@ -0,0 +1,409 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.pentaho.platform.api.scheduler2.IBlockoutManager;
+import org.pentaho.platform.api.scheduler2.IJobScheduleParam;
+import org.pentaho.platform.api.scheduler2.IJobScheduleRequest;
+import org.pentaho.platform.api.scheduler2.IScheduler;
+import org.pentaho.platform.api.scheduler2.JobState;
+import org.pentaho.platform.api.scheduler2.SchedulerException;
+import org.pentaho.platform.web.http.api.resources.JobScheduleRequest;
+import org.pentaho.platform.web.http.api.resources.SchedulerResourceUtil;
+import org.quartz.Trigger;
+import org.quartz.impl.StdSchedulerFactory;
+
+/**
+ * Replays the projected fire times of a set of schedules against a model of the scheduler's worker pool to predict
+ * queueing delay and misfires before they happen.
+ * <p/>
+ * Each execution takes a duration drawn from the ones recorded for its schedule (see {@link ExecutionDurations}).
+ * A fire that finds no free thread waits; waiting fires are started oldest first, higher priority first among
+ * fires due at the same time, and never more at once for an owner than its limit allows. A fire that waited longer
+ * than the misfire threshold is a misfire: it still runs, unless its trigger skips missed runs. A schedule has at
+ * most one waiting fire, later ones are coalesced into it, as Quartz does for a trigger that has not been acquired.
+ * <p/>
+ * Nothing here needs a running server, so an exported schedule set, which carries the recorded durations of each
+ * schedule, can be simulated offline with {@link #fromSchedules(List, ExecutionDurations)}.
+ */
+public class CapacitySimulator {
+
+  private int threadCount = 10;
+  private long misfireThresholdMillis = 60000;
+  private long defaultDurationMillis = 60000;
+  private long seed;
+  private final Map<String, Integer> ownerLimits = new HashMap<>();
+  private final Map<String, Integer> priorities = new HashMap<>();
+
+  /**
+   * A schedule to simulate.
+   */
+  public static class SimulatedJob {
+    private final String id;
+    private final String owner;
+    private final int priority;
+    private final boolean catchesUp;
+    private final long[] durations;
+    final FireTimeForecast.FireTimeStream stream;
+
+    long pending = -1;
+    int executions;
+    int misfires;
+
+    SimulatedJob( String id, String owner, int priority, boolean catchesUp, long[] durations,
+                  FireTimeForecast.FireTimeStream stream ) {
+      this.id = id;
+      this.owner = owner;
+      this.priority = priority;
+      this.catchesUp = catchesUp;
+      this.durations = durations == null ? new long[ 0 ] : durations;
+      this.stream = stream;
+    }
+
+    /**
+     * @return the lineage id of the schedule
+     */
+    public String getId() {
+      return id;
+    }
+
+    public String getOwner() {
+      return owner;
+    }
+
+    public int getPriority() {
+      return priority;
+    }
+
+    public int getExecutions() {
+      return executions;
+    }
+
+    public int getMisfires() {
+      return misfires;
+    }
+  }
+
+  /**
+   * What the simulation predicts.
+   */
+  public static class Result {
+    private final long fires;
+    private final long executions;
+    private final long misfires;
+    private final long dropped;
+    private final long coalesced;
+    private final int peakQueueLength;
+    private final long[] delays;
+
+    Result( long fires, long executions, long misfires, long dropped, long coalesced, int peakQueueLength,
+            long[] delays ) {
+      this.fires = fires;
+      this.executions = executions;
+      this.misfires = misfires;
+      this.dropped = dropped;
+      this.coalesced = coalesced;
+      this.peakQueueLength = peakQueueLength;
+      this.delays = delays;
+      Arrays.sort( this.delays );
+    }
+
+    /**
+     * @return the fire times inside the horizon, whatever became of them
+     */
+    public long getFires() {
+      return fires;
+    }
+
+    public long getExecutions() {
+      return executions;
+    }
+
+    /**
+     * @return the fires that waited longer than the misfire threshold for a thread
+     */
+    public long getMisfires() {
+      return misfires;
+    }
+
+    /**
+     * @return the misfires that did not run because their trigger skips missed runs
+     */
+    public long getDropped() {
+      return dropped;
+    }
+
+    /**
+     * @return the fires folded into a fire of the same schedule that was still waiting
+     */
+    public long getCoalesced() {
+      return coalesced;
+    }
+
+    public int getPeakQueueLength() {
+      return peakQueueLength;
+    }
+
+    public long getMeanDelayMillis() {
+      if ( delays.length == 0 ) {
+        return 0;
+      }
+      long total = 0;
+      for ( long delay : delays ) {
+        total += delay;
+      }
+      return total / delays.length;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the delay between the scheduled and actual start that <code>percentile</code> percent of the
+     * executions did not exceed
+     */
+    public long getDelayPercentileMillis( double percentile ) {
+      if ( delays.length == 0 ) {
+        return 0;
+      }
+      int index = (int) Math.ceil( percentile / 100 * delays.length ) - 1;
+      return delays[ Math.max( 0, Math.min( delays.length - 1, index ) ) ];
+    }
+
+    public long getMaxDelayMillis() {
+      return delays.length == 0 ? 0 : delays[ delays.length - 1 ];
+    }
+  }
+
+  private static final class Running {
+    final long end;
+    final SimulatedJob job;
+
+    Running( long end, SimulatedJob job ) {
+      this.end = end;
+      this.job = job;
+    }
+  }
+
+  /**
+   * Builds the jobs for an exported schedule set, such as the schedule list of an export manifest. Blockouts and
+   * paused schedules are left out; blockout windows themselves are not simulated.
+   *
+   * @param durations recorded execution times, looked up by the lineage id of each schedule; a schedule with none
+   *                  there uses the ones exported with it
+   */
+  public static List<SimulatedJob> fromSchedules( List<? extends IJobScheduleRequest> schedules,
+                                                  ExecutionDurations durations ) throws SchedulerException {
+    // only used to build triggers, so it is never started
+    QuartzScheduler scheduler = new QuartzScheduler( new StdSchedulerFactory() );
+    List<SimulatedJob> jobs = new ArrayList<>( schedules.size() );
+    for ( IJobScheduleRequest request : schedules ) {
+      if ( !( request instanceof JobScheduleRequest ) ) {
+        continue;
+      }
+      JobScheduleRequest schedule = (JobScheduleRequest) request;
+      if ( schedule.getJobState() == JobState.PAUSED
+        || IBlockoutManager.BLOCK_OUT_JOB_NAME.equals( schedule.getJobName() ) ) {
+        continue;
+      }
+      String owner = getParameter( schedule, IScheduler.RESERVEDMAPKEY_ACTIONUSER );
+      String lineageId = getParameter( schedule, QuartzScheduler.RESERVEDMAPKEY_LINEAGE_ID );
+      String id = lineageId != null ? lineageId : schedule.getJobName();
+      Trigger trigger = QuartzScheduler.createQuartzTrigger(
+        SchedulerResourceUtil.convertScheduleRequestToJobTrigger( schedule, scheduler ),
+        new QuartzJobKey( schedule.getJobName(), owner ) );
+      long[] recorded = durations.getDurations( lineageId );
+      if ( recorded.length == 0 ) {
+        ExecutionDurations exported = new ExecutionDurations();
+        exported.parse( id, getParameter( schedule, QuartzScheduler.RESERVEDMAPKEY_EXECUTION_DURATIONS ) );
+        recorded = exported.getDurations( id );
+      }
+      jobs.add( new SimulatedJob( id, owner, trigger.getPriority(), MisfireRecovery.catchesUp( trigger ),
+        recorded, new FireTimeForecast.TriggerStream( id, trigger, null ) ) );
+    }
+    return jobs;
+  }
+
+  private static String getParameter( JobScheduleRequest schedule, String name ) {
+    for ( IJobScheduleParam parameter : schedule.getJobParameters() ) {
+      if ( name.equals( parameter.getName() ) ) {
+        Serializable value = parameter.getValue();
+        return value == null ? null : value.toString();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Simulates the fires between <code>startTime</code> (inclusive) and <code>endTime</code> (exclusive); executions
+   * still waiting or running at the end are followed until they finish.
+   */
+  public Result simulate( List<? extends SimulatedJob> jobs, long startTime, long endTime ) {
+    Random random = new Random( seed );
+    PriorityQueue<SimulatedJob> fires =
+      new PriorityQueue<>( Math.max( 1, jobs.size() ), Comparator.comparingLong( job -> job.stream.next ) );
+    for ( SimulatedJob job : jobs ) {
+      job.pending = -1;
+      job.executions = 0;
+      job.misfires = 0;
+      job.stream.next = job.stream.fireTimeFrom( startTime );
+      if ( job.stream.next >= 0 && job.stream.next < endTime ) {
+        fires.add( job );
+      }
+    }
+    PriorityQueue<SimulatedJob> waiting = new PriorityQueue<>( Comparator.<SimulatedJob>comparingLong(
+      job -> job.pending ).thenComparing( Comparator.<SimulatedJob>comparingInt( this::getPriority ).reversed() ) );
+    PriorityQueue<Running> running = new PriorityQueue<>( Comparator.comparingLong( execution -> execution.end ) );
+    Map<String, Integer> runningByOwner = new HashMap<>();
+    List<SimulatedJob> heldBack = new ArrayList<>();
+
+    long fireCount = 0;
+    long executionCount = 0;
+    long misfireCount = 0;
+    long droppedCount = 0;
+    long coalescedCount = 0;
+    int peakQueueLength = 0;
+    long[] delays = new long[ 64 ];
+
+    while ( !fires.isEmpty() || !running.isEmpty() ) {
+      long time = Math.min( fires.isEmpty() ? Long.MAX_VALUE : fires.peek().stream.next,
+        running.isEmpty() ? Long.MAX_VALUE : running.peek().end );
+
+      // threads freed at this instant are available to the fires of this instant
+      while ( !running.isEmpty() && running.peek().end == time ) {
+        String owner = running.poll().job.owner;
+        if ( owner != null ) {
+          runningByOwner.merge( owner, -1, Integer::sum );
+        }
+      }
+      while ( !fires.isEmpty() && fires.peek().stream.next == time ) {
+        SimulatedJob job = fires.poll();
+        fireCount++;
+        if ( job.pending >= 0 ) {
+          coalescedCount++;
+        } else {
+          job.pending = time;
+          waiting.add( job );
+        }
+        job.stream.next = job.stream.fireTimeAfter( time );
+        if ( job.stream.next > time && job.stream.next < endTime ) {
+          fires.add( job );
+        }
+      }
+      peakQueueLength = Math.max( peakQueueLength, waiting.size() );
+
+      while ( running.size() < threadCount && !waiting.isEmpty() ) {
+        SimulatedJob job = waiting.poll();
+        if ( job.owner != null && runningByOwner.getOrDefault( job.owner, 0 ) >= getOwnerLimit( job.owner ) ) {
+          heldBack.add( job );
+          continue;
+        }
+        long delay = time - job.pending;
+        job.pending = -1;
+        if ( delay > misfireThresholdMillis ) {
+          misfireCount++;
+          job.misfires++;
+          if ( !job.catchesUp ) {
+            droppedCount++;
+            continue;
+          }
+        }
+        if ( executionCount == delays.length ) {
+          delays = Arrays.copyOf( delays, delays.length * 2 );
+        }
+        delays[ (int) executionCount++ ] = delay;
+        job.executions++;
+        running.add( new Running( time + sampleDuration( job, random ), job ) );
+        if ( job.owner != null ) {
+          runningByOwner.merge( job.owner, 1, Integer::sum );
+        }
+      }
+      waiting.addAll( heldBack );
+      heldBack.clear();
+    }
+    return new Result( fireCount, executionCount, misfireCount, droppedCount, coalescedCount, peakQueueLength,
+      Arrays.copyOf( delays, (int) executionCount ) );
+  }
+
+  private long sampleDuration( SimulatedJob job, Random random ) {
+    if ( job.durations.length == 0 ) {
+      return defaultDurationMillis;
+    }
+    return job.durations[ random.nextInt( job.durations.length ) ];
+  }
+
+  private int getPriority( SimulatedJob job ) {
+    Integer priority = priorities.get( job.id );
+    return priority == null ? job.priority : priority;
+  }
+
+  private int getOwnerLimit( String owner ) {
+    Integer limit = ownerLimits.get( owner );
+    return limit == null || limit <= 0 ? Integer.MAX_VALUE : limit;
+  }
+
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  public void setThreadCount( int threadCount ) {
+    this.threadCount = Math.max( 1, threadCount );
+  }
+
+  public long getMisfireThresholdMillis() {
+    return misfireThresholdMillis;
+  }
+
+  public void setMisfireThresholdMillis( long misfireThresholdMillis ) {
+    this.misfireThresholdMillis = misfireThresholdMillis;
+  }
+
+  /**
+   * @param defaultDurationMillis how long executions of schedules without recorded durations run
+   */
+  public void setDefaultDurationMillis( long defaultDurationMillis ) {
+    this.defaultDurationMillis = Math.max( 0, defaultDurationMillis );
+  }
+
+  /**
+   * @param seed makes the durations drawn, and so the result, repeatable
+   */
+  public void setSeed( long seed ) {
+    this.seed = seed;
+  }
+
+  /**
+   * Caps how many executions of <code>owner</code>'s schedules run at once, so one user cannot take every thread.
+   *
+   * @param limit the cap, or <code>0</code> for none
+   */
+  public void setOwnerLimit( String owner, int limit ) {
+    ownerLimits.put( owner, limit );
+  }
+
+  /**
+   * Overrides the trigger priority of the schedule with lineage id <code>id</code>.
+   */
+  public void setPriority( String id, int priority ) {
+    priorities.put( id, priority );
+  }
+}
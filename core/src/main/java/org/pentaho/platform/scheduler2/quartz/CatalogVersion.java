@@ -0,0 +1,171 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.ListenerManager;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.listeners.SchedulerListenerSupport;
+import org.quartz.listeners.TriggerListenerSupport;
+
+/**
+ * A version of the jobs of a {@link QuartzScheduler} that changes whenever a listing of them could: a job is created,
+ * updated, removed, paused or resumed, one of its triggers fires or completes, or the scheduler is started or paused.
+ * Listing endpoints send it as an ETag, so that a client whose copy is still current gets a 304 without the job store
+ * being read.
+ * <p/>
+ * The version is bumped from Quartz listeners, which run after the change is in the job store, so a listing read after
+ * the version is never older than it. It only sees the changes made on this server, so there is none when the job
+ * store is clustered.
+ */
+class CatalogVersion extends SchedulerListenerSupport {
+
+  static final String TRIGGER_LISTENER_NAME = "CatalogVersion"; //$NON-NLS-1$
+
+  // tells a version of this server run from the same number of a previous one
+  private final String epoch = Long.toString( System.currentTimeMillis(), Character.MAX_RADIX );
+
+  private final AtomicLong version = new AtomicLong();
+
+  private volatile boolean tracking;
+
+  private final TriggerListenerSupport triggerListener = new TriggerListenerSupport() {
+    public String getName() {
+      return TRIGGER_LISTENER_NAME;
+    }
+
+    @Override
+    public void triggerFired( Trigger trigger, JobExecutionContext context ) {
+      bump();
+    }
+
+    @Override
+    public void triggerComplete( Trigger trigger, JobExecutionContext context,
+                                 Trigger.CompletedExecutionInstruction triggerInstructionCode ) {
+      bump();
+    }
+  };
+
+  /**
+   * Starts following the changes to the jobs of <code>scheduler</code>.
+   */
+  void register( Scheduler scheduler ) throws SchedulerException {
+    ListenerManager listenerManager = scheduler.getListenerManager();
+    if ( listenerManager == null ) {
+      return;
+    }
+    listenerManager.addSchedulerListener( this );
+    listenerManager.addTriggerListener( triggerListener );
+    tracking = !scheduler.getMetaData().isJobStoreClustered();
+    bump();
+  }
+
+  /**
+   * @return the current version, or <code>null</code> if the changes to the jobs are not all seen here
+   */
+  String get() {
+    return tracking ? epoch + '.' + version.get() : null;
+  }
+
+  void bump() {
+    version.incrementAndGet();
+  }
+
+  @Override
+  public void jobScheduled( Trigger trigger ) {
+    bump();
+  }
+
+  @Override
+  public void jobUnscheduled( TriggerKey triggerKey ) {
+    bump();
+  }
+
+  @Override
+  public void triggerFinalized( Trigger trigger ) {
+    bump();
+  }
+
+  @Override
+  public void triggerPaused( TriggerKey triggerKey ) {
+    bump();
+  }
+
+  @Override
+  public void triggersPaused( String triggerGroup ) {
+    bump();
+  }
+
+  @Override
+  public void triggerResumed( TriggerKey triggerKey ) {
+    bump();
+  }
+
+  @Override
+  public void triggersResumed( String triggerGroup ) {
+    bump();
+  }
+
+  @Override
+  public void jobAdded( JobDetail jobDetail ) {
+    bump();
+  }
+
+  @Override
+  public void jobDeleted( JobKey jobKey ) {
+    bump();
+  }
+
+  @Override
+  public void jobPaused( JobKey jobKey ) {
+    bump();
+  }
+
+  @Override
+  public void jobsPaused( String jobGroup ) {
+    bump();
+  }
+
+  @Override
+  public void jobResumed( JobKey jobKey ) {
+    bump();
+  }
+
+  @Override
+  public void jobsResumed( String jobGroup ) {
+    bump();
+  }
+
+  @Override
+  public void schedulerInStandbyMode() {
+    bump();
+  }
+
+  @Override
+  public void schedulerStarted() {
+    bump();
+  }
+
+  @Override
+  public void schedulingDataCleared() {
+    bump();
+  }
+}
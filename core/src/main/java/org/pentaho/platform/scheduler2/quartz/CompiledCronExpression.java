@@ -0,0 +1,317 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.pentaho.platform.scheduler2.messsages.Messages;
+import org.pentaho.platform.scheduler2.recur.ITimeRecurrence;
+import org.pentaho.platform.scheduler2.recur.IncrementalRecurrence;
+import org.pentaho.platform.scheduler2.recur.QualifiedDayOfMonth;
+import org.pentaho.platform.scheduler2.recur.QualifiedDayOfWeek;
+import org.pentaho.platform.scheduler2.recur.QualifiedDayOfWeek.DayOfWeek;
+import org.pentaho.platform.scheduler2.recur.QualifiedDayOfWeek.DayOfWeekQualifier;
+import org.pentaho.platform.scheduler2.recur.RecurrenceList;
+import org.pentaho.platform.scheduler2.recur.SequentialRecurrence;
+
+/**
+ * A Quartz cron expression tokenized in a single pass into the terms {@link QuartzScheduler#createComplexTrigger}
+ * turns into recurrences. Instances are immutable and cached by expression string; every call to
+ * {@link #getRecurrences(int)} hands out new recurrence objects, so callers are free to modify what they get.
+ * <p/>
+ * Invalid input fails with an {@link IllegalArgumentException} naming the offending position.
+ */
+final class CompiledCronExpression {
+
+  static final int SECONDS = 0;
+  static final int MINUTES = 1;
+  static final int HOURS = 2;
+  static final int DAY_OF_MONTH = 3;
+  static final int MONTH = 4;
+  static final int DAY_OF_WEEK = 5;
+  static final int YEAR = 6;
+
+  private static final int MAX_CACHED_EXPRESSIONS = 4096;
+
+  private static final ConcurrentMap<String, CompiledCronExpression> cache = new ConcurrentHashMap<>();
+
+  private enum Kind {
+    LIST, SEQUENCE, INCREMENT, LAST_DAY_OF_MONTH, QUALIFIED_DAY_OF_WEEK, LAST_DAY_OF_WEEK
+  }
+
+  /**
+   * One recurrence: consecutive plain numbers are folded into a single {@link Kind#LIST}.
+   */
+  private static final class Term {
+    final Kind kind;
+    final int[] values;
+    final String start;
+
+    Term( Kind kind, String start, int... values ) {
+      this.kind = kind;
+      this.start = start;
+      this.values = values;
+    }
+
+    ITimeRecurrence toRecurrence() {
+      switch ( kind ) {
+        case LIST:
+          RecurrenceList list = new RecurrenceList();
+          for ( int value : values ) {
+            list.getValues().add( value );
+          }
+          return list;
+        case SEQUENCE:
+          return new SequentialRecurrence( values[ 0 ], values[ 1 ] );
+        case INCREMENT:
+          return new IncrementalRecurrence( start, values[ 0 ] );
+        case LAST_DAY_OF_MONTH:
+          return new QualifiedDayOfMonth();
+        case QUALIFIED_DAY_OF_WEEK:
+          return new QualifiedDayOfWeek( values[ 0 ], values[ 1 ] );
+        default:
+          return new QualifiedDayOfWeek( DayOfWeekQualifier.LAST, DayOfWeek.values()[ values[ 0 ] ] );
+      }
+    }
+  }
+
+  private final String expression;
+
+  // null for a missing field, empty for * and ?
+  private final Term[][] fields = new Term[ YEAR + 1 ][];
+
+  private CompiledCronExpression( String expression ) {
+    this.expression = expression;
+    new Tokenizer().run();
+  }
+
+  /**
+   * Returns the compiled form of <code>expression</code>, from the cache when it was compiled before.
+   *
+   * @throws IllegalArgumentException if the expression is invalid
+   */
+  static CompiledCronExpression compile( String expression ) {
+    if ( expression == null ) {
+      throw new IllegalArgumentException( Messages.getInstance().getErrorString(
+        "ComplexJobTrigger.ERROR_0001_InvalidCronExpression" ) ); //$NON-NLS-1$
+    }
+    CompiledCronExpression compiled = cache.get( expression );
+    if ( compiled == null ) {
+      compiled = new CompiledCronExpression( expression );
+      if ( cache.size() >= MAX_CACHED_EXPRESSIONS ) {
+        // the set of expressions in use is small; this only guards against unbounded growth from odd callers
+        cache.clear();
+      }
+      CompiledCronExpression existing = cache.putIfAbsent( expression, compiled );
+      if ( existing != null ) {
+        compiled = existing;
+      }
+    }
+    return compiled;
+  }
+
+  static void clearCache() {
+    cache.clear();
+  }
+
+  String getExpression() {
+    return expression;
+  }
+
+  /**
+   * @return new recurrence objects for the field, empty for <code>*</code> or <code>?</code>
+   * @throws IllegalArgumentException if the expression does not have this field
+   */
+  List<ITimeRecurrence> getRecurrences( int field ) {
+    Term[] terms = field < fields.length ? fields[ field ] : null;
+    if ( terms == null ) {
+      throw new IllegalArgumentException( Messages.getInstance().getErrorString(
+        "ComplexJobTrigger.ERROR_0001_InvalidCronExpression" ) ); //$NON-NLS-1$
+    }
+    List<ITimeRecurrence> recurrences = new ArrayList<>( terms.length );
+    for ( Term term : terms ) {
+      recurrences.add( term.toRecurrence() );
+    }
+    return recurrences;
+  }
+
+  private final class Tokenizer {
+    private int pos;
+    private final int length = expression.length();
+
+    void run() {
+      int field = 0;
+      while ( pos < length && field < fields.length ) {
+        fields[ field ] = field( field == DAY_OF_WEEK );
+        field++;
+        // fields are separated by one or more spaces, trailing spaces are ignored
+        while ( pos < length && expression.charAt( pos ) == ' ' ) {
+          pos++;
+        }
+      }
+    }
+
+    private Term[] field( boolean dayOfWeek ) {
+      int fieldStart = pos;
+      int end = pos;
+      while ( end < length && expression.charAt( end ) != ' ' ) {
+        end++;
+      }
+      if ( end == fieldStart ) {
+        throw error( fieldStart, "" ); //$NON-NLS-1$
+      }
+      char first = expression.charAt( fieldStart );
+      if ( end - fieldStart == 1 && ( first == '*' || first == '?' ) ) {
+        pos = end;
+        return new Term[ 0 ];
+      }
+      List<Term> terms = new ArrayList<>();
+      List<Integer> numbers = null;
+      while ( pos < end ) {
+        int termStart = pos;
+        int termEnd = expression.indexOf( ',', pos );
+        if ( termEnd < 0 || termEnd > end ) {
+          termEnd = end;
+        }
+        if ( termEnd == termStart ) {
+          throw error( termStart, "," ); //$NON-NLS-1$
+        }
+        int digits = digits( termStart, termEnd );
+        if ( digits == termEnd - termStart ) {
+          if ( numbers == null ) {
+            numbers = new ArrayList<>();
+          }
+          numbers.add( number( termStart, termEnd ) );
+        } else {
+          if ( numbers != null ) {
+            terms.add( list( numbers ) );
+            numbers = null;
+          }
+          terms.add( dayOfWeek ? dayOfWeekTerm( termStart, termEnd, digits ) : term( termStart, termEnd, digits ) );
+        }
+        pos = termEnd + 1;
+      }
+      if ( numbers != null ) {
+        terms.add( list( numbers ) );
+      }
+      pos = end;
+      return terms.toArray( new Term[ 0 ] );
+    }
+
+    private Term term( int start, int end, int digits ) {
+      Term term = sequenceOrIncrement( start, end, digits );
+      if ( term != null ) {
+        return term;
+      }
+      if ( end - start == 1 && Character.toUpperCase( expression.charAt( start ) ) == 'L' ) {
+        return new Term( Kind.LAST_DAY_OF_MONTH, null );
+      }
+      throw error( start, expression.substring( start, end ) );
+    }
+
+    private Term dayOfWeekTerm( int start, int end, int digits ) {
+      Term term = sequenceOrIncrement( start, end, digits );
+      if ( term != null ) {
+        return term;
+      }
+      int separator = start + digits;
+      if ( digits > 0 && expression.charAt( separator ) == '#' && digits( separator + 1, end ) == end - separator - 1
+        && end > separator + 1 ) {
+        return new Term( Kind.QUALIFIED_DAY_OF_WEEK, null, number( separator + 1, end ), number( start, separator ) );
+      }
+      if ( digits > 0 && separator == end - 1 && expression.charAt( separator ) == 'L' ) {
+        int day = number( start, separator );
+        if ( day < 1 ) {
+          throw error( start, expression.substring( start, end ) );
+        }
+        return new Term( Kind.LAST_DAY_OF_WEEK, null, ( day - 1 ) % 7 );
+      }
+      int dash = expression.indexOf( '-', start );
+      if ( dash >= 0 && dash < end ) {
+        return new Term( Kind.SEQUENCE, null, dayName( start, dash ), dayName( dash + 1, end ) );
+      }
+      return new Term( Kind.LIST, null, dayName( start, end ) );
+    }
+
+    /**
+     * <code>n-m</code> or <code>[n*]/m</code>, <code>null</code> for anything else.
+     */
+    private Term sequenceOrIncrement( int start, int end, int digits ) {
+      int separator = start + digits;
+      if ( digits > 0 && expression.charAt( separator ) == '-' && end > separator + 1
+        && digits( separator + 1, end ) == end - separator - 1 ) {
+        return new Term( Kind.SEQUENCE, null, number( start, separator ), number( separator + 1, end ) );
+      }
+      int slash = start;
+      while ( slash < end && ( isDigit( expression.charAt( slash ) ) || expression.charAt( slash ) == '*' ) ) {
+        slash++;
+      }
+      if ( slash > start && slash < end && expression.charAt( slash ) == '/' && end > slash + 1
+        && digits( slash + 1, end ) == end - slash - 1 ) {
+        return new Term( Kind.INCREMENT, expression.substring( start, slash ), number( slash + 1, end ) );
+      }
+      return null;
+    }
+
+    private int dayName( int start, int end ) {
+      String name = expression.substring( start, end );
+      for ( DayOfWeek day : DayOfWeek.values() ) {
+        if ( day.name().equals( name ) ) {
+          return day.ordinal();
+        }
+      }
+      throw error( start, name );
+    }
+
+    private int digits( int start, int end ) {
+      int i = start;
+      while ( i < end && isDigit( expression.charAt( i ) ) ) {
+        i++;
+      }
+      return i - start;
+    }
+
+    private int number( int start, int end ) {
+      long value = 0;
+      for ( int i = start; i < end; i++ ) {
+        value = value * 10 + ( expression.charAt( i ) - '0' );
+        if ( value > Integer.MAX_VALUE ) {
+          throw error( start, expression.substring( start, end ) );
+        }
+      }
+      return (int) value;
+    }
+
+    private Term list( List<Integer> numbers ) {
+      int[] values = new int[ numbers.size() ];
+      for ( int i = 0; i < values.length; i++ ) {
+        values[ i ] = numbers.get( i );
+      }
+      return new Term( Kind.LIST, null, values );
+    }
+
+    private boolean isDigit( char c ) {
+      return c >= '0' && c <= '9';
+    }
+
+    private IllegalArgumentException error( int position, String token ) {
+      return new IllegalArgumentException( Messages.getInstance().getErrorString(
+        "ComplexJobTrigger.ERROR_0002_InvalidCronToken", expression, String.valueOf( position ), //$NON-NLS-1$
+        token ) );
+    }
+  }
+}
@@ -0,0 +1,534 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.StringTokenizer;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.quartz.CronExpression;
+
+/**
+ * Computes the fire times of a Quartz cron expression from primitive bit masks, one per field, instead of the
+ * <code>TreeSet</code>s and <code>Calendar</code> arithmetic of {@link CronExpression}.
+ * <p/>
+ * Only the plain part of the syntax is compiled: values, names, ranges (including wrapping ones), lists, increments,
+ * <code>*</code> and <code>?</code>. {@link #compile(String, TimeZone)} returns <code>null</code> for expressions
+ * using <code>L</code>, <code>W</code> or <code>#</code>, which callers evaluate with {@link CronExpression} as before.
+ * Wall clock arithmetic is only exact while the zone offset stays the same, so whenever a search would cross a
+ * daylight saving transition the answer is delegated to {@link CronExpression}, which keeps the DST behavior (skipped
+ * and repeated hours) identical to Quartz.
+ */
+public final class CronEvaluator {
+
+  private static final int SECOND = 0;
+  private static final int MINUTE = 1;
+  private static final int HOUR = 2;
+  private static final int DAY_OF_MONTH = 3;
+  private static final int MONTH = 4;
+  private static final int DAY_OF_WEEK = 5;
+
+  private static final int MIN_YEAR = 1970;
+  private static final int MAX_YEAR_VALUE = 2199;
+
+  // lowest value, highest value (also the largest increment) and wrap-around modulus of each field, as in
+  // CronExpression
+  private static final int[] MIN = { 0, 0, 0, 1, 1, 1 };
+  private static final int[] MAX = { 59, 59, 23, 31, 12, 7 };
+  private static final int[] WRAP = { 60, 60, 24, 31, 12, 7 };
+
+  private static final String[] MONTH_NAMES =
+    { "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC" }; //$NON-NLS-1$
+  private static final String[] DAY_NAMES = { "SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT" }; //$NON-NLS-1$
+
+  // marks a field given as '?'
+  private static final long NO_SPEC = Long.MIN_VALUE;
+
+  private static final int MAX_CACHED = 4096;
+
+  private static final ConcurrentMap<String, CronEvaluator> cache = new ConcurrentHashMap<>();
+
+  private final String expression;
+  private final TimeZone timeZone;
+  private final ZoneRules rules;
+
+  private final long seconds;
+  private final long minutes;
+  private final int hours;
+  private final int daysOfMonth;
+  private final int months;
+  private final int daysOfWeek;
+  private final boolean dayOfWeekSpec;
+  // bit (year - 1970) for every allowed year, null for any year
+  private final long[] years;
+
+  // CronExpression.MAX_YEAR
+  private final int maxYear = Calendar.getInstance().get( Calendar.YEAR ) + 100;
+
+  private volatile CronExpression quartzExpression;
+
+  private CronEvaluator( String expression, TimeZone timeZone, long[] fields, long[] years ) {
+    this.expression = expression;
+    this.timeZone = timeZone;
+    this.rules = timeZone.toZoneId().getRules();
+    this.seconds = fields[ SECOND ];
+    this.minutes = fields[ MINUTE ];
+    this.hours = (int) fields[ HOUR ];
+    this.dayOfWeekSpec = fields[ DAY_OF_MONTH ] == NO_SPEC;
+    this.daysOfMonth = dayOfWeekSpec ? 0 : (int) fields[ DAY_OF_MONTH ];
+    this.months = (int) fields[ MONTH ];
+    this.daysOfWeek = dayOfWeekSpec ? (int) fields[ DAY_OF_WEEK ] : 0;
+    this.years = years;
+  }
+
+  /**
+   * Compiles <code>expression</code> for <code>timeZone</code>, reusing an earlier compilation when there is one.
+   *
+   * @return the evaluator, or <code>null</code> if the expression uses syntax this class does not evaluate natively
+   */
+  public static CronEvaluator compile( String expression, TimeZone timeZone ) {
+    if ( expression == null ) {
+      return null;
+    }
+    TimeZone zone = timeZone == null ? TimeZone.getDefault() : timeZone;
+    String key = zone.getID() + '\n' + expression;
+    CronEvaluator evaluator = cache.get( key );
+    if ( evaluator == null ) {
+      evaluator = parse( expression, zone );
+      if ( evaluator == null ) {
+        return null;
+      }
+      if ( cache.size() >= MAX_CACHED ) {
+        cache.clear();
+      }
+      cache.putIfAbsent( key, evaluator );
+    }
+    return evaluator;
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  public TimeZone getTimeZone() {
+    return timeZone;
+  }
+
+  /**
+   * Same contract as {@link CronExpression#getTimeAfter(Date)}: the first fire time strictly after
+   * <code>afterMillis</code>, at whole-second precision.
+   *
+   * @return the fire time in epoch milliseconds, or <code>-1</code> if there is none
+   */
+  public long getTimeAfter( long afterMillis ) {
+    long startSecond = Math.floorDiv( afterMillis, 1000 ) + 1;
+    int offset;
+    ZoneOffsetTransition transition = null;
+    if ( rules.isFixedOffset() ) {
+      offset = rules.getOffset( Instant.EPOCH ).getTotalSeconds();
+    } else {
+      Instant start = Instant.ofEpochSecond( startSecond );
+      offset = rules.getOffset( start ).getTotalSeconds();
+      transition = rules.nextTransition( start );
+    }
+    long local = findLocal( startSecond + offset );
+    if ( local == Long.MIN_VALUE ) {
+      if ( transition == null ) {
+        return -1;
+      }
+      // nothing matched under the current offset, let Quartz decide around the transition
+      return quartzTimeAfter( afterMillis );
+    }
+    long fireSecond = local - offset;
+    if ( transition != null && transition.toEpochSecond() <= fireSecond ) {
+      return quartzTimeAfter( afterMillis );
+    }
+    return fireSecond * 1000;
+  }
+
+  /**
+   * Same contract as {@link org.quartz.CronTrigger#getFireTimeAfter(Date)} for a trigger running this expression
+   * from <code>startTime</code> until <code>endTime</code>, either of which may be <code>null</code>.
+   *
+   * @return the fire time in epoch milliseconds, or <code>-1</code> if there is none
+   */
+  public long getFireTimeAfter( long afterMillis, Date startTime, Date endTime ) {
+    long after = afterMillis;
+    if ( startTime != null && startTime.getTime() > after ) {
+      after = startTime.getTime() - 1000;
+    }
+    if ( endTime != null && after >= endTime.getTime() ) {
+      return -1;
+    }
+    long next = getTimeAfter( after );
+    return endTime != null && next > endTime.getTime() ? -1 : next;
+  }
+
+  /**
+   * Convenience wrapper around {@link #getTimeAfter(long)}.
+   */
+  public Date getTimeAfter( Date after ) {
+    long next = getTimeAfter( after.getTime() );
+    return next < 0 ? null : new Date( next );
+  }
+
+  /**
+   * Smallest matching wall clock second at or after <code>localSecond</code> (seconds since 1970-01-01T00:00 local
+   * time), or <code>Long.MIN_VALUE</code>.
+   */
+  private long findLocal( long localSecond ) {
+    long epochDay = Math.floorDiv( localSecond, 86400 );
+    int secondOfDay = (int) Math.floorMod( localSecond, 86400 );
+    // civil date from epoch day (proleptic Gregorian)
+    long z = epochDay + 719468;
+    long era = Math.floorDiv( z, 146097 );
+    long doe = z - era * 146097;
+    long yoe = ( doe - doe / 1460 + doe / 36524 - doe / 146096 ) / 365;
+    long doy = doe - ( 365 * yoe + yoe / 4 - yoe / 100 );
+    long mp = ( 5 * doy + 2 ) / 153;
+    int day = (int) ( doy - ( 153 * mp + 2 ) / 5 + 1 );
+    int month = (int) ( mp < 10 ? mp + 3 : mp - 9 );
+    int year = (int) ( yoe + era * 400 + ( month <= 2 ? 1 : 0 ) );
+    int hour = secondOfDay / 3600;
+    int minute = secondOfDay / 60 % 60;
+    int second = secondOfDay % 60;
+
+    while ( year <= maxYear ) {
+      int nextYear = nextYear( year );
+      if ( nextYear < 0 || nextYear > maxYear ) {
+        return Long.MIN_VALUE;
+      }
+      if ( nextYear != year ) {
+        year = nextYear;
+        month = 1;
+        day = 1;
+        hour = 0;
+        minute = 0;
+        second = 0;
+      }
+      int nextMonth = nextBit( months, month );
+      if ( nextMonth < 0 ) {
+        year++;
+        month = 1;
+        day = 1;
+        hour = 0;
+        minute = 0;
+        second = 0;
+        continue;
+      }
+      if ( nextMonth != month ) {
+        month = nextMonth;
+        day = 1;
+        hour = 0;
+        minute = 0;
+        second = 0;
+      }
+      int nextDay = nextDay( year, month, day );
+      if ( nextDay < 0 ) {
+        month++;
+        day = 1;
+        hour = 0;
+        minute = 0;
+        second = 0;
+        continue;
+      }
+      if ( nextDay != day ) {
+        day = nextDay;
+        hour = 0;
+        minute = 0;
+        second = 0;
+      }
+      int nextHour = nextBit( hours, hour );
+      if ( nextHour < 0 ) {
+        day++;
+        hour = 0;
+        minute = 0;
+        second = 0;
+        continue;
+      }
+      if ( nextHour != hour ) {
+        hour = nextHour;
+        minute = 0;
+        second = 0;
+      }
+      int nextMinute = nextBit( minutes, minute );
+      if ( nextMinute < 0 ) {
+        hour++;
+        minute = 0;
+        second = 0;
+        continue;
+      }
+      if ( nextMinute != minute ) {
+        minute = nextMinute;
+        second = 0;
+      }
+      int nextSecond = nextBit( seconds, second );
+      if ( nextSecond < 0 ) {
+        minute++;
+        second = 0;
+        continue;
+      }
+      return epochDay( year, month, day ) * 86400 + hour * 3600 + minute * 60 + nextSecond;
+    }
+    return Long.MIN_VALUE;
+  }
+
+  private int nextYear( int year ) {
+    if ( years == null ) {
+      return year;
+    }
+    for ( int y = Math.max( year, MIN_YEAR ); y <= MAX_YEAR_VALUE; y++ ) {
+      int bit = y - MIN_YEAR;
+      long word = years[ bit >>> 6 ] & ( -1L << ( bit & 63 ) );
+      if ( word != 0 ) {
+        return MIN_YEAR + ( bit & ~63 ) + Long.numberOfTrailingZeros( word );
+      }
+      // skip to the next word
+      y = MIN_YEAR + ( bit | 63 );
+    }
+    return -1;
+  }
+
+  private int nextDay( int year, int month, int day ) {
+    int lastDay = lengthOfMonth( year, month );
+    if ( day > lastDay ) {
+      return -1;
+    }
+    if ( !dayOfWeekSpec ) {
+      int next = nextBit( daysOfMonth, day );
+      return next > lastDay ? -1 : next;
+    }
+    // Quartz numbering: 1 = Sunday ... 7 = Saturday; epoch day 0 was a Thursday
+    int dayOfWeek = (int) Math.floorMod( epochDay( year, month, day ) + 4, 7 ) + 1;
+    for ( int d = day; d <= lastDay; d++ ) {
+      if ( ( daysOfWeek & ( 1 << dayOfWeek ) ) != 0 ) {
+        return d;
+      }
+      dayOfWeek = dayOfWeek == 7 ? 1 : dayOfWeek + 1;
+    }
+    return -1;
+  }
+
+  private static int nextBit( long mask, int from ) {
+    if ( from >= 64 ) {
+      return -1;
+    }
+    long remaining = mask & ( -1L << from );
+    return remaining == 0 ? -1 : Long.numberOfTrailingZeros( remaining );
+  }
+
+  private static int nextBit( int mask, int from ) {
+    if ( from >= 32 ) {
+      return -1;
+    }
+    int remaining = mask & ( -1 << from );
+    return remaining == 0 ? -1 : Integer.numberOfTrailingZeros( remaining );
+  }
+
+  private static int lengthOfMonth( int year, int month ) {
+    switch ( month ) {
+      case 2:
+        return ( year % 4 == 0 && ( year % 100 != 0 || year % 400 == 0 ) ) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  private static long epochDay( int year, int month, int day ) {
+    long y = month <= 2 ? year - 1 : year;
+    long era = Math.floorDiv( y, 400 );
+    long yoe = y - era * 400;
+    long doy = ( 153L * ( month > 2 ? month - 3 : month + 9 ) + 2 ) / 5 + day - 1;
+    long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+    return era * 146097 + doe - 719468;
+  }
+
+  private long quartzTimeAfter( long afterMillis ) {
+    CronExpression cronExpression = quartzExpression;
+    if ( cronExpression == null ) {
+      try {
+        cronExpression = new CronExpression( expression );
+      } catch ( ParseException e ) {
+        // parse() accepted it, so this does not happen for valid input
+        throw new IllegalStateException( e );
+      }
+      cronExpression.setTimeZone( timeZone );
+      quartzExpression = cronExpression;
+    }
+    Date next = cronExpression.getTimeAfter( new Date( afterMillis ) );
+    return next == null ? -1 : next.getTime();
+  }
+
+  // ---------------------------------------------------------------------------------------------------------------
+  // parsing
+
+  private static CronEvaluator parse( String expression, TimeZone timeZone ) {
+    StringTokenizer tokens = new StringTokenizer( expression.toUpperCase( Locale.US ), " \t" ); //$NON-NLS-1$
+    int count = tokens.countTokens();
+    if ( count != 6 && count != 7 ) {
+      return null;
+    }
+    long[] fields = new long[ 6 ];
+    for ( int type = SECOND; type <= DAY_OF_WEEK; type++ ) {
+      fields[ type ] = parseField( tokens.nextToken(), type );
+      if ( fields[ type ] == 0 ) {
+        return null;
+      }
+    }
+    // Quartz requires exactly one of day of month and day of week to be '?'
+    if ( ( fields[ DAY_OF_MONTH ] == NO_SPEC ) == ( fields[ DAY_OF_WEEK ] == NO_SPEC ) ) {
+      return null;
+    }
+    long[] years = null;
+    if ( tokens.hasMoreTokens() ) {
+      String yearField = tokens.nextToken();
+      if ( !"*".equals( yearField ) ) { //$NON-NLS-1$
+        years = parseYears( yearField );
+        if ( years == null ) {
+          return null;
+        }
+      }
+    }
+    return new CronEvaluator( expression, timeZone, fields, years );
+  }
+
+  /**
+   * @return the bit mask of the field, {@link #NO_SPEC} for '?', or 0 if it cannot be evaluated natively
+   */
+  private static long parseField( String field, int type ) {
+    if ( "?".equals( field ) ) { //$NON-NLS-1$
+      return type == DAY_OF_MONTH || type == DAY_OF_WEEK ? NO_SPEC : 0;
+    }
+    long mask = 0;
+    for ( String term : field.split( ",", -1 ) ) { //$NON-NLS-1$
+      long termMask = parseTerm( term, type );
+      if ( termMask == 0 ) {
+        return 0;
+      }
+      mask |= termMask;
+    }
+    return mask;
+  }
+
+  private static long parseTerm( String term, int type ) {
+    int slash = term.indexOf( '/' );
+    String range = slash < 0 ? term : term.substring( 0, slash );
+    int increment = 1;
+    if ( slash >= 0 ) {
+      increment = parseNumber( term.substring( slash + 1 ) );
+      if ( increment <= 0 || increment > MAX[ type ] ) {
+        return 0;
+      }
+    }
+    int start;
+    int stop;
+    if ( "*".equals( range ) ) { //$NON-NLS-1$
+      start = MIN[ type ];
+      stop = MAX[ type ];
+    } else {
+      int dash = range.indexOf( '-' );
+      start = parseValue( dash < 0 ? range : range.substring( 0, dash ), type );
+      if ( start < 0 ) {
+        return 0;
+      }
+      if ( dash >= 0 ) {
+        stop = parseValue( range.substring( dash + 1 ), type );
+        if ( stop < 0 ) {
+          return 0;
+        }
+      } else {
+        stop = slash >= 0 ? MAX[ type ] : start;
+      }
+    }
+    int wrap = -1;
+    if ( stop < start ) {
+      wrap = WRAP[ type ];
+      stop += wrap;
+    }
+    long mask = 0;
+    for ( int value = start; value <= stop; value += increment ) {
+      int bit = value;
+      if ( wrap > 0 ) {
+        bit = value % wrap;
+        if ( bit == 0 && ( type == MONTH || type == DAY_OF_WEEK || type == DAY_OF_MONTH ) ) {
+          bit = wrap;
+        }
+      }
+      mask |= 1L << bit;
+    }
+    return mask;
+  }
+
+  private static int parseValue( String value, int type ) {
+    String[] names = type == MONTH ? MONTH_NAMES : type == DAY_OF_WEEK ? DAY_NAMES : null;
+    if ( names != null ) {
+      for ( int i = 0; i < names.length; i++ ) {
+        if ( names[ i ].equals( value ) ) {
+          return i + 1;
+        }
+      }
+    }
+    int number = parseNumber( value );
+    return number < MIN[ type ] || number > MAX[ type ] ? -1 : number;
+  }
+
+  private static long[] parseYears( String field ) {
+    long[] years = new long[ ( MAX_YEAR_VALUE - MIN_YEAR ) / 64 + 1 ];
+    for ( String term : field.split( ",", -1 ) ) { //$NON-NLS-1$
+      int slash = term.indexOf( '/' );
+      String range = slash < 0 ? term : term.substring( 0, slash );
+      int increment = slash < 0 ? 1 : parseNumber( term.substring( slash + 1 ) );
+      int dash = range.indexOf( '-' );
+      int start = "*".equals( range ) ? MIN_YEAR : parseNumber( dash < 0 ? range : range.substring( 0, dash ) );
+      int stop = dash >= 0 ? parseNumber( range.substring( dash + 1 ) )
+        : slash >= 0 || "*".equals( range ) ? MAX_YEAR_VALUE : start; //$NON-NLS-1$
+      if ( increment <= 0 || start < MIN_YEAR || stop > MAX_YEAR_VALUE || stop < start ) {
+        return null;
+      }
+      for ( int year = start; year <= stop; year += increment ) {
+        int bit = year - MIN_YEAR;
+        years[ bit >>> 6 ] |= 1L << ( bit & 63 );
+      }
+    }
+    return years;
+  }
+
+  private static int parseNumber( String value ) {
+    if ( value.isEmpty() || value.length() > 4 ) {
+      return -1;
+    }
+    int number = 0;
+    for ( int i = 0; i < value.length(); i++ ) {
+      char c = value.charAt( i );
+      if ( c < '0' || c > '9' ) {
+        return -1;
+      }
+      number = number * 10 + ( c - '0' );
+    }
+    return number;
+  }
+}
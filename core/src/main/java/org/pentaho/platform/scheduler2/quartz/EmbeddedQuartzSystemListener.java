@@ -56,6 +56,12 @@ public class EmbeddedQuartzSystemListener implements IPluginLifecycleListener {
 
   private static final String DEFAULT_QUARTZ_PROPERTIES_FILE = "scheduler-plugin/quartz/quartz.properties"; //$NON-NLS-1$
 
+  static final String JOB_STORE_CLASS_PROPERTY = "org.quartz.jobStore.class"; //$NON-NLS-1$
+
+  static final String JOURNAL_DIRECTORY_PROPERTY = "org.quartz.jobStore.journalDirectory"; //$NON-NLS-1$
+
+  private static final String DEFAULT_JOURNAL_DIRECTORY = "system/scheduler-plugin/journal"; //$NON-NLS-1$
+
   Properties quartzProperties;
 
   String quartzPropertiesFile = DEFAULT_QUARTZ_PROPERTIES_FILE;
@@ -64,6 +70,16 @@ public class EmbeddedQuartzSystemListener implements IPluginLifecycleListener {
 
   private static boolean useNewDatasourceService = false;
 
+  private boolean warmUpEnabled = true;
+
+  private long warmUpTimeoutMillis = 30000;
+
+  private int warmUpParallelism = Math.min( 4, Runtime.getRuntime().availableProcessors() );
+
+  private SchedulerWarmUp warmUp;
+
+  private long misfireRecoveryWindowMillis = 0;
+
   public synchronized void setUseNewDatasourceService( boolean useNewService ) {
     //
     // The platform should not be calling this method. But, in case someone really
@@ -95,7 +111,9 @@ public class EmbeddedQuartzSystemListener implements IPluginLifecycleListener {
         result = false;
       } else {
         String dsName = quartzProps.getProperty( "org.quartz.dataSource.myDS.jndiURL" ); //$NON-NLS-1$
-        if ( dsName != null ) {
+        if ( usesJournaledJobStore( quartzProps ) ) {
+          configureJournalDirectory( quartzProps );
+        } else if ( dsName != null ) {
           IDBDatasourceService datasourceService = getQuartzDatasourceService( session );
           String boundDsName = datasourceService.getDSBoundName( dsName );
 
@@ -166,6 +184,11 @@ public class EmbeddedQuartzSystemListener implements IPluginLifecycleListener {
     if ( logger.isDebugEnabled() ) {
       logger.debug( "scheduler is now paused" );
     }
+    // Use the pause to fill the caches the first listing, blockout checks and lookups read
+    if ( warmUpEnabled ) {
+      warmUp = createWarmUp( scheduler );
+      warmUp.start();
+    }
     // Tell the publisher that we want to listen for "START_UP_TOPIC" and when it fires that the system has started
     // then call the systemStartupCallback method.
     PentahoSystemPublisher.getInstance().subscribe( PentahoSystemPublisher.START_UP_TOPIC, this::systemStartupCallback );
@@ -174,13 +197,35 @@ public class EmbeddedQuartzSystemListener implements IPluginLifecycleListener {
       logger.debug( scheduler.getQuartzScheduler().getSchedulerName() );
     }
   }
+  protected SchedulerWarmUp createWarmUp( QuartzScheduler scheduler ) {
+    return new SchedulerWarmUp( scheduler, warmUpParallelism );
+  }
+
+  /**
+   * Waits for the warm-up started in {@link #waitForSystemToStart(QuartzScheduler)}, at most
+   * <code>warmUpTimeoutMillis</code>. The scheduler starts either way.
+   */
+  protected void awaitWarmUp() {
+    if ( warmUp != null ) {
+      warmUp.await( warmUpTimeoutMillis );
+    }
+  }
+
+  public SchedulerWarmUp getWarmUp() {
+    return warmUp;
+  }
+
   /**
    * Starts the QuartzScheduler. Introduced to be overriden in EE implementation.
    * @param quartzScheduler
    * @throws org.pentaho.platform.api.scheduler2.SchedulerException
    */
   protected void startScheduler( QuartzScheduler quartzScheduler ) throws org.pentaho.platform.api.scheduler2.SchedulerException {
-    quartzScheduler.start();
+    if ( misfireRecoveryWindowMillis > 0 ) {
+      quartzScheduler.startWithMisfireRecovery( misfireRecoveryWindowMillis );
+    } else {
+      quartzScheduler.start();
+    }
   }
 
   // This method should be called by the publisher when the system has started
@@ -191,6 +236,7 @@ public class EmbeddedQuartzSystemListener implements IPluginLifecycleListener {
         if ( logger.isDebugEnabled() ) {
           logger.debug( "System has properly initialized. Starting the scheduler now" );
         }
+        awaitWarmUp();
         startScheduler( scheduler );
         if ( logger.isDebugEnabled() ) {
           logger.debug( "System has properly initialized. Finished starting the scheduler" );
@@ -217,6 +263,26 @@ public class EmbeddedQuartzSystemListener implements IPluginLifecycleListener {
     }
   }
 
+  /**
+   * The journaled job store keeps the schedule in memory and on local disk, so no Quartz database is needed.
+   */
+  protected boolean usesJournaledJobStore( Properties quartzProps ) {
+    return JournaledRAMJobStore.class.getName().equals(
+      StringUtils.trim( quartzProps.getProperty( JOB_STORE_CLASS_PROPERTY ) ) );
+  }
+
+  /**
+   * Resolves a relative (or missing) journal directory against the solution folder.
+   */
+  protected void configureJournalDirectory( Properties quartzProps ) {
+    String journalDirectory =
+      StringUtils.trim( quartzProps.getProperty( JOURNAL_DIRECTORY_PROPERTY, DEFAULT_JOURNAL_DIRECTORY ) );
+    if ( !new File( journalDirectory ).isAbsolute() ) {
+      journalDirectory = PentahoSystem.getApplicationContext().getSolutionPath( journalDirectory );
+    }
+    quartzProps.setProperty( JOURNAL_DIRECTORY_PROPERTY, journalDirectory );
+  }
+
   protected boolean verifyQuartzIsConfigured( DataSource ds ) throws SQLException {
     boolean quartzIsConfigured = false;
     Connection conn = ds.getConnection();
@@ -333,6 +399,42 @@ public class EmbeddedQuartzSystemListener implements IPluginLifecycleListener {
     }
   }
 
+  public boolean isWarmUpEnabled() {
+    return warmUpEnabled;
+  }
+
+  public void setWarmUpEnabled( boolean warmUpEnabled ) {
+    this.warmUpEnabled = warmUpEnabled;
+  }
+
+  public long getWarmUpTimeoutMillis() {
+    return warmUpTimeoutMillis;
+  }
+
+  public void setWarmUpTimeoutMillis( long warmUpTimeoutMillis ) {
+    this.warmUpTimeoutMillis = warmUpTimeoutMillis;
+  }
+
+  public int getWarmUpParallelism() {
+    return warmUpParallelism;
+  }
+
+  public void setWarmUpParallelism( int warmUpParallelism ) {
+    this.warmUpParallelism = warmUpParallelism;
+  }
+
+  public long getMisfireRecoveryWindowMillis() {
+    return misfireRecoveryWindowMillis;
+  }
+
+  /**
+   * Spreads the catch-up runs of triggers that misfired while the server was down over this window. <code>0</code>
+   * (the default) lets Quartz fire them all as soon as the scheduler starts.
+   */
+  public void setMisfireRecoveryWindowMillis( long misfireRecoveryWindowMillis ) {
+    this.misfireRecoveryWindowMillis = misfireRecoveryWindowMillis;
+  }
+
   public String getQuartzPropertiesFile() {
     return quartzPropertiesFile;
   }
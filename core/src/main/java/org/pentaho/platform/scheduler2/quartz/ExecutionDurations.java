@@ -0,0 +1,179 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The most recent execution times of each schedule, keyed by lineage id so they survive an export and import.
+ * {@link BlockingQuartzJob} records into the shared instance; the schedule export carries each schedule's samples
+ * as a {@link QuartzScheduler#RESERVEDMAPKEY_EXECUTION_DURATIONS} parameter, and {@link #toProperties()} and
+ * {@link #fromProperties(Properties)} carry all of them to an offline {@link CapacitySimulator}.
+ */
+public class ExecutionDurations {
+
+  static final int MAX_SAMPLES = 64;
+
+  private static final ExecutionDurations instance = new ExecutionDurations();
+
+  private final ConcurrentMap<String, Samples> samples = new ConcurrentHashMap<>();
+
+  /**
+   * Ring buffer of the last {@link #MAX_SAMPLES} durations.
+   */
+  private static final class Samples {
+    private final long[] values = new long[ MAX_SAMPLES ];
+    private int next;
+    private int size;
+    private long lastStart = -1;
+    private long lastEnd = -1;
+
+    synchronized void add( long value ) {
+      values[ next ] = value;
+      next = ( next + 1 ) % values.length;
+      size = Math.min( size + 1, values.length );
+    }
+
+    synchronized void setLastRun( long start, long end ) {
+      lastStart = start;
+      lastEnd = end;
+    }
+
+    synchronized long[] getLastRun() {
+      return lastStart < 0 ? null : new long[] { lastStart, lastEnd };
+    }
+
+    synchronized long[] toArray() {
+      long[] copy = new long[ size ];
+      for ( int i = 0; i < size; i++ ) {
+        // oldest first
+        copy[ i ] = values[ ( next - size + i + values.length ) % values.length ];
+      }
+      return copy;
+    }
+  }
+
+  public static ExecutionDurations getInstance() {
+    return instance;
+  }
+
+  public void record( String lineageId, long durationMillis ) {
+    if ( lineageId == null || durationMillis < 0 ) {
+      return;
+    }
+    samples.computeIfAbsent( lineageId, id -> new Samples() ).add( durationMillis );
+  }
+
+  /**
+   * Records an execution and remembers it as the latest one, for the critical path of a dependency chain.
+   */
+  public void record( String lineageId, long startMillis, long endMillis ) {
+    if ( lineageId == null || endMillis < startMillis ) {
+      return;
+    }
+    Samples recorded = samples.computeIfAbsent( lineageId, id -> new Samples() );
+    recorded.add( endMillis - startMillis );
+    recorded.setLastRun( startMillis, endMillis );
+  }
+
+  /**
+   * @return the start and end time of the latest execution recorded with its times, or <code>null</code>
+   */
+  public long[] getLastRun( String lineageId ) {
+    Samples recorded = lineageId == null ? null : samples.get( lineageId );
+    return recorded == null ? null : recorded.getLastRun();
+  }
+
+  /**
+   * @return the recorded durations in milliseconds, oldest first; empty if there are none
+   */
+  public long[] getDurations( String lineageId ) {
+    Samples recorded = lineageId == null ? null : samples.get( lineageId );
+    return recorded == null ? new long[ 0 ] : recorded.toArray();
+  }
+
+  public void remove( String lineageId ) {
+    samples.remove( lineageId );
+  }
+
+  /**
+   * Forgets the durations of every lineage id that is not in <code>lineageIds</code>.
+   */
+  public void retainAll( Collection<String> lineageIds ) {
+    samples.keySet().retainAll( lineageIds );
+  }
+
+  /**
+   * @return the recorded durations as a comma separated list of milliseconds, oldest first, or <code>null</code> if
+   * there are none
+   */
+  public String format( String lineageId ) {
+    long[] durations = getDurations( lineageId );
+    if ( durations.length == 0 ) {
+      return null;
+    }
+    StringBuilder value = new StringBuilder();
+    for ( long duration : durations ) {
+      if ( value.length() > 0 ) {
+        value.append( ',' );
+      }
+      value.append( duration );
+    }
+    return value.toString();
+  }
+
+  /**
+   * Records what {@link #format(String)} wrote; values that are not numbers are skipped.
+   */
+  public void parse( String lineageId, String durations ) {
+    if ( durations == null ) {
+      return;
+    }
+    for ( String value : durations.split( "," ) ) { //$NON-NLS-1$
+      try {
+        record( lineageId, Long.parseLong( value.trim() ) );
+      } catch ( NumberFormatException e ) {
+        // skip it
+      }
+    }
+  }
+
+  /**
+   * @return one entry per lineage id, the durations as a comma separated list of milliseconds
+   */
+  public Properties toProperties() {
+    Properties properties = new Properties();
+    for ( String lineageId : samples.keySet() ) {
+      String value = format( lineageId );
+      if ( value != null ) {
+        properties.setProperty( lineageId, value );
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Reads what {@link #toProperties()} wrote; values that are not numbers are skipped.
+   */
+  public static ExecutionDurations fromProperties( Properties properties ) {
+    ExecutionDurations durations = new ExecutionDurations();
+    for ( String lineageId : properties.stringPropertyNames() ) {
+      durations.parse( lineageId, properties.getProperty( lineageId ) );
+    }
+    return durations;
+  }
+}
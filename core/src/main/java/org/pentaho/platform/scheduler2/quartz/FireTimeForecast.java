@@ -0,0 +1,374 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+import org.pentaho.platform.api.scheduler2.IBlockoutManager;
+import org.quartz.Calendar;
+import org.quartz.CronTrigger;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+
+/**
+ * Projects the fire times of every active trigger over a horizon and reports how many executions start in each
+ * bucket, how many run at the same time at the peak (given an assumed execution duration) and which jobs contribute
+ * most.
+ * <p/>
+ * Each trigger is a lazily advanced stream of fire times; the streams are merged in time order through a heap, so
+ * memory stays proportional to the number of triggers rather than the number of fires.
+ */
+public class FireTimeForecast {
+
+  // never ask Quartz for more than this many calendar-excluded times in a row
+  private static final int MAX_EXCLUDED_IN_A_ROW = 1000;
+
+  private final long startTime;
+  private final long endTime;
+  private final long bucketMillis;
+  private final long durationMillis;
+  private final int threadCount;
+  private final int[] buckets;
+  private final boolean[] overCapacity;
+
+  private int triggerCount;
+  private long executionCount;
+  private int peakConcurrency;
+  private long peakTime = -1;
+  private List<Contributor> topContributors = Collections.emptyList();
+
+  /**
+   * A job's share of the forecast.
+   */
+  public static class Contributor {
+    private final String jobId;
+    private final int count;
+
+    Contributor( String jobId, int count ) {
+      this.jobId = jobId;
+      this.count = count;
+    }
+
+    public String getJobId() {
+      return jobId;
+    }
+
+    public int getCount() {
+      return count;
+    }
+  }
+
+  /**
+   * The fire times of one trigger, computed one at a time.
+   */
+  abstract static class FireTimeStream {
+    final String jobId;
+    long next = -1;
+    int count;
+
+    FireTimeStream( String jobId ) {
+      this.jobId = jobId;
+    }
+
+    /**
+     * @return the first fire time strictly after <code>after</code>, or <code>-1</code>
+     */
+    abstract long fireTimeAfter( long after );
+
+    /**
+     * @return the first fire time at or after <code>time</code>, or <code>-1</code>
+     */
+    long fireTimeFrom( long time ) {
+      long next = fireTimeAfter( time - 1 );
+      // a trigger starting mid-second may report a time just before its start; it is never fired
+      while ( next >= 0 && next < time ) {
+        long after = next;
+        next = fireTimeAfter( after );
+        if ( next <= after ) {
+          next = -1;
+        }
+      }
+      return next;
+    }
+  }
+
+  static final class TriggerStream extends FireTimeStream {
+    private final Trigger trigger;
+    private final CronEvaluator evaluator;
+    private final Calendar calendar;
+
+    TriggerStream( String jobId, Trigger trigger, Calendar calendar ) {
+      super( jobId );
+      this.trigger = trigger;
+      this.calendar = calendar;
+      if ( trigger instanceof CronTrigger ) {
+        CronTrigger cronTrigger = (CronTrigger) trigger;
+        this.evaluator = CronEvaluator.compile( cronTrigger.getCronExpression(), cronTrigger.getTimeZone() );
+      } else {
+        this.evaluator = null;
+      }
+    }
+
+    @Override
+    long fireTimeAfter( long after ) {
+      long time = after;
+      for ( int i = 0; i < MAX_EXCLUDED_IN_A_ROW; i++ ) {
+        time = nextFireTime( time );
+        if ( time < 0 || calendar == null || calendar.isTimeIncluded( time ) ) {
+          return time;
+        }
+      }
+      return -1;
+    }
+
+    private long nextFireTime( long after ) {
+      if ( evaluator != null ) {
+        return evaluator.getFireTimeAfter( after, trigger.getStartTime(), trigger.getEndTime() );
+      }
+      Date next = trigger.getFireTimeAfter( new Date( after ) );
+      return next == null ? -1 : next.getTime();
+    }
+  }
+
+  FireTimeForecast( long startTime, long endTime, long bucketMillis, long durationMillis, int threadCount ) {
+    this.startTime = startTime;
+    this.endTime = endTime;
+    this.bucketMillis = Math.max( 1, bucketMillis );
+    this.durationMillis = Math.max( 1, durationMillis );
+    this.threadCount = threadCount;
+    int bucketCount = (int) Math.max( 1, ( endTime - startTime + this.bucketMillis - 1 ) / this.bucketMillis );
+    this.buckets = new int[ bucketCount ];
+    this.overCapacity = new boolean[ bucketCount ];
+  }
+
+  /**
+   * Forecasts the triggers of <code>scheduler</code> that are not paused, leaving out blockouts.
+   *
+   * @param durationMillis how long each execution is assumed to run, for the concurrency figures
+   * @param top            how many of the largest contributors to report
+   */
+  public static FireTimeForecast forecast( Scheduler scheduler, long startTime, long endTime, long bucketMillis,
+                                           long durationMillis, int top ) throws SchedulerException {
+    return forecast( scheduler, startTime, endTime, bucketMillis, durationMillis, top, jobId -> true );
+  }
+
+  /**
+   * Forecasts the triggers of <code>scheduler</code> that are not paused, leaving out blockouts.
+   *
+   * @param durationMillis how long each execution is assumed to run, for the concurrency figures
+   * @param top            how many of the largest contributors to report
+   * @param contributors   the ids of the jobs that may be reported as contributors; every job counts in the totals
+   */
+  public static FireTimeForecast forecast( Scheduler scheduler, long startTime, long endTime, long bucketMillis,
+                                           long durationMillis, int top, Predicate<String> contributors )
+    throws SchedulerException {
+    List<FireTimeStream> streams = new ArrayList<>();
+    Map<String, Calendar> calendars = new HashMap<>();
+    for ( TriggerKey triggerKey : scheduler.getTriggerKeys( GroupMatcher.anyTriggerGroup() ) ) {
+      if ( isBlockout( triggerKey ) ) {
+        continue;
+      }
+      Trigger trigger = scheduler.getTrigger( triggerKey );
+      if ( trigger == null ) {
+        continue;
+      }
+      Trigger.TriggerState state = scheduler.getTriggerState( triggerKey );
+      if ( state != Trigger.TriggerState.NORMAL && state != Trigger.TriggerState.BLOCKED ) {
+        continue;
+      }
+      Calendar calendar = null;
+      if ( trigger.getCalendarName() != null ) {
+        calendar = calendars.computeIfAbsent( trigger.getCalendarName(), name -> getCalendar( scheduler, name ) );
+      }
+      streams.add( new TriggerStream( trigger.getJobKey().getName(), trigger, calendar ) );
+    }
+    FireTimeForecast forecast = new FireTimeForecast( startTime, endTime, bucketMillis, durationMillis,
+      scheduler.getMetaData().getThreadPoolSize() );
+    forecast.run( streams, top, contributors );
+    return forecast;
+  }
+
+  private static boolean isBlockout( TriggerKey triggerKey ) {
+    // trigger names are job ids: user, job name and a unique suffix separated by tabs
+    String[] parts = triggerKey.getName().split( "\t" ); //$NON-NLS-1$
+    return parts.length > 1 && IBlockoutManager.BLOCK_OUT_JOB_NAME.equals( parts[ 1 ] );
+  }
+
+  private static Calendar getCalendar( Scheduler scheduler, String name ) {
+    try {
+      return scheduler.getCalendar( name );
+    } catch ( SchedulerException e ) {
+      return null;
+    }
+  }
+
+  void run( List<? extends FireTimeStream> streams, int top ) {
+    run( streams, top, jobId -> true );
+  }
+
+  void run( List<? extends FireTimeStream> streams, int top, Predicate<String> contributors ) {
+    triggerCount = streams.size();
+    PriorityQueue<FireTimeStream> heap =
+      new PriorityQueue<>( Math.max( 1, streams.size() ), Comparator.comparingLong( stream -> stream.next ) );
+    for ( FireTimeStream stream : streams ) {
+      long next = stream.fireTimeFrom( startTime );
+      stream.next = next;
+      if ( next >= 0 && next < endTime ) {
+        heap.add( stream );
+      }
+    }
+
+    // end times of the executions still running, oldest first; with a fixed duration they finish in start order
+    long[] running = new long[ 16 ];
+    int head = 0;
+    int size = 0;
+    while ( !heap.isEmpty() ) {
+      FireTimeStream stream = heap.poll();
+      long time = stream.next;
+      int bucket = (int) ( ( time - startTime ) / bucketMillis );
+      buckets[ bucket ]++;
+      stream.count++;
+      executionCount++;
+
+      while ( size > 0 && running[ head ] <= time ) {
+        head = ( head + 1 ) % running.length;
+        size--;
+      }
+      if ( size == running.length ) {
+        long[] grown = new long[ running.length * 2 ];
+        for ( int i = 0; i < size; i++ ) {
+          grown[ i ] = running[ ( head + i ) % running.length ];
+        }
+        running = grown;
+        head = 0;
+      }
+      running[ ( head + size ) % running.length ] = time + durationMillis;
+      size++;
+      if ( size > peakConcurrency ) {
+        peakConcurrency = size;
+        peakTime = time;
+      }
+      if ( threadCount > 0 && size > threadCount ) {
+        overCapacity[ bucket ] = true;
+      }
+
+      stream.next = stream.fireTimeAfter( time );
+      if ( stream.next > time && stream.next < endTime ) {
+        heap.add( stream );
+      }
+    }
+    topContributors = topContributors( streams, top, contributors );
+  }
+
+  private static List<Contributor> topContributors( List<? extends FireTimeStream> streams, int top,
+                                                    Predicate<String> contributors ) {
+    if ( top <= 0 ) {
+      return Collections.emptyList();
+    }
+    PriorityQueue<FireTimeStream> largest = new PriorityQueue<>( top + 1, Comparator.comparingInt( s -> s.count ) );
+    for ( FireTimeStream stream : streams ) {
+      // filtered before the cut, so that the top is of the jobs that may be reported
+      if ( stream.count > 0 && contributors.test( stream.jobId ) ) {
+        largest.add( stream );
+        if ( largest.size() > top ) {
+          largest.poll();
+        }
+      }
+    }
+    List<Contributor> contributors = new ArrayList<>( largest.size() );
+    while ( !largest.isEmpty() ) {
+      FireTimeStream stream = largest.poll();
+      contributors.add( new Contributor( stream.jobId, stream.count ) );
+    }
+    Collections.reverse( contributors );
+    return contributors;
+  }
+
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public long getEndTime() {
+    return endTime;
+  }
+
+  public long getBucketMillis() {
+    return bucketMillis;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  /**
+   * @return the number of executions starting in each bucket, the first bucket starting at {@link #getStartTime()}
+   */
+  public int[] getBuckets() {
+    return buckets.clone();
+  }
+
+  /**
+   * @return the number of buckets in which more executions run at once than the scheduler has threads
+   */
+  public int getBucketsOverCapacity() {
+    int count = 0;
+    for ( boolean over : overCapacity ) {
+      if ( over ) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  public int getTriggerCount() {
+    return triggerCount;
+  }
+
+  public long getExecutionCount() {
+    return executionCount;
+  }
+
+  public int getPeakConcurrency() {
+    return peakConcurrency;
+  }
+
+  /**
+   * @return when the peak concurrency was first reached, or <code>-1</code> if nothing fires
+   */
+  public long getPeakTime() {
+    return peakTime;
+  }
+
+  /**
+   * @return the jobs with the most executions in the horizon, largest first
+   */
+  public List<Contributor> getTopContributors() {
+    return topContributors;
+  }
+}
@@ -0,0 +1,214 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps overlapping executions of the same job apart. A job chooses how in its
+ * {@link QuartzScheduler#RESERVEDMAPKEY_CONCURRENCY_POLICY} parameter:
+ * <ul>
+ * <li><code>allow</code> (the default): every fire and every manual run executes, even alongside a running one;</li>
+ * <li><code>coalesce</code>: a fire or manual run while the job is running, or about to, is folded into that
+ * execution;</li>
+ * <li><code>queue</code>: it runs once the current execution has finished.</li>
+ * </ul>
+ * Manual runs are counted from the moment they are requested, so that clicking "Run now" repeatedly on a slow report
+ * is caught before the first click's execution has started. Only the fires triggered with {@link #REQUESTED_RUN_KEY}
+ * in their data settle a request; fires on the job's triggers, or that dependencies or misfire recovery trigger, do
+ * not, and are coalesced or queued behind a pending request like behind a running execution. A request whose fire
+ * never comes (the job was paused, the scheduler put in standby, the fire misfired) is forgotten after
+ * {@link #REQUEST_TIMEOUT_MILLIS}, with the runs queued behind it, and all of them when the job is removed. The
+ * counts are kept in memory and cover the executions of this server only.
+ */
+public class JobConcurrency {
+
+  static final String POLICY_ALLOW = "allow"; //$NON-NLS-1$
+
+  static final String POLICY_COALESCE = "coalesce"; //$NON-NLS-1$
+
+  static final String POLICY_QUEUE = "queue"; //$NON-NLS-1$
+
+  /**
+   * Trigger data marking a fire as the manual run that {@link #requestRun(String, String)} admitted.
+   */
+  public static final String REQUESTED_RUN_KEY = "concurrency-requested-run"; //$NON-NLS-1$
+
+  static final long REQUEST_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis( 15 );
+
+  /**
+   * What became of a request to run a job.
+   */
+  public enum Admission {
+    STARTED, QUEUED, COALESCED
+  }
+
+  private static final JobConcurrency instance = new JobConcurrency();
+
+  private final Map<String, State> states = new HashMap<>();
+
+  private static final class State {
+    private int running;
+    // when each pending request was made, oldest first
+    private final Deque<Long> requested = new ArrayDeque<>();
+    private int queued;
+
+    boolean isIdle() {
+      return running == 0 && requested.isEmpty() && queued == 0;
+    }
+
+    void expireRequests( long now ) {
+      boolean expired = false;
+      while ( !requested.isEmpty() && now - requested.peekFirst() > REQUEST_TIMEOUT_MILLIS ) {
+        requested.removeFirst();
+        expired = true;
+      }
+      if ( expired && running == 0 && requested.isEmpty() ) {
+        // nothing is left to finish and release them
+        queued = 0;
+      }
+    }
+  }
+
+  public static JobConcurrency getInstance() {
+    return instance;
+  }
+
+  /**
+   * @return the policy named by <code>policy</code>, or <code>allow</code> if it names none
+   */
+  static String getPolicy( Object policy ) {
+    String name = policy == null ? "" : policy.toString().trim().toLowerCase(); //$NON-NLS-1$
+    return POLICY_COALESCE.equals( name ) || POLICY_QUEUE.equals( name ) ? name : POLICY_ALLOW;
+  }
+
+  /**
+   * Called before a manual run of the job is handed to Quartz.
+   *
+   * @return {@link Admission#STARTED} if the caller should trigger the job now; otherwise the run was queued or
+   * coalesced and the caller must not trigger it
+   */
+  public synchronized Admission requestRun( String jobId, String policy ) {
+    State state = getState( jobId );
+    boolean busy = state.running > 0 || !state.requested.isEmpty();
+    if ( busy && POLICY_COALESCE.equals( policy ) ) {
+      return Admission.COALESCED;
+    }
+    if ( busy && POLICY_QUEUE.equals( policy ) ) {
+      state.queued++;
+      return Admission.QUEUED;
+    }
+    state.requested.addLast( currentTimeMillis() );
+    return Admission.STARTED;
+  }
+
+  /**
+   * Undoes {@link #requestRun(String, String)} when the job could not be triggered.
+   */
+  public synchronized void cancelRun( String jobId ) {
+    State state = states.get( jobId );
+    if ( state != null && !state.requested.isEmpty() ) {
+      state.requested.removeLast();
+      removeIfIdle( jobId, state );
+    }
+  }
+
+  /**
+   * Called when the job fires, manually or on its triggers.
+   *
+   * @param manual whether this is a requested run, fired with {@link #REQUESTED_RUN_KEY}
+   * @return whether the job should execute now; if so {@link #finish(String)} must follow
+   */
+  public synchronized boolean start( String jobId, String policy, boolean manual ) {
+    State state = getState( jobId );
+    state.expireRequests( currentTimeMillis() );
+    if ( manual && !state.requested.isEmpty() ) {
+      state.requested.removeFirst();
+    }
+    // a fire on the job's triggers is also held back by a manual run that was requested but has not started yet
+    boolean busy = state.running > 0 || ( !manual && !state.requested.isEmpty() );
+    if ( busy && POLICY_COALESCE.equals( policy ) ) {
+      removeIfIdle( jobId, state );
+      return false;
+    }
+    if ( busy && POLICY_QUEUE.equals( policy ) ) {
+      state.queued++;
+      return false;
+    }
+    state.running++;
+    return true;
+  }
+
+  /**
+   * Called when an execution admitted by {@link #start(String, String, boolean)} has ended.
+   *
+   * @return whether a queued run is due, in which case the caller should trigger the job with
+   * {@link #REQUESTED_RUN_KEY}; it is counted as requested
+   */
+  public synchronized boolean finish( String jobId ) {
+    State state = states.get( jobId );
+    if ( state == null ) {
+      return false;
+    }
+    state.running = Math.max( 0, state.running - 1 );
+    state.expireRequests( currentTimeMillis() );
+    if ( state.running == 0 && state.requested.isEmpty() && state.queued > 0 ) {
+      state.queued--;
+      state.requested.addLast( currentTimeMillis() );
+      return true;
+    }
+    removeIfIdle( jobId, state );
+    return false;
+  }
+
+  /**
+   * @return whether the job is executing or about to
+   */
+  public synchronized boolean isBusy( String jobId ) {
+    State state = states.get( jobId );
+    if ( state == null ) {
+      return false;
+    }
+    state.expireRequests( currentTimeMillis() );
+    removeIfIdle( jobId, state );
+    return !state.isIdle();
+  }
+
+  /**
+   * Forgets the runs of a job that was removed, including the requested and queued ones that will never fire.
+   */
+  public synchronized void forget( String jobId ) {
+    states.remove( jobId );
+  }
+
+  long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private State getState( String jobId ) {
+    State state = states.computeIfAbsent( jobId, id -> new State() );
+    state.expireRequests( currentTimeMillis() );
+    return state;
+  }
+
+  private void removeIfIdle( String jobId, State state ) {
+    if ( state.isIdle() ) {
+      states.remove( jobId );
+    }
+  }
+}
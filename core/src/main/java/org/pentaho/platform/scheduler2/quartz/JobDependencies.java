@@ -0,0 +1,208 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.platform.api.scheduler2.SchedulerException;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+
+/**
+ * Dependencies between schedules. A job names the lineage ids of the jobs it depends on in its
+ * {@link QuartzScheduler#RESERVEDMAPKEY_DEPENDS_ON} parameter and runs as soon as all of them have completed since
+ * it last ran. Its own trigger becomes the deadline of each batch: if the job already ran for the batch the trigger
+ * does nothing, otherwise the {@link QuartzScheduler#RESERVEDMAPKEY_DEPENDENCY_POLICY} decides whether it runs anyway
+ * (<code>run</code>) or skips the batch (<code>skip</code>, the default). Under <code>run</code> a failed upstream
+ * counts as completed; under <code>skip</code> it holds the job until the deadline.
+ * <p/>
+ * The progress of the current batch is kept in the job's data map, so it survives a restart when the job store is
+ * persistent.
+ */
+public final class JobDependencies {
+
+  static final String POLICY_RUN = "run"; //$NON-NLS-1$
+
+  static final String COMPLETED = "dependency-completed"; //$NON-NLS-1$
+
+  static final String RELEASED = "dependency-released"; //$NON-NLS-1$
+
+  private static final Log logger = LogFactory.getLog( JobDependencies.class );
+
+  /**
+   * A job on a critical path with its latest execution.
+   */
+  public static class Step {
+    private final String lineageId;
+    private final long startTime;
+    private final long endTime;
+
+    Step( String lineageId, long startTime, long endTime ) {
+      this.lineageId = lineageId;
+      this.startTime = startTime;
+      this.endTime = endTime;
+    }
+
+    public String getLineageId() {
+      return lineageId;
+    }
+
+    public long getStartTime() {
+      return startTime;
+    }
+
+    public long getEndTime() {
+      return endTime;
+    }
+  }
+
+  private JobDependencies() {
+  }
+
+  /**
+   * @return the lineage ids in a comma separated list, or in a collection
+   */
+  public static List<String> parseLineageIds( Object value ) {
+    if ( value == null ) {
+      return Collections.emptyList();
+    }
+    Set<String> lineageIds = new LinkedHashSet<>();
+    Iterable<?> items = value instanceof Iterable ? (Iterable<?>) value
+      : Arrays.asList( value.toString().split( "," ) ); //$NON-NLS-1$
+    for ( Object item : items ) {
+      String lineageId = item == null ? "" : item.toString().trim(); //$NON-NLS-1$
+      if ( !lineageId.isEmpty() ) {
+        lineageIds.add( lineageId );
+      }
+    }
+    return new ArrayList<>( lineageIds );
+  }
+
+  /**
+   * Notes that the job with lineage id <code>upstreamLineageId</code> finished, and starts each of
+   * <code>downstreamJobIds</code> whose upstreams have now all completed.
+   */
+  static synchronized void upstreamFinished( Scheduler scheduler, String upstreamLineageId, boolean succeeded,
+                                             List<String> downstreamJobIds ) throws org.quartz.SchedulerException {
+    for ( String jobId : downstreamJobIds ) {
+      JobKey jobKey;
+      try {
+        jobKey = new JobKey( jobId, QuartzJobKey.parse( jobId ).getUserName() );
+      } catch ( SchedulerException e ) {
+        continue;
+      }
+      JobDetail jobDetail = scheduler.getJobDetail( jobKey );
+      if ( jobDetail == null ) {
+        continue;
+      }
+      JobDataMap jobDataMap = jobDetail.getJobDataMap();
+      List<String> upstreams = parseLineageIds( jobDataMap.get( QuartzScheduler.RESERVEDMAPKEY_DEPENDS_ON ) );
+      if ( !upstreams.contains( upstreamLineageId ) || ( !succeeded && !isRunPolicy( jobDataMap ) ) ) {
+        continue;
+      }
+      Set<String> completed = new LinkedHashSet<>( parseLineageIds( jobDataMap.get( COMPLETED ) ) );
+      completed.add( upstreamLineageId );
+      boolean release = completed.containsAll( upstreams );
+      scheduler.addJob( jobDetail.getJobBuilder()
+        .usingJobData( COMPLETED, release ? "" : String.join( ",", completed ) ) //$NON-NLS-1$ //$NON-NLS-2$
+        .usingJobData( RELEASED, String.valueOf( release || isReleased( jobDataMap ) ) )
+        .build(), true, true );
+      if ( release ) {
+        scheduler.triggerJob( jobKey );
+      }
+    }
+  }
+
+  /**
+   * Called when a job with dependencies fires on its own trigger, the deadline of the batch. Starts the next batch.
+   *
+   * @return whether the job should run now
+   */
+  static synchronized boolean shouldRunScheduledFire( JobExecutionContext context ) {
+    if ( context.getTrigger() != null && context.getTrigger().getKey() != null
+      && context.getTrigger().getKey().getName().startsWith( "MT_" ) ) { //$NON-NLS-1$
+      // released by its upstreams, or run by hand
+      return true;
+    }
+    try {
+      Scheduler scheduler = context.getScheduler();
+      JobDetail jobDetail = scheduler.getJobDetail( context.getJobDetail().getKey() );
+      if ( jobDetail == null ) {
+        return true;
+      }
+      JobDataMap jobDataMap = jobDetail.getJobDataMap();
+      scheduler.addJob( jobDetail.getJobBuilder()
+        .usingJobData( COMPLETED, "" ) //$NON-NLS-1$
+        .usingJobData( RELEASED, String.valueOf( false ) )
+        .build(), true, true );
+      return !isReleased( jobDataMap ) && isRunPolicy( jobDataMap );
+    } catch ( org.quartz.SchedulerException e ) {
+      logger.warn( e.getMessage(), e );
+      return true;
+    }
+  }
+
+  /**
+   * Follows the upstreams of the job with lineage id <code>lineageId</code> back to the start of its batch, always
+   * through the upstream that finished last before the job started, i.e. the one that held it up.
+   *
+   * @param upstreams the lineage ids each job depends on
+   * @return the jobs on the path, the first one first; empty if <code>lineageId</code> has not run
+   */
+  static List<Step> getCriticalPath( String lineageId, Function<String, Set<String>> upstreams,
+                                     ExecutionDurations durations ) {
+    List<Step> path = new ArrayList<>();
+    Set<String> visited = new HashSet<>();
+    String current = lineageId;
+    long[] run = durations.getLastRun( current );
+    while ( run != null && visited.add( current ) ) {
+      path.add( new Step( current, run[ 0 ], run[ 1 ] ) );
+      String latest = null;
+      long[] latestRun = null;
+      for ( String upstream : upstreams.apply( current ) ) {
+        long[] upstreamRun = durations.getLastRun( upstream );
+        if ( upstreamRun != null && upstreamRun[ 1 ] <= run[ 0 ] && ( latestRun == null
+          || upstreamRun[ 1 ] > latestRun[ 1 ] ) ) {
+          latest = upstream;
+          latestRun = upstreamRun;
+        }
+      }
+      current = latest;
+      run = latestRun;
+    }
+    Collections.reverse( path );
+    return path;
+  }
+
+  private static boolean isRunPolicy( JobDataMap jobDataMap ) {
+    Object policy = jobDataMap.get( QuartzScheduler.RESERVEDMAPKEY_DEPENDENCY_POLICY );
+    return policy != null && POLICY_RUN.equalsIgnoreCase( policy.toString().trim() );
+  }
+
+  private static boolean isReleased( JobDataMap jobDataMap ) {
+    return Boolean.parseBoolean( String.valueOf( jobDataMap.get( RELEASED ) ) );
+  }
+}
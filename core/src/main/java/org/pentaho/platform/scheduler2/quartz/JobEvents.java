@@ -0,0 +1,385 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.platform.api.scheduler2.SchedulerException;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.ListenerManager;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import org.quartz.listeners.JobListenerSupport;
+import org.quartz.listeners.SchedulerListenerSupport;
+
+/**
+ * The recent changes to the state of the jobs of a {@link QuartzScheduler}, for clients that keep a listing of them
+ * up to date without reading it again: a job was created or removed, started, finished or failed, was paused or
+ * resumed, or its next run changed.
+ * <p/>
+ * The events are numbered and kept in a ring of {@link #CAPACITY}; a client reads the ones after its cursor, waiting
+ * for some if there are none yet (a long poll). A client whose cursor fell out of the ring, or belongs to a previous
+ * run of the server, is told to read the listing again. Waiting readers are bounded per session and in total, so
+ * that polling clients cannot take up the request threads; a reader over the bounds gets an answer straight away,
+ * marked as refused so that it waits before polling again.
+ * Like {@link CatalogVersion}, the events only cover the changes made on this server, so there are none when the job
+ * store is clustered.
+ */
+public class JobEvents extends SchedulerListenerSupport {
+
+  static final String JOB_LISTENER_NAME = "JobEvents"; //$NON-NLS-1$
+
+  /**
+   * Set in the context of an execution that failed without throwing, see {@link BlockingQuartzJob}.
+   */
+  static final String FAILED_KEY = "JobEvents-Failed"; //$NON-NLS-1$
+
+  static final int CAPACITY = 1024;
+
+  static final int MAX_BATCH = 200;
+
+  static final int MAX_WAITING_PER_SESSION = 2;
+
+  static final int MAX_WAITING = 64;
+
+  public enum Type {
+    CREATED, REMOVED, STARTED, FINISHED, FAILED, PAUSED, RESUMED, NEXT_RUN,
+    /**
+     * Changes that are not told job by job, e.g. a whole group paused; the listing has to be read again.
+     */
+    RESET
+  }
+
+  /**
+   * A change to one job, or a {@link Type#RESET}.
+   */
+  public static final class Event {
+    private final Type type;
+    private final String jobId;
+    private final String userName;
+    private final String jobName;
+    private final Date nextRun;
+    private final Date lastRun;
+
+    Event( Type type, String jobId, String userName, String jobName, Date nextRun, Date lastRun ) {
+      this.type = type;
+      this.jobId = jobId;
+      this.userName = userName;
+      this.jobName = jobName;
+      this.nextRun = nextRun;
+      this.lastRun = lastRun;
+    }
+
+    public Type getType() {
+      return type;
+    }
+
+    public String getJobId() {
+      return jobId;
+    }
+
+    public String getUserName() {
+      return userName;
+    }
+
+    public String getJobName() {
+      return jobName;
+    }
+
+    /**
+     * @return the next run of the job, or <code>null</code> if it has none or, for a run, it was not scheduled by the
+     * job's own trigger
+     */
+    public Date getNextRun() {
+      return nextRun;
+    }
+
+    /**
+     * @return when the run started, for {@link Type#STARTED}
+     */
+    public Date getLastRun() {
+      return lastRun;
+    }
+  }
+
+  /**
+   * The events after a cursor.
+   */
+  public static final class Batch {
+    private final List<Event> events;
+    private final String cursor;
+    private final boolean reset;
+    private final boolean refused;
+
+    Batch( List<Event> events, String cursor, boolean reset ) {
+      this( events, cursor, reset, false );
+    }
+
+    Batch( List<Event> events, String cursor, boolean reset, boolean refused ) {
+      this.events = events;
+      this.cursor = cursor;
+      this.reset = reset;
+      this.refused = refused;
+    }
+
+    public List<Event> getEvents() {
+      return events;
+    }
+
+    /**
+     * @return the cursor to read the next events from
+     */
+    public String getCursor() {
+      return cursor;
+    }
+
+    /**
+     * @return whether events were lost since the cursor, in which case the listing has to be read again
+     */
+    public boolean isReset() {
+      return reset;
+    }
+
+    /**
+     * @return whether there were no events and the reader was answered without waiting for some, as too many readers
+     * already wait; the reader should not poll again right away
+     */
+    public boolean isRefused() {
+      return refused;
+    }
+  }
+
+  // tells the cursors of this server from those of a previous run
+  private final String epoch = Long.toString( System.currentTimeMillis(), Character.MAX_RADIX );
+
+  private final Event[] ring = new Event[ CAPACITY ];
+
+  private final Map<String, Integer> waitingBySession = new HashMap<>();
+
+  private long next;
+
+  private int waiting;
+
+  private volatile boolean tracking;
+
+  private final JobListenerSupport jobListener = new JobListenerSupport() {
+    public String getName() {
+      return JOB_LISTENER_NAME;
+    }
+
+    @Override
+    public void jobToBeExecuted( JobExecutionContext context ) {
+      record( Type.STARTED, context.getJobDetail().getKey(), ownNextRun( context ), context.getFireTime() );
+    }
+
+    @Override
+    public void jobWasExecuted( JobExecutionContext context, JobExecutionException jobException ) {
+      if ( jobException == null && Boolean.TRUE.equals( context.get( ActionAdapterQuartzJob.DEFERRED_KEY ) ) ) {
+        // told by recordFinished once it did
+        return;
+      }
+      boolean failed = jobException != null || Boolean.TRUE.equals( context.get( FAILED_KEY ) );
+      record( failed ? Type.FAILED : Type.FINISHED, context.getJobDetail().getKey(), ownNextRun( context ), null );
+    }
+  };
+
+  /**
+   * Records the end of an execution that finished after its job returned, see
+   * {@link ActionAdapterQuartzJob#DEFERRED_KEY}.
+   */
+  void recordFinished( JobExecutionContext context, boolean failed ) {
+    record( failed ? Type.FAILED : Type.FINISHED, context.getJobDetail().getKey(), ownNextRun( context ), null );
+  }
+
+  /**
+   * Starts following the changes to the jobs of <code>scheduler</code>.
+   */
+  void register( Scheduler scheduler ) throws org.quartz.SchedulerException {
+    ListenerManager listenerManager = scheduler.getListenerManager();
+    if ( listenerManager == null ) {
+      return;
+    }
+    listenerManager.addSchedulerListener( this );
+    listenerManager.addJobListener( jobListener );
+    tracking = !scheduler.getMetaData().isJobStoreClustered();
+  }
+
+  /**
+   * Reads the events after <code>cursor</code>, at most {@link #MAX_BATCH} of them. If there are none yet, waits up
+   * to <code>waitMillis</code> for some, unless the session or the server already has too many waiting readers.
+   *
+   * @param cursor    the cursor of the previous batch, or <code>null</code> to start from now
+   * @param sessionId the session of the reader
+   * @return the events, or <code>null</code> if the changes to the jobs are not all seen here
+   */
+  public synchronized Batch read( String cursor, long waitMillis, String sessionId ) throws InterruptedException {
+    if ( !tracking ) {
+      return null;
+    }
+    long since = parseCursor( cursor );
+    if ( since < 0 || since < next - CAPACITY || since > next ) {
+      return new Batch( Collections.emptyList(), cursorOf( next ), true );
+    }
+    if ( since == next && waitMillis > 0 ) {
+      if ( !startWaiting( sessionId ) ) {
+        return new Batch( Collections.emptyList(), cursorOf( next ), false, true );
+      }
+      try {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        for ( long left = waitMillis; since == next && left > 0; left = deadline - System.currentTimeMillis() ) {
+          wait( left );
+        }
+      } finally {
+        stopWaiting( sessionId );
+      }
+    }
+    if ( since < next - CAPACITY ) {
+      // overrun while waiting
+      return new Batch( Collections.emptyList(), cursorOf( next ), true );
+    }
+    List<Event> events = new ArrayList<>();
+    long end = Math.min( next, since + MAX_BATCH );
+    for ( long seq = since; seq < end; seq++ ) {
+      events.add( ring[ (int) ( seq % CAPACITY ) ] );
+    }
+    return new Batch( events, cursorOf( end ), false );
+  }
+
+  synchronized void record( Event event ) {
+    ring[ (int) ( next % CAPACITY ) ] = event;
+    next++;
+    notifyAll();
+  }
+
+  private void record( Type type, JobKey jobKey, Date nextRun, Date lastRun ) {
+    String jobName = null;
+    try {
+      jobName = QuartzJobKey.parse( jobKey.getName() ).getJobName();
+    } catch ( SchedulerException e ) {
+      // not a job created through the platform
+    }
+    record( new Event( type, jobKey.getName(), jobKey.getGroup(), jobName, nextRun, lastRun ) );
+  }
+
+  private void reset() {
+    record( new Event( Type.RESET, null, null, null, null, null ) );
+  }
+
+  private boolean startWaiting( String sessionId ) {
+    int waitingInSession = waitingBySession.getOrDefault( sessionId, 0 );
+    if ( waiting >= MAX_WAITING || waitingInSession >= MAX_WAITING_PER_SESSION ) {
+      return false;
+    }
+    waiting++;
+    waitingBySession.put( sessionId, waitingInSession + 1 );
+    return true;
+  }
+
+  private void stopWaiting( String sessionId ) {
+    waiting--;
+    int waitingInSession = waitingBySession.getOrDefault( sessionId, 1 ) - 1;
+    if ( waitingInSession > 0 ) {
+      waitingBySession.put( sessionId, waitingInSession );
+    } else {
+      waitingBySession.remove( sessionId );
+    }
+  }
+
+  private String cursorOf( long seq ) {
+    return epoch + '.' + seq;
+  }
+
+  private long parseCursor( String cursor ) {
+    if ( cursor == null || !cursor.startsWith( epoch + '.' ) ) {
+      return -1;
+    }
+    try {
+      return Long.parseLong( cursor.substring( epoch.length() + 1 ) );
+    } catch ( NumberFormatException e ) {
+      return -1;
+    }
+  }
+
+  /**
+   * @return the next run of the job, if <code>trigger</code> is its own and not that of a run by hand
+   */
+  private static Date ownNextRun( Trigger trigger ) {
+    return trigger != null && trigger.getJobKey() != null
+      && trigger.getKey().getName().equals( trigger.getJobKey().getName() ) ? trigger.getNextFireTime() : null;
+  }
+
+  private static Date ownNextRun( JobExecutionContext context ) {
+    return ownNextRun( context.getTrigger() );
+  }
+
+  @Override
+  public void jobAdded( JobDetail jobDetail ) {
+    record( Type.CREATED, jobDetail.getKey(), null, null );
+  }
+
+  @Override
+  public void jobDeleted( JobKey jobKey ) {
+    record( Type.REMOVED, jobKey, null, null );
+  }
+
+  @Override
+  public void jobScheduled( Trigger trigger ) {
+    if ( ownNextRun( trigger ) != null ) {
+      record( Type.NEXT_RUN, trigger.getJobKey(), trigger.getNextFireTime(), null );
+    }
+  }
+
+  @Override
+  public void jobPaused( JobKey jobKey ) {
+    record( Type.PAUSED, jobKey, null, null );
+  }
+
+  @Override
+  public void jobResumed( JobKey jobKey ) {
+    record( Type.RESUMED, jobKey, null, null );
+  }
+
+  @Override
+  public void jobsPaused( String jobGroup ) {
+    reset();
+  }
+
+  @Override
+  public void jobsResumed( String jobGroup ) {
+    reset();
+  }
+
+  @Override
+  public void triggersPaused( String triggerGroup ) {
+    reset();
+  }
+
+  @Override
+  public void triggersResumed( String triggerGroup ) {
+    reset();
+  }
+
+  @Override
+  public void schedulingDataCleared() {
+    reset();
+  }
+}
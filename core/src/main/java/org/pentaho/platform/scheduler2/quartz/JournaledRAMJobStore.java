@@ -0,0 +1,859 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.platform.scheduler2.messsages.Messages;
+import org.quartz.Calendar;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.SchedulerConfigException;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+
+/**
+ * A {@link RAMJobStore} for single-node installs that keeps every job, trigger and calendar in memory and gets its
+ * durability from an append-only journal instead of a database.
+ * <p>
+ * Every mutation is written ahead to {@code scheduler.journal} through a {@link FileChannel} while the store lock is
+ * held, so the journal order is the order in which the store applied the changes. The channel is forced to disk by a
+ * background flusher every {@code fsyncIntervalMillis} (group commit); an interval of {@code 0} forces on every
+ * record. Once {@code snapshotThreshold} records have accumulated the full state is written to
+ * {@code scheduler.snapshot} (temp file plus atomic rename) and the journal is truncated.
+ * <p>
+ * On {@link #initialize} the snapshot is loaded and the journal replayed on top of it. Each record carries a length,
+ * a CRC32 and a sequence number, so a torn tail left by a crash is detected and cut off, and records already covered
+ * by the snapshot are skipped.
+ * <p>
+ * Select it in quartz.properties with:
+ * <pre>
+ * org.quartz.jobStore.class = org.pentaho.platform.scheduler2.quartz.JournaledRAMJobStore
+ * org.quartz.jobStore.journalDirectory = system/scheduler-plugin/journal
+ * </pre>
+ */
+public class JournaledRAMJobStore extends RAMJobStore {
+
+  static final String JOURNAL_FILE = "scheduler.journal"; //$NON-NLS-1$
+
+  static final String SNAPSHOT_FILE = "scheduler.snapshot"; //$NON-NLS-1$
+
+  private static final int SNAPSHOT_MAGIC = 0x50534e50; // "PSNP"
+
+  private static final int SNAPSHOT_VERSION = 1;
+
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private static final Log logger = LogFactory.getLog( JournaledRAMJobStore.class );
+
+  enum Op {
+    STORE_JOB, REMOVE_JOB, STORE_TRIGGER, REMOVE_TRIGGER, REPLACE_TRIGGER, STORE_CALENDAR, REMOVE_CALENDAR,
+    PAUSE_TRIGGER, PAUSE_TRIGGERS, PAUSE_JOB, PAUSE_JOBS, RESUME_TRIGGER, RESUME_TRIGGERS, RESUME_JOB, RESUME_JOBS,
+    PAUSE_ALL, RESUME_ALL, CLEAR_ALL, TRIGGERS_FIRED, JOB_COMPLETE, RESET_TRIGGER_ERROR
+  }
+
+  private String journalDirectory;
+
+  private long fsyncIntervalMillis = 50;
+
+  private int snapshotThreshold = 10000;
+
+  private ClassLoadHelper classLoadHelper;
+
+  private FileChannel journal;
+
+  private ScheduledExecutorService flusher;
+
+  private volatile boolean dirty;
+
+  // guarded by lock
+  private long sequence;
+
+  private int recordsSinceSnapshot;
+
+  private int depth;
+
+  private boolean replaying;
+
+  public String getJournalDirectory() {
+    return journalDirectory;
+  }
+
+  public void setJournalDirectory( String journalDirectory ) {
+    this.journalDirectory = journalDirectory;
+  }
+
+  public long getFsyncIntervalMillis() {
+    return fsyncIntervalMillis;
+  }
+
+  public void setFsyncIntervalMillis( long fsyncIntervalMillis ) {
+    this.fsyncIntervalMillis = fsyncIntervalMillis;
+  }
+
+  public int getSnapshotThreshold() {
+    return snapshotThreshold;
+  }
+
+  public void setSnapshotThreshold( int snapshotThreshold ) {
+    this.snapshotThreshold = snapshotThreshold;
+  }
+
+  @Override
+  public void initialize( ClassLoadHelper loadHelper, SchedulerSignaler schedSignaler )
+    throws SchedulerConfigException {
+    super.initialize( loadHelper, schedSignaler );
+    this.classLoadHelper = loadHelper;
+    if ( journalDirectory == null ) {
+      throw new SchedulerConfigException(
+        Messages.getInstance().getErrorString( "JournaledRAMJobStore.ERROR_0001_NO_JOURNAL_DIRECTORY" ) ); //$NON-NLS-1$
+    }
+    try {
+      Path dir = Paths.get( journalDirectory );
+      Files.createDirectories( dir );
+      synchronized ( lock ) {
+        recover( dir );
+      }
+      if ( fsyncIntervalMillis > 0 ) {
+        flusher = Executors.newSingleThreadScheduledExecutor( r -> {
+          Thread t = new Thread( r, "JournaledRAMJobStore-flusher" ); //$NON-NLS-1$
+          t.setDaemon( true );
+          return t;
+        } );
+        flusher.scheduleWithFixedDelay( this::flush, fsyncIntervalMillis, fsyncIntervalMillis,
+          TimeUnit.MILLISECONDS );
+      }
+    } catch ( IOException | ClassNotFoundException e ) {
+      throw new SchedulerConfigException( Messages.getInstance().getErrorString(
+        "JournaledRAMJobStore.ERROR_0002_RECOVERY_FAILED", journalDirectory ), e ); //$NON-NLS-1$
+    }
+  }
+
+  @Override
+  public boolean supportsPersistence() {
+    return true;
+  }
+
+  @Override
+  public void shutdown() {
+    if ( flusher != null ) {
+      flusher.shutdownNow();
+    }
+    synchronized ( lock ) {
+      if ( journal != null ) {
+        try {
+          journal.force( false );
+          journal.close();
+        } catch ( IOException e ) {
+          logger.error( Messages.getInstance().getErrorString(
+            "JournaledRAMJobStore.ERROR_0003_WRITE_FAILED", journalDirectory ), e ); //$NON-NLS-1$
+        }
+        journal = null;
+      }
+    }
+    super.shutdown();
+  }
+
+  @Override
+  public void storeJob( JobDetail newJob, boolean replaceExisting ) throws ObjectAlreadyExistsException {
+    synchronized ( lock ) {
+      begin( Op.STORE_JOB, newJob, replaceExisting );
+      try {
+        super.storeJob( newJob, replaceExisting );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public void storeJobAndTrigger( JobDetail newJob, OperableTrigger newTrigger ) throws JobPersistenceException {
+    // journaled as the two nested records
+    synchronized ( lock ) {
+      super.storeJobAndTrigger( newJob, newTrigger );
+    }
+  }
+
+  @Override
+  public boolean removeJob( JobKey jobKey ) {
+    synchronized ( lock ) {
+      begin( Op.REMOVE_JOB, jobKey );
+      try {
+        return super.removeJob( jobKey );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public void storeTrigger( OperableTrigger newTrigger, boolean replaceExisting ) throws JobPersistenceException {
+    synchronized ( lock ) {
+      begin( Op.STORE_TRIGGER, newTrigger, replaceExisting );
+      try {
+        super.storeTrigger( newTrigger, replaceExisting );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public boolean removeTrigger( TriggerKey triggerKey ) {
+    synchronized ( lock ) {
+      begin( Op.REMOVE_TRIGGER, triggerKey );
+      try {
+        return super.removeTrigger( triggerKey );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public boolean replaceTrigger( TriggerKey triggerKey, OperableTrigger newTrigger ) throws JobPersistenceException {
+    synchronized ( lock ) {
+      begin( Op.REPLACE_TRIGGER, triggerKey, newTrigger );
+      try {
+        return super.replaceTrigger( triggerKey, newTrigger );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public void storeCalendar( String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers )
+    throws ObjectAlreadyExistsException {
+    synchronized ( lock ) {
+      begin( Op.STORE_CALENDAR, name, calendar, replaceExisting, updateTriggers );
+      try {
+        super.storeCalendar( name, calendar, replaceExisting, updateTriggers );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public boolean removeCalendar( String calName ) throws JobPersistenceException {
+    synchronized ( lock ) {
+      begin( Op.REMOVE_CALENDAR, calName );
+      try {
+        return super.removeCalendar( calName );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public void pauseTrigger( TriggerKey triggerKey ) {
+    synchronized ( lock ) {
+      begin( Op.PAUSE_TRIGGER, triggerKey );
+      try {
+        super.pauseTrigger( triggerKey );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public List<String> pauseTriggers( GroupMatcher<TriggerKey> matcher ) {
+    synchronized ( lock ) {
+      begin( Op.PAUSE_TRIGGERS, matcher );
+      try {
+        return super.pauseTriggers( matcher );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public void pauseJob( JobKey jobKey ) {
+    synchronized ( lock ) {
+      begin( Op.PAUSE_JOB, jobKey );
+      try {
+        super.pauseJob( jobKey );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public List<String> pauseJobs( GroupMatcher<JobKey> matcher ) {
+    synchronized ( lock ) {
+      begin( Op.PAUSE_JOBS, matcher );
+      try {
+        return super.pauseJobs( matcher );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public void resumeTrigger( TriggerKey triggerKey ) {
+    synchronized ( lock ) {
+      begin( Op.RESUME_TRIGGER, triggerKey );
+      try {
+        super.resumeTrigger( triggerKey );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public List<String> resumeTriggers( GroupMatcher<TriggerKey> matcher ) {
+    synchronized ( lock ) {
+      begin( Op.RESUME_TRIGGERS, matcher );
+      try {
+        return super.resumeTriggers( matcher );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public void resumeJob( JobKey jobKey ) {
+    synchronized ( lock ) {
+      begin( Op.RESUME_JOB, jobKey );
+      try {
+        super.resumeJob( jobKey );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public Collection<String> resumeJobs( GroupMatcher<JobKey> matcher ) {
+    synchronized ( lock ) {
+      begin( Op.RESUME_JOBS, matcher );
+      try {
+        return super.resumeJobs( matcher );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public void pauseAll() {
+    synchronized ( lock ) {
+      begin( Op.PAUSE_ALL );
+      try {
+        super.pauseAll();
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public void resumeAll() {
+    synchronized ( lock ) {
+      begin( Op.RESUME_ALL );
+      try {
+        super.resumeAll();
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public void clearAllSchedulingData() throws JobPersistenceException {
+    synchronized ( lock ) {
+      begin( Op.CLEAR_ALL );
+      try {
+        super.clearAllSchedulingData();
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public void resetTriggerFromErrorState( TriggerKey triggerKey ) throws JobPersistenceException {
+    synchronized ( lock ) {
+      begin( Op.RESET_TRIGGER_ERROR, triggerKey );
+      try {
+        super.resetTriggerFromErrorState( triggerKey );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  @Override
+  public List<TriggerFiredResult> triggersFired( List<OperableTrigger> firedTriggers ) {
+    synchronized ( lock ) {
+      List<TriggerFiredResult> results = super.triggersFired( firedTriggers );
+      // Firing moves the fire times forward; journal the advanced triggers so a restart does not replay old fires.
+      ArrayList<OperableTrigger> advanced = new ArrayList<>();
+      for ( TriggerFiredResult result : results ) {
+        if ( result.getTriggerFiredBundle() != null ) {
+          advanced.add( result.getTriggerFiredBundle().getTrigger() );
+        }
+      }
+      if ( !advanced.isEmpty() ) {
+        begin( Op.TRIGGERS_FIRED, advanced );
+        end();
+      }
+      return results;
+    }
+  }
+
+  @Override
+  public void triggeredJobComplete( OperableTrigger trigger, JobDetail jobDetail,
+                                    CompletedExecutionInstruction triggerInstCode ) {
+    synchronized ( lock ) {
+      begin( Op.JOB_COMPLETE, trigger, jobDetail, triggerInstCode );
+      try {
+        super.triggeredJobComplete( trigger, jobDetail, triggerInstCode );
+      } finally {
+        end();
+      }
+    }
+  }
+
+  /**
+   * Forces pending journal records to disk. Called by the flusher thread; safe to call at any time.
+   */
+  void flush() {
+    if ( !dirty ) {
+      return;
+    }
+    dirty = false;
+    try {
+      FileChannel channel = journal;
+      if ( channel != null && channel.isOpen() ) {
+        channel.force( false );
+      }
+    } catch ( IOException e ) {
+      dirty = true;
+      logger.error( Messages.getInstance().getErrorString(
+        "JournaledRAMJobStore.ERROR_0003_WRITE_FAILED", journalDirectory ), e ); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Writes a snapshot of the whole store and truncates the journal.
+   */
+  void snapshot() throws IOException {
+    synchronized ( lock ) {
+      Snapshot snapshot = new Snapshot();
+      snapshot.sequence = sequence;
+      try {
+        for ( String calName : getCalendarNames() ) {
+          snapshot.calendars.put( calName, retrieveCalendar( calName ) );
+        }
+        for ( String group : getJobGroupNames() ) {
+          for ( JobKey jobKey : getJobKeys( GroupMatcher.jobGroupEquals( group ) ) ) {
+            snapshot.jobs.add( retrieveJob( jobKey ) );
+          }
+        }
+        for ( String group : getTriggerGroupNames() ) {
+          for ( TriggerKey triggerKey : getTriggerKeys( GroupMatcher.triggerGroupEquals( group ) ) ) {
+            snapshot.triggers.add( retrieveTrigger( triggerKey ) );
+            if ( getTriggerState( triggerKey ) == TriggerState.PAUSED ) {
+              snapshot.pausedTriggers.add( triggerKey );
+            }
+          }
+        }
+      } catch ( JobPersistenceException e ) {
+        throw new IOException( e );
+      }
+      snapshot.pausedTriggerGroups.addAll( pausedTriggerGroups );
+      snapshot.pausedJobGroups.addAll( pausedJobGroups );
+
+      byte[] data = serialize( snapshot );
+      Path dir = Paths.get( journalDirectory );
+      Path tmp = dir.resolve( SNAPSHOT_FILE + ".tmp" ); //$NON-NLS-1$
+      try ( FileChannel out = FileChannel.open( tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING ) ) {
+        ByteBuffer header = ByteBuffer.allocate( 16 );
+        header.putInt( SNAPSHOT_MAGIC ).putInt( SNAPSHOT_VERSION ).putInt( data.length ).putInt( crc( data ) );
+        header.flip();
+        writeFully( out, header );
+        writeFully( out, ByteBuffer.wrap( data ) );
+        out.force( true );
+      }
+      Files.move( tmp, dir.resolve( SNAPSHOT_FILE ), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE );
+      // the snapshot covers everything up to 'sequence', so a crash before this truncate is harmless
+      journal.truncate( 0 );
+      journal.position( 0 );
+      journal.force( false );
+      recordsSinceSnapshot = 0;
+    }
+  }
+
+  private void begin( Op op, Object... args ) {
+    if ( depth++ > 0 || replaying ) {
+      // nested calls are covered by the outer record
+      return;
+    }
+    try {
+      append( new Record( ++sequence, op, args ) );
+    } catch ( IOException e ) {
+      depth--;
+      throw new IllegalStateException( Messages.getInstance().getErrorString(
+        "JournaledRAMJobStore.ERROR_0003_WRITE_FAILED", journalDirectory ), e ); //$NON-NLS-1$
+    }
+  }
+
+  private void end() {
+    if ( --depth == 0 && !replaying && recordsSinceSnapshot >= snapshotThreshold ) {
+      try {
+        snapshot();
+      } catch ( IOException e ) {
+        // the journal is still complete; try again after the next record
+        logger.error( Messages.getInstance().getErrorString(
+          "JournaledRAMJobStore.ERROR_0004_SNAPSHOT_FAILED", journalDirectory ), e ); //$NON-NLS-1$
+      }
+    }
+  }
+
+  private void append( Record record ) throws IOException {
+    byte[] data = serialize( record );
+    ByteBuffer buffer = ByteBuffer.allocate( RECORD_HEADER_SIZE + data.length );
+    buffer.putInt( data.length ).putInt( crc( data ) ).put( data );
+    buffer.flip();
+    writeFully( journal, buffer );
+    recordsSinceSnapshot++;
+    if ( fsyncIntervalMillis <= 0 ) {
+      journal.force( false );
+    } else {
+      dirty = true;
+    }
+  }
+
+  private void recover( Path dir ) throws IOException, ClassNotFoundException {
+    long start = System.currentTimeMillis();
+    replaying = true;
+    try {
+      long snapshotSequence = 0;
+      Path snapshotFile = dir.resolve( SNAPSHOT_FILE );
+      if ( Files.exists( snapshotFile ) ) {
+        Snapshot snapshot = readSnapshot( snapshotFile );
+        restore( snapshot );
+        snapshotSequence = snapshot.sequence;
+      }
+      sequence = snapshotSequence;
+
+      journal = FileChannel.open( dir.resolve( JOURNAL_FILE ), StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE );
+      int replayed = 0;
+      long validLength = 0;
+      ByteBuffer header = ByteBuffer.allocate( RECORD_HEADER_SIZE );
+      journal.position( 0 );
+      while ( true ) {
+        header.clear();
+        if ( !readFully( journal, header ) ) {
+          break;
+        }
+        header.flip();
+        int length = header.getInt();
+        int crc = header.getInt();
+        if ( length <= 0 || length > journal.size() - journal.position() ) {
+          break;
+        }
+        ByteBuffer body = ByteBuffer.allocate( length );
+        if ( !readFully( journal, body ) || crc( body.array() ) != crc ) {
+          break;
+        }
+        Record record = (Record) deserialize( body.array() );
+        validLength = journal.position();
+        if ( record.sequence > snapshotSequence ) {
+          apply( record );
+          sequence = record.sequence;
+          replayed++;
+        }
+      }
+      if ( validLength < journal.size() ) {
+        logger.warn( Messages.getInstance().getString( "JournaledRAMJobStore.WARN_0001_TORN_JOURNAL", //$NON-NLS-1$
+          String.valueOf( journal.size() - validLength ) ) );
+        journal.truncate( validLength );
+      }
+      journal.position( validLength );
+      recordsSinceSnapshot = replayed;
+      logger.info( Messages.getInstance().getString( "JournaledRAMJobStore.INFO_0001_RECOVERED", //$NON-NLS-1$
+        String.valueOf( replayed ), String.valueOf( System.currentTimeMillis() - start ) ) );
+    } finally {
+      replaying = false;
+    }
+  }
+
+  private Snapshot readSnapshot( Path snapshotFile ) throws IOException, ClassNotFoundException {
+    try ( FileChannel in = FileChannel.open( snapshotFile, StandardOpenOption.READ ) ) {
+      ByteBuffer header = ByteBuffer.allocate( 16 );
+      if ( !readFully( in, header ) ) {
+        throw new EOFException( snapshotFile.toString() );
+      }
+      header.flip();
+      int magic = header.getInt();
+      int version = header.getInt();
+      int length = header.getInt();
+      int crc = header.getInt();
+      if ( magic != SNAPSHOT_MAGIC || version != SNAPSHOT_VERSION ) {
+        throw new IOException( Messages.getInstance().getErrorString(
+          "JournaledRAMJobStore.ERROR_0005_BAD_SNAPSHOT", snapshotFile.toString() ) ); //$NON-NLS-1$
+      }
+      ByteBuffer body = ByteBuffer.allocate( length );
+      if ( !readFully( in, body ) || crc( body.array() ) != crc ) {
+        throw new IOException( Messages.getInstance().getErrorString(
+          "JournaledRAMJobStore.ERROR_0005_BAD_SNAPSHOT", snapshotFile.toString() ) ); //$NON-NLS-1$
+      }
+      return (Snapshot) deserialize( body.array() );
+    }
+  }
+
+  private void restore( Snapshot snapshot ) throws JobPersistenceException {
+    for ( Map.Entry<String, Calendar> entry : snapshot.calendars.entrySet() ) {
+      storeCalendar( entry.getKey(), entry.getValue(), true, false );
+    }
+    for ( JobDetail job : snapshot.jobs ) {
+      storeJob( job, true );
+    }
+    pausedTriggerGroups.addAll( snapshot.pausedTriggerGroups );
+    pausedJobGroups.addAll( snapshot.pausedJobGroups );
+    for ( OperableTrigger trigger : snapshot.triggers ) {
+      storeTrigger( trigger, true );
+    }
+    for ( TriggerKey triggerKey : snapshot.pausedTriggers ) {
+      pauseTrigger( triggerKey );
+    }
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private void apply( Record record ) {
+    Object[] args = record.args;
+    try {
+      switch ( record.op ) {
+        case STORE_JOB:
+          storeJob( (JobDetail) args[ 0 ], (Boolean) args[ 1 ] );
+          break;
+        case REMOVE_JOB:
+          removeJob( (JobKey) args[ 0 ] );
+          break;
+        case STORE_TRIGGER:
+          storeTrigger( (OperableTrigger) args[ 0 ], (Boolean) args[ 1 ] );
+          break;
+        case REMOVE_TRIGGER:
+          removeTrigger( (TriggerKey) args[ 0 ] );
+          break;
+        case REPLACE_TRIGGER:
+          replaceTrigger( (TriggerKey) args[ 0 ], (OperableTrigger) args[ 1 ] );
+          break;
+        case STORE_CALENDAR:
+          storeCalendar( (String) args[ 0 ], (Calendar) args[ 1 ], (Boolean) args[ 2 ], (Boolean) args[ 3 ] );
+          break;
+        case REMOVE_CALENDAR:
+          removeCalendar( (String) args[ 0 ] );
+          break;
+        case PAUSE_TRIGGER:
+          pauseTrigger( (TriggerKey) args[ 0 ] );
+          break;
+        case PAUSE_TRIGGERS:
+          pauseTriggers( (GroupMatcher<TriggerKey>) args[ 0 ] );
+          break;
+        case PAUSE_JOB:
+          pauseJob( (JobKey) args[ 0 ] );
+          break;
+        case PAUSE_JOBS:
+          pauseJobs( (GroupMatcher<JobKey>) args[ 0 ] );
+          break;
+        case RESUME_TRIGGER:
+          resumeTrigger( (TriggerKey) args[ 0 ] );
+          break;
+        case RESUME_TRIGGERS:
+          resumeTriggers( (GroupMatcher<TriggerKey>) args[ 0 ] );
+          break;
+        case RESUME_JOB:
+          resumeJob( (JobKey) args[ 0 ] );
+          break;
+        case RESUME_JOBS:
+          resumeJobs( (GroupMatcher<JobKey>) args[ 0 ] );
+          break;
+        case PAUSE_ALL:
+          pauseAll();
+          break;
+        case RESUME_ALL:
+          resumeAll();
+          break;
+        case CLEAR_ALL:
+          clearAllSchedulingData();
+          break;
+        case RESET_TRIGGER_ERROR:
+          resetTriggerFromErrorState( (TriggerKey) args[ 0 ] );
+          break;
+        case TRIGGERS_FIRED:
+          for ( OperableTrigger trigger : (List<OperableTrigger>) args[ 0 ] ) {
+            TriggerState state = getTriggerState( trigger.getKey() );
+            if ( state == TriggerState.NONE ) {
+              continue;
+            }
+            storeTrigger( trigger, true );
+            if ( state == TriggerState.PAUSED ) {
+              pauseTrigger( trigger.getKey() );
+            }
+          }
+          break;
+        case JOB_COMPLETE:
+          triggeredJobComplete( (OperableTrigger) args[ 0 ], (JobDetail) args[ 1 ],
+            (CompletedExecutionInstruction) args[ 2 ] );
+          break;
+        default:
+          break;
+      }
+    } catch ( JobPersistenceException e ) {
+      // the operation failed the same way when it was first applied
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Journal record " + record.sequence + " (" + record.op + ") was not applied", e ); //$NON-NLS-1$
+      }
+    }
+  }
+
+  private byte[] serialize( Object object ) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream( 512 );
+    try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) ) {
+      out.writeObject( object );
+    }
+    return bytes.toByteArray();
+  }
+
+  private Object deserialize( byte[] data ) throws IOException, ClassNotFoundException {
+    try ( ObjectInputStream in = new LoadHelperObjectInputStream( new ByteArrayInputStream( data ) ) ) {
+      return in.readObject();
+    }
+  }
+
+  private static int crc( byte[] data ) {
+    CRC32 crc = new CRC32();
+    crc.update( data, 0, data.length );
+    return (int) crc.getValue();
+  }
+
+  private static void writeFully( FileChannel channel, ByteBuffer buffer ) throws IOException {
+    while ( buffer.hasRemaining() ) {
+      channel.write( buffer );
+    }
+  }
+
+  private static boolean readFully( FileChannel channel, ByteBuffer buffer ) throws IOException {
+    while ( buffer.hasRemaining() ) {
+      if ( channel.read( buffer ) < 0 ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Resolves job classes through the scheduler's class load helper, the same way the JDBC stores do, so plugin
+   * classes such as {@link BlockingQuartzJob} can be restored.
+   */
+  private class LoadHelperObjectInputStream extends ObjectInputStream {
+
+    LoadHelperObjectInputStream( InputStream in ) throws IOException {
+      super( in );
+    }
+
+    @Override
+    protected Class<?> resolveClass( ObjectStreamClass desc ) throws IOException, ClassNotFoundException {
+      try {
+        return classLoadHelper.loadClass( desc.getName() );
+      } catch ( ClassNotFoundException e ) {
+        return super.resolveClass( desc );
+      }
+    }
+  }
+
+  static class Record implements Serializable {
+    private static final long serialVersionUID = 4367018232367451022L;
+
+    final long sequence;
+
+    final Op op;
+
+    final Object[] args;
+
+    Record( long sequence, Op op, Object[] args ) {
+      this.sequence = sequence;
+      this.op = op;
+      this.args = args;
+    }
+  }
+
+  static class Snapshot implements Serializable {
+    private static final long serialVersionUID = -1780434415733985164L;
+
+    long sequence;
+
+    final HashMap<String, Calendar> calendars = new HashMap<>();
+
+    final ArrayList<JobDetail> jobs = new ArrayList<>();
+
+    final ArrayList<OperableTrigger> triggers = new ArrayList<>();
+
+    final HashSet<TriggerKey> pausedTriggers = new HashSet<>();
+
+    final HashSet<String> pausedTriggerGroups = new HashSet<>();
+
+    final HashSet<String> pausedJobGroups = new HashSet<>();
+  }
+}
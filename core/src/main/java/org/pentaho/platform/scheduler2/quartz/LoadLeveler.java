@@ -0,0 +1,195 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.quartz.CalendarIntervalTrigger;
+import org.quartz.CronTrigger;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+
+/**
+ * Picks how many minutes to delay the schedules that declared a tolerance window, so that schedules created for the
+ * same popular time (the top of the hour, midnight) spread over their windows instead of all firing at once.
+ * <p/>
+ * The offset is the one within the window that adds the least to the forecast load of the coming week. Ties, and
+ * schedules that do not fire within the week, are broken by a hash of the job, so the same job lands on the same
+ * offset given the same load. Each offset handed out is added to the forecast, which is only recomputed every few
+ * minutes, so schedules created in a burst (an import) spread as well. The fires of the triggers a job replaces (its
+ * own, when it is edited) are taken out of the forecast first, so that a job is not kept away from itself.
+ */
+class LoadLeveler {
+
+  static final int MAX_WINDOW_MINUTES = 59;
+
+  private static final Log logger = LogFactory.getLog( LoadLeveler.class );
+
+  private static final long MINUTE = TimeUnit.MINUTES.toMillis( 1 );
+  private static final long HORIZON_MILLIS = TimeUnit.DAYS.toMillis( 7 );
+  private static final long FORECAST_TTL_MILLIS = TimeUnit.MINUTES.toMillis( 10 );
+
+  private int[] load;
+  private long loadStart;
+
+  /**
+   * @param key           identifies the job, preferably by lineage id so the offset survives an export and import
+   * @param trigger       the trigger as scheduled without an offset
+   * @param windowMinutes how late the job may run
+   * @return the offset in minutes, between <code>0</code> and <code>windowMinutes</code>
+   */
+  int getOffsetMinutes( Scheduler scheduler, String key, Trigger trigger, int windowMinutes, long now ) {
+    return getOffsetMinutes( scheduler, key, trigger, Collections.emptyList(), windowMinutes, now );
+  }
+
+  /**
+   * @param replaced the triggers that go away once the job is scheduled, such as the ones of the job being updated
+   */
+  synchronized int getOffsetMinutes( Scheduler scheduler, String key, Trigger trigger,
+                                     Collection<? extends Trigger> replaced, int windowMinutes, long now ) {
+    int window = Math.min( Math.min( windowMinutes, MAX_WINDOW_MINUTES ), getMaxOffsetMinutes( trigger ) );
+    if ( window <= 0 ) {
+      return 0;
+    }
+    if ( load == null || now - loadStart > FORECAST_TTL_MILLIS ) {
+      forecast( scheduler, now );
+    }
+    for ( Trigger replacedTrigger : replaced ) {
+      for ( int minute : getFireMinutes( key, replacedTrigger ) ) {
+        if ( load[ minute ] > 0 ) {
+          load[ minute ]--;
+        }
+      }
+    }
+
+    int[] fires = getFireMinutes( key, trigger );
+    int first = Math.floorMod( key.hashCode(), window + 1 );
+    int best = first;
+    long bestLoad = Long.MAX_VALUE;
+    for ( int i = 0; i <= window; i++ ) {
+      int offset = ( first + i ) % ( window + 1 );
+      long total = 0;
+      for ( int minute : fires ) {
+        if ( minute + offset < load.length ) {
+          total += load[ minute + offset ];
+        }
+      }
+      if ( total < bestLoad ) {
+        bestLoad = total;
+        best = offset;
+      }
+    }
+    for ( int minute : fires ) {
+      if ( minute + best < load.length ) {
+        load[ minute + best ]++;
+      }
+    }
+    return best;
+  }
+
+  private void forecast( Scheduler scheduler, long now ) {
+    loadStart = now;
+    try {
+      load = FireTimeForecast.forecast( scheduler, now, now + HORIZON_MILLIS, MINUTE, MINUTE, 0 ).getBuckets();
+    } catch ( SchedulerException e ) {
+      // level by the hash alone until the next forecast
+      logger.warn( e.getMessage(), e );
+      load = new int[ (int) ( HORIZON_MILLIS / MINUTE ) ];
+    }
+  }
+
+  /**
+   * @return the minutes of the forecast in which <code>trigger</code> fires, as indexes into the load
+   */
+  private int[] getFireMinutes( String key, Trigger trigger ) {
+    FireTimeForecast.FireTimeStream stream = new FireTimeForecast.TriggerStream( key, trigger, null );
+    int[] minutes = new int[ 16 ];
+    int count = 0;
+    for ( long time = stream.fireTimeFrom( loadStart ); time >= 0 && time < loadStart + HORIZON_MILLIS
+      && count < load.length; time = stream.fireTimeAfter( time ) ) {
+      if ( count == minutes.length ) {
+        minutes = Arrays.copyOf( minutes, count * 2 );
+      }
+      minutes[ count++ ] = (int) ( ( time - loadStart ) / MINUTE );
+    }
+    return Arrays.copyOf( minutes, count );
+  }
+
+  /**
+   * Interval triggers can start any time later. A cron trigger can only be moved within its hour, and only when it
+   * fires at a single second and minute; anything else would change which hours or days it fires on.
+   */
+  static int getMaxOffsetMinutes( Trigger trigger ) {
+    if ( trigger instanceof CalendarIntervalTrigger ) {
+      return MAX_WINDOW_MINUTES;
+    }
+    if ( trigger instanceof CronTrigger ) {
+      return getMaxOffsetMinutes( ( (CronTrigger) trigger ).getCronExpression() );
+    }
+    return 0;
+  }
+
+  static int getMaxOffsetMinutes( String cronExpression ) {
+    String[] fields = cronExpression == null ? new String[ 0 ] : cronExpression.trim().split( "\\s+" ); //$NON-NLS-1$
+    if ( fields.length < 6 || !isNumber( fields[ 0 ] ) || !isNumber( fields[ 1 ] ) ) {
+      return 0;
+    }
+    return Math.max( 0, 59 - Integer.parseInt( fields[ 1 ] ) );
+  }
+
+  /**
+   * @return <code>cronExpression</code> firing <code>offsetMinutes</code> later, or unchanged if it cannot be moved
+   * that far
+   */
+  static String shiftCronExpression( String cronExpression, int offsetMinutes ) {
+    if ( offsetMinutes <= 0 || getMaxOffsetMinutes( cronExpression ) < offsetMinutes ) {
+      return cronExpression;
+    }
+    String[] fields = cronExpression.trim().split( "\\s+" ); //$NON-NLS-1$
+    fields[ 1 ] = String.valueOf( Integer.parseInt( fields[ 1 ] ) + offsetMinutes );
+    return String.join( " ", fields ); //$NON-NLS-1$
+  }
+
+  /**
+   * @return <code>cronExpression</code> as it was before {@link #shiftCronExpression(String, int)} moved it
+   * <code>offsetMinutes</code> later
+   */
+  static String unshiftCronExpression( String cronExpression, int offsetMinutes ) {
+    String[] fields = cronExpression == null ? new String[ 0 ] : cronExpression.trim().split( "\\s+" ); //$NON-NLS-1$
+    if ( offsetMinutes <= 0 || fields.length < 6 || !isNumber( fields[ 1 ] )
+      || Integer.parseInt( fields[ 1 ] ) < offsetMinutes ) {
+      return cronExpression;
+    }
+    fields[ 1 ] = String.valueOf( Integer.parseInt( fields[ 1 ] ) - offsetMinutes );
+    return String.join( " ", fields ); //$NON-NLS-1$
+  }
+
+  private static boolean isNumber( String field ) {
+    if ( field.isEmpty() || field.length() > 2 ) {
+      return false;
+    }
+    for ( int i = 0; i < field.length(); i++ ) {
+      if ( !Character.isDigit( field.charAt( i ) ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,350 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.platform.scheduler2.blockout.BlockoutAction;
+import org.pentaho.platform.scheduler2.messsages.Messages;
+import org.quartz.CalendarIntervalTrigger;
+import org.quartz.CronTrigger;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.listeners.TriggerListenerSupport;
+
+/**
+ * Spreads the catch-up runs of triggers that misfired while the server was down over a recovery window, instead of
+ * letting Quartz fire all of them the moment the scheduler starts.
+ * <p/>
+ * {@link #prepare()} runs while the scheduler is still paused and remembers every trigger that will misfire. Once the
+ * scheduler is started, the immediate catch-up fire of those triggers is vetoed and queued; {@link #start()} releases
+ * the queue at an even rate over the window, highest trigger priority first and rotating between owners (job groups)
+ * within a priority so one user's backlog cannot hold back everybody else. A catch-up is dropped when the trigger's
+ * regular next fire comes before its turn, since that run supersedes it.
+ */
+public class MisfireRecovery extends TriggerListenerSupport {
+
+  public static final String NAME = "MisfireRecovery"; //$NON-NLS-1$
+
+  // a fire this close to the regular next fire time is the regular fire, not the catch-up
+  private static final long REGULAR_FIRE_TOLERANCE_MILLIS = 1000;
+
+  private static final Log logger = LogFactory.getLog( MisfireRecovery.class );
+
+  private final Scheduler scheduler;
+
+  private final long windowMillis;
+
+  private final long misfireThresholdMillis;
+
+  // trigger -> its regular next fire time after startup, for triggers whose catch-up fire has not happened yet
+  private final Map<TriggerKey, Long> awaiting = new ConcurrentHashMap<>();
+
+  // priority (highest first) -> owner -> catch-ups in arrival order
+  private final TreeMap<Integer, LinkedHashMap<String, Deque<CatchUp>>> queue = new TreeMap<>( ( a, b ) -> b - a );
+
+  private final AtomicInteger misfiredCount = new AtomicInteger();
+
+  private final AtomicInteger queuedCount = new AtomicInteger();
+
+  private final AtomicInteger releasedCount = new AtomicInteger();
+
+  private final AtomicInteger supersededCount = new AtomicInteger();
+
+  private ScheduledExecutorService executor;
+
+  private volatile long startMillis = -1;
+
+  private volatile long releaseIntervalMillis;
+
+  private volatile boolean finished;
+
+  static class CatchUp {
+    final TriggerKey triggerKey;
+    final JobKey jobKey;
+    final Date scheduledFireTime;
+
+    CatchUp( TriggerKey triggerKey, JobKey jobKey, Date scheduledFireTime ) {
+      this.triggerKey = triggerKey;
+      this.jobKey = jobKey;
+      this.scheduledFireTime = scheduledFireTime;
+    }
+  }
+
+  public MisfireRecovery( Scheduler scheduler, long windowMillis, long misfireThresholdMillis ) {
+    this.scheduler = scheduler;
+    this.windowMillis = Math.max( 0, windowMillis );
+    this.misfireThresholdMillis = misfireThresholdMillis;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /**
+   * Finds the triggers that will misfire when the scheduler starts and registers this listener. Must be called while
+   * the scheduler is paused.
+   *
+   * @return the number of misfired triggers
+   */
+  public int prepare() throws SchedulerException {
+    long now = System.currentTimeMillis();
+    for ( TriggerKey triggerKey : scheduler.getTriggerKeys( GroupMatcher.anyTriggerGroup() ) ) {
+      Trigger trigger = scheduler.getTrigger( triggerKey );
+      if ( trigger == null || trigger.getNextFireTime() == null
+        || trigger.getNextFireTime().getTime() >= now - misfireThresholdMillis
+        || scheduler.getTriggerState( triggerKey ) != Trigger.TriggerState.NORMAL
+        || !catchesUp( trigger ) || isBlockout( trigger ) ) {
+        continue;
+      }
+      Date regularNext = trigger.getFireTimeAfter( new Date( now ) );
+      if ( regularNext == null ) {
+        // the catch-up is the trigger's last fire; holding it back would let Quartz remove the job
+        continue;
+      }
+      awaiting.put( triggerKey, regularNext.getTime() );
+    }
+    misfiredCount.set( awaiting.size() );
+    if ( awaiting.isEmpty() ) {
+      finished = true;
+    } else {
+      scheduler.getListenerManager().addTriggerListener( this );
+    }
+    return awaiting.size();
+  }
+
+  /**
+   * Starts releasing the queued catch-up runs. Call it right after the scheduler has been started.
+   */
+  public synchronized void start() {
+    if ( finished || executor != null ) {
+      return;
+    }
+    startMillis = System.currentTimeMillis();
+    releaseIntervalMillis = Math.max( 1, windowMillis / Math.max( 1, misfiredCount.get() ) );
+    logger.info( Messages.getInstance().getString( "MisfireRecovery.INFO_0001_RECOVERY_STARTED", //$NON-NLS-1$
+      String.valueOf( misfiredCount.get() ), String.valueOf( windowMillis ) ) );
+    executor = Executors.newSingleThreadScheduledExecutor( runnable -> {
+      Thread thread = new Thread( runnable, NAME );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    executor.scheduleWithFixedDelay( this::tick, releaseIntervalMillis, releaseIntervalMillis, TimeUnit.MILLISECONDS );
+  }
+
+  public synchronized void stop() {
+    if ( executor != null ) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Override
+  public boolean vetoJobExecution( Trigger trigger, JobExecutionContext context ) {
+    Long regularNext = awaiting.remove( trigger.getKey() );
+    if ( regularNext == null ) {
+      return false;
+    }
+    Date scheduledFireTime = context.getScheduledFireTime();
+    if ( scheduledFireTime != null && scheduledFireTime.getTime() >= regularNext - REGULAR_FIRE_TOLERANCE_MILLIS ) {
+      // the regular fire got here first, nothing left to catch up
+      supersededCount.incrementAndGet();
+      return false;
+    }
+    enqueue( trigger.getPriority(), new CatchUp( trigger.getKey(), trigger.getJobKey(), scheduledFireTime ) );
+    return true;
+  }
+
+  synchronized void enqueue( int priority, CatchUp catchUp ) {
+    queue.computeIfAbsent( priority, p -> new LinkedHashMap<>() )
+      .computeIfAbsent( catchUp.jobKey.getGroup(), owner -> new ArrayDeque<>() ).add( catchUp );
+    queuedCount.incrementAndGet();
+  }
+
+  /**
+   * Takes the next catch-up: highest priority first, then the owner that has waited longest.
+   */
+  synchronized CatchUp poll() {
+    while ( !queue.isEmpty() ) {
+      LinkedHashMap<String, Deque<CatchUp>> owners = queue.firstEntry().getValue();
+      Iterator<Map.Entry<String, Deque<CatchUp>>> iterator = owners.entrySet().iterator();
+      if ( !iterator.hasNext() ) {
+        queue.pollFirstEntry();
+        continue;
+      }
+      Map.Entry<String, Deque<CatchUp>> owner = iterator.next();
+      iterator.remove();
+      CatchUp catchUp = owner.getValue().poll();
+      if ( !owner.getValue().isEmpty() ) {
+        // back of the line for this owner
+        owners.put( owner.getKey(), owner.getValue() );
+      }
+      if ( owners.isEmpty() ) {
+        queue.pollFirstEntry();
+      }
+      return catchUp;
+    }
+    return null;
+  }
+
+  synchronized int getQueueSize() {
+    int size = 0;
+    for ( Map<String, Deque<CatchUp>> owners : queue.values() ) {
+      for ( Deque<CatchUp> catchUps : owners.values() ) {
+        size += catchUps.size();
+      }
+    }
+    return size;
+  }
+
+  void tick() {
+    try {
+      CatchUp catchUp = poll();
+      while ( catchUp != null && !release( catchUp ) ) {
+        // superseded ones don't use up a slot
+        catchUp = poll();
+      }
+      if ( catchUp == null && ( awaiting.isEmpty() || System.currentTimeMillis() > startMillis + windowMillis ) ) {
+        finish();
+      }
+    } catch ( RuntimeException e ) {
+      logger.warn( e.getMessage(), e );
+    }
+  }
+
+  /**
+   * @return <code>true</code> if the catch-up run was fired, <code>false</code> if it was superseded
+   */
+  boolean release( CatchUp catchUp ) {
+    try {
+      Trigger trigger = scheduler.getTrigger( catchUp.triggerKey );
+      long now = System.currentTimeMillis();
+      if ( trigger == null || isSuperseded( trigger, catchUp, now ) ) {
+        supersededCount.incrementAndGet();
+        return false;
+      }
+      scheduler.triggerJob( catchUp.jobKey );
+      releasedCount.incrementAndGet();
+      return true;
+    } catch ( SchedulerException e ) {
+      logger.warn( Messages.getInstance().getString( "MisfireRecovery.WARN_0001_RELEASE_FAILED", //$NON-NLS-1$
+        catchUp.jobKey.getName() ), e );
+      return false;
+    }
+  }
+
+  private boolean isSuperseded( Trigger trigger, CatchUp catchUp, long now ) {
+    Date previousFireTime = trigger.getPreviousFireTime();
+    if ( previousFireTime != null && catchUp.scheduledFireTime != null
+      && previousFireTime.after( catchUp.scheduledFireTime ) ) {
+      // a regular run already happened
+      return true;
+    }
+    Date nextFireTime = trigger.getNextFireTime();
+    return nextFireTime == null || nextFireTime.getTime() - now <= releaseIntervalMillis;
+  }
+
+  synchronized void finish() {
+    if ( finished ) {
+      return;
+    }
+    finished = true;
+    awaiting.clear();
+    try {
+      scheduler.getListenerManager().removeTriggerListener( NAME );
+    } catch ( SchedulerException e ) {
+      logger.debug( e.getMessage(), e );
+    }
+    logger.info( Messages.getInstance().getString( "MisfireRecovery.INFO_0002_RECOVERY_FINISHED", //$NON-NLS-1$
+      String.valueOf( releasedCount.get() ), String.valueOf( supersededCount.get() ) ) );
+    if ( executor != null ) {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Triggers whose misfire instruction skips the missed runs never produce a catch-up fire.
+   */
+  static boolean catchesUp( Trigger trigger ) {
+    int instruction = trigger.getMisfireInstruction();
+    if ( trigger instanceof CronTrigger ) {
+      return instruction != CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING;
+    }
+    if ( trigger instanceof CalendarIntervalTrigger ) {
+      return instruction != CalendarIntervalTrigger.MISFIRE_INSTRUCTION_DO_NOTHING;
+    }
+    return true;
+  }
+
+  private boolean isBlockout( Trigger trigger ) throws SchedulerException {
+    // blockouts define when other jobs may run, they must not be delayed
+    JobDetail jobDetail = scheduler.getJobDetail( trigger.getJobKey() );
+    return jobDetail != null && BlockoutAction.class.getName().equals(
+      jobDetail.getJobDataMap().getString( QuartzScheduler.RESERVEDMAPKEY_ACTIONCLASS ) );
+  }
+
+  public boolean isActive() {
+    return !finished;
+  }
+
+  public long getStartTime() {
+    return startMillis;
+  }
+
+  public long getWindowMillis() {
+    return windowMillis;
+  }
+
+  public int getMisfiredCount() {
+    return misfiredCount.get();
+  }
+
+  public int getQueuedCount() {
+    return queuedCount.get();
+  }
+
+  public int getReleasedCount() {
+    return releasedCount.get();
+  }
+
+  public int getSupersededCount() {
+    return supersededCount.get();
+  }
+
+  /**
+   * @return catch-ups not yet released, including misfired triggers whose catch-up fire has not been seen yet
+   */
+  public int getPendingCount() {
+    return finished ? 0 : getQueueSize() + awaiting.size();
+  }
+}
@@ -0,0 +1,212 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.pentaho.platform.api.scheduler2.IScheduler;
+import org.pentaho.platform.util.ActionUtil;
+
+/**
+ * In-memory secondary indexes over the jobs of a {@link QuartzScheduler}: job name, lineage id and input file to job
+ * ids, and the upstream lineage ids each job depends on (see {@link JobDependencies}). {@link QuartzScheduler} keeps
+ * it in sync on create, update and remove; entries for jobs Quartz deleted on its own (e.g. a run-once job that
+ * completed) are pruned by the scheduler when a lookup finds them missing. With a clustered job store the scheduler
+ * loads it again once it is older than a refresh interval, since jobs are also created and removed by the other
+ * nodes.
+ */
+class QuartzJobIndex {
+
+  private final Map<String, Set<String>> byName = new HashMap<>();
+
+  private final Map<String, Set<String>> byLineageId = new HashMap<>();
+
+  private final Map<String, Set<String>> byInputFile = new HashMap<>();
+
+  private final Map<String, Set<String>> byUpstream = new HashMap<>();
+
+  private final Map<String, String[]> keysByJobId = new HashMap<>();
+
+  private final Map<String, List<String>> upstreamsByJobId = new HashMap<>();
+
+  // when the loaded entries are due to be loaded again; 0 if they were never loaded
+  private long builtUntil;
+
+  synchronized boolean isBuilt() {
+    return builtUntil > System.currentTimeMillis();
+  }
+
+  /**
+   * @param built whether the entries were loaded, for good
+   */
+  synchronized void setBuilt( boolean built ) {
+    this.builtUntil = built ? Long.MAX_VALUE : 0;
+  }
+
+  /**
+   * Marks the entries as loaded, until they are <code>millis</code> old.
+   */
+  synchronized void setBuiltFor( long millis ) {
+    this.builtUntil = System.currentTimeMillis() + millis;
+  }
+
+  /**
+   * Adds or replaces the entries of a job.
+   */
+  synchronized void put( String jobId, String jobName, Map<String, ?> jobParams ) {
+    remove( jobId );
+    String lineageId = stringParam( jobParams, IScheduler.RESERVEDMAPKEY_LINEAGE_ID );
+    String inputFile = stringParam( jobParams, ActionUtil.QUARTZ_STREAMPROVIDER_INPUT_FILE );
+    add( byName, jobName, jobId );
+    add( byLineageId, lineageId, jobId );
+    add( byInputFile, inputFile, jobId );
+    keysByJobId.put( jobId, new String[] { jobName, lineageId, inputFile } );
+    List<String> upstreams = JobDependencies.parseLineageIds( jobParams == null ? null
+      : jobParams.get( QuartzScheduler.RESERVEDMAPKEY_DEPENDS_ON ) );
+    if ( !upstreams.isEmpty() ) {
+      upstreamsByJobId.put( jobId, upstreams );
+      for ( String upstream : upstreams ) {
+        add( byUpstream, upstream, jobId );
+      }
+    }
+  }
+
+  synchronized void remove( String jobId ) {
+    String[] keys = keysByJobId.remove( jobId );
+    if ( keys != null ) {
+      discard( byName, keys[ 0 ], jobId );
+      discard( byLineageId, keys[ 1 ], jobId );
+      discard( byInputFile, keys[ 2 ], jobId );
+    }
+    List<String> upstreams = upstreamsByJobId.remove( jobId );
+    if ( upstreams != null ) {
+      for ( String upstream : upstreams ) {
+        discard( byUpstream, upstream, jobId );
+      }
+    }
+  }
+
+  synchronized void clear() {
+    byName.clear();
+    byLineageId.clear();
+    byInputFile.clear();
+    byUpstream.clear();
+    keysByJobId.clear();
+    upstreamsByJobId.clear();
+    builtUntil = 0;
+  }
+
+  synchronized List<String> getJobIdsByName( String jobName ) {
+    return copy( byName, jobName );
+  }
+
+  synchronized List<String> getJobIdsByLineageId( String lineageId ) {
+    return copy( byLineageId, lineageId );
+  }
+
+  synchronized List<String> getJobIdsByInputFile( String inputFile ) {
+    return copy( byInputFile, inputFile );
+  }
+
+  /**
+   * @return the lineage id of an indexed job, or <code>null</code>
+   */
+  synchronized String getLineageId( String jobId ) {
+    String[] keys = keysByJobId.get( jobId );
+    return keys == null ? null : keys[ 1 ];
+  }
+
+  /**
+   * @return the lineage ids of all the indexed jobs
+   */
+  synchronized Set<String> getLineageIds() {
+    return new HashSet<>( byLineageId.keySet() );
+  }
+
+  /**
+   * @return the ids of the jobs that depend on the job with lineage id <code>upstreamLineageId</code>
+   */
+  synchronized List<String> getDownstreamJobIds( String upstreamLineageId ) {
+    return copy( byUpstream, upstreamLineageId );
+  }
+
+  /**
+   * @return the lineage ids the job with lineage id <code>lineageId</code> depends on
+   */
+  synchronized Set<String> getUpstreams( String lineageId ) {
+    Set<String> upstreams = new LinkedHashSet<>();
+    for ( String jobId : copy( byLineageId, lineageId ) ) {
+      upstreams.addAll( upstreamsByJobId.getOrDefault( jobId, Collections.emptyList() ) );
+    }
+    return upstreams;
+  }
+
+  /**
+   * @return whether the job with lineage id <code>lineageId</code> depends, directly or not, on
+   * <code>upstreamLineageId</code>
+   */
+  synchronized boolean dependsOn( String lineageId, String upstreamLineageId ) {
+    Set<String> visited = new HashSet<>();
+    Deque<String> pending = new ArrayDeque<>();
+    pending.push( lineageId );
+    while ( !pending.isEmpty() ) {
+      for ( String upstream : getUpstreams( pending.pop() ) ) {
+        if ( upstream.equals( upstreamLineageId ) ) {
+          return true;
+        }
+        if ( visited.add( upstream ) ) {
+          pending.push( upstream );
+        }
+      }
+    }
+    return false;
+  }
+
+  private static String stringParam( Map<String, ?> jobParams, String key ) {
+    Object value = jobParams == null ? null : jobParams.get( key );
+    return value == null ? null : value.toString();
+  }
+
+  private static void add( Map<String, Set<String>> index, String key, String jobId ) {
+    if ( key != null ) {
+      index.computeIfAbsent( key, k -> new LinkedHashSet<>() ).add( jobId );
+    }
+  }
+
+  private static void discard( Map<String, Set<String>> index, String key, String jobId ) {
+    if ( key != null ) {
+      Set<String> jobIds = index.get( key );
+      if ( jobIds != null ) {
+        jobIds.remove( jobId );
+        if ( jobIds.isEmpty() ) {
+          index.remove( key );
+        }
+      }
+    }
+  }
+
+  private static List<String> copy( Map<String, Set<String>> index, String key ) {
+    Set<String> jobIds = key == null ? null : index.get( key );
+    return jobIds == null ? Collections.emptyList() : new ArrayList<>( jobIds );
+  }
+}
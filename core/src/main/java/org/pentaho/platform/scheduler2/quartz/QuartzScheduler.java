@@ -46,23 +46,16 @@ import org.pentaho.platform.api.scheduler2.SimpleJobTrigger;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.security.SecurityHelper;
+import org.pentaho.platform.scheduler2.ISchedulerJobLookup;
 import org.pentaho.platform.scheduler2.messsages.Messages;
 import org.pentaho.platform.scheduler2.recur.ITimeRecurrence;
 import org.pentaho.platform.scheduler2.recur.IncrementalRecurrence;
-import org.pentaho.platform.scheduler2.recur.QualifiedDayOfMonth;
-import org.pentaho.platform.scheduler2.recur.QualifiedDayOfWeek;
-import org.pentaho.platform.scheduler2.recur.QualifiedDayOfWeek.DayOfWeek;
-import org.pentaho.platform.scheduler2.recur.QualifiedDayOfWeek.DayOfWeekQualifier;
-import org.pentaho.platform.scheduler2.recur.RecurrenceList;
-import org.pentaho.platform.scheduler2.recur.SequentialRecurrence;
 import org.pentaho.platform.web.http.api.resources.JobRequest;
 import org.pentaho.platform.web.http.api.resources.JobScheduleParam;
 import org.pentaho.platform.web.http.api.resources.JobScheduleRequest;
 import org.pentaho.platform.web.http.api.resources.SchedulerResource;
 import org.quartz.Calendar;
 import org.quartz.CalendarIntervalTrigger;
-import org.quartz.CronExpression;
-import org.quartz.CronScheduleBuilder;
 import org.quartz.CronTrigger;
 import org.quartz.DateBuilder;
 import org.quartz.JobBuilder;
@@ -73,56 +66,120 @@ import org.quartz.Scheduler;
 import org.quartz.SchedulerFactory;
 import org.quartz.SimpleTrigger;
 import org.quartz.Trigger;
-import org.quartz.TriggerBuilder;
 import org.quartz.TriggerKey;
 import org.quartz.impl.StdSchedulerFactory;
 import org.quartz.impl.matchers.GroupMatcher;
 import org.quartz.impl.triggers.AbstractTrigger;
 import org.quartz.impl.triggers.CalendarIntervalTriggerImpl;
 import org.quartz.impl.triggers.CronTriggerImpl;
+import org.quartz.listeners.SchedulerListenerSupport;
 import org.quartz.spi.MutableTrigger;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.security.Principal;
 import java.text.MessageFormat;
 import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.UUID;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * A Quartz implementation of {@link IScheduler}
  *
  * @author aphillips
  */
-public class QuartzScheduler implements IScheduler {
+public class QuartzScheduler implements IScheduler, ISchedulerJobLookup {
+
+  /**
+   * Job parameter opting a job into load leveling: how many minutes after its scheduled time it may run.
+   */
+  public static final String RESERVEDMAPKEY_LOAD_LEVELING_WINDOW = "load-leveling-window"; //$NON-NLS-1$
+
+  /**
+   * Job parameter holding how many minutes load leveling delayed the Quartz trigger of a job. The trigger the job
+   * reports is the one it was scheduled with, so editing or exporting it does not delay it again.
+   */
+  public static final String RESERVEDMAPKEY_LOAD_LEVELING_OFFSET = "load-leveling-offset"; //$NON-NLS-1$
+
+  /**
+   * Job parameter listing the lineage ids of the jobs a job depends on, see {@link JobDependencies}.
+   */
+  public static final String RESERVEDMAPKEY_DEPENDS_ON = "depends-on"; //$NON-NLS-1$
+
+  /**
+   * Job parameter saying what a job with dependencies does when they are not met by its own fire time: "run" or
+   * "skip".
+   */
+  public static final String RESERVEDMAPKEY_DEPENDENCY_POLICY = "dependency-policy"; //$NON-NLS-1$
+
+  /**
+   * Job parameter saying what happens to a fire or manual run while the job is already running: "allow", "coalesce"
+   * or "queue", see {@link JobConcurrency}.
+   */
+  public static final String RESERVEDMAPKEY_CONCURRENCY_POLICY = "concurrency-policy"; //$NON-NLS-1$
+
+  /**
+   * Job parameter opting a job into sharing its scheduled executions with identical jobs: "true" for the jobs of the
+   * same owner, "any-owner" for those of other owners too, declaring that the output does not depend on the user, see
+   * {@link org.pentaho.platform.scheduler2.action.SharedExecutions}.
+   */
+  public static final String RESERVEDMAPKEY_SHARE_EXECUTION = "share-execution"; //$NON-NLS-1$
+
+  /**
+   * Schedule parameter of the export carrying the recorded execution times of a job, see
+   * {@link ExecutionDurations#format(String)}. It is taken off again on import and never stored with a job.
+   */
+  public static final String RESERVEDMAPKEY_EXECUTION_DURATIONS = "execution-durations"; //$NON-NLS-1$
+
+  /**
+   * How long the job index of a clustered job store is used before it is loaded from the store again.
+   */
+  static final long CLUSTERED_JOB_INDEX_REFRESH_MILLIS = 30000;
 
   private Log logger;
 
-  private SchedulerFactory quartzSchedulerFactory;
+  private final QuartzJobIndex jobIndex = new QuartzJobIndex();
 
-  private Scheduler quartzScheduler;
+  private final LoadLeveler loadLeveler = new LoadLeveler();
 
-  private ArrayList<ISchedulerListener> listeners = new ArrayList<>();
+  private SchedulerFactory quartzSchedulerFactory;
 
-  private static final Pattern listPattern = Pattern.compile( "\\d+" );
+  private Scheduler quartzScheduler;
 
-  private static final Pattern dayOfWeekRangePattern = Pattern.compile( ".*\\-.*" );
+  private volatile MisfireRecovery misfireRecovery;
 
-  private static final Pattern sequencePattern = Pattern.compile( "\\d+\\-\\d+" );
+  private final CatalogVersion catalogVersion = new CatalogVersion();
 
-  private static final Pattern intervalPattern = Pattern.compile( "[\\d*]+/[\\d]+" );
+  private final JobEvents jobEvents = new JobEvents();
 
-  private static final Pattern qualifiedDayPattern = Pattern.compile( "\\d+#\\d+" );
+  // forgets what is kept about a job once Quartz deleted it, also when it did so on its own
+  private final SchedulerListenerSupport jobRemovalListener = new SchedulerListenerSupport() {
+    @Override
+    public void jobDeleted( JobKey jobKey ) {
+      forgetJob( jobKey.getName() );
+    }
+  };
 
-  private static final Pattern lastDayPattern = Pattern.compile( "\\d+L" );
+  private ArrayList<ISchedulerListener> listeners = new ArrayList<>();
 
   public QuartzScheduler( SchedulerFactory schedulerFactory ) {
     this.quartzSchedulerFactory = schedulerFactory;
@@ -148,6 +205,7 @@ public class QuartzScheduler implements IScheduler {
    */
   public void setQuartzSchedulerFactory( SchedulerFactory quartzSchedulerFactory ) throws SchedulerException {
     this.quartzSchedulerFactory = quartzSchedulerFactory;
+    jobIndex.clear();
     if ( quartzScheduler != null ) {
       this.shutdown();
       quartzScheduler = null;
@@ -163,6 +221,11 @@ public class QuartzScheduler implements IScheduler {
        * us in that regard.
        */
       quartzScheduler = quartzSchedulerFactory.getScheduler();
+      catalogVersion.register( quartzScheduler );
+      jobEvents.register( quartzScheduler );
+      if ( quartzScheduler.getListenerManager() != null ) {
+        quartzScheduler.getListenerManager().addSchedulerListener( jobRemovalListener );
+      }
     }
 
     logger.debug( "Using quartz scheduler " + quartzScheduler );
@@ -232,13 +295,20 @@ public class QuartzScheduler implements IScheduler {
   }
 
   public static MutableTrigger createQuartzTrigger( IJobTrigger jobTrigger, QuartzJobKey jobId ) throws SchedulerException {
+    return createQuartzTrigger( jobTrigger, jobId, 0 );
+  }
+
+  /**
+   * @param offsetMinutes how many minutes later than <code>jobTrigger</code> says the trigger fires; a cron trigger
+   *                      that cannot be moved that far within its hour is not moved
+   */
+  public static MutableTrigger createQuartzTrigger( IJobTrigger jobTrigger, QuartzJobKey jobId, int offsetMinutes )
+    throws SchedulerException {
     MutableTrigger quartzTrigger = null;
-    java.util.Calendar startDateCal = null;
-    java.util.Calendar endDateCal = null;
+    ZonedDateTime startDateTime = null;
     Date triggerEndDate = null;
     if ( null != jobTrigger.getEndTime() ) {
-      endDateCal = getEndDateCalFromTrigger( jobTrigger );
-      triggerEndDate = endDateCal.getTime();
+      triggerEndDate = Date.from( getEndDateTimeFromTrigger( jobTrigger ).toInstant() );
     }
 
     TimeZone tz = null;
@@ -248,15 +318,14 @@ public class QuartzScheduler implements IScheduler {
 
     if ( jobTrigger.getStartHour() >= 0 ) {
       // set  time zone from PUC UI input
-      startDateCal = getStartDateCalFromTrigger( jobTrigger );
+      startDateTime = getStartDateTimeFromTrigger( jobTrigger );
     } else {
       // handle legacy imports
-      startDateCal = java.util.Calendar.getInstance();
-      startDateCal.setTime( null != jobTrigger.getStartTime() ? jobTrigger.getStartTime() : new Date() );
-    }
-    if ( null != jobTrigger.getTimeZone() ) {
-      tz = TimeZone.getTimeZone( jobTrigger.getTimeZone() );
+      startDateTime = ZonedDateTime.ofInstant(
+        ( null != jobTrigger.getStartTime() ? jobTrigger.getStartTime() : new Date() ).toInstant(),
+        ZoneIdRegistry.getZoneId( null ) );
     }
+    tz = ZoneIdRegistry.getTimeZone( jobTrigger.getTimeZone() );
     if ( jobTrigger instanceof ComplexJobTrigger ) {
 
       try {
@@ -265,8 +334,9 @@ public class QuartzScheduler implements IScheduler {
 
         cronTrigger.setName( jobId.toString() );
         cronTrigger.setGroup( jobId.getUserName() );
-        cronTrigger.setCronExpression( complexJobTrigger.getCronString() != null ? complexJobTrigger.getCronString()
-          : QuartzCronStringFactory.createCronString( complexJobTrigger ) );
+        String cronString = complexJobTrigger.getCronString() != null ? complexJobTrigger.getCronString()
+          : QuartzCronStringFactory.createCronString( complexJobTrigger );
+        cronTrigger.setCronExpression( LoadLeveler.shiftCronExpression( cronString, offsetMinutes ) );
         if ( jobTrigger.getStartHour() >= 0 && null != tz ) {
           cronTrigger.setTimeZone( tz );
         }
@@ -308,9 +378,7 @@ public class QuartzScheduler implements IScheduler {
           // simpletrigger can't handle time zones and no other triggers provide a number of iterations, so this is an alternative
           triggerInterval = 2;
           intervalUnit = DateBuilder.IntervalUnit.YEAR;
-          endDateCal = (java.util.Calendar) startDateCal.clone();
-          endDateCal.add( java.util.Calendar.HOUR, 1 );
-          triggerEndDate = endDateCal.getTime();
+          triggerEndDate = Date.from( startDateTime.plusHours( 1 ).toInstant() );
         }
 
         calendarIntervalTrigger.setRepeatInterval( triggerInterval );
@@ -321,11 +389,12 @@ public class QuartzScheduler implements IScheduler {
         if ( null != triggerEndDate ) {
           calendarIntervalTrigger.setEndTime( triggerEndDate );
         }
-        if ( jobTrigger.getStartHour() >= 0 ) {
-          calendarIntervalTrigger.setStartTime( startDateCal.getTime() );
-        } else {
-          calendarIntervalTrigger.setStartTime( simpleTrigger.getStartTime() );
+        Date startTime = jobTrigger.getStartHour() >= 0 ? Date.from( startDateTime.toInstant() )
+          : simpleTrigger.getStartTime();
+        if ( offsetMinutes > 0 && startTime != null ) {
+          startTime = new Date( startTime.getTime() + TimeUnit.MINUTES.toMillis( offsetMinutes ) );
         }
+        calendarIntervalTrigger.setStartTime( startTime );
 
         if ( null != tz ) {
           calendarIntervalTrigger.setTimeZone( tz );
@@ -344,6 +413,107 @@ public class QuartzScheduler implements IScheduler {
     return quartzTrigger;
   }
 
+  /**
+   * Rejects dependencies that would make a job wait, directly or not, for itself.
+   */
+  private void checkDependencies( String jobName, Map<String, Object> jobParams ) throws SchedulerException {
+    List<String> upstreams = JobDependencies.parseLineageIds( jobParams.get( RESERVEDMAPKEY_DEPENDS_ON ) );
+    Object lineageId = jobParams.get( RESERVEDMAPKEY_LINEAGE_ID );
+    if ( upstreams.isEmpty() || lineageId == null ) {
+      return;
+    }
+    try {
+      buildJobIndexIfNecessary( getQuartzScheduler() );
+    } catch ( org.quartz.SchedulerException e ) {
+      throw new SchedulerException( Messages.getInstance().getString(
+        "QuartzScheduler.ERROR_0001_FAILED_TO_SCHEDULE_JOB", jobName ), e );
+    }
+    for ( String upstream : upstreams ) {
+      if ( upstream.equals( lineageId.toString() ) || jobIndex.dependsOn( upstream, lineageId.toString() ) ) {
+        throw new SchedulerException( Messages.getInstance().getString(
+          "QuartzScheduler.ERROR_0017_DEPENDENCY_CYCLE", jobName, upstream ) );
+      }
+    }
+  }
+
+  /**
+   * @param replacedJobId the job being updated, or <code>null</code>; its fires, and those of the other jobs of the
+   *                      same lineage, are not counted as load
+   * @return how many minutes to delay a job that declared a load leveling window, <code>0</code> for any other
+   */
+  private int getLoadLevelingOffset( IJobTrigger trigger, QuartzJobKey jobKey, String jobId, String replacedJobId,
+                                     Map<String, Object> jobParams ) throws SchedulerException {
+    int window = getLoadLevelingWindow( jobParams.get( RESERVEDMAPKEY_LOAD_LEVELING_WINDOW ) );
+    if ( window <= 0 ) {
+      return 0;
+    }
+    MutableTrigger quartzTrigger = createQuartzTrigger( trigger, jobKey );
+    Object lineageId = jobParams.get( RESERVEDMAPKEY_LINEAGE_ID );
+    try {
+      Scheduler scheduler = getQuartzScheduler();
+      return loadLeveler.getOffsetMinutes( scheduler, lineageId != null ? lineageId.toString() : jobId,
+        quartzTrigger, getReplacedTriggers( scheduler, lineageId, replacedJobId ), window,
+        System.currentTimeMillis() );
+    } catch ( org.quartz.SchedulerException e ) {
+      throw new SchedulerException( Messages.getInstance().getString(
+        "QuartzScheduler.ERROR_0001_FAILED_TO_SCHEDULE_JOB", jobKey.getJobName() ), e );
+    }
+  }
+
+  /**
+   * @return the triggers of the job being updated and of the other jobs of its lineage, which an update by the
+   * scheduler service removes once the new job is created
+   */
+  private List<Trigger> getReplacedTriggers( Scheduler scheduler, Object lineageId, String replacedJobId )
+    throws SchedulerException, org.quartz.SchedulerException {
+    Set<String> jobIds = new LinkedHashSet<>();
+    if ( lineageId != null ) {
+      buildJobIndexIfNecessary( scheduler );
+      jobIds.addAll( jobIndex.getJobIdsByLineageId( lineageId.toString() ) );
+    }
+    if ( replacedJobId != null ) {
+      jobIds.add( replacedJobId );
+    }
+    List<Trigger> triggers = new ArrayList<>();
+    for ( String jobId : jobIds ) {
+      triggers.addAll( scheduler.getTriggersOfJob( new JobKey( jobId, QuartzJobKey.parse( jobId ).getUserName() ) ) );
+    }
+    return triggers;
+  }
+
+  static int getLoadLevelingWindow( Object window ) {
+    return parseMinutes( window );
+  }
+
+  /**
+   * @return how many minutes load leveling delayed the trigger of a job with these parameters
+   */
+  static int getLoadLevelingOffset( Map<String, Object> jobParams ) {
+    return jobParams == null ? 0 : parseMinutes( jobParams.get( RESERVEDMAPKEY_LOAD_LEVELING_OFFSET ) );
+  }
+
+  private static void setLoadLevelingOffset( Map<String, Object> jobParams, int offsetMinutes ) {
+    if ( offsetMinutes > 0 ) {
+      jobParams.put( RESERVEDMAPKEY_LOAD_LEVELING_OFFSET, offsetMinutes );
+    } else {
+      jobParams.remove( RESERVEDMAPKEY_LOAD_LEVELING_OFFSET );
+    }
+  }
+
+  private static int parseMinutes( Object minutes ) {
+    if ( minutes instanceof Number ) {
+      return ( (Number) minutes ).intValue();
+    }
+    if ( minutes != null ) {
+      try {
+        return Integer.parseInt( minutes.toString().trim() );
+      } catch ( NumberFormatException e ) {
+        return 0;
+      }
+    }
+    return 0;
+  }
+
   private JobDetail createJobDetails( QuartzJobKey jobId, Map<String, Object> jobParams ) {
     jobParams.put( RESERVEDMAPKEY_ACTIONUSER, jobId.getUserName() );
     JobDataMap jobDataMap = new JobDataMap( jobParams );
@@ -357,12 +527,12 @@ public class QuartzScheduler implements IScheduler {
   private Calendar createQuartzCalendar( ComplexJobTrigger complexJobTrigger ) {
     Calendar triggerCalendar = null;
     if ( complexJobTrigger.getStartHour() > -1 ) {
-      java.util.Calendar startDateCal = getStartDateCalFromTrigger( complexJobTrigger );
+      Date startDate = Date.from( getStartDateTimeFromTrigger( complexJobTrigger ).toInstant() );
       if ( complexJobTrigger.getEndTime() != null ) {
-        java.util.Calendar endDateCal = getEndDateCalFromTrigger( complexJobTrigger );
-        triggerCalendar = new QuartzSchedulerAvailability( Date.from( startDateCal.toInstant() ), Date.from( endDateCal.toInstant() ) );
+        Date endDate = Date.from( getEndDateTimeFromTrigger( complexJobTrigger ).toInstant() );
+        triggerCalendar = new QuartzSchedulerAvailability( startDate, endDate );
       } else {
-        triggerCalendar = new QuartzSchedulerAvailability( Date.from( startDateCal.toInstant() ), null );
+        triggerCalendar = new QuartzSchedulerAvailability( startDate, null );
       }
     } else if ( ( complexJobTrigger.getStartTime() != null ) || ( complexJobTrigger.getEndTime() != null ) ) {
       triggerCalendar =
@@ -371,31 +541,29 @@ public class QuartzScheduler implements IScheduler {
     return triggerCalendar;
   }
 
-  private static java.util.Calendar getStartDateCalFromTrigger( IJobTrigger jobTrigger ) {
-    java.util.Calendar startDateCal = java.util.Calendar.getInstance();
-    startDateCal.clear();
-    if ( null != jobTrigger.getTimeZone() ) {
-      TimeZone tz = TimeZone.getTimeZone( jobTrigger.getTimeZone() );
-      startDateCal.setTimeZone( tz );
-    }
-    startDateCal.set( jobTrigger.getStartYear() + 1900, jobTrigger.getStartMonth(), jobTrigger.getStartDay() );
-    //startDateCal.set( java.util.Calendar.AM_PM, jobTrigger.getStartAmPm() == 0 ? java.util.Calendar.AM : java.util.Calendar.PM );
-    startDateCal.set( java.util.Calendar.HOUR_OF_DAY, jobTrigger.getStartHour() );
-    startDateCal.set( java.util.Calendar.MINUTE, jobTrigger.getStartMin() );
-    startDateCal.set( java.util.Calendar.SECOND, 0 );
-    return startDateCal;
+  /**
+   * The start date and time picked in the UI, in the trigger's time zone. Out of range fields roll over the way
+   * they did with a lenient {@link java.util.Calendar}, and an ambiguous wall time during a daylight saving overlap
+   * resolves to the later (standard time) instant, as it always has.
+   */
+  static ZonedDateTime getStartDateTimeFromTrigger( IJobTrigger jobTrigger ) {
+    LocalDateTime start = LocalDate.of( jobTrigger.getStartYear() + 1900, 1, 1 )
+      .plusMonths( jobTrigger.getStartMonth() )
+      .plusDays( jobTrigger.getStartDay() - 1L )
+      .atStartOfDay()
+      .plusHours( jobTrigger.getStartHour() )
+      .plusMinutes( jobTrigger.getStartMin() );
+    return start.atZone( ZoneIdRegistry.getZoneId( jobTrigger.getTimeZone() ) ).withLaterOffsetAtOverlap();
   }
 
-  private static java.util.Calendar getEndDateCalFromTrigger( IJobTrigger jobTrigger ) {
-    java.util.Calendar cal = java.util.Calendar.getInstance();
-    cal.clear();
-    if ( null != jobTrigger.getTimeZone() ) {
-      TimeZone tz = TimeZone.getTimeZone( jobTrigger.getTimeZone() );
-      cal.setTimeZone( tz );
-    }
-    cal.set( jobTrigger.getEndTime().getYear() + 1900, jobTrigger.getEndTime().getMonth(),
-      jobTrigger.getEndTime().getDate(), jobTrigger.getEndTime().getHours(), jobTrigger.getEndTime().getMinutes() );
-    return cal;
+  /**
+   * The end time's wall clock fields, read in the server's zone and truncated to the minute, placed in the
+   * trigger's time zone.
+   */
+  static ZonedDateTime getEndDateTimeFromTrigger( IJobTrigger jobTrigger ) {
+    LocalDateTime end = LocalDateTime.ofInstant( jobTrigger.getEndTime().toInstant(), ZoneIdRegistry.getZoneId( null ) )
+      .truncatedTo( ChronoUnit.MINUTES );
+    return end.atZone( ZoneIdRegistry.getZoneId( jobTrigger.getTimeZone() ) ).withLaterOffsetAtOverlap();
   }
 
   /**
@@ -415,7 +583,15 @@ public class QuartzScheduler implements IScheduler {
     QuartzJobKey jobId = new QuartzJobKey( jobName, curUser );
     logger.debug( " QuartzScheduler has received a request to createJob with jobId " + jobId );
 
-    MutableTrigger quartzTrigger = createQuartzTrigger( trigger, jobId );
+    if ( !jobParams.containsKey( RESERVEDMAPKEY_LINEAGE_ID ) ) {
+      String uuid = UUID.randomUUID().toString();
+      jobParams.put( RESERVEDMAPKEY_LINEAGE_ID, uuid );
+    }
+    checkDependencies( jobName, jobParams );
+
+    int offsetMinutes = getLoadLevelingOffset( trigger, jobId, jobId.toString(), null, jobParams );
+    MutableTrigger quartzTrigger = createQuartzTrigger( trigger, jobId, offsetMinutes );
+    setLoadLevelingOffset( jobParams, offsetMinutes );
 
     Calendar triggerCalendar =
       quartzTrigger instanceof CronTrigger ? createQuartzCalendar( (ComplexJobTrigger) trigger ) : null;
@@ -428,11 +604,6 @@ public class QuartzScheduler implements IScheduler {
       jobParams.put( RESERVEDMAPKEY_UIPASSPARAM, trigger.getUiPassParam() );
     }
 
-    if ( !jobParams.containsKey( RESERVEDMAPKEY_LINEAGE_ID ) ) {
-      String uuid = UUID.randomUUID().toString();
-      jobParams.put( RESERVEDMAPKEY_LINEAGE_ID, uuid );
-    }
-
     JobDetail jobDetail = createJobDetails( jobId, jobParams );
 
     try {
@@ -445,14 +616,8 @@ public class QuartzScheduler implements IScheduler {
         MessageFormat.format( "Scheduling job {0} with trigger {1} and job parameters [ {2} ]", jobId.toString(),
           trigger, prettyPrintMap( jobParams ) ) );
 
-      if ( quartzTrigger instanceof CronTrigger ) {
-        Serializable timezone = (Serializable) jobParams.get( "timezone" );
-        if ( timezone != null ) {
-          setTimezone( (CronTrigger) quartzTrigger, timezone.toString() );
-        }
-      }
-
       scheduler.scheduleJob( jobDetail, quartzTrigger );
+      jobIndex.put( jobId.toString(), jobName, jobParams );
 
       logger.debug( MessageFormat.format( "Scheduled job {0} successfully", jobId.toString() ) );
     } catch ( org.quartz.SchedulerException e ) {
@@ -477,8 +642,11 @@ public class QuartzScheduler implements IScheduler {
   public void updateJob( String jobId, Map<String, Object> jobParams, IJobTrigger trigger )
     throws SchedulerException {
     QuartzJobKey jobKey = QuartzJobKey.parse( jobId );
+    checkDependencies( jobKey.getJobName(), jobParams );
 
-    MutableTrigger quartzTrigger = createQuartzTrigger( trigger, jobKey );
+    int offsetMinutes = getLoadLevelingOffset( trigger, jobKey, jobId, jobId, jobParams );
+    MutableTrigger quartzTrigger = createQuartzTrigger( trigger, jobKey, offsetMinutes );
+    setLoadLevelingOffset( jobParams, offsetMinutes );
     quartzTrigger.setJobKey( JobKey.jobKey( jobId, jobKey.getUserName() ) );
 
     Calendar triggerCalendar =
@@ -512,15 +680,9 @@ public class QuartzScheduler implements IScheduler {
         quartzTrigger.setCalendarName( jobId );
       }
 
-      if ( quartzTrigger instanceof CronTrigger ) {
-        Serializable timezone = (Serializable) jobParams.get( "timezone" );
-        if ( timezone != null ) {
-          setTimezone( (CronTrigger) quartzTrigger, timezone.toString() );
-        }
-      }
-
       new TriggerKey( jobId, jobKey.getUserName() );
       scheduler.rescheduleJob( new TriggerKey( jobId, jobKey.getUserName() ), quartzTrigger );
+      jobIndex.put( jobId, jobKey.getJobName(), jobParams );
       logger
         .debug( MessageFormat
           .format(
@@ -552,35 +714,80 @@ public class QuartzScheduler implements IScheduler {
    * {@inheritDoc}
    */
   public void triggerNow( String jobId ) throws SchedulerException {
+    triggerNowWithPolicy( jobId );
+  }
+
+  /**
+   * Runs the job now, unless its {@link #RESERVEDMAPKEY_CONCURRENCY_POLICY} coalesces the run into an execution that
+   * is running or about to, or queues it behind one.
+   *
+   * @return what became of the run
+   */
+  public JobConcurrency.Admission triggerNowWithPolicy( String jobId ) throws SchedulerException {
     try {
       QuartzJobKey jobKey = QuartzJobKey.parse( jobId );
       Scheduler scheduler = getQuartzScheduler();
       String groupName = jobKey.getUserName();
-      for ( Trigger trigger : scheduler.getTriggersOfJob( new JobKey( jobId, groupName ) ) ) {
-        // triggerJob below causes quartz to make a new trigger starting with MT_ internally.  Ignore those.
-        if ( isManualTrigger( trigger ) ) {
-          continue;
+      JobDetail jobDetail = scheduler.getJobDetail( new JobKey( jobId, groupName ) );
+      String policy = JobConcurrency.getPolicy( jobDetail == null ? null
+        : jobDetail.getJobDataMap().get( RESERVEDMAPKEY_CONCURRENCY_POLICY ) );
+      boolean tracked = !JobConcurrency.POLICY_ALLOW.equals( policy );
+      if ( tracked ) {
+        JobConcurrency.Admission admission = JobConcurrency.getInstance().requestRun( jobId, policy );
+        if ( admission != JobConcurrency.Admission.STARTED ) {
+          return admission;
         }
-
-        if ( !previousFireTimeInMisfireWindow( trigger ) ) {
-          AbstractTrigger<?> abstractTrigger = (AbstractTrigger<?>) trigger;
-          // Update trigger with the execution date
-          //   this ensures the Last Run column shows this manual execution
-          abstractTrigger.setPreviousFireTime( new Date() );
-          // Reschedule the original trigger to update the previous fire time
-          //   this does not cause the job to run as long as we are not inside the misfire window
-          scheduler.rescheduleJob( trigger.getKey(), trigger );
+      }
+      boolean triggered = false;
+      try {
+        triggered = triggerNow( scheduler, jobId, groupName, tracked );
+      } finally {
+        if ( tracked && !triggered ) {
+          JobConcurrency.getInstance().cancelRun( jobId );
         }
-
-        // Execute the job
-        scheduler.triggerJob( new JobKey( jobId, groupName ) );
       }
+      return JobConcurrency.Admission.STARTED;
     } catch ( org.quartz.SchedulerException e ) {
       throw new SchedulerException( Messages.getInstance().getString(
         "QuartzScheduler.ERROR_0007_FAILED_TO_GET_JOB", jobId ), e );
     }
   }
 
+  /**
+   * @param once trigger the job a single time even if it has several triggers, as the run was counted once
+   * @return whether the job was triggered
+   */
+  private boolean triggerNow( Scheduler scheduler, String jobId, String groupName, boolean once )
+    throws org.quartz.SchedulerException {
+    boolean triggered = false;
+    for ( Trigger trigger : scheduler.getTriggersOfJob( new JobKey( jobId, groupName ) ) ) {
+      // triggerJob below causes quartz to make a new trigger starting with MT_ internally.  Ignore those.
+      if ( isManualTrigger( trigger ) ) {
+        continue;
+      }
+
+      if ( !previousFireTimeInMisfireWindow( trigger ) ) {
+        AbstractTrigger<?> abstractTrigger = (AbstractTrigger<?>) trigger;
+        // Update trigger with the execution date
+        //   this ensures the Last Run column shows this manual execution
+        abstractTrigger.setPreviousFireTime( new Date() );
+        // Reschedule the original trigger to update the previous fire time
+        //   this does not cause the job to run as long as we are not inside the misfire window
+        scheduler.rescheduleJob( trigger.getKey(), trigger );
+      }
+
+      // Execute the job, as the run JobConcurrency admitted
+      JobDataMap requestedRun = new JobDataMap();
+      requestedRun.put( JobConcurrency.REQUESTED_RUN_KEY, true );
+      scheduler.triggerJob( new JobKey( jobId, groupName ), requestedRun );
+      triggered = true;
+      if ( once ) {
+        break;
+      }
+    }
+    return triggered;
+  }
+
   private boolean previousFireTimeInMisfireWindow( Trigger trigger ) throws org.quartz.SchedulerException {
     Scheduler scheduler = getQuartzScheduler();
     long misfireThresholdMillis = getMisfireThresholdMillis( scheduler );
@@ -601,7 +808,7 @@ public class QuartzScheduler implements IScheduler {
     return currentTime - previousFireTime < misfireThresholdMillis;
   }
 
-  private static long getMisfireThresholdMillis( Scheduler scheduler ) throws org.quartz.SchedulerException {
+  static long getMisfireThresholdMillis( Scheduler scheduler ) throws org.quartz.SchedulerException {
     String misfireThreshold = (String) scheduler.getContext().get( "org.quartz.jobStore.misfireThreshold" );
     return misfireThreshold == null ? 60000 : Long.parseLong( misfireThreshold );
   }
@@ -680,37 +887,86 @@ public class QuartzScheduler implements IScheduler {
   @SuppressWarnings( "unchecked" )
   public List<IJob> getJobs( IJobFilter filter ) throws SchedulerException {
     ArrayList<IJob> jobs = new ArrayList<>();
+    forEachJob( null, filter, jobs::add );
+    return jobs;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * Each job is read from the job store just before it is passed on, so only one is held at a time.
+   */
+  @Override
+  public void forEachJob( String userName, IJobFilter filter, Consumer<IJob> consumer ) throws SchedulerException {
     try {
       Scheduler scheduler = getQuartzScheduler();
+      if ( userName != null ) {
+        addJobsOfGroup( scheduler, userName, filter, consumer );
+        return;
+      }
       for ( String groupName : scheduler.getJobGroupNames() ) {
-        scheduler.getJobKeys( GroupMatcher.jobGroupEquals( groupName ) );
-        for ( JobKey jobKey : scheduler.getJobKeys( GroupMatcher.jobGroupEquals( groupName ) ) ) {
-          String jobId = jobKey.getName();
-          for ( Trigger trigger : scheduler.getTriggersOfJob( jobKey ) ) {
-            if ( isManualTrigger( trigger ) ) {
-              continue;
-            }
-            Job job = new Job();
-            job.setGroupName( groupName );
-            JobDetail jobDetail = scheduler.getJobDetail( jobKey );
-            if ( jobDetail != null ) {
-              job.setUserName( jobDetail.getKey().getGroup() );
-              JobDataMap jobDataMap = jobDetail.getJobDataMap();
-              if ( jobDataMap != null ) {
-                Map<String, Object> wrappedMap = jobDataMap.getWrappedMap();
-                job.setJobParams( wrappedMap );
-              }
-            }
-
-            job.setJobId( jobId );
-            setJobTrigger( scheduler, job, trigger );
-            job.setJobName( QuartzJobKey.parse( jobId ).getJobName() );
-            setJobNextRun( job, trigger );
-            job.setLastRun( trigger.getPreviousFireTime() );
-            if ( ( filter == null ) || filter.accept( job ) ) {
-              jobs.add( job );
-            }
-          }
+        addJobsOfGroup( scheduler, groupName, filter, consumer );
+      }
+    } catch ( org.quartz.SchedulerException e ) {
+      throw new SchedulerException(
+        Messages.getInstance().getString( "QuartzScheduler.ERROR_0004_FAILED_TO_LIST_JOBS" ), e );
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p/>
+   * The Quartz job group is the owner's user name (see {@code createJobDetails}), so only that group is read.
+   */
+  @Override
+  public List<IJob> getJobsByOwner( String userName, IJobFilter filter ) throws SchedulerException {
+    ArrayList<IJob> jobs = new ArrayList<>();
+    if ( userName == null ) {
+      return jobs;
+    }
+    try {
+      addJobsOfGroup( getQuartzScheduler(), userName, filter, jobs::add );
+    } catch ( org.quartz.SchedulerException e ) {
+      throw new SchedulerException(
+        Messages.getInstance().getString( "QuartzScheduler.ERROR_0004_FAILED_TO_LIST_JOBS" ), e );
+    }
+    return jobs;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<IJob> getJobsByName( String jobName ) throws SchedulerException {
+    return getIndexedJobs( () -> jobIndex.getJobIdsByName( jobName ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<IJob> getJobsByLineageId( String lineageId ) throws SchedulerException {
+    return getIndexedJobs( () -> jobIndex.getJobIdsByLineageId( lineageId ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public List<IJob> getJobsByInputFile( String inputFile ) throws SchedulerException {
+    return getIndexedJobs( () -> jobIndex.getJobIdsByInputFile( inputFile ) );
+  }
+
+  private List<IJob> getIndexedJobs( Supplier<List<String>> jobIds ) throws SchedulerException {
+    ArrayList<IJob> jobs = new ArrayList<>();
+    try {
+      Scheduler scheduler = getQuartzScheduler();
+      buildJobIndexIfNecessary( scheduler );
+      for ( String jobId : jobIds.get() ) {
+        JobKey jobKey = new JobKey( jobId, QuartzJobKey.parse( jobId ).getUserName() );
+        if ( !addJobs( scheduler, jobKey, null, jobs::add ) ) {
+          // removed by Quartz itself, e.g. a run-once job that has completed
+          forgetJob( jobId );
         }
       }
     } catch ( org.quartz.SchedulerException e ) {
@@ -720,6 +976,97 @@ public class QuartzScheduler implements IScheduler {
     return jobs;
   }
 
+  /**
+   * Loads the index from the job store the first time it is used. Jobs created while it loads are added by
+   * {@link #createJob} as usual, so nothing is lost. A clustered store is loaded again once the index is older than
+   * {@link #CLUSTERED_JOB_INDEX_REFRESH_MILLIS}, as the other nodes create and remove jobs this one does not see; a
+   * job created on another node is found by the lookups of this one after that long at most.
+   */
+  private void buildJobIndexIfNecessary( Scheduler scheduler ) throws org.quartz.SchedulerException {
+    if ( jobIndex.isBuilt() ) {
+      return;
+    }
+    synchronized ( jobIndex ) {
+      if ( jobIndex.isBuilt() ) {
+        return;
+      }
+      jobIndex.clear();
+      for ( String groupName : scheduler.getJobGroupNames() ) {
+        for ( JobKey jobKey : scheduler.getJobKeys( GroupMatcher.jobGroupEquals( groupName ) ) ) {
+          JobDetail jobDetail = scheduler.getJobDetail( jobKey );
+          if ( jobDetail != null ) {
+            jobIndex.put( jobKey.getName(), QuartzJobKey.parse( jobKey.getName() ).getJobName(),
+              jobDetail.getJobDataMap() );
+          }
+        }
+      }
+      if ( scheduler.getMetaData().isJobStoreClustered() ) {
+        jobIndex.setBuiltFor( CLUSTERED_JOB_INDEX_REFRESH_MILLIS );
+      } else {
+        jobIndex.setBuilt( true );
+      }
+      // the index now holds every job, so the durations of the others can go
+      ExecutionDurations.getInstance().retainAll( jobIndex.getLineageIds() );
+    }
+  }
+
+  /**
+   * Drops a removed job from the index and its concurrency counts, and its execution times once no other job has its
+   * lineage id; an update by the scheduler service creates the new job before it removes the old one.
+   */
+  void forgetJob( String jobId ) {
+    JobConcurrency.getInstance().forget( jobId );
+    String lineageId = jobIndex.getLineageId( jobId );
+    jobIndex.remove( jobId );
+    if ( lineageId != null && jobIndex.getJobIdsByLineageId( lineageId ).isEmpty() ) {
+      ExecutionDurations.getInstance().remove( lineageId );
+    }
+  }
+
+  private void addJobsOfGroup( Scheduler scheduler, String groupName, IJobFilter filter, Consumer<IJob> jobs )
+    throws SchedulerException, org.quartz.SchedulerException {
+    for ( JobKey jobKey : scheduler.getJobKeys( GroupMatcher.jobGroupEquals( groupName ) ) ) {
+      addJobs( scheduler, jobKey, filter, jobs );
+    }
+  }
+
+  /**
+   * Adds one {@link Job} per non-manual trigger of <code>jobKey</code>.
+   *
+   * @return <code>false</code> if the job no longer exists
+   */
+  private boolean addJobs( Scheduler scheduler, JobKey jobKey, IJobFilter filter, Consumer<IJob> jobs )
+    throws SchedulerException, org.quartz.SchedulerException {
+    JobDetail jobDetail = scheduler.getJobDetail( jobKey );
+    if ( jobDetail == null ) {
+      return false;
+    }
+    String jobId = jobKey.getName();
+    for ( Trigger trigger : scheduler.getTriggersOfJob( jobKey ) ) {
+      if ( isManualTrigger( trigger ) ) {
+        continue;
+      }
+      Job job = new Job();
+      job.setGroupName( jobKey.getGroup() );
+      job.setUserName( jobDetail.getKey().getGroup() );
+      JobDataMap jobDataMap = jobDetail.getJobDataMap();
+      if ( jobDataMap != null ) {
+        Map<String, Object> wrappedMap = jobDataMap.getWrappedMap();
+        job.setJobParams( wrappedMap );
+      }
+
+      job.setJobId( jobId );
+      setJobTrigger( scheduler, job, trigger );
+      job.setJobName( QuartzJobKey.parse( jobId ).getJobName() );
+      setJobNextRun( job, trigger );
+      job.setLastRun( trigger.getPreviousFireTime() );
+      if ( ( filter == null ) || filter.accept( job ) ) {
+        jobs.accept( job );
+      }
+    }
+    return true;
+  }
+
   protected void setJobNextRun( Job job, Trigger trigger ) {
     //if getNextFireTime() is in the future, then we use it
     //if it is in the past, we call getFireTimeAfter( new Date() ) to get the correct next date from today on
@@ -762,8 +1109,14 @@ public class QuartzScheduler implements IScheduler {
       CalendarIntervalTrigger calendarIntervalTrigger = (CalendarIntervalTrigger) trigger;
       SimpleJobTrigger simpleJobTrigger = new SimpleJobTrigger();
 
+      // report the start it was scheduled with, not the one load leveling moved it to
+      Date startTime = calendarIntervalTrigger.getStartTime();
+      int offsetMinutes = getLoadLevelingOffset( job.getJobParams() );
+      if ( offsetMinutes > 0 && startTime != null ) {
+        startTime = new Date( startTime.getTime() - TimeUnit.MINUTES.toMillis( offsetMinutes ) );
+      }
       setPentahoTriggerDates( simpleJobTrigger,
-        calendarIntervalTrigger.getStartTime(),
+        startTime,
         calendarIntervalTrigger.getEndTime(),
         calendarIntervalTrigger.getTimeZone() );
 
@@ -795,10 +1148,14 @@ public class QuartzScheduler implements IScheduler {
 
     } else if ( trigger instanceof CronTrigger ) {
       CronTrigger cronTrigger = (CronTrigger) trigger;
-      IComplexJobTrigger complexJobTrigger = createComplexTrigger( cronTrigger.getCronExpression() );
+      // report the expression it was scheduled with, not the one load leveling moved it to
+      String cronString = LoadLeveler.unshiftCronExpression( cronTrigger.getCronExpression(),
+        getLoadLevelingOffset( job.getJobParams() ) );
+      IComplexJobTrigger complexJobTrigger = createComplexTrigger( cronString );
       complexJobTrigger.setUiPassParam( (String) job.getJobParams().get( RESERVEDMAPKEY_UIPASSPARAM ) );
-      complexJobTrigger.setCronString( cronTrigger.getCronExpression() );
-      List<ITimeRecurrence> timeRecurrences = parseRecurrence( complexJobTrigger.getCronString(), 3 );
+      complexJobTrigger.setCronString( cronString );
+      List<ITimeRecurrence> timeRecurrences = CompiledCronExpression.compile( complexJobTrigger.getCronString() )
+        .getRecurrences( CompiledCronExpression.DAY_OF_MONTH );
       if ( !timeRecurrences.isEmpty() ) {
         ITimeRecurrence recurrence = timeRecurrences.get( 0 );
         if ( recurrence instanceof IncrementalRecurrence ) {
@@ -821,7 +1178,7 @@ public class QuartzScheduler implements IScheduler {
             cronTrigger.getTimeZone() );
         }
       }
-      complexJobTrigger.setCronString( ( (CronTrigger) trigger ).getCronExpression() );
+      complexJobTrigger.setCronString( cronString );
       complexJobTrigger.setTimeZone( cronTrigger.getTimeZone().toZoneId().getId() );
     }
 
@@ -854,17 +1211,15 @@ public class QuartzScheduler implements IScheduler {
   }
 
   private void setPentahoTriggerDates( IJobTrigger trigger, Date start, Date end, TimeZone timeZone ) {
-    ZonedDateTime startTime = ZonedDateTime.ofInstant( start.toInstant(), TimeZone.getDefault().toZoneId() );
-    ZonedDateTime clientStartDate = startTime.withZoneSameInstant( timeZone.toZoneId() );
+    ZoneId clientZone = timeZone.toZoneId();
+    ZonedDateTime clientStartDate = ZonedDateTime.ofInstant( start.toInstant(), clientZone );
 
     Date triggerEndDate = end;
     if ( null != triggerEndDate ) {
-      ZonedDateTime endTime = ZonedDateTime.ofInstant( triggerEndDate.toInstant(), TimeZone.getDefault().toZoneId() );
-      ZonedDateTime cliendEndTime = endTime.withZoneSameInstant( timeZone.toZoneId() );
-      triggerEndDate = new Date( cliendEndTime.getYear() - 1900, cliendEndTime.getMonthValue() - 1, cliendEndTime.getDayOfMonth(), cliendEndTime.getHour(), cliendEndTime.getMinute() );
+      triggerEndDate = toServerWallClock( LocalDateTime.ofInstant( triggerEndDate.toInstant(), clientZone ) );
     }
 
-    Date triggerDate = new Date( clientStartDate.getYear() - 1900, clientStartDate.getMonthValue() - 1, clientStartDate.getDayOfMonth(), clientStartDate.getHour(), clientStartDate.getMinute() );
+    Date triggerDate = toServerWallClock( clientStartDate.toLocalDateTime() );
     trigger.setStartTime( triggerDate );
     trigger.setEndTime( triggerEndDate );
 
@@ -876,6 +1231,14 @@ public class QuartzScheduler implements IScheduler {
     //trigger.setStartAmPm( clientStartDate.getHour() >= 12 ? 1: 0 );
   }
 
+  /**
+   * The client's wall clock time to the minute, as a date in the server's zone; the UI shows the fields back as is.
+   */
+  private static Date toServerWallClock( LocalDateTime clientTime ) {
+    return Date.from( clientTime.truncatedTo( ChronoUnit.MINUTES ).atZone( ZoneIdRegistry.getZoneId( null ) )
+      .withLaterOffsetAtOverlap().toInstant() );
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -923,6 +1286,7 @@ public class QuartzScheduler implements IScheduler {
     try {
       Scheduler scheduler = getQuartzScheduler();
       scheduler.deleteJob( new JobKey( jobId, QuartzJobKey.parse( jobId ).getUserName() ) );
+      forgetJob( jobId );
     } catch ( org.quartz.SchedulerException e ) {
       throw new SchedulerException( Messages.getInstance()
         .getString( "QuartzScheduler.ERROR_0005_FAILED_TO_PAUSE_JOBS" ), e );
@@ -940,6 +1304,117 @@ public class QuartzScheduler implements IScheduler {
     }
   }
 
+  /**
+   * Starts the scheduler like {@link #start()}, but spreads the catch-up runs of the triggers that misfired while it
+   * was down over <code>recoveryWindowMillis</code> instead of firing them all at once. See {@link MisfireRecovery}.
+   */
+  public void startWithMisfireRecovery( long recoveryWindowMillis ) throws SchedulerException {
+    try {
+      Scheduler scheduler = getQuartzScheduler();
+      if ( misfireRecovery != null ) {
+        misfireRecovery.finish();
+      }
+      MisfireRecovery recovery =
+        new MisfireRecovery( scheduler, recoveryWindowMillis, getMisfireThresholdMillis( scheduler ) );
+      recovery.prepare();
+      misfireRecovery = recovery;
+      boolean started = false;
+      try {
+        scheduler.start();
+        recovery.start();
+        started = true;
+      } finally {
+        if ( !started ) {
+          // don't leave its trigger listener holding back fires of a scheduler started later
+          recovery.finish();
+          misfireRecovery = null;
+        }
+      }
+    } catch ( org.quartz.SchedulerException e ) {
+      throw new SchedulerException( e );
+    }
+  }
+
+  /**
+   * @return the version of the jobs, which changes whenever a listing of them could, or <code>null</code> if this
+   * server does not see every change to them
+   * @see CatalogVersion
+   */
+  public String getCatalogVersion() {
+    return catalogVersion.get();
+  }
+
+  /**
+   * @return the recent changes to the state of the jobs, for clients that keep a listing of them up to date
+   */
+  public JobEvents getJobEvents() {
+    return jobEvents;
+  }
+
+  /**
+   * @return the misfire recovery of the last {@link #startWithMisfireRecovery(long)}, or <code>null</code>
+   */
+  public MisfireRecovery getMisfireRecovery() {
+    return misfireRecovery;
+  }
+
+  /**
+   * Projects the fire times of the active schedules from now until <code>horizonMillis</code> from now.
+   *
+   * @param contributors the ids of the jobs that may be reported as top contributors
+   * @see FireTimeForecast#forecast
+   */
+  public FireTimeForecast getFireTimeForecast( long horizonMillis, long bucketMillis, long durationMillis, int top,
+                                               Predicate<String> contributors ) throws SchedulerException {
+    try {
+      long now = System.currentTimeMillis();
+      return FireTimeForecast.forecast( getQuartzScheduler(), now, now + horizonMillis, bucketMillis, durationMillis,
+        top, contributors );
+    } catch ( org.quartz.SchedulerException e ) {
+      throw new SchedulerException( Messages.getInstance().getString(
+        "QuartzScheduler.ERROR_0016_FAILED_TO_FORECAST" ), e ); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Writes a snapshot of every job, trigger and calendar to <code>out</code>.
+   *
+   * @see SchedulerSnapshot#write
+   */
+  public SchedulerSnapshot.Summary writeSnapshot( OutputStream out ) throws SchedulerException {
+    try {
+      return SchedulerSnapshot.write( getQuartzScheduler(), out );
+    } catch ( org.quartz.SchedulerException | IOException e ) {
+      throw new SchedulerException( Messages.getInstance().getString(
+        "QuartzScheduler.ERROR_0018_FAILED_TO_WRITE_SNAPSHOT" ), e ); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Restores a snapshot written by {@link #writeSnapshot(OutputStream)}, replacing the jobs with the same keys. The
+   * scheduler is put in standby while it restores, and started again if it was running.
+   *
+   * @see SchedulerSnapshot#restore
+   */
+  public SchedulerSnapshot.Summary restoreSnapshot( InputStream in ) throws SchedulerException {
+    try {
+      Scheduler scheduler = getQuartzScheduler();
+      boolean running = scheduler.isStarted() && !scheduler.isInStandbyMode();
+      scheduler.standby();
+      try {
+        return SchedulerSnapshot.restore( scheduler, in );
+      } finally {
+        jobIndex.clear();
+        if ( running ) {
+          scheduler.start();
+        }
+      }
+    } catch ( org.quartz.SchedulerException | IOException e ) {
+      throw new SchedulerException( Messages.getInstance().getString(
+        "QuartzScheduler.ERROR_0019_FAILED_TO_RESTORE_SNAPSHOT" ), e ); //$NON-NLS-1$
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -990,19 +1465,20 @@ public class QuartzScheduler implements IScheduler {
   }
 
   public IComplexJobTrigger createComplexTrigger( String cronExpression ) {
+    CompiledCronExpression compiled = CompiledCronExpression.compile( cronExpression );
     ComplexJobTrigger complexJobTrigger = new ComplexJobTrigger();
     complexJobTrigger.setHourlyRecurrence( (ITimeRecurrence) null );
     complexJobTrigger.setMinuteRecurrence( (ITimeRecurrence) null );
     complexJobTrigger.setSecondRecurrence( (ITimeRecurrence) null );
 
-    for ( ITimeRecurrence recurrence : parseRecurrence( cronExpression, 6 ) ) {
+    for ( ITimeRecurrence recurrence : compiled.getRecurrences( CompiledCronExpression.YEAR ) ) {
       complexJobTrigger.addYearlyRecurrence( recurrence );
     }
-    for ( ITimeRecurrence recurrence : parseRecurrence( cronExpression, 4 ) ) {
+    for ( ITimeRecurrence recurrence : compiled.getRecurrences( CompiledCronExpression.MONTH ) ) {
       complexJobTrigger.addMonthlyRecurrence( recurrence );
     }
-    List<ITimeRecurrence> dayOfWeekRecurrences = parseDayOfWeekRecurrences( cronExpression );
-    List<ITimeRecurrence> dayOfMonthRecurrences = parseRecurrence( cronExpression, 3 );
+    List<ITimeRecurrence> dayOfWeekRecurrences = compiled.getRecurrences( CompiledCronExpression.DAY_OF_WEEK );
+    List<ITimeRecurrence> dayOfMonthRecurrences = compiled.getRecurrences( CompiledCronExpression.DAY_OF_MONTH );
     if ( !dayOfWeekRecurrences.isEmpty() && dayOfMonthRecurrences.isEmpty() ) {
       for ( ITimeRecurrence recurrence : dayOfWeekRecurrences ) {
         complexJobTrigger.addDayOfWeekRecurrence( recurrence );
@@ -1012,13 +1488,13 @@ public class QuartzScheduler implements IScheduler {
         complexJobTrigger.addDayOfMonthRecurrence( recurrence );
       }
     }
-    for ( ITimeRecurrence recurrence : parseRecurrence( cronExpression, 2 ) ) {
+    for ( ITimeRecurrence recurrence : compiled.getRecurrences( CompiledCronExpression.HOURS ) ) {
       complexJobTrigger.addHourlyRecurrence( recurrence );
     }
-    for ( ITimeRecurrence recurrence : parseRecurrence( cronExpression, 1 ) ) {
+    for ( ITimeRecurrence recurrence : compiled.getRecurrences( CompiledCronExpression.MINUTES ) ) {
       complexJobTrigger.addMinuteRecurrence( recurrence );
     }
-    for ( ITimeRecurrence recurrence : parseRecurrence( cronExpression, 0 ) ) {
+    for ( ITimeRecurrence recurrence : compiled.getRecurrences( CompiledCronExpression.SECONDS ) ) {
       complexJobTrigger.addSecondRecurrence( recurrence );
     }
     return complexJobTrigger;
@@ -1039,134 +1515,6 @@ public class QuartzScheduler implements IScheduler {
     return null;
   }
 
-  private static List<ITimeRecurrence> parseDayOfWeekRecurrences( String cronExpression ) {
-    List<ITimeRecurrence> dayOfWeekRecurrence = new ArrayList<>();
-    String delims = "[ ]+";
-    String[] tokens = cronExpression.split( delims );
-    if ( tokens.length >= 6 ) {
-      String dayOfWeekTokens = tokens[ 5 ];
-      tokens = dayOfWeekTokens.split( "," );
-      if ( ( tokens.length > 1 ) || !( tokens[ 0 ].equals( "*" ) || tokens[ 0 ].equals( "?" ) ) ) {
-        RecurrenceList dayOfWeekList = null;
-        for ( String token : tokens ) {
-          if ( listPattern.matcher( token ).matches() ) {
-            if ( dayOfWeekList == null ) {
-              dayOfWeekList = new RecurrenceList();
-            }
-            dayOfWeekList.getValues().add( Integer.parseInt( token ) );
-          } else {
-            if ( dayOfWeekList != null ) {
-              dayOfWeekRecurrence.add( dayOfWeekList );
-              dayOfWeekList = null;
-            }
-            if ( sequencePattern.matcher( token ).matches() ) {
-              String[] days = token.split( "-" );
-              dayOfWeekRecurrence.add( new SequentialRecurrence( Integer.parseInt( days[ 0 ] ), Integer
-                .parseInt( days[ 1 ] ) ) );
-            } else if ( intervalPattern.matcher( token ).matches() ) {
-              String[] days = token.split( "/" );
-              dayOfWeekRecurrence.add( new IncrementalRecurrence( days[ 0 ], Integer
-                .parseInt( days[ 1 ] ) ) );
-            } else if ( qualifiedDayPattern.matcher( token ).matches() ) {
-              String[] days = token.split( "#" );
-              dayOfWeekRecurrence
-                .add( new QualifiedDayOfWeek( Integer.parseInt( days[ 1 ] ), Integer.parseInt( days[ 0 ] ) ) );
-            } else if ( lastDayPattern.matcher( token ).matches() ) {
-              DayOfWeek dayOfWeek =
-                DayOfWeek.values()[ ( Integer.parseInt( token.substring( 0, token.length() - 1 ) ) - 1 ) % 7 ];
-              dayOfWeekRecurrence.add( new QualifiedDayOfWeek( DayOfWeekQualifier.LAST, dayOfWeek ) );
-            } else if ( dayOfWeekRangePattern.matcher( token ).matches() ) {
-              String[] days = token.split( "-" );
-              int start = DayOfWeek.valueOf( days[ 0 ] ).ordinal();
-              int finish = DayOfWeek.valueOf( days[ 1 ] ).ordinal();
-              dayOfWeekRecurrence.add( new SequentialRecurrence( start, finish ) );
-            } else {
-              dayOfWeekList = new RecurrenceList();
-              dayOfWeekList.getValues().add( DayOfWeek.valueOf( token ).ordinal() );
-              dayOfWeekRecurrence.add( dayOfWeekList );
-              dayOfWeekList = null;
-            }
-          }
-
-        }
-        if ( dayOfWeekList != null ) {
-          dayOfWeekRecurrence.add( dayOfWeekList );
-        }
-      }
-    } else {
-      throw new IllegalArgumentException( Messages.getInstance().getErrorString(
-        "ComplexJobTrigger.ERROR_0001_InvalidCronExpression" ) );
-    }
-    return dayOfWeekRecurrence;
-  }
-
-  private static List<ITimeRecurrence> parseRecurrence( String cronExpression, int tokenIndex ) {
-    List<ITimeRecurrence> timeRecurrence = new ArrayList<>();
-    String delims = "[ ]+";
-    String[] tokens = cronExpression.split( delims );
-    if ( tokens.length > tokenIndex ) {
-      String timeTokens = tokens[ tokenIndex ];
-      tokens = timeTokens.split( "," );
-      if ( ( tokens.length > 1 ) || !( tokens[ 0 ].equals( "*" ) || tokens[ 0 ].equals( "?" ) ) ) {
-        RecurrenceList timeList = null;
-        for ( String token : tokens ) {
-          if ( listPattern.matcher( token ).matches() ) {
-            if ( timeList == null ) {
-              timeList = new RecurrenceList();
-            }
-            timeList.getValues().add( Integer.parseInt( token ) );
-          } else {
-            if ( timeList != null ) {
-              timeRecurrence.add( timeList );
-              timeList = null;
-            }
-            if ( sequencePattern.matcher( token ).matches() ) {
-              String[] days = token.split( "-" );
-              timeRecurrence.add( new SequentialRecurrence( Integer.parseInt( days[ 0 ] ),
-                Integer.parseInt( days[ 1 ] ) ) );
-            } else if ( intervalPattern.matcher( token ).matches() ) {
-              String[] days = token.split( "/" );
-
-              timeRecurrence
-                .add( new IncrementalRecurrence( days[ 0 ], Integer.parseInt( days[ 1 ] ) ) );
-            } else if ( "L".equalsIgnoreCase( token ) ) {
-              timeRecurrence.add( new QualifiedDayOfMonth() );
-            } else {
-              throw new IllegalArgumentException( Messages.getInstance().getErrorString(
-                "ComplexJobTrigger.ERROR_0001_InvalidCronExpression" ) );
-            }
-          }
-
-        }
-        if ( timeList != null ) {
-          timeRecurrence.add( timeList );
-        }
-      }
-    } else {
-      throw new IllegalArgumentException( Messages.getInstance().getErrorString(
-        "ComplexJobTrigger.ERROR_0001_InvalidCronExpression" ) );
-    }
-    return timeRecurrence;
-  }
-
-  /**
-   * Update cronTrigger's timezone based on the info from caller
-   *
-   * @param cronTrigger the cron trigger to update
-   * @param timezone    the timezone to set
-   */
-  void setTimezone( CronTrigger cronTrigger, String timezone ) throws SchedulerException {
-    try {
-      TriggerBuilder triggerBuilder = cronTrigger.getTriggerBuilder();
-      CronExpression cronEx = new CronExpression( cronTrigger.getCronExpression() );
-      cronEx.setTimeZone( TimeZone.getTimeZone( timezone ) );
-      triggerBuilder.withSchedule( CronScheduleBuilder.cronSchedule( cronEx ) );
-    } catch ( ParseException e ) {
-      throw new SchedulerException( Messages.getInstance().getString(
-        "ComplexJobTrigger.ERROR_0001_InvalidCronExpression" ), e );
-    }
-  }
-
   /**
    * {@inheritDoc}
    */
@@ -1190,6 +1538,9 @@ public class QuartzScheduler implements IScheduler {
    */
   public void shutdown() throws SchedulerException {
     try {
+      if ( misfireRecovery != null ) {
+        misfireRecovery.stop();
+      }
       getQuartzScheduler().shutdown( true );
       setQuartzScheduler( null );
     } catch ( org.quartz.SchedulerException e ) {
@@ -1218,6 +1569,51 @@ public class QuartzScheduler implements IScheduler {
     for ( ISchedulerListener listener : listeners ) {
       listener.jobCompleted( actionBean, actionUser, params, streamProvider );
     }
+    releaseDependentJobs( params, true );
+  }
+
+  /**
+   * Tells the jobs depending on the job with <code>params</code> that it failed.
+   */
+  public void fireJobFailed( Map<String, Object> params ) {
+    releaseDependentJobs( params, false );
+  }
+
+  private void releaseDependentJobs( Map<String, Object> params, boolean succeeded ) {
+    Object lineageId = params == null ? null : params.get( RESERVEDMAPKEY_LINEAGE_ID );
+    if ( lineageId == null ) {
+      return;
+    }
+    try {
+      Scheduler scheduler = getQuartzScheduler();
+      buildJobIndexIfNecessary( scheduler );
+      List<String> downstreamJobIds = jobIndex.getDownstreamJobIds( lineageId.toString() );
+      if ( !downstreamJobIds.isEmpty() ) {
+        JobDependencies.upstreamFinished( scheduler, lineageId.toString(), succeeded, downstreamJobIds );
+      }
+    } catch ( org.quartz.SchedulerException e ) {
+      LogFactory.getLog( QuartzScheduler.class ).warn( Messages.getInstance().getString(
+        "QuartzScheduler.WARN_0001_DEPENDENCY_RELEASE_FAILED", lineageId.toString() ), e );
+    }
+  }
+
+  /**
+   * The chain of jobs that held up the latest run of the job with lineage id <code>lineageId</code>, from the first
+   * job of its batch to itself; the end to end latency of the batch is the end of the last step minus the start of
+   * the first.
+   */
+  public List<JobDependencies.Step> getCriticalPath( String lineageId ) throws SchedulerException {
+    if ( ExecutionDurations.getInstance().getLastRun( lineageId ) == null ) {
+      // has not run, so there is no path to follow
+      return new ArrayList<>();
+    }
+    try {
+      buildJobIndexIfNecessary( getQuartzScheduler() );
+    } catch ( org.quartz.SchedulerException e ) {
+      throw new SchedulerException(
+        Messages.getInstance().getString( "QuartzScheduler.ERROR_0004_FAILED_TO_LIST_JOBS" ), e );
+    }
+    return JobDependencies.getCriticalPath( lineageId, jobIndex::getUpstreams, ExecutionDurations.getInstance() );
   }
 
   @Override public ISimpleJobTrigger createSimpleJobTrigger( Date startTime, Date endTime, int repeatCount,
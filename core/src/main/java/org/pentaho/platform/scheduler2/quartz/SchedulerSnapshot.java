@@ -0,0 +1,536 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.quartz.Calendar;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.MutableTrigger;
+
+/**
+ * A point in time copy of the jobs of a Quartz scheduler, for disaster recovery: every job with its triggers, their
+ * next fire times and pause flags, the paused trigger groups and the calendars, in one compressed, checksummed file
+ * that is restored straight into the scheduler instead of rebuilding each schedule through the REST resources.
+ * <p>
+ * The file starts with a magic number, a format version and the time of the snapshot, followed by a gzip stream of
+ * records: calendars and paused trigger groups first, then one record per job (its key, its number of triggers and
+ * its job detail and triggers, serialized like the {@link JournaledRAMJobStore} snapshot), each followed by the
+ * keys of its paused triggers. An end record repeats the counts and is followed by the CRC32 of all the records, so
+ * {@link #verify(InputStream)} can check a file without a scheduler and without loading any job class; run
+ * <code>java org.pentaho.platform.scheduler2.quartz.SchedulerSnapshot &lt;file&gt;...</code> to do it offline.
+ * <p>
+ * The jobs are read one at a time through the scheduler, so a schedule changed while a snapshot is written may be
+ * caught either before or after the change.
+ * <p>
+ * A restore only deserializes the classes a job can hold: the Quartz job details, triggers and calendars, the job
+ * and parameter classes of the scheduler and the plain <code>java.lang</code> and <code>java.util</code> values of
+ * the job data maps. Any other class in a file fails the restore before it is loaded.
+ */
+public class SchedulerSnapshot {
+
+  static final int MAGIC = 0x50534348; // "PSCH"
+
+  static final int VERSION = 1;
+
+  static final int RESTORE_BATCH_SIZE = 1000;
+
+  // far more than any job needs, so a corrupt length fails before the checksum is reached
+  private static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+
+  private static final byte CALENDAR = 1;
+
+  private static final byte PAUSED_GROUP = 2;
+
+  private static final byte JOB = 3;
+
+  private static final byte PAUSED_TRIGGER = 4;
+
+  private static final byte END = 5;
+
+  // the classes a job detail, its triggers and the calendars are made of; anything else is refused
+  private static final ObjectInputFilter RESTORE_FILTER = ObjectInputFilter.Config.createFilter(
+    "maxdepth=64;" //$NON-NLS-1$
+      + "java.lang.String;java.lang.Boolean;java.lang.Character;java.lang.Number;" //$NON-NLS-1$
+      + "java.lang.Byte;java.lang.Short;java.lang.Integer;java.lang.Long;" //$NON-NLS-1$
+      + "java.lang.Float;java.lang.Double;java.lang.Enum;" //$NON-NLS-1$
+      + "java.math.BigInteger;java.math.BigDecimal;java.util.*;" //$NON-NLS-1$
+      + "java.sql.Date;java.sql.Time;java.sql.Timestamp;sun.util.calendar.ZoneInfo;" //$NON-NLS-1$
+      + "org.quartz.*;org.quartz.impl.*;org.quartz.impl.calendar.*;" //$NON-NLS-1$
+      + "org.quartz.impl.triggers.*;org.quartz.utils.*;" //$NON-NLS-1$
+      + "org.pentaho.platform.api.scheduler2.**;org.pentaho.platform.scheduler2.**;" //$NON-NLS-1$
+      + "org.pentaho.platform.web.http.api.resources.*;!*" ); //$NON-NLS-1$
+
+  private static final Log logger = LogFactory.getLog( SchedulerSnapshot.class );
+
+  private SchedulerSnapshot() {
+  }
+
+  /**
+   * The contents of a snapshot file, or what was restored from one.
+   */
+  public static class Summary {
+
+    private final int version;
+
+    private final long createdTime;
+
+    private int jobCount;
+
+    private int triggerCount;
+
+    private int pausedTriggerCount;
+
+    private int pausedGroupCount;
+
+    private int calendarCount;
+
+    Summary( int version, long createdTime ) {
+      this.version = version;
+      this.createdTime = createdTime;
+    }
+
+    public int getVersion() {
+      return version;
+    }
+
+    public long getCreatedTime() {
+      return createdTime;
+    }
+
+    public int getJobCount() {
+      return jobCount;
+    }
+
+    public int getTriggerCount() {
+      return triggerCount;
+    }
+
+    public int getPausedTriggerCount() {
+      return pausedTriggerCount;
+    }
+
+    public int getPausedGroupCount() {
+      return pausedGroupCount;
+    }
+
+    public int getCalendarCount() {
+      return calendarCount;
+    }
+
+    @Override
+    public String toString() {
+      return "version " + version + ", taken " + new Date( createdTime ) + ": " + jobCount + " jobs, " //$NON-NLS-1$
+        + triggerCount + " triggers (" + pausedTriggerCount + " paused), " + pausedGroupCount //$NON-NLS-1$
+        + " paused trigger groups, " + calendarCount + " calendars"; //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Writes a snapshot of every job of <code>scheduler</code> to <code>out</code>, which is left open.
+   */
+  public static Summary write( Scheduler scheduler, OutputStream out ) throws SchedulerException, IOException {
+    Summary summary = new Summary( VERSION, System.currentTimeMillis() );
+    DataOutputStream header = new DataOutputStream( out );
+    header.writeInt( MAGIC );
+    header.writeInt( VERSION );
+    header.writeLong( summary.createdTime );
+    header.flush();
+
+    GZIPOutputStream gzip = new GZIPOutputStream( out, 65536 );
+    CRC32 crc = new CRC32();
+    DataOutputStream records = new DataOutputStream( new BufferedOutputStream( new CheckedOutputStream( gzip, crc ),
+      65536 ) );
+
+    for ( String calendarName : scheduler.getCalendarNames() ) {
+      Calendar calendar = scheduler.getCalendar( calendarName );
+      if ( calendar != null ) {
+        records.writeByte( CALENDAR );
+        records.writeUTF( calendarName );
+        writePayload( records, calendar );
+        summary.calendarCount++;
+      }
+    }
+    for ( String group : scheduler.getPausedTriggerGroups() ) {
+      records.writeByte( PAUSED_GROUP );
+      records.writeUTF( group );
+      summary.pausedGroupCount++;
+    }
+    for ( String group : scheduler.getJobGroupNames() ) {
+      for ( JobKey jobKey : scheduler.getJobKeys( GroupMatcher.jobGroupEquals( group ) ) ) {
+        JobDetail jobDetail = scheduler.getJobDetail( jobKey );
+        if ( jobDetail == null ) {
+          continue; // removed since it was listed
+        }
+        List<? extends Trigger> triggers = scheduler.getTriggersOfJob( jobKey );
+        records.writeByte( JOB );
+        records.writeUTF( jobKey.getGroup() );
+        records.writeUTF( jobKey.getName() );
+        records.writeInt( triggers.size() );
+        writePayload( records, jobDetail, new ArrayList<>( triggers ) );
+        summary.jobCount++;
+        summary.triggerCount += triggers.size();
+
+        for ( Trigger trigger : triggers ) {
+          if ( scheduler.getTriggerState( trigger.getKey() ) == Trigger.TriggerState.PAUSED ) {
+            records.writeByte( PAUSED_TRIGGER );
+            records.writeUTF( trigger.getKey().getGroup() );
+            records.writeUTF( trigger.getKey().getName() );
+            summary.pausedTriggerCount++;
+          }
+        }
+      }
+    }
+    records.writeByte( END );
+    writeCounts( records, summary );
+    records.flush();
+
+    // the checksum of the records follows them, outside of it; finishing the gzip stream leaves out open
+    new DataOutputStream( gzip ).writeLong( crc.getValue() );
+    gzip.finish();
+    out.flush();
+    return summary;
+  }
+
+  /**
+   * Checks that <code>in</code> holds a complete snapshot: its header, the counts of its end record and its checksum.
+   * The jobs are not deserialized, so no scheduler or job class is needed.
+   *
+   * @throws IOException if the file is not a snapshot, or is truncated or corrupt
+   */
+  public static Summary verify( InputStream in ) throws IOException {
+    return read( in, null );
+  }
+
+  /**
+   * Restores a snapshot into <code>scheduler</code>: the calendars, then the jobs with their triggers in batches of
+   * {@link #RESTORE_BATCH_SIZE} through {@link Scheduler#scheduleJobs(Map, boolean)}, which stores each batch in the
+   * job store at once, replacing the jobs and triggers with the same keys. The paused triggers and trigger groups are
+   * paused last, so the scheduler should be in standby while it restores.
+   * <p>
+   * Quartz computes the first fire time of a stored trigger from its start time, so the start time of a trigger
+   * that had already fired is moved to its next fire time (and the repeat count of a simple trigger reduced by the
+   * times it fired) to keep the fire times of the snapshot. Triggers that will not fire again are not restored, nor
+   * are the jobs that are not durable and are left without triggers. The whole file is read and verified before
+   * anything is restored.
+   *
+   * @return what was restored
+   * @throws IOException if the file is not a snapshot, or is truncated or corrupt
+   */
+  public static Summary restore( Scheduler scheduler, InputStream in ) throws SchedulerException, IOException {
+    byte[] snapshot = IOUtils.toByteArray( in );
+    verify( new ByteArrayInputStream( snapshot ) );
+
+    Restorer restorer = new Restorer( scheduler );
+    Summary fileSummary = read( new ByteArrayInputStream( snapshot ), restorer );
+    restorer.finish();
+    Summary restored = new Summary( fileSummary.version, fileSummary.createdTime );
+    restored.jobCount = restorer.jobCount;
+    restored.triggerCount = restorer.triggerCount;
+    restored.pausedTriggerCount = restorer.pausedTriggerCount;
+    restored.pausedGroupCount = fileSummary.pausedGroupCount;
+    restored.calendarCount = fileSummary.calendarCount;
+    if ( restored.jobCount < fileSummary.jobCount || restored.triggerCount < fileSummary.triggerCount ) {
+      logger.info( "Restored " + restored + " of the snapshot's " + fileSummary + "; the rest will not fire again" );
+    }
+    return restored;
+  }
+
+  /**
+   * Verifies the snapshot files given as arguments and prints what each holds.
+   */
+  public static void main( String[] args ) {
+    int failed = 0;
+    for ( String file : args ) {
+      try ( InputStream in = new BufferedInputStream( Files.newInputStream( Paths.get( file ) ) ) ) {
+        System.out.println( file + ": " + verify( in ) ); //$NON-NLS-1$
+      } catch ( IOException e ) {
+        System.out.println( file + ": invalid: " + e.getMessage() ); //$NON-NLS-1$
+        failed++;
+      }
+    }
+    System.exit( failed == 0 ? 0 : 1 );
+  }
+
+  private static Summary read( InputStream in, Restorer restorer ) throws IOException {
+    DataInputStream header = new DataInputStream( in );
+    if ( header.readInt() != MAGIC ) {
+      throw new IOException( "Not a scheduler snapshot" ); //$NON-NLS-1$
+    }
+    int version = header.readInt();
+    if ( version != VERSION ) {
+      throw new IOException( "Unsupported scheduler snapshot version " + version ); //$NON-NLS-1$
+    }
+    Summary summary = new Summary( version, header.readLong() );
+
+    GZIPInputStream gzip = new GZIPInputStream( in, 65536 );
+    CRC32 crc = new CRC32();
+    DataInputStream records = new DataInputStream( new CheckedInputStream( gzip, crc ) );
+    while ( true ) {
+      byte type = records.readByte();
+      switch ( type ) {
+        case CALENDAR:
+          String calendarName = records.readUTF();
+          byte[] calendar = readPayload( records );
+          if ( restorer != null ) {
+            restorer.addCalendar( calendarName, calendar );
+          }
+          summary.calendarCount++;
+          break;
+        case PAUSED_GROUP:
+          String group = records.readUTF();
+          if ( restorer != null ) {
+            restorer.pausedGroups.add( group );
+          }
+          summary.pausedGroupCount++;
+          break;
+        case JOB:
+          records.readUTF();
+          records.readUTF();
+          int triggerCount = records.readInt();
+          byte[] job = readPayload( records );
+          if ( restorer != null ) {
+            restorer.addJob( job );
+          }
+          summary.jobCount++;
+          summary.triggerCount += triggerCount;
+          break;
+        case PAUSED_TRIGGER:
+          TriggerKey triggerKey = new TriggerKey( records.readUTF(), records.readUTF() );
+          if ( restorer != null ) {
+            restorer.pausedTriggers.add( triggerKey );
+          }
+          summary.pausedTriggerCount++;
+          break;
+        case END:
+          if ( records.readInt() != summary.jobCount || records.readInt() != summary.triggerCount
+            || records.readInt() != summary.pausedTriggerCount || records.readInt() != summary.pausedGroupCount
+            || records.readInt() != summary.calendarCount ) {
+            throw new IOException( "The scheduler snapshot does not hold the records it counts" ); //$NON-NLS-1$
+          }
+          if ( new DataInputStream( gzip ).readLong() != crc.getValue() ) {
+            throw new IOException( "The scheduler snapshot is corrupt: its checksum does not match" ); //$NON-NLS-1$
+          }
+          // reading to the end checks the gzip trailer too
+          if ( gzip.read() != -1 ) {
+            throw new IOException( "The scheduler snapshot is corrupt: data after its end record" ); //$NON-NLS-1$
+          }
+          return summary;
+        default:
+          throw new IOException( "The scheduler snapshot is corrupt: unknown record " + type ); //$NON-NLS-1$
+      }
+    }
+  }
+
+  private static void writeCounts( DataOutputStream records, Summary summary ) throws IOException {
+    records.writeInt( summary.jobCount );
+    records.writeInt( summary.triggerCount );
+    records.writeInt( summary.pausedTriggerCount );
+    records.writeInt( summary.pausedGroupCount );
+    records.writeInt( summary.calendarCount );
+  }
+
+  private static void writePayload( DataOutputStream records, Object... objects ) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) ) {
+      for ( Object object : objects ) {
+        out.writeObject( object );
+      }
+    }
+    records.writeInt( bytes.size() );
+    bytes.writeTo( records );
+  }
+
+  private static byte[] readPayload( DataInputStream records ) throws IOException {
+    int length = records.readInt();
+    if ( length < 0 || length > MAX_RECORD_LENGTH ) {
+      throw new IOException( "The scheduler snapshot is corrupt: record length " + length ); //$NON-NLS-1$
+    }
+    byte[] payload = new byte[ length ];
+    records.readFully( payload );
+    return payload;
+  }
+
+  /**
+   * Stores the records of a snapshot as they are read, a batch of jobs at a time.
+   */
+  private static class Restorer {
+
+    private final Scheduler scheduler;
+
+    private final Map<JobDetail, Set<? extends Trigger>> batch = new LinkedHashMap<>();
+
+    private final Set<TriggerKey> restoredTriggers = new HashSet<>();
+
+    private final Set<TriggerKey> pausedTriggers = new HashSet<>();
+
+    private final List<String> pausedGroups = new ArrayList<>();
+
+    private int jobCount;
+
+    private int triggerCount;
+
+    private int pausedTriggerCount;
+
+    Restorer( Scheduler scheduler ) {
+      this.scheduler = scheduler;
+    }
+
+    void addCalendar( String calendarName, byte[] payload ) throws IOException {
+      try ( ObjectInputStream in = new SnapshotObjectInputStream( payload ) ) {
+        scheduler.addCalendar( calendarName, (Calendar) in.readObject(), true, true );
+      } catch ( SchedulerException | ClassNotFoundException e ) {
+        throw new IOException( e );
+      }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    void addJob( byte[] payload ) throws IOException {
+      JobDetail jobDetail;
+      List<Trigger> triggers;
+      try ( ObjectInputStream in = new SnapshotObjectInputStream( payload ) ) {
+        jobDetail = (JobDetail) in.readObject();
+        triggers = (List<Trigger>) in.readObject();
+      } catch ( ClassNotFoundException e ) {
+        throw new IOException( e );
+      }
+
+      Set<Trigger> firing = new HashSet<>();
+      for ( Trigger trigger : triggers ) {
+        if ( keepFireTimes( trigger ) ) {
+          firing.add( trigger );
+        }
+      }
+      if ( firing.isEmpty() && !jobDetail.isDurable() ) {
+        return;
+      }
+      batch.put( jobDetail, firing );
+      if ( batch.size() >= RESTORE_BATCH_SIZE ) {
+        flush();
+      }
+    }
+
+    void finish() throws SchedulerException, IOException {
+      flush();
+      for ( String group : pausedGroups ) {
+        scheduler.pauseTriggers( GroupMatcher.triggerGroupEquals( group ) );
+      }
+      for ( TriggerKey triggerKey : pausedTriggers ) {
+        if ( restoredTriggers.contains( triggerKey ) ) {
+          scheduler.pauseTrigger( triggerKey );
+          pausedTriggerCount++;
+        }
+      }
+    }
+
+    private void flush() throws IOException {
+      if ( batch.isEmpty() ) {
+        return;
+      }
+      try {
+        scheduler.scheduleJobs( batch, true );
+      } catch ( SchedulerException e ) {
+        throw new IOException( e );
+      }
+      for ( Set<? extends Trigger> triggers : batch.values() ) {
+        for ( Trigger trigger : triggers ) {
+          restoredTriggers.add( trigger.getKey() );
+        }
+        triggerCount += triggers.size();
+      }
+      jobCount += batch.size();
+      batch.clear();
+    }
+
+    /**
+     * @return <code>false</code> if the trigger will not fire again
+     */
+    private boolean keepFireTimes( Trigger trigger ) {
+      Date nextFireTime = trigger.getNextFireTime();
+      if ( nextFireTime == null ) {
+        return false;
+      }
+      if ( trigger instanceof MutableTrigger && nextFireTime.after( trigger.getStartTime() ) ) {
+        if ( trigger instanceof SimpleTriggerImpl
+          && ( (SimpleTriggerImpl) trigger ).getRepeatCount() != SimpleTrigger.REPEAT_INDEFINITELY ) {
+          // the fires left, counted from the new start time
+          SimpleTriggerImpl simpleTrigger = (SimpleTriggerImpl) trigger;
+          simpleTrigger.setRepeatCount( Math.max( simpleTrigger.getRepeatCount() - simpleTrigger.getTimesTriggered(),
+            0 ) );
+          simpleTrigger.setTimesTriggered( 0 );
+        }
+        ( (MutableTrigger) trigger ).setStartTime( nextFireTime );
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Resolves the job classes of the snapshot, such as {@link BlockingQuartzJob}, through the class loader of this
+   * plugin when the thread's does not see them, and refuses the classes a job cannot hold.
+   */
+  private static class SnapshotObjectInputStream extends ObjectInputStream {
+
+    SnapshotObjectInputStream( byte[] payload ) throws IOException {
+      super( new ByteArrayInputStream( payload ) );
+      setObjectInputFilter( RESTORE_FILTER );
+    }
+
+    @Override
+    protected Class<?> resolveClass( ObjectStreamClass desc ) throws IOException, ClassNotFoundException {
+      try {
+        return Class.forName( desc.getName(), false, SchedulerSnapshot.class.getClassLoader() );
+      } catch ( ClassNotFoundException e ) {
+        return super.resolveClass( desc );
+      }
+    }
+  }
+}
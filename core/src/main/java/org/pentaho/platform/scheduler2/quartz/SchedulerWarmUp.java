@@ -0,0 +1,221 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.platform.api.scheduler2.IBlockoutManager;
+import org.pentaho.platform.api.scheduler2.SchedulerException;
+import org.pentaho.platform.scheduler2.CronDescriptionService;
+import org.pentaho.platform.scheduler2.messsages.Messages;
+import org.quartz.CronTrigger;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import org.quartz.impl.matchers.GroupMatcher;
+
+/**
+ * Fills the process wide caches the first schedule listing, the first blockout checks and the first forecast would
+ * otherwise fill cold, while the scheduler is paused waiting for the platform to start: the job index of the
+ * {@link QuartzScheduler}, and for every cron trigger its {@link CronEvaluator} (blockout fire times and the forecast),
+ * the {@link CompiledCronExpression} of the expression it is listed with and its {@link CronDescriptionService}
+ * description in the default locale.
+ * <p/>
+ * The work runs on a pool of at most <code>parallelism</code> daemon threads, shut down when it is done. Every step is
+ * best effort; a failure is logged at debug level and never prevents the scheduler from starting.
+ */
+public class SchedulerWarmUp {
+
+  private static final Log logger = LogFactory.getLog( SchedulerWarmUp.class );
+
+  private final QuartzScheduler scheduler;
+
+  private final int parallelism;
+
+  private volatile CompletableFuture<Void> future;
+
+  private volatile long startMillis;
+
+  private volatile long durationMillis = -1;
+
+  private volatile int cronCount;
+
+  public SchedulerWarmUp( QuartzScheduler scheduler, int parallelism ) {
+    this.scheduler = scheduler;
+    this.parallelism = Math.max( 1, parallelism );
+  }
+
+  /**
+   * Starts the warm-up in the background. Calling it again while a warm-up is running has no effect.
+   */
+  public synchronized CompletableFuture<Void> start() {
+    if ( future != null ) {
+      return future;
+    }
+    startMillis = System.currentTimeMillis();
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool( parallelism, runnable -> {
+      Thread thread = new Thread( runnable, "SchedulerWarmUp-" + threadCount.incrementAndGet() ); //$NON-NLS-1$
+      thread.setDaemon( true );
+      return thread;
+    } );
+    CompletableFuture<Void> index = CompletableFuture.runAsync( this::buildJobIndex, pool );
+    CompletableFuture<Void> crons = CompletableFuture.supplyAsync( this::loadCronTriggers, pool )
+      .thenCompose( triggers -> {
+        List<CompletableFuture<Void>> steps = new ArrayList<>();
+        for ( CronTrigger trigger : triggers.evaluated ) {
+          steps.add( CompletableFuture.runAsync( () -> warmEvaluator( trigger ), pool ) );
+        }
+        for ( String cronString : triggers.listed ) {
+          steps.add( CompletableFuture.runAsync( () -> warmListing( cronString ), pool ) );
+        }
+        return CompletableFuture.allOf( steps.toArray( new CompletableFuture[ 0 ] ) );
+      } );
+    future = CompletableFuture.allOf( index, crons ).whenComplete( ( ignored, error ) -> {
+      durationMillis = System.currentTimeMillis() - startMillis;
+      logger.info( Messages.getInstance().getString( "SchedulerWarmUp.INFO_0001_WARM_UP_FINISHED", //$NON-NLS-1$
+        String.valueOf( durationMillis ), String.valueOf( cronCount ) ) );
+      pool.shutdown();
+    } );
+    return future;
+  }
+
+  /**
+   * Waits for the warm-up to finish.
+   *
+   * @return <code>true</code> if it finished (or was never started), <code>false</code> if the timeout elapsed first
+   */
+  public boolean await( long timeoutMillis ) {
+    CompletableFuture<Void> running = future;
+    if ( running == null ) {
+      return true;
+    }
+    try {
+      running.get( timeoutMillis, TimeUnit.MILLISECONDS );
+      return true;
+    } catch ( TimeoutException e ) {
+      logger.warn( Messages.getInstance().getString( "SchedulerWarmUp.WARN_0001_WARM_UP_TIMED_OUT", //$NON-NLS-1$
+        String.valueOf( timeoutMillis ) ) );
+      return false;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch ( ExecutionException e ) {
+      // the steps handle their own failures, but don't hold the scheduler back if one slipped through
+      logger.debug( "Scheduler warm-up failed", e ); //$NON-NLS-1$
+      return true;
+    }
+  }
+
+  public boolean isDone() {
+    CompletableFuture<Void> running = future;
+    return running != null && running.isDone();
+  }
+
+  /**
+   * @return how long the warm-up took, or <code>-1</code> while it is still running
+   */
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  /**
+   * @return how many distinct cron expressions were prepared
+   */
+  public int getCronCount() {
+    return cronCount;
+  }
+
+  void buildJobIndex() {
+    try {
+      // the first lookup builds the name / lineage / input file index
+      scheduler.getJobsByName( IBlockoutManager.BLOCK_OUT_JOB_NAME );
+    } catch ( SchedulerException | RuntimeException e ) {
+      logger.debug( "Scheduler warm-up could not build the job index", e ); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * @return one cron trigger per distinct expression and time zone, and the distinct expressions the jobs are listed
+   * with, i.e. before load leveling moved them
+   */
+  CronTriggers loadCronTriggers() {
+    CronTriggers triggers = new CronTriggers();
+    Map<String, CronTrigger> evaluated = new HashMap<>();
+    try {
+      Scheduler quartzScheduler = scheduler.getQuartzScheduler();
+      for ( String groupName : quartzScheduler.getJobGroupNames() ) {
+        for ( JobKey jobKey : quartzScheduler.getJobKeys( GroupMatcher.jobGroupEquals( groupName ) ) ) {
+          JobDetail jobDetail = quartzScheduler.getJobDetail( jobKey );
+          if ( jobDetail == null ) {
+            continue;
+          }
+          int offset = QuartzScheduler.getLoadLevelingOffset( jobDetail.getJobDataMap() );
+          for ( Trigger trigger : quartzScheduler.getTriggersOfJob( jobKey ) ) {
+            if ( trigger instanceof CronTrigger && ( (CronTrigger) trigger ).getCronExpression() != null ) {
+              CronTrigger cronTrigger = (CronTrigger) trigger;
+              String zoneId = cronTrigger.getTimeZone() == null ? "" : cronTrigger.getTimeZone().getID(); //$NON-NLS-1$
+              evaluated.putIfAbsent( zoneId + '\n' + cronTrigger.getCronExpression(), cronTrigger );
+              triggers.listed.add( LoadLeveler.unshiftCronExpression( cronTrigger.getCronExpression(), offset ) );
+            }
+          }
+        }
+      }
+    } catch ( org.quartz.SchedulerException | RuntimeException e ) {
+      logger.debug( "Scheduler warm-up could not read the cron triggers", e ); //$NON-NLS-1$
+    }
+    triggers.evaluated.addAll( evaluated.values() );
+    cronCount = triggers.listed.size();
+    return triggers;
+  }
+
+  void warmEvaluator( CronTrigger trigger ) {
+    try {
+      CronEvaluator.compile( trigger.getCronExpression(), trigger.getTimeZone() );
+    } catch ( RuntimeException e ) {
+      logger.debug( "Scheduler warm-up could not evaluate " + trigger.getCronExpression(), e ); //$NON-NLS-1$
+    }
+  }
+
+  void warmListing( String cronString ) {
+    try {
+      CompiledCronExpression.compile( cronString );
+      CronDescriptionService.getInstance().describe( cronString );
+    } catch ( RuntimeException e ) {
+      logger.debug( "Scheduler warm-up could not describe " + cronString, e ); //$NON-NLS-1$
+    }
+  }
+
+  static class CronTriggers {
+
+    final List<CronTrigger> evaluated = new ArrayList<>();
+
+    final Set<String> listed = new HashSet<>();
+  }
+}
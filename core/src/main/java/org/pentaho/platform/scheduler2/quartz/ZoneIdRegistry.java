@@ -0,0 +1,71 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import java.time.ZoneId;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves the time zone ids stored on job triggers once. Ids are resolved the way
+ * {@link TimeZone#getTimeZone(String)} does, so an unknown id still means GMT rather than an error.
+ */
+final class ZoneIdRegistry {
+
+  private static final int MAX_CACHED_ZONES = 1024;
+
+  private static final ConcurrentMap<String, Zone> zones = new ConcurrentHashMap<>();
+
+  private static final class Zone {
+    final TimeZone timeZone;
+    final ZoneId zoneId;
+
+    Zone( TimeZone timeZone ) {
+      this.timeZone = timeZone;
+      this.zoneId = timeZone.toZoneId();
+    }
+  }
+
+  private ZoneIdRegistry() {
+  }
+
+  /**
+   * @return the zone for <code>id</code>, or the JVM default zone when <code>id</code> is <code>null</code>
+   */
+  static ZoneId getZoneId( String id ) {
+    return id == null ? TimeZone.getDefault().toZoneId() : resolve( id ).zoneId;
+  }
+
+  /**
+   * @return a private copy of the zone for <code>id</code> (time zones are mutable), or <code>null</code> when
+   * <code>id</code> is <code>null</code>
+   */
+  static TimeZone getTimeZone( String id ) {
+    return id == null ? null : (TimeZone) resolve( id ).timeZone.clone();
+  }
+
+  private static Zone resolve( String id ) {
+    Zone zone = zones.get( id );
+    if ( zone == null ) {
+      zone = new Zone( TimeZone.getTimeZone( id ) );
+      if ( zones.size() >= MAX_CACHED_ZONES ) {
+        // ids come from requests; only a handful are real, so this just guards against junk
+        zones.clear();
+      }
+      zones.putIfAbsent( id, zone );
+    }
+    return zone;
+  }
+}
@@ -18,10 +18,10 @@ import org.apache.commons.logging.LogFactory;
 import org.pentaho.platform.api.engine.IPluginLifecycleListener;
 import org.pentaho.platform.api.engine.PluginLifecycleException;
 import org.pentaho.platform.api.scheduler2.IJob;
-import org.pentaho.platform.api.scheduler2.IJobFilter;
 import org.pentaho.platform.api.scheduler2.IScheduler;
 import org.pentaho.platform.api.scheduler2.SchedulerException;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.scheduler2.SchedulerJobLookupUtil;
 
 import java.util.List;
 
@@ -61,14 +61,9 @@ public class EmbeddedVersionCheckSystemListener implements IPluginLifecycleListe
 
   protected void deleteJobIfNecessary() throws SchedulerException {
     IScheduler scheduler = PentahoSystem.get( IScheduler.class, "IScheduler2", null ); //$NON-NLS-1$
-    IJobFilter filter = new IJobFilter() {
-      public boolean accept( IJob job ) {
-        return job.getJobName().contains( EmbeddedVersionCheckSystemListener.VERSION_CHECK_JOBNAME );
-      }
-    };
-
     // Like old code - remove the existing job
-    List<IJob> matchingJobs = scheduler.getJobs( filter );
+    List<IJob> matchingJobs =
+      SchedulerJobLookupUtil.getJobsByName( scheduler, EmbeddedVersionCheckSystemListener.VERSION_CHECK_JOBNAME );
     if ( ( matchingJobs != null ) && ( matchingJobs.size() > 0 ) ) {
       for ( IJob verCkJob : matchingJobs ) {
         scheduler.removeJob( verCkJob.getJobId() );
@@ -28,6 +28,7 @@ import org.pentaho.platform.api.scheduler2.SchedulerException;
 import org.pentaho.platform.api.scheduler2.SimpleJobTrigger;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.scheduler2.ISchedulerJobLookup;
 import org.pentaho.platform.security.policy.rolebased.actions.SchedulerAction;
 import org.pentaho.platform.security.policy.rolebased.actions.SchedulerExecuteAction;
 
@@ -111,7 +112,12 @@ public class DefaultSchedulerService implements ISchedulerService {
     boolean canAdminister = getAuthorizationPolicy().isAllowed( ADMIN_PERM );
     boolean canExecuteScheduler = getAuthorizationPolicy().isAllowed( SchedulerExecuteAction.NAME );
 
-    return getScheduler2().getJobs( job -> {
+    IScheduler scheduler = getScheduler2();
+    if ( !canAdminister && !canExecuteScheduler && scheduler instanceof ISchedulerJobLookup ) {
+      return ( (ISchedulerJobLookup) scheduler ).getJobsByOwner( principalName, null ).toArray( new Job[ 0 ] );
+    }
+
+    return scheduler.getJobs( job -> {
       if ( canAdminister || canExecuteScheduler ) {
         return !IBlockoutManager.BLOCK_OUT_JOB_NAME.equals( job.getJobName() );
       }
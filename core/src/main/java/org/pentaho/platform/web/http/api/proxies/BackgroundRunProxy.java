@@ -0,0 +1,61 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.proxies;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * What the run in background command needs to know about a file before it opens its dialogs. The other fields are
+ * empty when the user may not schedule the file; <code>parameterizable</code> is also empty for action sequences,
+ * whose parameters only their parameter UI can tell.
+ */
+@XmlRootElement
+public class BackgroundRunProxy {
+  boolean scheduleAllowed;
+  Boolean parameterizable;
+  boolean emailConfigValid;
+  String defaultOutputLocation;
+
+  public boolean isScheduleAllowed() {
+    return scheduleAllowed;
+  }
+
+  public void setScheduleAllowed( boolean scheduleAllowed ) {
+    this.scheduleAllowed = scheduleAllowed;
+  }
+
+  public Boolean getParameterizable() {
+    return parameterizable;
+  }
+
+  public void setParameterizable( Boolean parameterizable ) {
+    this.parameterizable = parameterizable;
+  }
+
+  public boolean isEmailConfigValid() {
+    return emailConfigValid;
+  }
+
+  public void setEmailConfigValid( boolean emailConfigValid ) {
+    this.emailConfigValid = emailConfigValid;
+  }
+
+  public String getDefaultOutputLocation() {
+    return defaultOutputLocation;
+  }
+
+  public void setDefaultOutputLocation( String defaultOutputLocation ) {
+    this.defaultOutputLocation = defaultOutputLocation;
+  }
+}
@@ -0,0 +1,43 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.proxies;
+
+import java.util.ArrayList;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The chain of jobs that held up the latest run of a job with dependencies, and the end to end latency of its batch.
+ */
+@XmlRootElement
+public class CriticalPathProxy {
+  ArrayList<CriticalPathStepProxy> steps = new ArrayList<>();
+  long latencyMillis;
+
+  public ArrayList<CriticalPathStepProxy> getSteps() {
+    return steps;
+  }
+
+  public void setSteps( ArrayList<CriticalPathStepProxy> steps ) {
+    this.steps = steps;
+  }
+
+  public long getLatencyMillis() {
+    return latencyMillis;
+  }
+
+  public void setLatencyMillis( long latencyMillis ) {
+    this.latencyMillis = latencyMillis;
+  }
+}
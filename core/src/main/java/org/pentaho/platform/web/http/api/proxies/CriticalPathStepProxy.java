@@ -0,0 +1,59 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.proxies;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * A job on a critical path with its latest execution.
+ */
+@XmlRootElement
+public class CriticalPathStepProxy {
+  String lineageId;
+  String jobName;
+  long startTime;
+  long endTime;
+
+  public String getLineageId() {
+    return lineageId;
+  }
+
+  public void setLineageId( String lineageId ) {
+    this.lineageId = lineageId;
+  }
+
+  public String getJobName() {
+    return jobName;
+  }
+
+  public void setJobName( String jobName ) {
+    this.jobName = jobName;
+  }
+
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public void setStartTime( long startTime ) {
+    this.startTime = startTime;
+  }
+
+  public long getEndTime() {
+    return endTime;
+  }
+
+  public void setEndTime( long endTime ) {
+    this.endTime = endTime;
+  }
+}
@@ -0,0 +1,134 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.proxies;
+
+import java.util.ArrayList;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Fire-time forecast of the active schedules: executions starting per bucket, peak concurrency against the scheduler
+ * thread count and the jobs contributing most.
+ */
+@XmlRootElement
+public class FireTimeForecastProxy {
+  long startTime;
+  long endTime;
+  long bucketMillis;
+  long durationMillis;
+  ArrayList<Integer> buckets = new ArrayList<>();
+  int bucketsOverCapacity;
+  int threadCount;
+  int triggerCount;
+  long executionCount;
+  int peakConcurrency;
+  long peakTime = -1;
+  ArrayList<ForecastContributorProxy> topContributors = new ArrayList<>();
+
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public void setStartTime( long startTime ) {
+    this.startTime = startTime;
+  }
+
+  public long getEndTime() {
+    return endTime;
+  }
+
+  public void setEndTime( long endTime ) {
+    this.endTime = endTime;
+  }
+
+  public long getBucketMillis() {
+    return bucketMillis;
+  }
+
+  public void setBucketMillis( long bucketMillis ) {
+    this.bucketMillis = bucketMillis;
+  }
+
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  public void setDurationMillis( long durationMillis ) {
+    this.durationMillis = durationMillis;
+  }
+
+  public ArrayList<Integer> getBuckets() {
+    return buckets;
+  }
+
+  public void setBuckets( ArrayList<Integer> buckets ) {
+    this.buckets = buckets;
+  }
+
+  public int getBucketsOverCapacity() {
+    return bucketsOverCapacity;
+  }
+
+  public void setBucketsOverCapacity( int bucketsOverCapacity ) {
+    this.bucketsOverCapacity = bucketsOverCapacity;
+  }
+
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  public void setThreadCount( int threadCount ) {
+    this.threadCount = threadCount;
+  }
+
+  public int getTriggerCount() {
+    return triggerCount;
+  }
+
+  public void setTriggerCount( int triggerCount ) {
+    this.triggerCount = triggerCount;
+  }
+
+  public long getExecutionCount() {
+    return executionCount;
+  }
+
+  public void setExecutionCount( long executionCount ) {
+    this.executionCount = executionCount;
+  }
+
+  public int getPeakConcurrency() {
+    return peakConcurrency;
+  }
+
+  public void setPeakConcurrency( int peakConcurrency ) {
+    this.peakConcurrency = peakConcurrency;
+  }
+
+  public long getPeakTime() {
+    return peakTime;
+  }
+
+  public void setPeakTime( long peakTime ) {
+    this.peakTime = peakTime;
+  }
+
+  public ArrayList<ForecastContributorProxy> getTopContributors() {
+    return topContributors;
+  }
+
+  public void setTopContributors( ArrayList<ForecastContributorProxy> topContributors ) {
+    this.topContributors = topContributors;
+  }
+}
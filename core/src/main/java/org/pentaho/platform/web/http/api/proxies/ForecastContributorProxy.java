@@ -0,0 +1,59 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.proxies;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * A job's number of executions in a fire-time forecast.
+ */
+@XmlRootElement
+public class ForecastContributorProxy {
+  String jobId;
+  String jobName;
+  String userName;
+  int count;
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  public void setJobId( String jobId ) {
+    this.jobId = jobId;
+  }
+
+  public String getJobName() {
+    return jobName;
+  }
+
+  public void setJobName( String jobName ) {
+    this.jobName = jobName;
+  }
+
+  public String getUserName() {
+    return userName;
+  }
+
+  public void setUserName( String userName ) {
+    this.userName = userName;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public void setCount( int count ) {
+    this.count = count;
+  }
+}
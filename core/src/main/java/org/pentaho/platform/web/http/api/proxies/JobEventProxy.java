@@ -0,0 +1,80 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.proxies;
+
+import java.util.Date;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * A change to the state of a job: <code>CREATED</code>, <code>REMOVED</code>, <code>STARTED</code>,
+ * <code>FINISHED</code>, <code>FAILED</code>, <code>PAUSED</code>, <code>RESUMED</code> or <code>NEXT_RUN</code>.
+ */
+@XmlRootElement
+public class JobEventProxy {
+  String type;
+  String jobId;
+  String jobName;
+  String userName;
+  Date nextRun;
+  Date lastRun;
+
+  public String getType() {
+    return type;
+  }
+
+  public void setType( String type ) {
+    this.type = type;
+  }
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  public void setJobId( String jobId ) {
+    this.jobId = jobId;
+  }
+
+  public String getJobName() {
+    return jobName;
+  }
+
+  public void setJobName( String jobName ) {
+    this.jobName = jobName;
+  }
+
+  public String getUserName() {
+    return userName;
+  }
+
+  public void setUserName( String userName ) {
+    this.userName = userName;
+  }
+
+  public Date getNextRun() {
+    return nextRun;
+  }
+
+  public void setNextRun( Date nextRun ) {
+    this.nextRun = nextRun;
+  }
+
+  public Date getLastRun() {
+    return lastRun;
+  }
+
+  public void setLastRun( Date lastRun ) {
+    this.lastRun = lastRun;
+  }
+}
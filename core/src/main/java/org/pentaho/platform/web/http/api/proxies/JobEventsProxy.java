@@ -0,0 +1,64 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.proxies;
+
+import java.util.ArrayList;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The changes to the state of the jobs a user sees since a cursor. The cursor is <code>null</code> when the server
+ * cannot tell the changes, <code>reset</code> is set when the listing has to be read again, and <code>refused</code>
+ * when the server answered without waiting for changes, as too many clients already wait; the client should wait a
+ * while before asking again.
+ */
+@XmlRootElement
+public class JobEventsProxy {
+  String cursor;
+  boolean reset;
+  boolean refused;
+  ArrayList<JobEventProxy> events = new ArrayList<>();
+
+  public String getCursor() {
+    return cursor;
+  }
+
+  public void setCursor( String cursor ) {
+    this.cursor = cursor;
+  }
+
+  public boolean isReset() {
+    return reset;
+  }
+
+  public void setReset( boolean reset ) {
+    this.reset = reset;
+  }
+
+  public boolean isRefused() {
+    return refused;
+  }
+
+  public void setRefused( boolean refused ) {
+    this.refused = refused;
+  }
+
+  public ArrayList<JobEventProxy> getEvents() {
+    return events;
+  }
+
+  public void setEvents( ArrayList<JobEventProxy> events ) {
+    this.events = events;
+  }
+}
@@ -0,0 +1,86 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.proxies;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Progress of the misfire catch-up that runs after the scheduler starts.
+ */
+@XmlRootElement
+public class MisfireRecoveryStatusProxy {
+  boolean active;
+  long startTime = -1;
+  long windowMillis;
+  int misfired;
+  int released;
+  int superseded;
+  int pending;
+
+  public boolean isActive() {
+    return active;
+  }
+
+  public void setActive( boolean active ) {
+    this.active = active;
+  }
+
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public void setStartTime( long startTime ) {
+    this.startTime = startTime;
+  }
+
+  public long getWindowMillis() {
+    return windowMillis;
+  }
+
+  public void setWindowMillis( long windowMillis ) {
+    this.windowMillis = windowMillis;
+  }
+
+  public int getMisfired() {
+    return misfired;
+  }
+
+  public void setMisfired( int misfired ) {
+    this.misfired = misfired;
+  }
+
+  public int getReleased() {
+    return released;
+  }
+
+  public void setReleased( int released ) {
+    this.released = released;
+  }
+
+  public int getSuperseded() {
+    return superseded;
+  }
+
+  public void setSuperseded( int superseded ) {
+    this.superseded = superseded;
+  }
+
+  public int getPending() {
+    return pending;
+  }
+
+  public void setPending( int pending ) {
+    this.pending = pending;
+  }
+}
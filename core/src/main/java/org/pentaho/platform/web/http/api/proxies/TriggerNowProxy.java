@@ -0,0 +1,43 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.proxies;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The state of a job after a request to run it now, and what became of the run: <code>STARTED</code>,
+ * <code>QUEUED</code> behind a running execution or <code>COALESCED</code> into it. The outcome is empty when the user
+ * may not run the job.
+ */
+@XmlRootElement
+public class TriggerNowProxy {
+  String jobState;
+  String outcome;
+
+  public String getJobState() {
+    return jobState;
+  }
+
+  public void setJobState( String jobState ) {
+    this.jobState = jobState;
+  }
+
+  public String getOutcome() {
+    return outcome;
+  }
+
+  public void setOutcome( String outcome ) {
+    this.outcome = outcome;
+  }
+}
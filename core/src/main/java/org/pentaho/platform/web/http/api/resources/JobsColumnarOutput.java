@@ -0,0 +1,377 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.jersey.api.json.JSONJAXBContext;
+import com.sun.jersey.api.json.JSONMarshaller;
+import org.pentaho.platform.api.scheduler2.CronJobTrigger;
+import org.pentaho.platform.api.scheduler2.Job;
+import org.pentaho.platform.api.scheduler2.JobParamsAdapter;
+import org.pentaho.platform.api.scheduler2.JobTrigger;
+import org.pentaho.platform.api.scheduler2.SchedulerException;
+import org.pentaho.platform.api.scheduler2.SimpleJobTrigger;
+import org.pentaho.platform.web.http.api.resources.services.ISchedulerServicePlugin;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the job listing in columns: one array per field, with a value per job, instead of an object per job. The
+ * values are those of the JSON listing (see {@link JobsJsonOutput}), so the repeated field names are gone but
+ * nothing else changes, except that the values that repeat across jobs are dictionary encoded: the owners, groups and
+ * states, the trigger types, the schedule types (the <code>uiPassParam</code> of the triggers) and the parameter
+ * names. An encoded value is the index of the actual value in the dictionary of its column.
+ * <p/>
+ * The fields of simple and cron triggers are columns of their own, named <code>jobTrigger.</code> and the field.
+ * Complex triggers, whose recurrences are nested, are written whole to the <code>jobTrigger</code> column instead.
+ * <pre>
+ *   {
+ *     "count": 2,
+ *     "dictionaries": { "userName": [ "admin", "suzy" ], "state": [ "NORMAL" ], "scheduleType": [ "DAILY" ],
+ *       "triggerType": [ "simpleJobTrigger" ], "paramName": [ "ActionAdapterQuartzJob-StreamProvider", "lineage-id" ],
+ *       ... },
+ *     "columns": {
+ *       "jobId": [ "admin\tReport\t1", "suzy\tReport\t2" ], "userName": [ 0, 1 ], "state": [ 0, 0 ],
+ *       "triggerType": [ 0, 0 ], "scheduleType": [ 0, 0 ], "jobTrigger": [ null, null ],
+ *       "jobTrigger.repeatInterval": [ "86400", "86400" ], ...,
+ *       "jobParams": [ [ 0, "input file = ...", 1, "5b1c..." ], [ ... ] ], ...
+ *     }
+ *   }
+ * </pre>
+ * A job without a value in a column has <code>null</code> there. The values are read straight from the jobs into a
+ * buffer per column, as the columns can only be written once every job has been read.
+ */
+public class JobsColumnarOutput implements StreamingOutput {
+
+  /**
+   * The media type that selects this format.
+   */
+  public static final String MEDIA_TYPE = "application/vnd.pentaho.jobs.columnar+json"; //$NON-NLS-1$
+
+  /**
+   * The value of the <code>format</code> query parameter that selects this format.
+   */
+  public static final String FORMAT = "columnar"; //$NON-NLS-1$
+
+  static final String COUNT = "count"; //$NON-NLS-1$
+
+  static final String DICTIONARIES = "dictionaries"; //$NON-NLS-1$
+
+  static final String COLUMNS = "columns"; //$NON-NLS-1$
+
+  static final String SCHEDULE_TYPE = "scheduleType"; //$NON-NLS-1$
+
+  static final String TRIGGER_TYPE = "triggerType"; //$NON-NLS-1$
+
+  static final String PARAM_NAME = "paramName"; //$NON-NLS-1$
+
+  static final String JOB_TRIGGER = "jobTrigger"; //$NON-NLS-1$
+
+  static final String TRIGGER_PREFIX = JOB_TRIGGER + '.';
+
+  private static final String JOB_PARAMS = "jobParams"; //$NON-NLS-1$
+
+  private static final String JOB_ID = "jobId"; //$NON-NLS-1$
+
+  private static final String JOB_NAME = "jobName"; //$NON-NLS-1$
+
+  private static final String USER_NAME = "userName"; //$NON-NLS-1$
+
+  private static final String GROUP_NAME = "groupName"; //$NON-NLS-1$
+
+  private static final String STATE = "state"; //$NON-NLS-1$
+
+  private static final String NEXT_RUN = "nextRun"; //$NON-NLS-1$
+
+  private static final String LAST_RUN = "lastRun"; //$NON-NLS-1$
+
+  /**
+   * The fields of simple and cron triggers, as named in the JSON listing.
+   */
+  private static final List<String> TRIGGER_FIELDS = Arrays.asList(
+    "startTime", //$NON-NLS-1$
+    "endTime", //$NON-NLS-1$
+    "duration", //$NON-NLS-1$
+    "cronString", //$NON-NLS-1$
+    "cronDescription", //$NON-NLS-1$
+    "timeZone", //$NON-NLS-1$
+    "startHour", //$NON-NLS-1$
+    "startMin", //$NON-NLS-1$
+    "startYear", //$NON-NLS-1$
+    "startMonth", //$NON-NLS-1$
+    "startDay", //$NON-NLS-1$
+    "startAmPm", //$NON-NLS-1$
+    "repeatCount", //$NON-NLS-1$
+    "repeatInterval" ); //$NON-NLS-1$
+
+  private static final List<String> DICTIONARY_COLUMNS = Arrays.asList(
+    USER_NAME, GROUP_NAME, STATE, TRIGGER_TYPE, SCHEDULE_TYPE );
+
+  private final ISchedulerServicePlugin schedulerService;
+
+  private final JAXBContext context;
+
+  public JobsColumnarOutput( ISchedulerServicePlugin schedulerService, JAXBContext context ) {
+    this.schedulerService = schedulerService;
+    this.context = context;
+  }
+
+  public void write( OutputStream output ) throws IOException, WebApplicationException {
+    final JSONMarshaller marshaller;
+    try {
+      marshaller = JSONJAXBContext.getJSONMarshaller( context.createMarshaller(), context );
+    } catch ( JAXBException e ) {
+      throw new WebApplicationException( e );
+    }
+    // the response is closed by the container
+    final JsonFactory factory = new JsonFactory().configure( JsonGenerator.Feature.AUTO_CLOSE_TARGET, false );
+    final Columns columns = new Columns( factory, marshaller );
+    try {
+      schedulerService.forEachJob( job -> columns.add( (Job) job ) );
+    } catch ( IllegalAccessException e ) {
+      // the access check comes before the first job, and nothing is written before the last
+      throw new WebApplicationException( e, Status.FORBIDDEN );
+    } catch ( SchedulerException e ) {
+      throw new WebApplicationException( e );
+    } catch ( UncheckedIOException e ) {
+      throw e.getCause();
+    }
+    try ( JsonGenerator json = factory.createGenerator( output ) ) {
+      columns.write( json );
+    }
+  }
+
+  /**
+   * The columns of the jobs read so far.
+   */
+  static class Columns {
+    private final JSONMarshaller marshaller;
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    private final Map<String, Map<String, Integer>> dictionaries = new LinkedHashMap<>();
+    private int count;
+
+    Columns( JsonFactory factory, JSONMarshaller marshaller ) throws IOException {
+      this.marshaller = marshaller;
+      for ( String name : Arrays.asList( JOB_ID, JOB_NAME, USER_NAME, GROUP_NAME, STATE, NEXT_RUN, LAST_RUN,
+        TRIGGER_TYPE, SCHEDULE_TYPE, JOB_TRIGGER ) ) {
+        columns.put( name, new Column( factory ) );
+      }
+      for ( String field : TRIGGER_FIELDS ) {
+        columns.put( TRIGGER_PREFIX + field, new Column( factory ) );
+      }
+      columns.put( JOB_PARAMS, new Column( factory ) );
+      for ( String name : DICTIONARY_COLUMNS ) {
+        dictionaries.put( name, new LinkedHashMap<>() );
+      }
+      dictionaries.put( PARAM_NAME, new LinkedHashMap<>() );
+    }
+
+    void add( Job job ) {
+      try {
+        set( JOB_ID, job.getJobId() );
+        set( JOB_NAME, job.getJobName() );
+        set( USER_NAME, job.getUserName() );
+        set( GROUP_NAME, job.getGroupName() );
+        set( STATE, job.getState() == null ? null : job.getState().name() );
+        set( NEXT_RUN, toDateTime( job.getNextRun() ) );
+        set( LAST_RUN, toDateTime( job.getLastRun() ) );
+        addTrigger( job.getJobTrigger() );
+        addParams( job.getJobParams() );
+        count++;
+      } catch ( IOException e ) {
+        throw new UncheckedIOException( e );
+      }
+    }
+
+    void write( JsonGenerator json ) throws IOException {
+      json.writeStartObject();
+      json.writeNumberField( COUNT, count );
+      json.writeObjectFieldStart( DICTIONARIES );
+      for ( Map.Entry<String, Map<String, Integer>> dictionary : dictionaries.entrySet() ) {
+        json.writeArrayFieldStart( dictionary.getKey() );
+        // in index order, which is the insertion order
+        for ( String value : dictionary.getValue().keySet() ) {
+          json.writeString( value );
+        }
+        json.writeEndArray();
+      }
+      json.writeEndObject();
+      json.writeObjectFieldStart( COLUMNS );
+      for ( Map.Entry<String, Column> column : columns.entrySet() ) {
+        json.writeFieldName( column.getKey() );
+        json.writeRawValue( column.getValue().close() );
+      }
+      json.writeEndObject();
+      json.writeEndObject();
+    }
+
+    private void addTrigger( JobTrigger trigger ) throws IOException {
+      String type = null;
+      if ( trigger instanceof SimpleJobTrigger ) {
+        type = "simpleJobTrigger"; //$NON-NLS-1$
+      } else if ( trigger instanceof CronJobTrigger ) {
+        type = "cronJobTrigger"; //$NON-NLS-1$
+      } else if ( trigger != null ) {
+        // the root element name, as the type is not written for a trigger on its own
+        type = Character.toLowerCase( trigger.getClass().getSimpleName().charAt( 0 ) )
+          + trigger.getClass().getSimpleName().substring( 1 );
+      }
+      set( TRIGGER_TYPE, type );
+      set( SCHEDULE_TYPE, trigger == null ? null : trigger.getUiPassParam() );
+
+      JobTrigger flat = trigger instanceof SimpleJobTrigger || trigger instanceof CronJobTrigger ? trigger : null;
+      if ( flat == null && trigger != null ) {
+        StringWriter json = new StringWriter();
+        try {
+          marshaller.marshallToJSON( trigger, json );
+        } catch ( JAXBException e ) {
+          throw new WebApplicationException( e );
+        }
+        columns.get( JOB_TRIGGER ).values.writeRawValue( json.toString() );
+      } else {
+        columns.get( JOB_TRIGGER ).values.writeNull();
+      }
+      for ( String field : TRIGGER_FIELDS ) {
+        set( TRIGGER_PREFIX + field, flat == null ? null : getTriggerField( flat, field ) );
+      }
+    }
+
+    private void addParams( Map<String, Object> params ) throws IOException {
+      JsonGenerator values = columns.get( JOB_PARAMS ).values;
+      if ( params == null ) {
+        values.writeNull();
+        return;
+      }
+      // the parameters as one array of alternate names and values, as the JSON listing's adapter lists them
+      values.writeStartArray();
+      JobParamsAdapter.forEachParam( params, ( name, value ) -> {
+        try {
+          values.writeNumber( encode( PARAM_NAME, name ) );
+          values.writeString( value );
+        } catch ( IOException e ) {
+          throw new UncheckedIOException( e );
+        }
+      } );
+      values.writeEndArray();
+    }
+
+    private void set( String column, String value ) throws IOException {
+      JsonGenerator values = columns.get( column ).values;
+      if ( value == null ) {
+        values.writeNull();
+      } else if ( dictionaries.containsKey( column ) ) {
+        values.writeNumber( encode( column, value ) );
+      } else {
+        values.writeString( value );
+      }
+    }
+
+    private int encode( String dictionary, String value ) {
+      Map<String, Integer> indexes = dictionaries.get( dictionary );
+      return indexes.computeIfAbsent( value, text -> indexes.size() );
+    }
+  }
+
+  /**
+   * @return the value of <code>field</code> as the JSON listing writes it, which is as a string
+   */
+  static String getTriggerField( JobTrigger trigger, String field ) {
+    switch ( field ) {
+      case "startTime": //$NON-NLS-1$
+        return toDateTime( trigger.getStartTime() );
+      case "endTime": //$NON-NLS-1$
+        return toDateTime( trigger.getEndTime() );
+      case "duration": //$NON-NLS-1$
+        return String.valueOf( trigger.getDuration() );
+      case "cronString": //$NON-NLS-1$
+        return trigger.getCronString();
+      case "cronDescription": //$NON-NLS-1$
+        return trigger.getCronDescription();
+      case "timeZone": //$NON-NLS-1$
+        return trigger.getTimeZone();
+      case "startHour": //$NON-NLS-1$
+        return String.valueOf( trigger.getStartHour() );
+      case "startMin": //$NON-NLS-1$
+        return String.valueOf( trigger.getStartMin() );
+      case "startYear": //$NON-NLS-1$
+        return String.valueOf( trigger.getStartYear() );
+      case "startMonth": //$NON-NLS-1$
+        return String.valueOf( trigger.getStartMonth() );
+      case "startDay": //$NON-NLS-1$
+        return String.valueOf( trigger.getStartDay() );
+      case "startAmPm": //$NON-NLS-1$
+        return String.valueOf( trigger.getStartAmPm() );
+      case "repeatCount": //$NON-NLS-1$
+        return trigger instanceof SimpleJobTrigger
+          ? String.valueOf( ( (SimpleJobTrigger) trigger ).getRepeatCount() ) : null;
+      case "repeatInterval": //$NON-NLS-1$
+        return trigger instanceof SimpleJobTrigger
+          ? String.valueOf( ( (SimpleJobTrigger) trigger ).getRepeatInterval() ) : null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return <code>date</code> as JAXB writes it
+   */
+  private static String toDateTime( Date date ) {
+    if ( date == null ) {
+      return null;
+    }
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTime( date );
+    return DatatypeConverter.printDateTime( calendar );
+  }
+
+  /**
+   * A column, written as its values are added.
+   */
+  private static final class Column {
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final JsonGenerator values;
+
+    Column( JsonFactory factory ) throws IOException {
+      values = factory.createGenerator( buffer );
+      values.writeStartArray();
+    }
+
+    /**
+     * @return the column as a JSON array
+     */
+    String close() throws IOException {
+      values.writeEndArray();
+      values.close();
+      return new String( buffer.toByteArray(), StandardCharsets.UTF_8 );
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources;
+
+import com.sun.jersey.api.json.JSONJAXBContext;
+import com.sun.jersey.api.json.JSONMarshaller;
+import org.pentaho.platform.api.scheduler2.SchedulerException;
+import org.pentaho.platform.web.http.api.resources.services.ISchedulerServicePlugin;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.BufferedWriter;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the job listing as JSON while the jobs are read, instead of collecting them into a list first. Each job is
+ * marshalled on its own with the JSON context of {@link org.pentaho.platform.JaxbContextResolver}, so the output is
+ * the same as the JAXB listing: <code>{"job":[{...},{...}]}</code>.
+ * <p/>
+ * Only one job is held at a time, and the first job is flushed as soon as it is written so the client can start
+ * reading before the last job has been read.
+ */
+public class JobsJsonOutput implements StreamingOutput {
+
+  static final String JOBS_START = "{\"job\":["; //$NON-NLS-1$
+
+  static final String JOBS_END = "]}"; //$NON-NLS-1$
+
+  private final ISchedulerServicePlugin schedulerService;
+
+  private final JAXBContext context;
+
+  public JobsJsonOutput( ISchedulerServicePlugin schedulerService, JAXBContext context ) {
+    this.schedulerService = schedulerService;
+    this.context = context;
+  }
+
+  public void write( OutputStream output ) throws IOException, WebApplicationException {
+    final JSONMarshaller marshaller;
+    try {
+      marshaller = JSONJAXBContext.getJSONMarshaller( context.createMarshaller(), context );
+    } catch ( JAXBException e ) {
+      throw new WebApplicationException( e );
+    }
+    final Writer writer = new BufferedWriter( new OutputStreamWriter( output, StandardCharsets.UTF_8 ) );
+    // the marshaller closes what it writes to when it ends a job
+    final Writer jobWriter = new FilterWriter( writer ) {
+      @Override
+      public void close() {
+      }
+    };
+    final int[] written = { 0 };
+    try {
+      schedulerService.forEachJob( job -> {
+        try {
+          writer.write( written[ 0 ] == 0 ? JOBS_START : "," ); //$NON-NLS-1$
+          marshaller.marshallToJSON( job, jobWriter );
+          if ( written[ 0 ]++ == 0 ) {
+            writer.flush();
+          }
+        } catch ( IOException | JAXBException e ) {
+          throw new JobWriteException( e );
+        }
+      } );
+    } catch ( IllegalAccessException e ) {
+      // the access check comes before the first job, so nothing has been written yet
+      throw new WebApplicationException( e, Status.FORBIDDEN );
+    } catch ( SchedulerException e ) {
+      throw new WebApplicationException( e );
+    } catch ( JobWriteException e ) {
+      if ( e.getCause() instanceof IOException ) {
+        throw (IOException) e.getCause();
+      }
+      throw new WebApplicationException( e.getCause() );
+    }
+    writer.write( written[ 0 ] == 0 ? JOBS_START + JOBS_END : JOBS_END );
+    writer.flush();
+  }
+
+  /**
+   * Carries a failure to write a job out of the job consumer.
+   */
+  private static class JobWriteException extends RuntimeException {
+    private static final long serialVersionUID = 2867443291478734605L;
+
+    JobWriteException( Exception cause ) {
+      super( cause );
+    }
+  }
+}
@@ -158,13 +158,7 @@ public class SchedulerOutputPathResolver {
         getScheduleOwner() ) );
 
     // evaluate fallback output paths
-    String[] fallbackPaths = new String[] {
-      getUserSettingOutputPath(), // user setting
-      getSystemSettingOutputPath(), // system setting
-      getUserHomeDirectoryPath() // home directory
-    };
-
-    for ( String fallbackPath : fallbackPaths ) {
+    for ( String fallbackPath : getFallbackOutputPaths() ) {
       if ( isValidOutputPath( fallbackPath, true ) ) {
         // This is a warning so that it pairs with the messages which are real warnings emitted from doesFolderExist
         // and isPermitted. This is actually a resolution message for the other warnings.
@@ -187,6 +181,38 @@ public class SchedulerOutputPathResolver {
     return null;
   }
 
+  /**
+   * Resolves the folder the output of the schedule goes to when the request does not name a usable one: the first of
+   * the user setting, the system setting and the home folder of the schedule owner that exists and that the owner can
+   * write to.
+   *
+   * @return the folder, or <code>null</code> if none is usable
+   */
+  public String resolveDefaultOutputFolderPath() {
+    try {
+      return SecurityHelper.getInstance().runAsUser( getScheduleOwner(), () -> {
+        for ( String fallbackPath : getFallbackOutputPaths() ) {
+          if ( isValidOutputPath( fallbackPath, true ) ) {
+            return fallbackPath;
+          }
+        }
+        return null;
+      } );
+    } catch ( Exception e ) {
+      logger.error( e.getMessage(), e );
+    }
+
+    return null;
+  }
+
+  private String[] getFallbackOutputPaths() {
+    return new String[] {
+      getUserSettingOutputPath(), // user setting
+      getSystemSettingOutputPath(), // system setting
+      getUserHomeDirectoryPath() // home directory
+    };
+  }
+
   protected String getOutputFileBaseName() {
     // Use job name as file name if exists.
     String outputFileBaseName = getJobName();
@@ -30,8 +30,11 @@ import org.pentaho.platform.api.scheduler2.ISchedulerResource;
 import org.pentaho.platform.api.scheduler2.Job;
 import org.pentaho.platform.api.scheduler2.JobState;
 import org.pentaho.platform.api.scheduler2.SchedulerException;
+import org.pentaho.platform.JaxbContextResolver;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.web.http.api.proxies.BlockStatusProxy;
+import org.pentaho.platform.web.http.api.proxies.JobEventsProxy;
+import org.pentaho.platform.web.http.api.proxies.TriggerNowProxy;
 import org.pentaho.platform.web.http.api.resources.services.ISchedulerServicePlugin;
 import org.pentaho.platform.web.http.messages.Messages;
 
@@ -44,15 +47,30 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Providers;
+import javax.xml.bind.JAXBContext;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.MediaType.APPLICATION_OCTET_STREAM;
 import static javax.ws.rs.core.MediaType.APPLICATION_XML;
 import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
 import static javax.ws.rs.core.Response.Status.FORBIDDEN;
@@ -69,6 +87,13 @@ public class SchedulerResource implements ISchedulerResource {
   protected static final Log logger = LogFactory.getLog( SchedulerResource.class );
   public static final String REMOVED_JOB_STATE = "REMOVED";
   public static final String ERROR_JOB_STATE = "UNKNOWN_ERROR";
+  public static final String TRIGGER_OUTCOME_HEADER = "X-Trigger-Outcome";
+  private static final String RETRY_AFTER = "Retry-After";
+  private static final int JOB_EVENTS_RETRY_AFTER_SECONDS = 30;
+  private static final String JSON_VARIANT = "json";
+  private static final String XML_VARIANT = "xml";
+  private static final String COLUMNAR_VARIANT = "columnar";
+  private static final String TEXT_VARIANT = "text";
 
   public SchedulerResource() {
     this( PentahoSystem.get( ISchedulerServicePlugin.class, "ISchedulerService2", null ) ); // TODO don't pass in key
@@ -123,7 +148,8 @@ public class SchedulerResource implements ISchedulerResource {
   @StatusCodes( {
     @ResponseCode( code = 200, condition = "Schedule created successfully." ),
     @ResponseCode( code = 401, condition = "User is not allowed to create schedules." ),
-    @ResponseCode( code = 403, condition = "Cannot create schedules for the specified file." ),
+    @ResponseCode( code = 403,
+      condition = "Cannot create schedules for the specified file, or depending on schedules the user cannot see." ),
     @ResponseCode( code = 500, condition = "An error occurred while creating a schedule." )
   } )
   public Response createJob( JobScheduleRequest scheduleRequest ) {
@@ -194,7 +220,8 @@ public class SchedulerResource implements ISchedulerResource {
   @StatusCodes( {
     @ResponseCode( code = 200, condition = "Schedule updated successfully." ),
     @ResponseCode( code = 401, condition = "User is not allowed to update schedules." ),
-    @ResponseCode( code = 403, condition = "Cannot update schedules for the specified file." ),
+    @ResponseCode( code = 403,
+      condition = "Cannot update schedules for the specified file, or depending on schedules the user cannot see." ),
     @ResponseCode( code = 500, condition = "An error occurred while updating a schedule." )
   } )
   public Response updateJob( JobScheduleRequest scheduleRequest ) {
@@ -227,6 +254,10 @@ public class SchedulerResource implements ISchedulerResource {
    *   NORMAL
    * </pre>
    *
+   * <p>The <code>X-Trigger-Outcome</code> header of the response says what became of the run under the job's
+   * <code>concurrency-policy</code> parameter: <code>STARTED</code>, <code>QUEUED</code> behind an execution that is
+   * already running, or <code>COALESCED</code> into it. It is absent if the user may not run the job.</p>
+   *
    * @param jobRequest A JobRequest object containing the jobId.
    * @return A Response object indicating the status of the scheduler.
    */
@@ -241,7 +272,8 @@ public class SchedulerResource implements ISchedulerResource {
   } )
   public Response triggerNow( JobRequest jobRequest ) {
     try {
-      return buildPlainTextOkResponse( schedulerService.triggerNow( jobRequest.getJobId() ).getState().name() );
+      TriggerNowProxy triggerNow = schedulerService.triggerNowWithPolicy( jobRequest.getJobId() );
+      return buildPlainTextOkResponse( triggerNow.getJobState(), TRIGGER_OUTCOME_HEADER, triggerNow.getOutcome() );
     } catch ( SchedulerException e ) {
       throw new RuntimeException( e );
     }
@@ -420,9 +452,26 @@ public class SchedulerResource implements ISchedulerResource {
   @Facet( name = "Unsupported" )
   @StatusCodes( {
     @ResponseCode( code = 200, condition = "Jobs retrieved successfully." ),
+    @ResponseCode( code = 304, condition = "The jobs have not changed since the response tagged If-None-Match." ),
     @ResponseCode( code = 500, condition = "Error while retrieving jobs." )
   } )
-  public List<Job> getJobs( @DefaultValue( "false" ) @QueryParam( "asCronString" ) Boolean asCronString ) {
+  public Response getJobs( @DefaultValue( "false" ) @QueryParam( "asCronString" ) Boolean asCronString,
+                           @Context Request request, @Context HttpHeaders headers ) {
+    EntityTag tag = getCatalogTag( prefersJson( headers ) ? JSON_VARIANT : XML_VARIANT );
+    Response notModified = notModified( request, tag );
+    if ( notModified != null ) {
+      return notModified;
+    }
+    return tagged( Response.ok( new GenericEntity<List<Job>>( getJobs( asCronString ) ) { } ), tag );
+  }
+
+  /**
+   * @param asCronString Cron string (Unused).
+   * @return A list of jobs that are visible to the current users.
+   * @deprecated use {@link #getAllJobs()} instead.
+   */
+  @Deprecated
+  public List<Job> getJobs( Boolean asCronString ) {
     try {
       return (List<Job>) (List<?>) schedulerService.getJobs();
     } catch ( Exception e ) {
@@ -522,15 +571,65 @@ public class SchedulerResource implements ISchedulerResource {
    *   &lt;/jobs&gt;
    * </pre>
    *
+   * <p>JSON is written while the jobs are read, one job at a time, so the listing is never held in memory as a
+   * whole and the first jobs arrive before the last ones have been read.</p>
+   *
+   * <p>Large listings are smaller in columns, see {@link JobsColumnarOutput}: ask for them with
+   * <code>format=columnar</code>, or with the <code>application/vnd.pentaho.jobs.columnar+json</code> media
+   * type.</p>
+   *
+   * @param format <code>columnar</code> for the columnar format; otherwise the format follows the Accept header.
    * @return A list of jobs that are visible to the current users.
    */
   @GET
   @Path( "/getJobs" )
-  @Produces( { APPLICATION_JSON, APPLICATION_XML } )
+  @Produces( { APPLICATION_JSON, APPLICATION_XML, JobsColumnarOutput.MEDIA_TYPE } )
   @StatusCodes( {
     @ResponseCode( code = 200, condition = "Jobs retrieved successfully." ),
+    @ResponseCode( code = 304, condition = "The jobs have not changed since the response tagged If-None-Match." ),
+    @ResponseCode( code = 403, condition = "The user may not view schedules." ),
     @ResponseCode( code = 500, condition = "Error while retrieving jobs." ),
   } )
+  public Response getAllJobs( @QueryParam( "format" ) String format, @Context Request request,
+                              @Context HttpHeaders headers, @Context Providers providers ) {
+    boolean acceptsColumnar = acceptsColumnar( headers );
+    boolean columnar = acceptsColumnar || JobsColumnarOutput.FORMAT.equals( format );
+    boolean json = columnar || prefersJson( headers );
+    String variant = json ? JSON_VARIANT : XML_VARIANT;
+    EntityTag tag = getCatalogTag( columnar ? COLUMNAR_VARIANT : variant );
+    Response notModified = notModified( request, tag );
+    if ( notModified != null ) {
+      return notModified;
+    }
+    if ( !json ) {
+      return tagged( Response.ok( new GenericEntity<List<Job>>( getAllJobs() ) { }, APPLICATION_XML ), tag );
+    }
+    try {
+      if ( columnar ) {
+        return tagged( Response.ok( new JobsColumnarOutput( schedulerService, getJsonContext( providers ) ),
+          acceptsColumnar ? JobsColumnarOutput.MEDIA_TYPE : APPLICATION_JSON ), tag );
+      }
+      return tagged( Response.ok( new JobsJsonOutput( schedulerService, getJsonContext( providers ) ),
+        APPLICATION_JSON ), tag );
+    } catch ( Exception e ) {
+      throw new RuntimeException( e );
+    }
+  }
+
+  /**
+   * Retrieve the all the scheduled job(s) visible to the current users, in the format the Accept header asks for.
+   *
+   * @return A Response object containing the jobs.
+   */
+  public Response getAllJobs( Request request, HttpHeaders headers, Providers providers ) {
+    return getAllJobs( null, request, headers, providers );
+  }
+
+  /**
+   * Retrieve the all the scheduled job(s) visible to the current users.
+   *
+   * @return A list of jobs that are visible to the current users.
+   */
   public List<Job> getAllJobs() {
     try {
       return (List<Job>) (List<?>) schedulerService.getJobs();
@@ -539,6 +638,73 @@ public class SchedulerResource implements ISchedulerResource {
     }
   }
 
+  /**
+   * @return whether the client asked for the columnar job listing by its media type; wildcards do not count
+   */
+  private boolean acceptsColumnar( HttpHeaders headers ) {
+    if ( headers != null ) {
+      for ( MediaType mediaType : headers.getAcceptableMediaTypes() ) {
+        if ( !mediaType.isWildcardSubtype()
+          && mediaType.isCompatible( MediaType.valueOf( JobsColumnarOutput.MEDIA_TYPE ) ) ) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return whether JSON, the first type the job listings produce, is at least as acceptable as XML
+   */
+  private boolean prefersJson( HttpHeaders headers ) {
+    if ( headers != null ) {
+      for ( MediaType mediaType : headers.getAcceptableMediaTypes() ) {
+        if ( mediaType.isCompatible( MediaType.APPLICATION_JSON_TYPE ) ) {
+          return true;
+        }
+        if ( mediaType.isCompatible( MediaType.APPLICATION_XML_TYPE ) ) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the ETag of a listing in the given <code>variant</code> of its representation, or <code>null</code> if
+   * the scheduler has no catalog version
+   */
+  private EntityTag getCatalogTag( String variant ) {
+    String version = schedulerService.getCatalogVersion();
+    return version == null ? null : new EntityTag( version + '.' + variant );
+  }
+
+  /**
+   * @return a 304 response if the client's copy of a listing, tagged <code>tag</code>, is current; otherwise
+   * <code>null</code>, and the listing must be sent
+   */
+  private Response notModified( Request request, EntityTag tag ) {
+    ResponseBuilder notModified = request == null || tag == null ? null : request.evaluatePreconditions( tag );
+    return notModified == null ? null : tagged( notModified, tag );
+  }
+
+  private Response tagged( ResponseBuilder builder, EntityTag tag ) {
+    if ( tag != null ) {
+      // the client must check the tag before each use of its copy
+      CacheControl cacheControl = new CacheControl();
+      cacheControl.setPrivate( true );
+      cacheControl.setNoCache( true );
+      builder.tag( tag ).cacheControl( cacheControl );
+    }
+    return builder.build();
+  }
+
+  private JAXBContext getJsonContext( Providers providers ) throws Exception {
+    ContextResolver<JAXBContext> resolver = providers == null ? null
+      : providers.getContextResolver( JAXBContext.class, MediaType.APPLICATION_JSON_TYPE );
+    return ( resolver != null ? resolver : new JaxbContextResolver() ).getContext( Job.class );
+  }
+
   public List<IJob> getJobsList() {
     try {
       return schedulerService.getJobs();
@@ -547,6 +713,64 @@ public class SchedulerResource implements ISchedulerResource {
     }
   }
 
+  /**
+   * Long polls the changes to the state of the jobs the current user sees, so that a listing can be kept up to date
+   * without reading it again. The answer comes as soon as there are changes after <code>cursor</code>, or once
+   * <code>waitSeconds</code> have passed; the next poll passes the cursor of the answer. A poll without a cursor, or
+   * with one that is too old to tell what was missed, is answered straight away with <code>reset</code> set: the
+   * client reads the listing again and goes on from the new cursor. The cursor of the answer is missing when the
+   * server cannot tell the changes, e.g. with a clustered job store; the client then stops polling. When too many
+   * clients already wait, a poll with no changes to tell is answered straight away with <code>refused</code> set and
+   * a <code>Retry-After</code> header; the client waits that long before polling again.
+   *
+   * <p><b>Example Request:</b><br />
+   * GET pentaho/api/scheduler/jobs/events?cursor=lz3q8k1c.41&amp;waitSeconds=25
+   * </p>
+   *
+   * <p><b>Example Response:</b></p>
+   * <pre function="syntax.json">
+   *   {
+   *     "cursor": "lz3q8k1c.43", "reset": "false", "refused": "false",
+   *     "events": [
+   *       { "type": "STARTED", "jobId": "admin\tSales Report\t6a1f...", "jobName": "Sales Report",
+   *         "userName": "admin", "nextRun": "2014-08-15T11:46:00-04:00", "lastRun": "2014-08-14T11:46:00-04:00" },
+   *       { "type": "FINISHED", "jobId": "admin\tSales Report\t6a1f...", "jobName": "Sales Report",
+   *         "userName": "admin", "nextRun": "2014-08-15T11:46:00-04:00" }
+   *     ]
+   *   }
+   * </pre>
+   *
+   * @param cursor      The cursor of the previous answer.
+   * @param waitSeconds How long to wait for a change, at most 60. Defaults to 25.
+   * @return A Response object containing a JobEventsProxy.
+   */
+  @GET
+  @Path( "/jobs/events" )
+  @Produces( { APPLICATION_JSON, APPLICATION_XML } )
+  @StatusCodes( {
+    @ResponseCode( code = 200, condition = "Successfully retrieved the changes to the jobs." ),
+    @ResponseCode( code = 403, condition = "User is not allowed to view the schedules." ),
+    @ResponseCode( code = 500, condition = "An error occurred while retrieving the changes to the jobs." )
+  } )
+  public Response getJobEvents( @QueryParam( "cursor" ) String cursor,
+                                @DefaultValue( "25" ) @QueryParam( "waitSeconds" ) int waitSeconds ) {
+    try {
+      CacheControl cacheControl = new CacheControl();
+      cacheControl.setNoCache( true );
+      cacheControl.setNoStore( true );
+      JobEventsProxy jobEvents = schedulerService.getJobEvents( cursor, TimeUnit.SECONDS.toMillis( waitSeconds ) );
+      ResponseBuilder response = Response.ok( jobEvents ).cacheControl( cacheControl );
+      if ( jobEvents.isRefused() ) {
+        response.header( RETRY_AFTER, JOB_EVENTS_RETRY_AFTER_SECONDS );
+      }
+      return response.build();
+    } catch ( SchedulerException e ) {
+      return buildServerErrorResponse( getErrorMessage( e ) );
+    } catch ( IllegalAccessException e ) {
+      return buildStatusResponse( FORBIDDEN );
+    }
+  }
+
   /**
    * Checks whether the current user may schedule a repository file in the platform.
    *
@@ -574,6 +798,45 @@ public class SchedulerResource implements ISchedulerResource {
     return "" + schedulerService.isScheduleAllowed( id );
   }
 
+  /**
+   * Tells the run in background command in one request what it used to ask in several before opening its dialogs:
+   * whether the current user may schedule the file, whether it has parameters to prompt for, whether email is
+   * configured and the folder its output goes to by default. The parameters of an action sequence are not checked,
+   * as only its parameter UI knows them. The answer is never cached.
+   *
+   * <p><b>Example Request:</b><br />
+   * GET pentaho/api/scheduler/prepareBackgroundRun?path=/public/Steel%20Wheels/Sales%20Report.prpt
+   * </p>
+   *
+   * <p><b>Example Response:</b></p>
+   * <pre function="syntax.json">
+   *   {
+   *     "scheduleAllowed": true, "parameterizable": true, "emailConfigValid": false,
+   *     "defaultOutputLocation": "/home/admin"
+   *   }
+   * </pre>
+   *
+   * @param path The repository path of the file.
+   * @return A Response object containing a BackgroundRunProxy.
+   */
+  @GET
+  @Path( "/prepareBackgroundRun" )
+  @Produces( { APPLICATION_JSON, APPLICATION_XML } )
+  @StatusCodes( {
+    @ResponseCode( code = 200, condition = "Successfully prepared the background run." ),
+    @ResponseCode( code = 404, condition = "There is no such file." )
+  } )
+  public Response prepareBackgroundRun( @QueryParam( "path" ) String path ) {
+    try {
+      CacheControl cacheControl = new CacheControl();
+      cacheControl.setNoCache( true );
+      cacheControl.setNoStore( true );
+      return Response.ok( schedulerService.prepareBackgroundRun( path ) ).cacheControl( cacheControl ).build();
+    } catch ( FileNotFoundException e ) {
+      return buildStatusResponse( Status.NOT_FOUND );
+    }
+  }
+
   /**
    * Checks whether the current user has authority to schedule any content in the platform.
    *
@@ -656,6 +919,219 @@ public class SchedulerResource implements ISchedulerResource {
     }
   }
 
+  /**
+   * Returns the progress of the misfire catch-up that spreads the runs missed while the server was down over the
+   * recovery window after startup.
+   *
+   * <p><b>Example Request:</b><br />
+   * GET pentaho/api/scheduler/state/recovery
+   * </p>
+   *
+   * <p><b>Example Response:</b></p>
+   * <pre function="syntax.xml">
+   *   &lt;misfireRecoveryStatusProxy&gt;
+   *     &lt;active&gt;true&lt;/active&gt;
+   *     &lt;misfired&gt;240&lt;/misfired&gt;
+   *     &lt;pending&gt;130&lt;/pending&gt;
+   *     &lt;released&gt;96&lt;/released&gt;
+   *     &lt;startTime&gt;1402911997019&lt;/startTime&gt;
+   *     &lt;superseded&gt;14&lt;/superseded&gt;
+   *     &lt;windowMillis&gt;600000&lt;/windowMillis&gt;
+   *   &lt;/misfireRecoveryStatusProxy&gt;
+   * </pre>
+   *
+   * @return A Response object containing a MisfireRecoveryStatusProxy.
+   */
+  @GET
+  @Path( "/state/recovery" )
+  @Produces( { APPLICATION_JSON, APPLICATION_XML } )
+  @StatusCodes( {
+    @ResponseCode( code = 200, condition = "Successfully retrieved the misfire recovery status." ),
+    @ResponseCode( code = 500, condition = "An error occurred when getting the misfire recovery status." )
+  } )
+  public Response getMisfireRecoveryStatus() {
+    try {
+      return buildOkResponse( schedulerService.getMisfireRecoveryStatus() );
+    } catch ( SchedulerException e ) {
+      throw new RuntimeException( e );
+    }
+  }
+
+  /**
+   * Forecasts the fire times of every active schedule over the coming hours, to see how many executions will start
+   * and overlap before adding more schedules. Executions are counted per bucket; the peak concurrency assumes each
+   * execution runs for <code>durationMinutes</code> (one bucket by default) and is reported next to the number of
+   * scheduler threads.
+   *
+   * <p><b>Example Request:</b><br />
+   * GET pentaho/api/scheduler/forecast?hours=168&amp;bucketMinutes=60&amp;top=2
+   * </p>
+   *
+   * <p><b>Example Response:</b></p>
+   * <pre function="syntax.json">
+   *   {
+   *     "startTime": 1402911997019, "endTime": 1403516797019, "bucketMillis": 3600000, "durationMillis": 3600000,
+   *     "buckets": [ 12, 3, 0, 41, ... ], "bucketsOverCapacity": 1, "threadCount": 10, "triggerCount": 212,
+   *     "executionCount": 3310, "peakConcurrency": 41, "peakTime": 1402923600000,
+   *     "topContributors": [
+   *       { "jobId": "admin\tSales Report\t6a1f...", "jobName": "Sales Report", "userName": "admin", "count": 672 },
+   *       { "jobId": "suzy\tInventory\t90c2...", "jobName": "Inventory", "userName": "suzy", "count": 168 }
+   *     ]
+   *   }
+   * </pre>
+   *
+   * @param hours           How far ahead to look, at most 744 (31 days). Defaults to 168 (7 days).
+   * @param bucketMinutes   The bucket size in minutes. Defaults to 1; widened when the horizon would need too many.
+   * @param durationMinutes How long each execution is assumed to run. Defaults to the bucket size.
+   * @param top             How many of the jobs with the most executions to list, at most 100. Defaults to 10.
+   * @return A Response object containing a FireTimeForecastProxy.
+   */
+  @GET
+  @Path( "/forecast" )
+  @Produces( { APPLICATION_JSON, APPLICATION_XML } )
+  @StatusCodes( {
+    @ResponseCode( code = 200, condition = "Successfully forecast the schedules." ),
+    @ResponseCode( code = 403, condition = "User is not allowed to manage schedules." ),
+    @ResponseCode( code = 500, condition = "An error occurred while forecasting the schedules." )
+  } )
+  public Response getFireTimeForecast( @DefaultValue( "168" ) @QueryParam( "hours" ) int hours,
+                                       @DefaultValue( "1" ) @QueryParam( "bucketMinutes" ) int bucketMinutes,
+                                       @DefaultValue( "0" ) @QueryParam( "durationMinutes" ) int durationMinutes,
+                                       @DefaultValue( "10" ) @QueryParam( "top" ) int top ) {
+    try {
+      return buildOkResponse( schedulerService.getFireTimeForecast( hours, bucketMinutes, durationMinutes, top ) );
+    } catch ( SchedulerException e ) {
+      return buildServerErrorResponse( getErrorMessage( e ) );
+    } catch ( IllegalAccessException e ) {
+      return buildStatusResponse( FORBIDDEN );
+    }
+  }
+
+  /**
+   * Downloads a point in time snapshot of the whole scheduler: every job with its triggers, their next fire times and
+   * pause flags, and the calendars, in a compressed and checksummed binary file for disaster recovery. It can be
+   * verified offline with <code>java org.pentaho.platform.scheduler2.quartz.SchedulerSnapshot &lt;file&gt;</code>
+   * and restored with <code>POST pentaho/api/scheduler/snapshot</code>. Only administrators may take one.
+   *
+   * <p>The snapshot is written to the response while the jobs are read, so it is never held in memory as a
+   * whole.</p>
+   *
+   * <p><b>Example Request:</b><br />
+   * GET pentaho/api/scheduler/snapshot
+   * </p>
+   *
+   * <p><b>Example Response:</b></p>
+   * <pre function="syntax.plain">
+   *   The binary snapshot, as the attachment scheduler.snapshot
+   * </pre>
+   *
+   * @return A Response object containing the snapshot.
+   */
+  @GET
+  @Path( "/snapshot" )
+  @Produces( { APPLICATION_OCTET_STREAM } )
+  @StatusCodes( {
+    @ResponseCode( code = 200, condition = "Successfully took the snapshot." ),
+    @ResponseCode( code = 403, condition = "User is not an administrator." ),
+    @ResponseCode( code = 500, condition = "An error occurred while taking the snapshot." )
+  } )
+  public Response getSnapshot() {
+    StreamingOutput snapshot = output -> {
+      try {
+        String summary = schedulerService.writeSnapshot( output );
+        logger.info( "Took a scheduler snapshot: " + summary );
+      } catch ( IllegalAccessException e ) {
+        // the access check comes before the first record, so nothing has been written yet
+        throw new WebApplicationException( e, FORBIDDEN );
+      } catch ( SchedulerException e ) {
+        throw new WebApplicationException( e );
+      }
+    };
+    return Response.ok( snapshot, APPLICATION_OCTET_STREAM )
+      .header( "Content-Disposition", "attachment; filename=\"scheduler.snapshot\"" ).build(); //$NON-NLS-1$
+  }
+
+  /**
+   * Restores a snapshot taken with <code>GET pentaho/api/scheduler/snapshot</code> straight into the scheduler,
+   * replacing the jobs with the same ids; the other jobs are kept. The scheduler is put in standby while it restores.
+   * Nothing is restored if the snapshot is truncated or corrupt. Only administrators may restore one.
+   *
+   * <p><b>Example Request:</b><br />
+   * POST pentaho/api/scheduler/snapshot
+   * </p>
+   * <pre function="syntax.plain">
+   *   The binary snapshot
+   * </pre>
+   *
+   * <p><b>Example Response:</b></p>
+   * <pre function="syntax.plain">
+   *   version 1, taken Mon Jun 16 10:12:45 EDT 2014: 21012 jobs, 21012 triggers (37 paused), 0 paused trigger groups,
+   *   0 calendars
+   * </pre>
+   *
+   * @param snapshot The snapshot.
+   * @return A Response object containing what was restored.
+   */
+  @POST
+  @Path( "/snapshot" )
+  @Consumes( { APPLICATION_OCTET_STREAM } )
+  @Produces( { TEXT_PLAIN } )
+  @StatusCodes( {
+    @ResponseCode( code = 200, condition = "Successfully restored the snapshot." ),
+    @ResponseCode( code = 403, condition = "User is not an administrator." ),
+    @ResponseCode( code = 500, condition = "The snapshot is invalid, or an error occurred while restoring it." )
+  } )
+  public Response restoreSnapshot( InputStream snapshot ) {
+    try {
+      return buildPlainTextOkResponse( schedulerService.restoreSnapshot( snapshot ) );
+    } catch ( SchedulerException e ) {
+      return buildServerErrorResponse( getErrorMessage( e ) );
+    } catch ( IllegalAccessException e ) {
+      return buildStatusResponse( FORBIDDEN );
+    }
+  }
+
+  /**
+   * Shows what held up the latest run of a job with dependencies (see the <code>depends-on</code> job parameter):
+   * the chain of jobs from the start of its batch, each the last of its job's upstreams to finish, and the end to
+   * end latency of the batch.
+   *
+   * <p><b>Example Request:</b><br />
+   * GET pentaho/api/scheduler/dependencies/criticalPath?lineageId=5b1c7f2e-8f0e-4a44-9f6b-2b2f3e1d9c01
+   * </p>
+   *
+   * <p><b>Example Response:</b></p>
+   * <pre function="syntax.json">
+   *   {
+   *     "steps": [
+   *       { "lineageId": "0f4e...", "jobName": "Nightly ETL", "startTime": 1402880400000, "endTime": 1402886400000 },
+   *       { "lineageId": "5b1c...", "jobName": "Sales Report", "startTime": 1402886401000, "endTime": 1402886700000 }
+   *     ],
+   *     "latencyMillis": 6300000
+   *   }
+   * </pre>
+   *
+   * @param lineageId The lineage id of the last job of the chain.
+   * @return A Response object containing a CriticalPathProxy; its steps are empty if the job has not run yet.
+   */
+  @GET
+  @Path( "/dependencies/criticalPath" )
+  @Produces( { APPLICATION_JSON, APPLICATION_XML } )
+  @StatusCodes( {
+    @ResponseCode( code = 200, condition = "Successfully retrieved the critical path." ),
+    @ResponseCode( code = 403, condition = "User is not allowed to manage schedules." ),
+    @ResponseCode( code = 500, condition = "An error occurred while retrieving the critical path." )
+  } )
+  public Response getCriticalPath( @QueryParam( "lineageId" ) String lineageId ) {
+    try {
+      return buildOkResponse( schedulerService.getCriticalPath( lineageId ) );
+    } catch ( SchedulerException e ) {
+      return buildServerErrorResponse( getErrorMessage( e ) );
+    } catch ( IllegalAccessException e ) {
+      return buildStatusResponse( FORBIDDEN );
+    }
+  }
+
   /**
    * Resume the scheduler from a paused state.
    *
@@ -1252,8 +1728,21 @@ public class SchedulerResource implements ISchedulerResource {
   @Produces( { APPLICATION_JSON, APPLICATION_XML } )
   @StatusCodes( {
     @ResponseCode( code = 200, condition = "Successfully retrieved blockout jobs." ),
+    @ResponseCode( code = 304, condition = "The blockouts have not changed since the response tagged If-None-Match." ),
     @ResponseCode( code = 500, condition = "Error while retrieving blockout jobs." ),
   } )
+  public Response getBlockoutJobs( @Context Request request, @Context HttpHeaders headers ) {
+    EntityTag tag = getCatalogTag( prefersJson( headers ) ? JSON_VARIANT : XML_VARIANT );
+    Response notModified = notModified( request, tag );
+    if ( notModified != null ) {
+      return notModified;
+    }
+    return tagged( Response.ok( new GenericEntity<List<Job>>( getBlockoutJobs() ) { } ), tag );
+  }
+
+  /**
+   * @return the blockout jobs in the system
+   */
   public List<Job> getBlockoutJobs() {
     try {
       return (List<Job>) (List<?>) schedulerService.getBlockOutJobs();
@@ -1281,7 +1770,20 @@ public class SchedulerResource implements ISchedulerResource {
   @Produces( { TEXT_PLAIN } )
   @StatusCodes( {
     @ResponseCode( code = 200, condition = "Successfully determined whether or not the system contains blockouts." ),
+    @ResponseCode( code = 304, condition = "The blockouts have not changed since the response tagged If-None-Match." ),
   } )
+  public Response hasBlockouts( @Context Request request ) {
+    EntityTag tag = getCatalogTag( TEXT_VARIANT );
+    Response notModified = notModified( request, tag );
+    if ( notModified != null ) {
+      return notModified;
+    }
+    return tagged( Response.ok( Boolean.toString( schedulerService.hasBlockouts() ), TEXT_PLAIN ), tag );
+  }
+
+  /**
+   * @return whether there are blockouts in the system
+   */
   public Response hasBlockouts() {
     boolean hasBlockouts = schedulerService.hasBlockouts();
     return buildOkResponse( Boolean.toString( hasBlockouts ) );
@@ -1610,6 +2112,10 @@ public class SchedulerResource implements ISchedulerResource {
     return Response.ok( msg ).type( MediaType.TEXT_PLAIN ).build();
   }
 
+  protected Response buildPlainTextOkResponse( String msg, String header, String value ) {
+    return Response.ok( msg ).type( MediaType.TEXT_PLAIN ).header( header, value ).build();
+  }
+
   protected Response buildServerErrorResponse( Object entity ) {
     return Response.serverError().entity( entity ).build();
   }
@@ -20,13 +20,22 @@ import org.pentaho.platform.api.scheduler2.IScheduler;
 import org.pentaho.platform.api.scheduler2.Job;
 import org.pentaho.platform.api.scheduler2.JobState;
 import org.pentaho.platform.api.scheduler2.SchedulerException;
+import org.pentaho.platform.web.http.api.proxies.BackgroundRunProxy;
 import org.pentaho.platform.web.http.api.proxies.BlockStatusProxy;
+import org.pentaho.platform.web.http.api.proxies.CriticalPathProxy;
+import org.pentaho.platform.web.http.api.proxies.JobEventsProxy;
+import org.pentaho.platform.web.http.api.proxies.FireTimeForecastProxy;
+import org.pentaho.platform.web.http.api.proxies.MisfireRecoveryStatusProxy;
+import org.pentaho.platform.web.http.api.proxies.TriggerNowProxy;
 import org.pentaho.platform.web.http.api.resources.JobRequest;
 import org.pentaho.platform.web.http.api.resources.JobScheduleRequest;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Interface for pentaho platform scheduling service with focus
@@ -51,18 +60,39 @@ public interface ISchedulerServicePlugin {
 
   Job triggerNow( String jobId ) throws SchedulerException;
 
+  TriggerNowProxy triggerNowWithPolicy( String jobId ) throws SchedulerException;
+
   Job getContentCleanerJob() throws SchedulerException;
 
   List<IJob> getJobs() throws SchedulerException, IllegalAccessException;
 
+  void forEachJob( Consumer<IJob> consumer ) throws SchedulerException, IllegalAccessException;
+
   boolean isScheduleAllowed( String id );
 
+  BackgroundRunProxy prepareBackgroundRun( String path ) throws FileNotFoundException;
+
   String doGetCanSchedule();
 
   String doGetCanExecuteSchedule();
 
   String getState() throws SchedulerException;
 
+  MisfireRecoveryStatusProxy getMisfireRecoveryStatus() throws SchedulerException;
+
+  FireTimeForecastProxy getFireTimeForecast( int hours, int bucketMinutes, int durationMinutes, int top )
+    throws SchedulerException, IllegalAccessException;
+
+  String writeSnapshot( OutputStream out ) throws SchedulerException, IllegalAccessException;
+
+  String restoreSnapshot( InputStream in ) throws SchedulerException, IllegalAccessException;
+
+  CriticalPathProxy getCriticalPath( String lineageId ) throws SchedulerException, IllegalAccessException;
+
+  String getCatalogVersion();
+
+  JobEventsProxy getJobEvents( String cursor, long waitMillis ) throws SchedulerException, IllegalAccessException;
+
   String start() throws SchedulerException;
 
   String pause() throws SchedulerException;
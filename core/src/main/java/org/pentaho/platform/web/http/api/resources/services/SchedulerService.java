@@ -18,6 +18,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.pentaho.platform.api.action.IAction;
+import org.pentaho.platform.api.email.IEmailService;
 import org.pentaho.platform.api.engine.IAuthorizationPolicy;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.engine.ISecurityHelper;
@@ -39,13 +40,31 @@ import org.pentaho.platform.api.scheduler2.SchedulerException;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.security.SecurityHelper;
+import org.pentaho.platform.plugin.services.email.EmailService;
+import org.pentaho.platform.scheduler2.ISchedulerJobLookup;
 import org.pentaho.platform.scheduler2.blockout.BlockoutAction;
+import org.pentaho.platform.scheduler2.quartz.FireTimeForecast;
+import org.pentaho.platform.scheduler2.quartz.JobConcurrency;
+import org.pentaho.platform.scheduler2.quartz.JobDependencies;
+import org.pentaho.platform.scheduler2.quartz.JobEvents;
+import org.pentaho.platform.scheduler2.quartz.MisfireRecovery;
+import org.pentaho.platform.scheduler2.quartz.QuartzJobKey;
+import org.pentaho.platform.scheduler2.quartz.QuartzScheduler;
 import org.pentaho.platform.security.policy.rolebased.actions.AdministerSecurityAction;
 import org.pentaho.platform.security.policy.rolebased.actions.SchedulerAction;
 import org.pentaho.platform.security.policy.rolebased.actions.SchedulerExecuteAction;
 import org.pentaho.platform.util.ActionUtil;
 import org.pentaho.platform.util.messages.LocaleHelper;
+import org.pentaho.platform.web.http.api.proxies.BackgroundRunProxy;
 import org.pentaho.platform.web.http.api.proxies.BlockStatusProxy;
+import org.pentaho.platform.web.http.api.proxies.CriticalPathProxy;
+import org.pentaho.platform.web.http.api.proxies.CriticalPathStepProxy;
+import org.pentaho.platform.web.http.api.proxies.FireTimeForecastProxy;
+import org.pentaho.platform.web.http.api.proxies.ForecastContributorProxy;
+import org.pentaho.platform.web.http.api.proxies.JobEventProxy;
+import org.pentaho.platform.web.http.api.proxies.JobEventsProxy;
+import org.pentaho.platform.web.http.api.proxies.MisfireRecoveryStatusProxy;
+import org.pentaho.platform.web.http.api.proxies.TriggerNowProxy;
 import org.pentaho.platform.web.http.api.resources.ComplexJobTriggerProxy;
 import org.pentaho.platform.web.http.api.resources.JobRequest;
 import org.pentaho.platform.web.http.api.resources.JobScheduleParam;
@@ -54,9 +73,13 @@ import org.pentaho.platform.web.http.api.resources.RepositoryFileStreamProvider;
 import org.pentaho.platform.web.http.api.resources.SchedulerOutputPathResolver;
 import org.pentaho.platform.web.http.api.resources.SchedulerResourceUtil;
 import org.pentaho.platform.web.http.api.resources.SessionResource;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -64,16 +87,41 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @SuppressWarnings( "unused" )
 public class SchedulerService implements ISchedulerServicePlugin {
   private static final Log logger = LogFactory.getLog( SchedulerService.class );
+
+  private static final int FORECAST_MAX_HOURS = 31 * 24;
+  private static final int FORECAST_MAX_BUCKET_MINUTES = 24 * 60;
+  private static final int FORECAST_MAX_BUCKETS = 50000;
+  private static final int FORECAST_MAX_TOP = 100;
+  private static final long JOB_EVENTS_MAX_WAIT_MILLIS = TimeUnit.SECONDS.toMillis( 60 );
+  private static final int PREPARE_THREADS = 8;
+  private static final int PREPARE_QUEUE_SIZE = 64;
+  private static final long PREPARE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis( 10 );
+  private static final AtomicInteger prepareThreadCount = new AtomicInteger();
+  // shared by every request, so a burst of them cannot start more threads; stopped when the plugin is unloaded
+  private static ExecutorService prepareExecutor;
   protected IScheduler scheduler = PentahoSystem.get( IScheduler.class, "IScheduler2", null ); //$NON-NLS-1$
   protected IAuthorizationPolicy policy;
   protected IUnifiedRepository repository;
   protected SessionResource sessionResource;
   protected FileService fileService;
   protected IBlockoutManager blockoutManager;
+  protected long prepareTimeoutMillis = PREPARE_TIMEOUT_MILLIS;
 
   @Override
   public Job createJob( JobScheduleRequest scheduleRequest )
@@ -162,6 +210,7 @@ public class SchedulerService implements ISchedulerServicePlugin {
     }
 
     parameterMap.put( LocaleHelper.USER_LOCALE_PARAM, LocaleHelper.getLocale() );
+    checkDependenciesVisible( parameterMap );
 
     if ( hasInputFile ) {
       String outputFile = resolveOutputFilePath( scheduleRequest );
@@ -188,6 +237,28 @@ public class SchedulerService implements ISchedulerServicePlugin {
     return job;
   }
 
+  /**
+   * Rejects a dependency on a job the caller cannot see. A lineage id no job has yet is accepted, as an import creates
+   * the jobs of a chain in any order; the dependency waits for it.
+   */
+  private void checkDependenciesVisible( Map<String, Object> parameterMap )
+    throws SchedulerException, IllegalAccessException {
+    List<String> upstreams =
+      JobDependencies.parseLineageIds( parameterMap.get( QuartzScheduler.RESERVEDMAPKEY_DEPENDS_ON ) );
+    if ( upstreams.isEmpty() ) {
+      return;
+    }
+    IJobFilter visibleJobs =
+      getVisibleJobsFilter( getSession().getName(), canAdminister() || isExecuteScheduleAllowed() );
+    for ( String upstream : upstreams ) {
+      for ( IJob upstreamJob : getScheduler().getJobsByLineageId( upstream ) ) {
+        if ( !visibleJobs.accept( upstreamJob ) ) {
+          throw new IllegalAccessException();
+        }
+      }
+    }
+  }
+
   /**
    * Wrapper function around {@link SchedulerOutputPathResolver#resolveOutputFilePath()} calls
    * {@link #getSchedulerOutputPathResolver(JobScheduleRequest)} to get instance.
@@ -250,7 +321,7 @@ public class SchedulerService implements ISchedulerServicePlugin {
   public Job triggerNow( String jobId ) throws SchedulerException {
     Job job = (Job) getJob( jobId );
 
-    if ( isScheduleAllowed() || isExecuteScheduleAllowed() || getSession().getName().equals( job.getUserName() ) ) {
+    if ( canTriggerNow( job ) ) {
       getScheduler().triggerNow( jobId );
       // update job state
       job = (Job) getJob( jobId );
@@ -259,6 +330,31 @@ public class SchedulerService implements ISchedulerServicePlugin {
     return job;
   }
 
+  @Override
+  public TriggerNowProxy triggerNowWithPolicy( String jobId ) throws SchedulerException {
+    Job job = (Job) getJob( jobId );
+    TriggerNowProxy proxy = new TriggerNowProxy();
+
+    if ( canTriggerNow( job ) ) {
+      IScheduler scheduler = getScheduler();
+      if ( scheduler instanceof QuartzScheduler ) {
+        proxy.setOutcome( ( (QuartzScheduler) scheduler ).triggerNowWithPolicy( jobId ).name() );
+      } else {
+        scheduler.triggerNow( jobId );
+        proxy.setOutcome( JobConcurrency.Admission.STARTED.name() );
+      }
+      // update job state
+      job = (Job) getJob( jobId );
+    }
+
+    proxy.setJobState( job.getState().name() );
+    return proxy;
+  }
+
+  private boolean canTriggerNow( Job job ) {
+    return isScheduleAllowed() || isExecuteScheduleAllowed() || getSession().getName().equals( job.getUserName() );
+  }
+
   @Override
   public Job getContentCleanerJob() throws SchedulerException {
     IPentahoSession session = getSession();
@@ -309,6 +405,145 @@ public class SchedulerService implements ISchedulerServicePlugin {
     return canSchedule;
   }
 
+  /**
+   * Gathers what the run in background command needs before it opens its dialogs: whether the user may schedule the
+   * file, whether it has parameters to prompt for, whether email is configured and where its output goes by default.
+   * The last three run in parallel, in the session of the caller.
+   *
+   * @param path the repository path of the file
+   * @throws FileNotFoundException if there is no such file
+   */
+  @Override
+  public BackgroundRunProxy prepareBackgroundRun( String path ) throws FileNotFoundException {
+    RepositoryFile file = StringUtils.isEmpty( path ) ? null : getRepository().getFile( path );
+    if ( file == null ) {
+      throw new FileNotFoundException( path );
+    }
+    BackgroundRunProxy proxy = new BackgroundRunProxy();
+    proxy.setScheduleAllowed( isScheduleAllowed( file.getId().toString() ) );
+    if ( !proxy.isScheduleAllowed() ) {
+      return proxy;
+    }
+
+    IPentahoSession session = getSession();
+    SecurityContext securityContext = SecurityContextHolder.getContext();
+    ExecutorService executor = getPrepareExecutor();
+    // the parameters of an action sequence are only known to its parameter UI, which the client still asks
+    Future<Boolean> parameterizable = path.endsWith( ".xaction" ) //$NON-NLS-1$
+      ? CompletableFuture.completedFuture( null )
+      : submitPrepare( executor, inSession( session, securityContext, () -> isParameterizable( file ) ) );
+    Future<Boolean> emailConfigValid =
+      submitPrepare( executor, inSession( session, securityContext, this::isEmailConfigValid ) );
+    Future<String> defaultOutputLocation =
+      submitPrepare( executor, inSession( session, securityContext, () -> getDefaultOutputLocation( file ) ) );
+
+    // whatever is not known in time is left for the client to ask or to default, as when it is unknown
+    long deadline = System.currentTimeMillis() + prepareTimeoutMillis;
+    proxy.setParameterizable( getPrepared( parameterizable, deadline, null, "parameters" ) );
+    proxy.setEmailConfigValid( getPrepared( emailConfigValid, deadline, false, "email" ) );
+    proxy.setDefaultOutputLocation( getPrepared( defaultOutputLocation, deadline, null, "output location" ) );
+    return proxy;
+  }
+
+  /**
+   * @return the task, whose cancellation interrupts it, or <code>null</code> if too many runs are being prepared
+   */
+  private static <T> Future<T> submitPrepare( ExecutorService executor, Callable<T> callable ) {
+    try {
+      return executor.submit( callable );
+    } catch ( RejectedExecutionException e ) {
+      return null;
+    }
+  }
+
+  private <T> T getPrepared( Future<T> future, long deadline, T fallback, String what ) {
+    if ( future == null ) {
+      logger.warn( "Too many background runs are being prepared to prepare the " + what + " of another one" );
+      return fallback;
+    }
+    try {
+      return future.get( Math.max( deadline - System.currentTimeMillis(), 0 ), TimeUnit.MILLISECONDS );
+    } catch ( TimeoutException e ) {
+      future.cancel( true );
+      logger.warn( "Gave up preparing the " + what + " of a background run after " + prepareTimeoutMillis + " ms" );
+    } catch ( ExecutionException e ) {
+      logger.warn( "Could not prepare the " + what + " of a background run", e.getCause() );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      future.cancel( true );
+    }
+    return fallback;
+  }
+
+  private static synchronized ExecutorService getPrepareExecutor() {
+    if ( prepareExecutor == null ) {
+      // beyond the queue, runs are prepared as if nothing were known, which the client then asks or defaults
+      ThreadPoolExecutor executor = new ThreadPoolExecutor( PREPARE_THREADS, PREPARE_THREADS, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>( PREPARE_QUEUE_SIZE ), runnable -> {
+          Thread thread = new Thread( runnable, "SchedulerService-prepare-" + prepareThreadCount.incrementAndGet() );
+          thread.setDaemon( true );
+          return thread;
+        } );
+      // no thread is kept while no run is prepared
+      executor.allowCoreThreadTimeOut( true );
+      prepareExecutor = executor;
+    }
+    return prepareExecutor;
+  }
+
+  /**
+   * Stops the threads that prepare background runs; called when the plugin is unloaded.
+   *
+   * @see SchedulerServiceLifecycleListener
+   */
+  public static synchronized void shutdownPrepareExecutor() {
+    if ( prepareExecutor != null ) {
+      prepareExecutor.shutdownNow();
+      prepareExecutor = null;
+    }
+  }
+
+  protected boolean isParameterizable( RepositoryFile file ) {
+    try {
+      // the path as a file id, like the client sends it to the file resource
+      return getFileService().doIsParameterizable( file.getPath().replace( ":", "\t" ).replace( "/", ":" ) );
+    } catch ( FileNotFoundException | RuntimeException e ) {
+      logger.warn( "Could not tell whether " + file.getPath() + " has parameters", e );
+      return false;
+    }
+  }
+
+  protected boolean isEmailConfigValid() {
+    try {
+      return getEmailService().isValid();
+    } catch ( RuntimeException e ) {
+      // not configured
+      return false;
+    }
+  }
+
+  protected String getDefaultOutputLocation( RepositoryFile file ) {
+    JobScheduleRequest scheduleRequest = new JobScheduleRequest();
+    scheduleRequest.setInputFile( file.getPath() );
+    scheduleRequest.getJobParameters()
+      .add( new JobScheduleParam( IScheduler.RESERVEDMAPKEY_ACTIONUSER, getSession().getName() ) );
+    return getSchedulerOutputPathResolver( scheduleRequest ).resolveDefaultOutputFolderPath();
+  }
+
+  private static <T> Callable<T> inSession( IPentahoSession session, SecurityContext securityContext,
+                                            Callable<T> callable ) {
+    return () -> {
+      PentahoSessionHolder.setSession( session );
+      SecurityContextHolder.setContext( securityContext );
+      try {
+        return callable.call();
+      } finally {
+        SecurityContextHolder.clearContext();
+        PentahoSessionHolder.removeSession();
+      }
+    };
+  }
+
   public IJobFilter getJobFilter( boolean canAdminister, String principalName ) {
     return new JobFilter( canAdminister, principalName );
   }
@@ -350,6 +585,252 @@ public class SchedulerService implements ISchedulerServicePlugin {
     return getScheduler().getStatus().name();
   }
 
+  /**
+   * @return the version of the jobs as the current user sees them, see {@link QuartzScheduler#getCatalogVersion()},
+   * or <code>null</code> if there is none
+   */
+  @Override
+  public String getCatalogVersion() {
+    IScheduler scheduler = getScheduler();
+    String version = scheduler instanceof QuartzScheduler ? ( (QuartzScheduler) scheduler ).getCatalogVersion() : null;
+    IPentahoSession session = version == null ? null : getSession();
+    if ( session == null || session.getName() == null ) {
+      return null;
+    }
+    // which jobs a listing holds depends on who asks
+    return version + '.' + Integer.toHexString( session.getName().hashCode() );
+  }
+
+  /**
+   * Reads the changes to the state of the jobs the current user sees since <code>cursor</code>, see
+   * {@link JobEvents}. Waits up to <code>waitMillis</code> for one; changes to jobs the user does not see are skipped
+   * without ending the wait.
+   *
+   * @param cursor the cursor of the previous answer, or <code>null</code> to start from now
+   * @return the changes; the cursor is <code>null</code> if the scheduler cannot tell them, and the answer is refused
+   * if there were none and too many readers already wait
+   */
+  @Override
+  public JobEventsProxy getJobEvents( String cursor, long waitMillis )
+    throws SchedulerException, IllegalAccessException {
+    if ( !isScheduleAllowed() && !isExecuteScheduleAllowed() ) {
+      throw new IllegalAccessException();
+    }
+    JobEventsProxy proxy = new JobEventsProxy();
+    IScheduler scheduler = getScheduler();
+    if ( !( scheduler instanceof QuartzScheduler ) ) {
+      return proxy;
+    }
+    IPentahoSession session = getSession();
+    String principalName = session.getName();
+    boolean seesAllJobs = canAdminister() || isExecuteScheduleAllowed();
+    long deadline = System.currentTimeMillis() + Math.max( 0, Math.min( waitMillis, JOB_EVENTS_MAX_WAIT_MILLIS ) );
+    String next = cursor;
+    JobEvents.Batch batch;
+    try {
+      do {
+        batch = ( (QuartzScheduler) scheduler ).getJobEvents()
+          .read( next, deadline - System.currentTimeMillis(), session.getId() );
+        if ( batch == null ) {
+          return proxy;
+        }
+        next = batch.getCursor();
+        for ( JobEvents.Event event : batch.getEvents() ) {
+          if ( isVisible( event, principalName, seesAllJobs ) ) {
+            proxy.getEvents().add( toProxy( event ) );
+          }
+        }
+      } while ( !batch.isReset() && !batch.getEvents().isEmpty() && proxy.getEvents().isEmpty()
+        && System.currentTimeMillis() < deadline );
+      proxy.setReset( batch.isReset() );
+      proxy.setRefused( batch.isRefused() );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    proxy.setCursor( next );
+    return proxy;
+  }
+
+  private static boolean isVisible( JobEvents.Event event, String principalName, boolean seesAllJobs ) {
+    if ( event.getType() == JobEvents.Type.RESET ) {
+      return true;
+    }
+    if ( seesAllJobs ) {
+      return !IBlockoutManager.BLOCK_OUT_JOB_NAME.equals( event.getJobName() );
+    }
+    return principalName.equals( event.getUserName() );
+  }
+
+  private static JobEventProxy toProxy( JobEvents.Event event ) {
+    JobEventProxy proxy = new JobEventProxy();
+    proxy.setType( event.getType().name() );
+    proxy.setJobId( event.getJobId() );
+    proxy.setJobName( event.getJobName() );
+    proxy.setUserName( event.getUserName() );
+    proxy.setNextRun( event.getNextRun() );
+    proxy.setLastRun( event.getLastRun() );
+    return proxy;
+  }
+
+  @Override
+  public MisfireRecoveryStatusProxy getMisfireRecoveryStatus() throws SchedulerException {
+    MisfireRecoveryStatusProxy status = new MisfireRecoveryStatusProxy();
+    IScheduler scheduler = getScheduler();
+    MisfireRecovery recovery =
+      scheduler instanceof QuartzScheduler ? ( (QuartzScheduler) scheduler ).getMisfireRecovery() : null;
+    if ( recovery != null ) {
+      status.setActive( recovery.isActive() );
+      status.setStartTime( recovery.getStartTime() );
+      status.setWindowMillis( recovery.getWindowMillis() );
+      status.setMisfired( recovery.getMisfiredCount() );
+      status.setReleased( recovery.getReleasedCount() );
+      status.setSuperseded( recovery.getSupersededCount() );
+      status.setPending( recovery.getPendingCount() );
+    }
+    return status;
+  }
+
+  @Override
+  public FireTimeForecastProxy getFireTimeForecast( int hours, int bucketMinutes, int durationMinutes, int top )
+    throws SchedulerException, IllegalAccessException {
+    if ( !isScheduleAllowed() ) {
+      throw new IllegalAccessException();
+    }
+    FireTimeForecastProxy proxy = new FireTimeForecastProxy();
+    IScheduler scheduler = getScheduler();
+    if ( !( scheduler instanceof QuartzScheduler ) ) {
+      return proxy;
+    }
+    // keep the response to a sensible size: at most a month, and at most one bucket per minute of a day
+    long hourMillis = TimeUnit.HOURS.toMillis( 1 );
+    long minuteMillis = TimeUnit.MINUTES.toMillis( 1 );
+    long horizonMillis = Math.min( Math.max( hours, 1 ), FORECAST_MAX_HOURS ) * hourMillis;
+    long bucketMillis = Math.min( Math.max( bucketMinutes, 1 ), FORECAST_MAX_BUCKET_MINUTES ) * minuteMillis;
+    while ( horizonMillis / bucketMillis > FORECAST_MAX_BUCKETS ) {
+      bucketMillis *= 2;
+    }
+    long durationMillis = durationMinutes > 0 ? durationMinutes * minuteMillis : bucketMillis;
+    // the totals are the server's, but the contributors are jobs: pick the top among those the caller may see
+    IJobFilter visibleJobs = getVisibleJobsFilter( getSession().getName(),
+      canAdminister() || isExecuteScheduleAllowed() );
+    FireTimeForecast forecast = ( (QuartzScheduler) scheduler ).getFireTimeForecast( horizonMillis, bucketMillis,
+      durationMillis, Math.min( Math.max( top, 0 ), FORECAST_MAX_TOP ),
+      jobId -> visibleJobs.accept( getContributorJob( jobId ) ) );
+
+    proxy.setStartTime( forecast.getStartTime() );
+    proxy.setEndTime( forecast.getEndTime() );
+    proxy.setBucketMillis( forecast.getBucketMillis() );
+    proxy.setDurationMillis( forecast.getDurationMillis() );
+    for ( int count : forecast.getBuckets() ) {
+      proxy.getBuckets().add( count );
+    }
+    proxy.setBucketsOverCapacity( forecast.getBucketsOverCapacity() );
+    proxy.setThreadCount( forecast.getThreadCount() );
+    proxy.setTriggerCount( forecast.getTriggerCount() );
+    proxy.setExecutionCount( forecast.getExecutionCount() );
+    proxy.setPeakConcurrency( forecast.getPeakConcurrency() );
+    proxy.setPeakTime( forecast.getPeakTime() );
+    for ( FireTimeForecast.Contributor contributor : forecast.getTopContributors() ) {
+      ForecastContributorProxy contributorProxy = new ForecastContributorProxy();
+      Job job = getContributorJob( contributor.getJobId() );
+      contributorProxy.setJobId( contributor.getJobId() );
+      contributorProxy.setJobName( job.getJobName() );
+      contributorProxy.setUserName( job.getUserName() );
+      contributorProxy.setCount( contributor.getCount() );
+      proxy.getTopContributors().add( contributorProxy );
+    }
+    return proxy;
+  }
+
+  /**
+   * @return a job with the id, name and owner that <code>jobId</code> holds, for the visibility filter
+   */
+  private static Job getContributorJob( String jobId ) {
+    Job job = new Job();
+    job.setJobId( jobId );
+    try {
+      QuartzJobKey jobKey = QuartzJobKey.parse( jobId );
+      job.setJobName( jobKey.getJobName() );
+      job.setUserName( jobKey.getUserName() );
+    } catch ( SchedulerException e ) {
+      // not a job created through the platform, the id is all there is
+    }
+    return job;
+  }
+
+  /**
+   * Writes a snapshot of the whole scheduler to <code>out</code>; only administrators may, as it holds every job.
+   *
+   * @see QuartzScheduler#writeSnapshot(OutputStream)
+   */
+  @Override
+  public String writeSnapshot( OutputStream out ) throws SchedulerException, IllegalAccessException {
+    if ( !canAdminister() ) {
+      throw new IllegalAccessException();
+    }
+    return getQuartzScheduler().writeSnapshot( out ).toString();
+  }
+
+  /**
+   * Restores a snapshot written by {@link #writeSnapshot(OutputStream)}.
+   *
+   * @return what was restored
+   * @see QuartzScheduler#restoreSnapshot(InputStream)
+   */
+  @Override
+  public String restoreSnapshot( InputStream in ) throws SchedulerException, IllegalAccessException {
+    if ( !canAdminister() ) {
+      throw new IllegalAccessException();
+    }
+    return getQuartzScheduler().restoreSnapshot( in ).toString();
+  }
+
+  private QuartzScheduler getQuartzScheduler() throws SchedulerException {
+    IScheduler scheduler = getScheduler();
+    if ( !( scheduler instanceof QuartzScheduler ) ) {
+      throw new SchedulerException( "Snapshots need the Quartz scheduler" ); //$NON-NLS-1$
+    }
+    return (QuartzScheduler) scheduler;
+  }
+
+  @Override
+  public CriticalPathProxy getCriticalPath( String lineageId ) throws SchedulerException, IllegalAccessException {
+    if ( !isScheduleAllowed() ) {
+      throw new IllegalAccessException();
+    }
+    CriticalPathProxy proxy = new CriticalPathProxy();
+    IScheduler scheduler = getScheduler();
+    if ( !( scheduler instanceof QuartzScheduler ) || lineageId == null ) {
+      return proxy;
+    }
+    // a chain is only shown as far as the caller can see its jobs
+    IJobFilter visibleJobs =
+      getVisibleJobsFilter( getSession().getName(), canAdminister() || isExecuteScheduleAllowed() );
+    for ( JobDependencies.Step step : ( (QuartzScheduler) scheduler ).getCriticalPath( lineageId ) ) {
+      IJob visibleJob = null;
+      for ( IJob job : scheduler.getJobsByLineageId( step.getLineageId() ) ) {
+        if ( visibleJobs.accept( job ) ) {
+          visibleJob = job;
+          break;
+        }
+      }
+      if ( visibleJob == null ) {
+        continue;
+      }
+      CriticalPathStepProxy stepProxy = new CriticalPathStepProxy();
+      stepProxy.setLineageId( step.getLineageId() );
+      stepProxy.setStartTime( step.getStartTime() );
+      stepProxy.setEndTime( step.getEndTime() );
+      stepProxy.setJobName( visibleJob.getJobName() );
+      proxy.getSteps().add( stepProxy );
+    }
+    if ( !proxy.getSteps().isEmpty() ) {
+      proxy.setLatencyMillis( proxy.getSteps().get( proxy.getSteps().size() - 1 ).getEndTime()
+        - proxy.getSteps().get( 0 ).getStartTime() );
+    }
+    return proxy;
+  }
+
   @Override
   public String start() throws SchedulerException {
     if ( isScheduleAllowed() ) {
@@ -655,13 +1136,45 @@ public class SchedulerService implements ISchedulerServicePlugin {
     final boolean canAdminister = canAdminister();
     final boolean canExecuteSchedule = isExecuteScheduleAllowed();
 
-    return getScheduler().getJobs( job -> {
-      if ( canAdminister || canExecuteSchedule ) {
+    IScheduler scheduler = getScheduler();
+    if ( !canAdminister && !canExecuteSchedule && scheduler instanceof ISchedulerJobLookup ) {
+      // regular users only see their own jobs; read just their job group instead of filtering every job
+      return ( (ISchedulerJobLookup) scheduler ).getJobsByOwner( principalName, null );
+    }
+
+    return scheduler.getJobs( getVisibleJobsFilter( principalName, canAdminister || canExecuteSchedule ) );
+  }
+
+  /**
+   * Passes the jobs {@link #getJobs()} returns to <code>consumer</code> one at a time. When the scheduler supports
+   * it, each job is read from the job store just before it is passed on, so the jobs are never all in memory at once.
+   * The access check happens before the first job is read.
+   */
+  public void forEachJob( Consumer<IJob> consumer ) throws SchedulerException, IllegalAccessException {
+    if ( !isScheduleAllowed() && !isExecuteScheduleAllowed() ) {
+      throw new IllegalAccessException();
+    }
+
+    final String principalName = getSession().getName();
+    final boolean seesAllJobs = canAdminister() || isExecuteScheduleAllowed();
+
+    IScheduler scheduler = getScheduler();
+    if ( scheduler instanceof ISchedulerJobLookup ) {
+      ( (ISchedulerJobLookup) scheduler ).forEachJob( seesAllJobs ? null : principalName,
+        getVisibleJobsFilter( principalName, seesAllJobs ), consumer );
+    } else {
+      scheduler.getJobs( getVisibleJobsFilter( principalName, seesAllJobs ) ).forEach( consumer );
+    }
+  }
+
+  private IJobFilter getVisibleJobsFilter( final String principalName, final boolean seesAllJobs ) {
+    return job -> {
+      if ( seesAllJobs ) {
         return !IBlockoutManager.BLOCK_OUT_JOB_NAME.equals( job.getJobName() );
       }
 
       return principalName.equals( job.getUserName() );
-    } );
+    };
   }
 
   protected boolean canAdminister() {
@@ -689,6 +1202,10 @@ public class SchedulerService implements ISchedulerServicePlugin {
     return sessionResource;
   }
 
+  protected IEmailService getEmailService() {
+    return new EmailService();
+  }
+
   protected FileService getFileService() {
     if ( fileService == null ) {
       fileService = new FileService();
@@ -0,0 +1,36 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources.services;
+
+import org.pentaho.platform.api.engine.IPluginLifecycleListener;
+
+/**
+ * Stops the threads {@link SchedulerService} prepares background runs with when the plugin is unloaded, so that they
+ * do not outlive the plugin and keep its class loader.
+ */
+public class SchedulerServiceLifecycleListener implements IPluginLifecycleListener {
+
+  @Override
+  public void init() {
+  }
+
+  @Override
+  public void loaded() {
+  }
+
+  @Override
+  public void unLoaded() {
+    SchedulerService.shutdownPrepareExecutor();
+  }
+}
@@ -111,6 +111,8 @@ public class JobParamsAdapterTest {
 
     Arrays.sort( resultJobParams.jobParams, new JobParamWholeComparator() );
     assertJobParamArrayEquals( "", expectedJobParams.jobParams, resultJobParams.jobParams );
+    // the job's map is shared with the job store and must be left alone
+    assertEquals( 2, variables.size() );
   }
 
   private void assertJobParamArrayEquals( String msg, JobParam[] expected, final JobParam[] actual ) {
@@ -40,6 +40,9 @@ import org.pentaho.platform.plugin.services.importexport.Log4JRepositoryExportLo
 import org.pentaho.platform.plugin.services.importexport.RepositoryTextLayout;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportManifest;
 import org.pentaho.platform.plugin.services.importexport.legacy.MondrianCatalogRepositoryHelper;
+import org.pentaho.platform.scheduler2.ISchedulerJobLookup;
+import org.pentaho.platform.scheduler2.quartz.ExecutionDurations;
+import org.pentaho.platform.scheduler2.quartz.QuartzScheduler;
 import org.pentaho.platform.web.http.api.resources.JobScheduleRequest;
 import org.pentaho.platform.web.http.api.resources.RepositoryFileStreamProvider;
 
@@ -49,17 +52,23 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 
 public class ScheduleExportUtilTest {
@@ -167,6 +176,32 @@ public class ScheduleExportUtilTest {
     assertEquals( "/home/admin/myTransform*", jobScheduleRequest.getOutputFile() );
   }
 
+  @Test
+  public void testCreateJobScheduleRequest_ExecutionDurations() throws ExportException {
+    Job job = mock( Job.class );
+    SimpleJobTrigger trigger = mock( SimpleJobTrigger.class );
+    when( job.getJobTrigger() ).thenReturn( trigger );
+    when( job.getJobName() ).thenReturn( "JOB" );
+    Map<String, Object> params = new HashMap<>();
+    params.put( IScheduler.RESERVEDMAPKEY_LINEAGE_ID, "exported-lineage" );
+    when( job.getJobParams() ).thenReturn( params );
+    ExecutionDurations.getInstance().record( "exported-lineage", 1500 );
+    ExecutionDurations.getInstance().record( "exported-lineage", 2500 );
+    try {
+      JobScheduleRequest jobScheduleRequest = ScheduleExportUtil.createJobScheduleRequest( job );
+
+      String durations = null;
+      for ( IJobScheduleParam param : jobScheduleRequest.getJobParameters() ) {
+        if ( QuartzScheduler.RESERVEDMAPKEY_EXECUTION_DURATIONS.equals( param.getName() ) ) {
+          durations = (String) param.getValue();
+        }
+      }
+      assertEquals( "1500,2500", durations );
+    } finally {
+      ExecutionDurations.getInstance().remove( "exported-lineage" );
+    }
+  }
+
   @Test
   public void testCreateJobScheduleRequest_StringStreamProvider() throws ExportException {
     String jobName = "JOB";
@@ -390,6 +425,44 @@ public class ScheduleExportUtilTest {
     assertEquals( 2, exportManifest.getScheduleList().size() );
   }
 
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void testExportSchedules_Streamed() throws Exception {
+    IScheduler lookupScheduler = mock( IScheduler.class, withSettings().extraInterfaces( ISchedulerJobLookup.class ) );
+    pentahoSystem.when( () -> PentahoSystem.get( IScheduler.class, "IScheduler2", null ) )
+      .thenReturn( lookupScheduler );
+    when( lookupScheduler.createJobScheduleRequest() ).thenAnswer( invocation -> new JobScheduleRequest() );
+
+    List<IJob> jobs = new ArrayList<>();
+    for ( int i = 0; i < ScheduleExportUtil.EXPORT_PAGE_SIZE + 2; i++ ) {
+      Job job = mock( Job.class );
+      when( job.getJobName() ).thenReturn( i == 1 ? "PentahoSystemVersionCheck" : "job " + i );
+      when( job.getJobTrigger() ).thenReturn( mock( CronJobTrigger.class ) );
+      jobs.add( job );
+    }
+    doAnswer( invocation -> {
+      jobs.forEach( invocation.<Consumer<IJob>>getArgument( 2 ) );
+      return null;
+    } ).when( (ISchedulerJobLookup) lookupScheduler ).forEachJob( isNull(), isNull(), any() );
+
+    PentahoPlatformExporter exporter = new PentahoPlatformExporter( repo );
+    exporter.setExportManifest( exportManifest );
+    IRepositoryExportLogger exportLogger = new Log4JRepositoryExportLogger();
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    exportLogger.startJob( outputStream, Level.INFO, new RepositoryTextLayout( Level.INFO ) );
+    exporter.setRepositoryExportLogger( exportLogger );
+    exporterSpy.doExport( exporter );
+    exportLogger.endJob();
+
+    verify( lookupScheduler, never() ).getJobs( any() );
+    // in the order the jobs were read, without the version check
+    assertEquals( ScheduleExportUtil.EXPORT_PAGE_SIZE + 1, exportManifest.getScheduleList().size() );
+    assertEquals( "job 0", exportManifest.getScheduleList().get( 0 ).getJobName() );
+    assertEquals( "job 2", exportManifest.getScheduleList().get( 1 ).getJobName() );
+    assertEquals( "job " + ( ScheduleExportUtil.EXPORT_PAGE_SIZE + 1 ),
+      exportManifest.getScheduleList().get( ScheduleExportUtil.EXPORT_PAGE_SIZE ).getJobName() );
+  }
+
   @Test(expected = ExportException.class)
   public void testExportSchedules_SchedulerThrowsException() throws ExportException, SchedulerException {
     when( scheduler.getJobs( null ) ).thenThrow( new SchedulerException( "bad" ) );
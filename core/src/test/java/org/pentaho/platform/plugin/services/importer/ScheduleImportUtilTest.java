@@ -6,6 +6,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.mockito.ArgumentMatcher;
 import org.mockito.ArgumentMatchers;
+import org.mockito.InOrder;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.pentaho.platform.api.engine.IAuthorizationPolicy;
@@ -15,17 +16,24 @@ import org.pentaho.platform.api.mimetype.IMimeType;
 import org.pentaho.platform.api.mimetype.IPlatformMimeResolver;
 import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
 import org.pentaho.platform.api.scheduler2.ICronJobTrigger;
+import org.pentaho.platform.api.scheduler2.IJob;
+import org.pentaho.platform.api.scheduler2.IJobRequest;
 import org.pentaho.platform.api.scheduler2.IJobScheduleParam;
 import org.pentaho.platform.api.scheduler2.IJobScheduleRequest;
 import org.pentaho.platform.api.scheduler2.IScheduler;
 import org.pentaho.platform.api.scheduler2.ISchedulerResource;
 import org.pentaho.platform.api.scheduler2.ISimpleJobTrigger;
 import org.pentaho.platform.api.scheduler2.JobState;
+import org.pentaho.platform.api.scheduler2.SchedulerException;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.plugin.services.importexport.ImportSession;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportManifest;
+import org.pentaho.platform.scheduler2.quartz.ExecutionDurations;
+import org.pentaho.platform.scheduler2.quartz.QuartzScheduler;
 import org.pentaho.platform.security.policy.rolebased.IRoleAuthorizationPolicyRoleBindingDao;
+import org.pentaho.platform.web.http.api.resources.JobScheduleParam;
+import org.pentaho.platform.web.http.api.resources.JobScheduleRequest;
 
 import javax.ws.rs.core.Response;
 
@@ -34,11 +42,16 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -200,6 +213,166 @@ public class ScheduleImportUtilTest {
   }
 
 
+  @Test
+  public void testCreateSchedulerJobsInParallel() throws Exception {
+    List<IJobScheduleRequest> schedules = new ArrayList<>();
+    for ( int i = 0; i < 3; i++ ) {
+      IJobScheduleRequest scheduleRequest = new FakeJobSchedluerRequest();
+      scheduleRequest.setInputFile( "/home/admin/report" + i + ".prpt" );
+      schedules.add( scheduleRequest );
+
+      Response response = mock( Response.class );
+      when( response.getStatus() ).thenReturn( Response.Status.OK.getStatusCode() );
+      when( response.getEntity() ).thenReturn( "imported job " + i );
+      doReturn( response ).when( scheduleImportUtil ).createSchedulerJob(
+        ArgumentMatchers.any( ISchedulerResource.class ), ArgumentMatchers.same( scheduleRequest ) );
+    }
+    doReturn( 2 ).when( scheduleImportUtil ).getImportParallelism();
+
+    int created = scheduleImportUtil.createSchedulerJobs( importHandler, mock( ISchedulerResource.class ), schedules );
+
+    Assert.assertEquals( 3, created );
+    for ( int i = 0; i < 3; i++ ) {
+      Assert.assertTrue( ImportSession.getSession().getImportedScheduleJobIds().contains( "imported job " + i ) );
+    }
+  }
+
+  @Test
+  public void testImportRestoresTheExportedExecutionDurations() throws Exception {
+    JobScheduleRequest schedule = createSchedule( "report", "imported-lineage" );
+    schedule.getJobParameters().add(
+      new JobScheduleParam( QuartzScheduler.RESERVEDMAPKEY_EXECUTION_DURATIONS, "1500,2500" ) );
+    IScheduler scheduler = mockScheduler();
+    doReturn( okResponse( "imported job" ) ).when( scheduleImportUtil ).createSchedulerJob(
+      ArgumentMatchers.any( ISchedulerResource.class ), ArgumentMatchers.same( schedule ) );
+    try {
+      doImport( scheduler, Collections.singletonList( schedule ) );
+
+      // never stored with the job
+      Assert.assertEquals( 1, schedule.getJobParameters().size() );
+      Assert.assertArrayEquals( new long[] { 1500, 2500 },
+        ExecutionDurations.getInstance().getDurations( "imported-lineage" ) );
+    } finally {
+      ExecutionDurations.getInstance().remove( "imported-lineage" );
+    }
+  }
+
+  @Test
+  public void testImportLastScheduleOfALineageWins() throws Exception {
+    importHandler.overwriteFile = true;
+    JobScheduleRequest first = createSchedule( "first", "duplicate-lineage" );
+    JobScheduleRequest last = createSchedule( "last", "duplicate-lineage" );
+    IScheduler scheduler = mockScheduler();
+    doReturn( okResponse( "imported job" ) ).when( scheduleImportUtil ).createSchedulerJob(
+      ArgumentMatchers.any( ISchedulerResource.class ), ArgumentMatchers.any( IJobScheduleRequest.class ) );
+
+    doImport( scheduler, Arrays.asList( first, last ) );
+
+    verify( scheduleImportUtil ).createSchedulerJob( ArgumentMatchers.any( ISchedulerResource.class ),
+      ArgumentMatchers.same( last ) );
+    verify( scheduleImportUtil, never() ).createSchedulerJob( ArgumentMatchers.any( ISchedulerResource.class ),
+      ArgumentMatchers.same( first ) );
+  }
+
+  @Test
+  public void testImportWithoutOverwriteKeepsTheExistingSchedule() throws Exception {
+    importHandler.overwriteFile = false;
+    JobScheduleRequest schedule = createSchedule( "report", "existing-lineage" );
+    IScheduler scheduler = mockScheduler();
+    IJob existingJob = existingJob( "existing job", "existing-lineage" );
+    doReturn( Collections.singletonList( existingJob ) ).when( scheduler ).getJobs( ArgumentMatchers.any() );
+
+    doImport( scheduler, Collections.singletonList( schedule ) );
+
+    verify( scheduler.createSchedulerResource(), never() ).removeJob( ArgumentMatchers.any() );
+    verify( scheduleImportUtil, never() ).createSchedulerJob( ArgumentMatchers.any( ISchedulerResource.class ),
+      ArgumentMatchers.any( IJobScheduleRequest.class ) );
+  }
+
+  @Test
+  public void testImportWithOverwriteRemovesTheExistingScheduleBeforeCreatingAny() throws Exception {
+    importHandler.overwriteFile = true;
+    JobScheduleRequest schedule = createSchedule( "report", "existing-lineage" );
+    JobScheduleRequest newSchedule = createSchedule( "new report", "new-lineage" );
+    IScheduler scheduler = mockScheduler();
+    IJob existingJob = existingJob( "existing job", "existing-lineage" );
+    doReturn( Collections.singletonList( existingJob ) ).when( scheduler ).getJobs( ArgumentMatchers.any() );
+    IJobRequest jobRequest = mock( IJobRequest.class );
+    when( scheduler.createJobRequest() ).thenReturn( jobRequest );
+    doReturn( okResponse( "imported job" ) ).when( scheduleImportUtil ).createSchedulerJob(
+      ArgumentMatchers.any( ISchedulerResource.class ), ArgumentMatchers.any( IJobScheduleRequest.class ) );
+
+    doImport( scheduler, Arrays.asList( newSchedule, schedule ) );
+
+    verify( jobRequest ).setJobId( "existing job" );
+    InOrder inOrder = inOrder( scheduler.createSchedulerResource(), scheduleImportUtil );
+    inOrder.verify( scheduler.createSchedulerResource() ).removeJob( jobRequest );
+    inOrder.verify( scheduleImportUtil, times( 2 ) ).createSchedulerJob(
+      ArgumentMatchers.any( ISchedulerResource.class ), ArgumentMatchers.any( IJobScheduleRequest.class ) );
+  }
+
+  @Test
+  public void testImportSkipsTheSchedulesWithALineageWhenTheLookupFails() throws Exception {
+    JobScheduleRequest schedule = createSchedule( "report", "unknown-lineage" );
+    JobScheduleRequest scheduleWithoutLineage = new JobScheduleRequest();
+    scheduleWithoutLineage.setJobName( "legacy report" );
+    IScheduler scheduler = mockScheduler();
+    doThrow( new SchedulerException( "scheduler is down" ) ).when( scheduler ).getJobs( ArgumentMatchers.any() );
+    doReturn( okResponse( "imported job" ) ).when( scheduleImportUtil ).createSchedulerJob(
+      ArgumentMatchers.any( ISchedulerResource.class ), ArgumentMatchers.any( IJobScheduleRequest.class ) );
+
+    doImport( scheduler, Arrays.asList( schedule, scheduleWithoutLineage ) );
+
+    // it could not be told whether the schedule would replace one
+    verify( scheduleImportUtil, never() ).createSchedulerJob( ArgumentMatchers.any( ISchedulerResource.class ),
+      ArgumentMatchers.same( schedule ) );
+    verify( scheduleImportUtil ).createSchedulerJob( ArgumentMatchers.any( ISchedulerResource.class ),
+      ArgumentMatchers.same( scheduleWithoutLineage ) );
+    verify( scheduler.createSchedulerResource(), never() ).removeJob( ArgumentMatchers.any() );
+    verify( scheduler.createSchedulerResource() ).start();
+  }
+
+  private void doImport( IScheduler scheduler, List<IJobScheduleRequest> schedules ) throws Exception {
+    ExportManifest exportManifest = mock( ExportManifest.class );
+    when( exportManifest.getScheduleList() ).thenReturn( schedules );
+    when( importHandler.getImportSession().getManifest() ).thenReturn( exportManifest );
+    doReturn( 1 ).when( scheduleImportUtil ).getImportParallelism();
+    try ( MockedStatic<PentahoSystem> pentahoSystemMockedStatic = Mockito.mockStatic( PentahoSystem.class ) ) {
+      pentahoSystemMockedStatic.when( () -> PentahoSystem.get( IScheduler.class, "IScheduler2", null ) )
+        .thenReturn( scheduler );
+      scheduleImportUtil.doImport( importHandler );
+    }
+  }
+
+  private static IScheduler mockScheduler() {
+    IScheduler scheduler = mock( IScheduler.class );
+    when( scheduler.createSchedulerResource() ).thenReturn( mock( ISchedulerResource.class ) );
+    return scheduler;
+  }
+
+  private static IJob existingJob( String jobId, String lineageId ) {
+    IJob job = mock( IJob.class );
+    when( job.getJobId() ).thenReturn( jobId );
+    when( job.getJobParams() ).thenReturn(
+      Collections.<String, Object>singletonMap( IScheduler.RESERVEDMAPKEY_LINEAGE_ID, lineageId ) );
+    return job;
+  }
+
+  private static JobScheduleRequest createSchedule( String jobName, String lineageId ) {
+    JobScheduleRequest schedule = new JobScheduleRequest();
+    schedule.setJobName( jobName );
+    schedule.getJobParameters().add( new JobScheduleParam( IScheduler.RESERVEDMAPKEY_LINEAGE_ID, lineageId ) );
+    return schedule;
+  }
+
+  private static Response okResponse( String jobId ) {
+    Response response = mock( Response.class );
+    when( response.getStatus() ).thenReturn( Response.Status.OK.getStatusCode() );
+    when( response.getEntity() ).thenReturn( jobId );
+    return response;
+  }
+
+
   private static class FakeJobSchedluerRequest implements IJobScheduleRequest {
     private String inputFile;
 
@@ -0,0 +1,97 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2;
+
+import org.junit.Test;
+import org.pentaho.platform.api.scheduler2.ComplexJobTrigger;
+import org.pentaho.platform.util.messages.LocaleHelper;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CronDescriptionServiceTest {
+
+  @Test
+  public void testDescriptionIsCached() {
+    CronDescriptionService service = new CronDescriptionService( 10 );
+    String description = service.describe( "0 0 12 ? * MON-FRI", Locale.US );
+
+    assertNotNull( description );
+    assertSame( description, service.describe( "0 0 12 ? * MON-FRI", Locale.US ) );
+    assertEquals( 1, service.size() );
+  }
+
+  @Test
+  public void testDescriptionIsLocalized() {
+    CronDescriptionService service = new CronDescriptionService( 10 );
+    String english = service.describe( "0 0 12 ? * MON-FRI", Locale.US );
+    String spanish = service.describe( "0 0 12 ? * MON-FRI", new Locale( "es" ) );
+
+    assertNotEquals( english, spanish );
+    assertEquals( 2, service.size() );
+  }
+
+  @Test
+  public void testTriggerDescriptionFollowsTheCallersLocale() {
+    ComplexJobTrigger trigger = new ComplexJobTrigger();
+    trigger.setCronString( "0 0 12 ? * MON-FRI" );
+    Locale locale = LocaleHelper.getLocale();
+    try {
+      LocaleHelper.setLocale( Locale.US );
+      String english = trigger.getCronDescription();
+      LocaleHelper.setLocale( new Locale( "es" ) );
+      String spanish = trigger.getCronDescription();
+
+      assertEquals( CronDescriptionService.getInstance().describe( "0 0 12 ? * MON-FRI", Locale.US ), english );
+      assertNotEquals( english, spanish );
+    } finally {
+      LocaleHelper.setLocale( locale );
+    }
+  }
+
+  @Test
+  public void testCacheIsBounded() {
+    CronDescriptionService service = new CronDescriptionService( 3 );
+    for ( int minute = 0; minute < 10; minute++ ) {
+      service.describe( "0 " + minute + " 12 * * ?", Locale.US );
+    }
+    assertEquals( 3, service.size() );
+  }
+
+  @Test
+  public void testManyJobsShareFewDescriptions() {
+    // a listing of 50k jobs typically only has a handful of distinct schedules
+    CronDescriptionService service = new CronDescriptionService( CronDescriptionService.DEFAULT_MAX_ENTRIES );
+    for ( int job = 0; job < 50000; job++ ) {
+      service.describe( "0 " + ( job % 60 ) + " " + ( job % 24 ) + " ? * MON-FRI", Locale.US );
+    }
+    assertEquals( 120, service.size() );
+  }
+
+  @Test
+  public void testEmptyCronString() {
+    CronDescriptionService service = new CronDescriptionService( 10 );
+    assertNull( service.describe( null, Locale.US ) );
+    assertNull( service.describe( "", Locale.US ) );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testInvalidCronString() {
+    new CronDescriptionService( 10 ).describe( "not a cron", Locale.US );
+  }
+}
@@ -0,0 +1,161 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.action;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SharedExecutionsTest {
+
+  private static final String ACTION = "reportAction";
+  private static final String INPUT = "/public/Sales.prpt";
+  private static final long FIRE_TIME = 1700000040000L;
+
+  @Test
+  public void testFingerprintIgnoresTheOwner() {
+    Map<String, Object> suzy = params( "suzy", "suzy@example.com", "EMEA" );
+    Map<String, Object> tiffany = params( "tiffany", "tiffany@example.com", "EMEA" );
+
+    String fingerprint = SharedExecutions.fingerprint( ACTION, INPUT, suzy, FIRE_TIME );
+    assertEquals( fingerprint, SharedExecutions.fingerprint( ACTION, INPUT, tiffany, FIRE_TIME + 5000 ) );
+
+    assertNotEquals( fingerprint,
+      SharedExecutions.fingerprint( ACTION, INPUT, params( "tiffany", "tiffany@example.com", "APAC" ), FIRE_TIME ) );
+    assertNotEquals( fingerprint, SharedExecutions.fingerprint( ACTION, "/public/Other.prpt", suzy, FIRE_TIME ) );
+    assertNotEquals( fingerprint, SharedExecutions.fingerprint( ACTION, INPUT, suzy, FIRE_TIME + 60000 ) );
+    assertNull( SharedExecutions.fingerprint( ACTION, null, suzy, FIRE_TIME ) );
+  }
+
+  @Test
+  public void testPermissionScope() {
+    String fingerprint = SharedExecutions.fingerprint( ACTION, INPUT, params( "suzy", null, "EMEA" ), FIRE_TIME );
+
+    assertEquals( SharedExecutions.withPermissionScope( fingerprint, Arrays.asList( "Power User", "Authenticated" ) ),
+      SharedExecutions.withPermissionScope( fingerprint, Arrays.asList( "Authenticated", "Power User" ) ) );
+    assertNotEquals( SharedExecutions.withPermissionScope( fingerprint, Arrays.asList( "Authenticated" ) ),
+      SharedExecutions.withPermissionScope( fingerprint, Arrays.asList( "Authenticated", "Administrator" ) ) );
+  }
+
+  @Test
+  public void testOwnerScope() {
+    String fingerprint = SharedExecutions.fingerprint( ACTION, INPUT, params( "suzy", null, "EMEA" ), FIRE_TIME );
+
+    assertEquals( SharedExecutions.withOwnerScope( fingerprint, "suzy" ),
+      SharedExecutions.withOwnerScope( fingerprint, "suzy" ) );
+    assertNotEquals( SharedExecutions.withOwnerScope( fingerprint, "suzy" ),
+      SharedExecutions.withOwnerScope( fingerprint, "tiffany" ) );
+  }
+
+  @Test
+  public void testFollowersGetTheLeadersOutput() {
+    SharedExecutions executions = new SharedExecutions( Runnable::run );
+    SharedExecutions.Execution leader = executions.join( "fingerprint", 0 );
+    SharedExecutions.Execution follower = executions.join( "fingerprint", 1000 );
+    List<String> outputs = new ArrayList<>();
+
+    assertTrue( leader.isLeader() );
+    assertFalse( follower.isLeader() );
+    follower.whenDone( outputs::add );
+    assertTrue( outputs.isEmpty() );
+
+    executions.complete( leader, "/home/suzy/Sales.pdf", true, 2000 );
+    assertEquals( Arrays.asList( "/home/suzy/Sales.pdf" ), outputs );
+    // a follower firing late behind a busy worker pool
+    executions.join( "fingerprint", 3000 ).whenDone( outputs::add );
+    assertEquals( Arrays.asList( "/home/suzy/Sales.pdf", "/home/suzy/Sales.pdf" ), outputs );
+
+    // until the execution is forgotten
+    assertTrue( executions.join( "fingerprint", 2001 + SharedExecutions.RETENTION_MILLIS ).isLeader() );
+  }
+
+  @Test
+  public void testFollowersOfAFailedLeaderRunThemselves() {
+    SharedExecutions executions = new SharedExecutions( Runnable::run );
+    SharedExecutions.Execution leader = executions.join( "fingerprint", 0 );
+    SharedExecutions.Execution follower = executions.join( "fingerprint", 0 );
+    List<String> outputs = new ArrayList<>();
+    follower.whenDone( outputs::add );
+
+    executions.complete( follower, "/home/tiffany/Sales.pdf", true, 1000 );
+    assertTrue( outputs.isEmpty() );
+    executions.complete( leader, "/home/suzy/Sales.pdf", false, 1000 );
+
+    assertEquals( Arrays.asList( (String) null ), outputs );
+  }
+
+  @Test
+  public void testRunningLeaderIsKept() {
+    SharedExecutions executions = new SharedExecutions();
+    assertTrue( executions.join( "fingerprint", 0 ).isLeader() );
+
+    assertFalse( executions.join( "fingerprint", 10 * SharedExecutions.RETENTION_MILLIS ).isLeader() );
+  }
+
+  @Test
+  public void testFailingFollowerDoesNotStopTheOthers() {
+    SharedExecutions executions = new SharedExecutions( Runnable::run );
+    SharedExecutions.Execution leader = executions.join( "fingerprint", 0 );
+    List<String> outputs = new ArrayList<>();
+    executions.join( "fingerprint", 0 ).whenDone( output -> {
+      throw new IllegalStateException( "stream closed" );
+    } );
+    executions.join( "fingerprint", 0 ).whenDone( outputs::add );
+
+    executions.complete( leader, "/home/suzy/Sales.pdf", true, 1000 );
+
+    assertEquals( Arrays.asList( "/home/suzy/Sales.pdf" ), outputs );
+  }
+
+  @Test
+  public void testFollowersDoNotRunInTheLeadersThread() throws Exception {
+    SharedExecutions executions = new SharedExecutions();
+    SharedExecutions.Execution leader = executions.join( "fingerprint", 0 );
+    CountDownLatch done = new CountDownLatch( 1 );
+    AtomicReference<Thread> followerThread = new AtomicReference<>();
+    executions.join( "fingerprint", 0 ).whenDone( output -> {
+      followerThread.set( Thread.currentThread() );
+      done.countDown();
+    } );
+
+    executions.complete( leader, "/home/suzy/Sales.pdf", true, 1000 );
+
+    assertTrue( done.await( 5, TimeUnit.SECONDS ) );
+    assertNotEquals( Thread.currentThread(), followerThread.get() );
+  }
+
+  private static Map<String, Object> params( String user, String emailTo, String region ) {
+    Map<String, Object> params = new HashMap<>();
+    params.put( "ActionAdapterQuartzJob-ActionUser", user );
+    params.put( "lineage-id", user + "-lineage" );
+    params.put( "share-execution", "true" );
+    params.put( "_SCH_EMAIL_TO", emailTo );
+    params.put( "region", region );
+    params.put( "formats", new String[] { "pdf", "csv" } );
+    return params;
+  }
+}
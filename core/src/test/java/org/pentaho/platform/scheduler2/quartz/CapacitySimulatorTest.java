@@ -0,0 +1,185 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Test;
+import org.pentaho.platform.api.scheduler2.IJobScheduleParam;
+import org.pentaho.platform.api.scheduler2.IScheduler;
+import org.pentaho.platform.api.scheduler2.SimpleJobTrigger;
+import org.pentaho.platform.web.http.api.resources.JobScheduleParam;
+import org.pentaho.platform.web.http.api.resources.JobScheduleRequest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class CapacitySimulatorTest {
+
+  private static final long MINUTE = 60000L;
+  private static final long HOUR = 60 * MINUTE;
+  private static final long DAY = 24 * HOUR;
+
+  @Test
+  public void testQueueingDelayAndMisfires() {
+    CapacitySimulator simulator = new CapacitySimulator();
+    simulator.setThreadCount( 1 );
+    CapacitySimulator.SimulatedJob low = job( "low", null, 5, true, HOUR, 10 * MINUTE );
+    CapacitySimulator.SimulatedJob high = job( "high", null, 7, true, HOUR, 10 * MINUTE );
+
+    CapacitySimulator.Result result = simulator.simulate( Arrays.asList( low, high ), 0, 3 * HOUR );
+
+    // both fire on the hour; the higher priority one runs first and the other waits ten minutes
+    assertEquals( 6, result.getFires() );
+    assertEquals( 6, result.getExecutions() );
+    assertEquals( 3, result.getMisfires() );
+    assertEquals( 0, result.getDropped() );
+    assertEquals( 3, low.getMisfires() );
+    assertEquals( 0, high.getMisfires() );
+    assertEquals( 5 * MINUTE, result.getMeanDelayMillis() );
+    assertEquals( 0, result.getDelayPercentileMillis( 50 ) );
+    assertEquals( 10 * MINUTE, result.getMaxDelayMillis() );
+    assertEquals( 2, result.getPeakQueueLength() );
+  }
+
+  @Test
+  public void testPriorityOverride() {
+    CapacitySimulator simulator = new CapacitySimulator();
+    simulator.setThreadCount( 1 );
+    simulator.setPriority( "low", 10 );
+    CapacitySimulator.SimulatedJob low = job( "low", null, 5, true, HOUR, 10 * MINUTE );
+    CapacitySimulator.SimulatedJob high = job( "high", null, 7, true, HOUR, 10 * MINUTE );
+
+    simulator.simulate( Arrays.asList( low, high ), 0, HOUR );
+
+    assertEquals( 0, low.getMisfires() );
+    assertEquals( 1, high.getMisfires() );
+  }
+
+  @Test
+  public void testMisfiresOfTriggersThatSkipMissedRunsAreDropped() {
+    CapacitySimulator simulator = new CapacitySimulator();
+    simulator.setThreadCount( 1 );
+    CapacitySimulator.SimulatedJob low = job( "low", null, 5, false, HOUR, 10 * MINUTE );
+    CapacitySimulator.SimulatedJob high = job( "high", null, 7, true, HOUR, 10 * MINUTE );
+
+    CapacitySimulator.Result result = simulator.simulate( Arrays.asList( low, high ), 0, 3 * HOUR );
+
+    assertEquals( 6, result.getFires() );
+    assertEquals( 3, result.getExecutions() );
+    assertEquals( 3, result.getMisfires() );
+    assertEquals( 3, result.getDropped() );
+    assertEquals( 0, low.getExecutions() );
+    assertEquals( 0, result.getMaxDelayMillis() );
+  }
+
+  @Test
+  public void testFiresOfAWaitingJobAreCoalesced() {
+    CapacitySimulator simulator = new CapacitySimulator();
+    simulator.setThreadCount( 1 );
+    simulator.setMisfireThresholdMillis( HOUR );
+    CapacitySimulator.SimulatedJob job = job( "slow", null, 5, true, MINUTE, 5 * MINUTE );
+
+    CapacitySimulator.Result result = simulator.simulate( Collections.singletonList( job ), 0, 10 * MINUTE );
+
+    // runs at 0, 5 (for the fire at 1) and 10 (for the fire at 6); the other fires fold into the waiting one
+    assertEquals( 10, result.getFires() );
+    assertEquals( 3, result.getExecutions() );
+    assertEquals( 7, result.getCoalesced() );
+    assertEquals( 0, result.getMisfires() );
+    assertEquals( 4 * MINUTE, result.getMaxDelayMillis() );
+  }
+
+  @Test
+  public void testOwnerLimit() {
+    List<CapacitySimulator.SimulatedJob> jobs = Arrays.asList( job( "a", "alice", 5, true, HOUR, 10 * MINUTE ),
+      job( "b1", "bob", 5, true, HOUR, 10 * MINUTE ), job( "b2", "bob", 5, true, HOUR, 10 * MINUTE ),
+      job( "b3", "bob", 5, true, HOUR, 10 * MINUTE ) );
+    CapacitySimulator simulator = new CapacitySimulator();
+    simulator.setThreadCount( 4 );
+
+    assertEquals( 0, simulator.simulate( jobs, 0, HOUR ).getMaxDelayMillis() );
+
+    simulator.setOwnerLimit( "bob", 1 );
+    CapacitySimulator.Result result = simulator.simulate( jobs, 0, HOUR );
+    assertEquals( 4, result.getExecutions() );
+    assertEquals( 20 * MINUTE, result.getMaxDelayMillis() );
+    assertEquals( 0, jobs.get( 0 ).getMisfires() );
+  }
+
+  @Test
+  public void testSeedMakesTheResultRepeatable() {
+    List<CapacitySimulator.SimulatedJob> jobs = new ArrayList<>();
+    for ( int i = 0; i < 20; i++ ) {
+      jobs.add( job( "job" + i, "user" + ( i % 3 ), 5, i % 2 == 0, ( 5 + i ) * MINUTE, MINUTE, 7 * MINUTE,
+        30 * MINUTE ) );
+    }
+    CapacitySimulator simulator = new CapacitySimulator();
+    simulator.setThreadCount( 3 );
+    simulator.setSeed( 42 );
+
+    CapacitySimulator.Result first = simulator.simulate( jobs, 0, DAY );
+    CapacitySimulator.Result second = simulator.simulate( jobs, 0, DAY );
+
+    assertEquals( first.getExecutions(), second.getExecutions() );
+    assertEquals( first.getMisfires(), second.getMisfires() );
+    assertEquals( first.getCoalesced(), second.getCoalesced() );
+    assertEquals( first.getMeanDelayMillis(), second.getMeanDelayMillis() );
+    assertEquals( first.getDelayPercentileMillis( 95 ), second.getDelayPercentileMillis( 95 ) );
+    assertEquals( first.getFires(),
+      first.getExecutions() + first.getDropped() + first.getCoalesced() );
+  }
+
+  @Test
+  public void testFromSchedules() throws Exception {
+    long start = System.currentTimeMillis() / 1000 * 1000;
+    SimpleJobTrigger trigger = new SimpleJobTrigger( new Date( start ), null, -1, 3600 );
+    trigger.setUiPassParam( "HOURS" );
+    JobScheduleRequest schedule = new JobScheduleRequest();
+    schedule.setJobName( "report" );
+    schedule.setSimpleJobTrigger( trigger );
+    List<IJobScheduleParam> parameters = new ArrayList<>();
+    parameters.add( new JobScheduleParam( IScheduler.RESERVEDMAPKEY_ACTIONUSER, "admin" ) );
+    parameters.add( new JobScheduleParam( IScheduler.RESERVEDMAPKEY_LINEAGE_ID, "lineage" ) );
+    schedule.setJobParameters( parameters );
+    ExecutionDurations durations = new ExecutionDurations();
+    durations.record( "lineage", 90 * MINUTE );
+
+    List<CapacitySimulator.SimulatedJob> jobs =
+      CapacitySimulator.fromSchedules( Collections.singletonList( schedule ), durations );
+    assertEquals( 1, jobs.size() );
+    assertEquals( "lineage", jobs.get( 0 ).getId() );
+    assertEquals( "admin", jobs.get( 0 ).getOwner() );
+
+    CapacitySimulator simulator = new CapacitySimulator();
+    simulator.setThreadCount( 10 );
+    CapacitySimulator.Result result = simulator.simulate( jobs, start + MINUTE, start + MINUTE + DAY );
+    // hourly runs of an hour and a half overlap, which ten threads absorb
+    assertEquals( 24, result.getExecutions() );
+    assertEquals( 0, result.getMaxDelayMillis() );
+  }
+
+  private static CapacitySimulator.SimulatedJob job( String id, String owner, int priority, boolean catchesUp,
+                                                     long interval, long... durations ) {
+    return new CapacitySimulator.SimulatedJob( id, owner, priority, catchesUp, durations,
+      new FireTimeForecast.FireTimeStream( id ) {
+        @Override
+        long fireTimeAfter( long after ) {
+          return ( Math.floorDiv( after, interval ) + 1 ) * interval;
+        }
+      } );
+  }
+}
@@ -0,0 +1,60 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Test;
+import org.quartz.JobKey;
+import org.quartz.ListenerManager;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerMetaData;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CatalogVersionTest {
+
+  @Test
+  public void testChangesBumpTheVersion() throws Exception {
+    CatalogVersion catalogVersion = new CatalogVersion();
+    assertNull( catalogVersion.get() );
+
+    Scheduler scheduler = scheduler( false );
+    catalogVersion.register( scheduler );
+    verify( scheduler.getListenerManager() ).addSchedulerListener( catalogVersion );
+
+    String version = catalogVersion.get();
+    assertEquals( version, catalogVersion.get() );
+    catalogVersion.jobDeleted( new JobKey( "admin\treport\t1", "admin" ) );
+    assertNotEquals( version, catalogVersion.get() );
+  }
+
+  @Test
+  public void testNoVersionWithAClusteredJobStore() throws Exception {
+    CatalogVersion catalogVersion = new CatalogVersion();
+    catalogVersion.register( scheduler( true ) );
+    assertNull( catalogVersion.get() );
+  }
+
+  private Scheduler scheduler( boolean clustered ) throws Exception {
+    Scheduler scheduler = mock( Scheduler.class );
+    SchedulerMetaData metaData = mock( SchedulerMetaData.class );
+    when( metaData.isJobStoreClustered() ).thenReturn( clustered );
+    when( scheduler.getMetaData() ).thenReturn( metaData );
+    when( scheduler.getListenerManager() ).thenReturn( mock( ListenerManager.class ) );
+    return scheduler;
+  }
+}
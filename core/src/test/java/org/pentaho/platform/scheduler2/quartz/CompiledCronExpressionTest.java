@@ -0,0 +1,98 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Test;
+import org.pentaho.platform.scheduler2.recur.ITimeRecurrence;
+import org.pentaho.platform.scheduler2.recur.IncrementalRecurrence;
+import org.pentaho.platform.scheduler2.recur.QualifiedDayOfMonth;
+import org.pentaho.platform.scheduler2.recur.QualifiedDayOfWeek;
+import org.pentaho.platform.scheduler2.recur.RecurrenceList;
+import org.pentaho.platform.scheduler2.recur.SequentialRecurrence;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompiledCronExpressionTest {
+
+  @Test
+  public void testCompileFields() {
+    CompiledCronExpression compiled =
+      CompiledCronExpression.compile( "0 30,45 12,15,25-30,10/5 L ? 3,5,7-9,1/3 2010,2013,2015-2020,*/5" );
+
+    List<ITimeRecurrence> hours = compiled.getRecurrences( CompiledCronExpression.HOURS );
+    assertEquals( 3, hours.size() );
+    assertEquals( Arrays.asList( 12, 15 ), ( (RecurrenceList) hours.get( 0 ) ).getValues() );
+    assertEquals( Integer.valueOf( 25 ), ( (SequentialRecurrence) hours.get( 1 ) ).getFirstValue() );
+    assertEquals( Integer.valueOf( 30 ), ( (SequentialRecurrence) hours.get( 1 ) ).getLastValue() );
+    assertEquals( Integer.valueOf( 5 ), ( (IncrementalRecurrence) hours.get( 2 ) ).getIncrement() );
+
+    assertTrue(
+      compiled.getRecurrences( CompiledCronExpression.DAY_OF_MONTH ).get( 0 ) instanceof QualifiedDayOfMonth );
+    assertTrue( compiled.getRecurrences( CompiledCronExpression.MONTH ).isEmpty() );
+    assertEquals( "*", ( (IncrementalRecurrence) compiled.getRecurrences( CompiledCronExpression.YEAR ).get( 2 ) )
+      .getStartingValue() );
+  }
+
+  @Test
+  public void testDayOfWeekTerms() {
+    List<ITimeRecurrence> days =
+      CompiledCronExpression.compile( "0 0 0 ? * 6L,1#3,MON-FRI,SUN,2 *" )
+        .getRecurrences( CompiledCronExpression.DAY_OF_WEEK );
+
+    assertEquals( 5, days.size() );
+    assertTrue( days.get( 0 ) instanceof QualifiedDayOfWeek );
+    assertTrue( days.get( 1 ) instanceof QualifiedDayOfWeek );
+    assertEquals( Integer.valueOf( QualifiedDayOfWeek.DayOfWeek.MON.ordinal() ),
+      ( (SequentialRecurrence) days.get( 2 ) ).getFirstValue() );
+    assertEquals( Arrays.asList( QualifiedDayOfWeek.DayOfWeek.SUN.ordinal() ),
+      ( (RecurrenceList) days.get( 3 ) ).getValues() );
+    assertEquals( Arrays.asList( 2 ), ( (RecurrenceList) days.get( 4 ) ).getValues() );
+  }
+
+  @Test
+  public void testCachedAndFreshRecurrences() {
+    CompiledCronExpression compiled = CompiledCronExpression.compile( "0 15 10 ? * MON *" );
+    assertSame( compiled, CompiledCronExpression.compile( "0 15 10 ? * MON *" ) );
+    assertNotSame( compiled.getRecurrences( CompiledCronExpression.MINUTES ).get( 0 ),
+      compiled.getRecurrences( CompiledCronExpression.MINUTES ).get( 0 ) );
+  }
+
+  @Test
+  public void testErrorPositions() {
+    assertErrorAt( "0 0 12 1,,2 * ? *", "9" );
+    assertErrorAt( "0 0 1x * * ? *", "4" );
+    assertErrorAt( "0 0 12 ? * FUNDAY *", "11" );
+    assertErrorAt( " 0 0 12 * * ? *", "0" );
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void testMissingField() {
+    CompiledCronExpression.compile( "0 0 12 * * ?" ).getRecurrences( CompiledCronExpression.YEAR );
+  }
+
+  private static void assertErrorAt( String expression, String position ) {
+    try {
+      CompiledCronExpression.compile( expression );
+      fail( expression );
+    } catch ( IllegalArgumentException e ) {
+      assertTrue( e.getMessage(), e.getMessage().contains( "position " + position ) );
+    }
+  }
+}
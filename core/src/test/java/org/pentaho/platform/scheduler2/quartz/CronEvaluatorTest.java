@@ -0,0 +1,163 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Test;
+import org.quartz.CronExpression;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class CronEvaluatorTest {
+
+  private static final String[] ZONES = { "UTC", "America/New_York", "Europe/Berlin", "Asia/Kolkata",
+    "Australia/Lord_Howe", "America/Sao_Paulo" };
+
+  private static final String[] MONTHS = { "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT",
+    "NOV", "DEC" };
+
+  private static final String[] DAYS = { "SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT" };
+
+  private static final long START = 946684800000L; // 2000-01-01T00:00:00Z
+
+  private static final long SPAN = 40L * 365 * 24 * 60 * 60 * 1000;
+
+  @Test
+  public void testFixedExpressions() throws Exception {
+    TimeZone utc = TimeZone.getTimeZone( "UTC" );
+    // 2024-01-01T00:00:00Z is a Monday
+    long monday = 1704067200000L;
+
+    assertEquals( monday + 10 * 3600000L + 15 * 60000L,
+      CronEvaluator.compile( "0 15 10 ? * MON-FRI", utc ).getTimeAfter( monday ) );
+    assertEquals( monday + 4 * 24 * 3600000L,
+      CronEvaluator.compile( "0 0 0 ? * FRI *", utc ).getTimeAfter( monday ) );
+    assertEquals( monday + 1000, CronEvaluator.compile( "* * * * * ?", utc ).getTimeAfter( monday ) );
+    // 2024-02-29, then skips to the next leap year
+    CronEvaluator leapDay = CronEvaluator.compile( "0 0 0 29 2 ?", utc );
+    assertEquals( 1709164800000L, leapDay.getTimeAfter( monday ) );
+    assertEquals( 1835395200000L, leapDay.getTimeAfter( 1709164800000L ) );
+    assertEquals( -1, CronEvaluator.compile( "0 0 0 1 1 ? 2020", utc ).getTimeAfter( monday ) );
+    assertEquals( new Date( monday + 60000 ),
+      CronEvaluator.compile( "0 * * * * ?", utc ).getTimeAfter( new Date( monday ) ) );
+  }
+
+  @Test
+  public void testUnsupportedSyntaxIsNotCompiled() {
+    TimeZone utc = TimeZone.getTimeZone( "UTC" );
+    assertNull( CronEvaluator.compile( "0 0 12 L * ?", utc ) );
+    assertNull( CronEvaluator.compile( "0 0 12 15W * ?", utc ) );
+    assertNull( CronEvaluator.compile( "0 0 12 ? * 1#3", utc ) );
+    assertNull( CronEvaluator.compile( "0 0 12 ? * 6L", utc ) );
+    assertNull( CronEvaluator.compile( "0 0 12 * * *", utc ) );
+    assertNull( CronEvaluator.compile( "0 0 12 * *", utc ) );
+    assertNull( CronEvaluator.compile( "0 0 25 * * ?", utc ) );
+    assertNull( CronEvaluator.compile( null, utc ) );
+  }
+
+  @Test
+  public void testCompiledOncePerZone() {
+    CronEvaluator utc = CronEvaluator.compile( "0 0 12 * * ?", TimeZone.getTimeZone( "UTC" ) );
+    assertSame( utc, CronEvaluator.compile( "0 0 12 * * ?", TimeZone.getTimeZone( "UTC" ) ) );
+    assertEquals( "Europe/Berlin",
+      CronEvaluator.compile( "0 0 12 * * ?", TimeZone.getTimeZone( "Europe/Berlin" ) ).getTimeZone().getID() );
+  }
+
+  /**
+   * Random expressions, zones and start instants; every successive fire time must match Quartz, including across
+   * daylight saving transitions.
+   */
+  @Test
+  public void testAgreesWithQuartz() throws Exception {
+    Random random = new Random( 20240720L );
+    for ( int i = 0; i < 500; i++ ) {
+      String expression = randomExpression( random );
+      TimeZone timeZone = TimeZone.getTimeZone( ZONES[ random.nextInt( ZONES.length ) ] );
+      CronEvaluator evaluator = CronEvaluator.compile( expression, timeZone );
+      assertNotNull( expression, evaluator );
+
+      CronExpression quartz = new CronExpression( expression );
+      quartz.setTimeZone( timeZone );
+
+      long after = START + (long) ( random.nextDouble() * SPAN );
+      for ( int step = 0; step < 20; step++ ) {
+        Date expected = quartz.getTimeAfter( new Date( after ) );
+        long actual = evaluator.getTimeAfter( after );
+        String message = expression + " in " + timeZone.getID() + " after " + after;
+        if ( expected == null ) {
+          assertEquals( message, -1, actual );
+          break;
+        }
+        assertEquals( message, expected.getTime(), actual );
+        after = actual;
+      }
+    }
+  }
+
+  private static String randomExpression( Random random ) {
+    boolean dayOfMonth = random.nextBoolean();
+    StringBuilder expression = new StringBuilder();
+    expression.append( randomField( random, 0, 59, null ) ).append( ' ' );
+    expression.append( randomField( random, 0, 59, null ) ).append( ' ' );
+    expression.append( randomField( random, 0, 23, null ) ).append( ' ' );
+    expression.append( dayOfMonth ? randomField( random, 1, 31, null ) : "?" ).append( ' ' );
+    expression.append( randomField( random, 1, 12, MONTHS ) ).append( ' ' );
+    expression.append( dayOfMonth ? "?" : randomField( random, 1, 7, DAYS ) );
+    if ( random.nextInt( 4 ) == 0 ) {
+      int year = 2000 + random.nextInt( 60 );
+      expression.append( ' ' ).append( random.nextBoolean() ? year + "-" + ( year + random.nextInt( 10 ) )
+        : "*/" + ( 1 + random.nextInt( 3 ) ) );
+    }
+    return expression.toString();
+  }
+
+  private static String randomField( Random random, int min, int max, String[] names ) {
+    int terms = 1 + random.nextInt( 3 );
+    StringBuilder field = new StringBuilder();
+    for ( int i = 0; i < terms; i++ ) {
+      if ( i > 0 ) {
+        field.append( ',' );
+      }
+      int first = min + random.nextInt( max - min + 1 );
+      int last = min + random.nextInt( max - min + 1 );
+      switch ( random.nextInt( 6 ) ) {
+        case 0:
+          return "*";
+        case 1:
+          field.append( names != null && random.nextBoolean() ? names[ first - min ] : String.valueOf( first ) );
+          break;
+        case 2:
+          // may wrap around, e.g. 22-2
+          field.append( first ).append( '-' ).append( last );
+          break;
+        case 3:
+          field.append( random.nextBoolean() ? "*" : String.valueOf( first ) ).append( '/' )
+            .append( 1 + random.nextInt( ( max - min ) / 2 + 1 ) );
+          break;
+        case 4:
+          field.append( first ).append( '-' ).append( last ).append( '/' ).append( 1 + random.nextInt( 5 ) );
+          break;
+        default:
+          field.append( first );
+          break;
+      }
+    }
+    return field.toString();
+  }
+}
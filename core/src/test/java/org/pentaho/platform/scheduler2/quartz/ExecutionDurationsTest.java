@@ -0,0 +1,90 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ExecutionDurationsTest {
+
+  @Test
+  public void testKeepsTheMostRecentSamples() {
+    ExecutionDurations durations = new ExecutionDurations();
+    for ( int i = 0; i < ExecutionDurations.MAX_SAMPLES + 10; i++ ) {
+      durations.record( "lineage", i );
+    }
+    durations.record( "lineage", -1 );
+    durations.record( null, 5 );
+
+    long[] recorded = durations.getDurations( "lineage" );
+    assertEquals( ExecutionDurations.MAX_SAMPLES, recorded.length );
+    assertEquals( 10, recorded[ 0 ] );
+    assertEquals( ExecutionDurations.MAX_SAMPLES + 9, recorded[ recorded.length - 1 ] );
+    assertEquals( 0, durations.getDurations( "other" ).length );
+    assertEquals( 0, durations.getDurations( null ).length );
+
+    durations.remove( "lineage" );
+    assertEquals( 0, durations.getDurations( "lineage" ).length );
+  }
+
+  @Test
+  public void testPropertiesRoundTrip() {
+    ExecutionDurations durations = new ExecutionDurations();
+    durations.record( "a", 1000 );
+    durations.record( "a", 2500 );
+    durations.record( "b", 60000 );
+
+    Properties properties = durations.toProperties();
+    assertEquals( "1000,2500", properties.getProperty( "a" ) );
+
+    properties.setProperty( "c", "7, x,9" );
+    ExecutionDurations read = ExecutionDurations.fromProperties( properties );
+    assertArrayEquals( new long[] { 1000, 2500 }, read.getDurations( "a" ) );
+    assertArrayEquals( new long[] { 60000 }, read.getDurations( "b" ) );
+    assertArrayEquals( new long[] { 7, 9 }, read.getDurations( "c" ) );
+  }
+
+  @Test
+  public void testFormatAndParseOneSchedule() {
+    ExecutionDurations durations = new ExecutionDurations();
+    assertNull( durations.format( "a" ) );
+    durations.record( "a", 1000 );
+    durations.record( "a", 2500 );
+
+    ExecutionDurations read = new ExecutionDurations();
+    read.parse( "a", durations.format( "a" ) );
+    read.parse( "b", "x" );
+    read.parse( "c", null );
+    assertArrayEquals( new long[] { 1000, 2500 }, read.getDurations( "a" ) );
+    assertEquals( 0, read.getDurations( "b" ).length );
+    assertEquals( 0, read.getDurations( "c" ).length );
+  }
+
+  @Test
+  public void testRetainAllForgetsTheOthers() {
+    ExecutionDurations durations = new ExecutionDurations();
+    durations.record( "kept", 1000 );
+    durations.record( "gone", 2000 );
+
+    durations.retainAll( Collections.singleton( "kept" ) );
+
+    assertArrayEquals( new long[] { 1000 }, durations.getDurations( "kept" ) );
+    assertEquals( 0, durations.getDurations( "gone" ).length );
+  }
+}
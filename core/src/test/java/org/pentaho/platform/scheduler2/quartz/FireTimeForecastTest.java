@@ -0,0 +1,148 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Test;
+import org.pentaho.platform.api.scheduler2.IBlockoutManager;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerMetaData;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FireTimeForecastTest {
+
+  private static final long MINUTE = 60000L;
+  private static final long HOUR = 60 * MINUTE;
+  private static final long DAY = 24 * HOUR;
+
+  @Test
+  public void testBucketsAndPeakConcurrency() {
+    FireTimeForecast forecast = new FireTimeForecast( 0, HOUR, 10 * MINUTE, 15 * MINUTE, 2 );
+    forecast.run( Arrays.asList( every( "a", 10 * MINUTE ), every( "b", 20 * MINUTE ), every( "c", 30 * MINUTE ) ),
+      10 );
+
+    // a fires at 0,10,...,50; b at 0,20,40; c at 0,30
+    assertArrayEquals( new int[] { 3, 1, 2, 2, 2, 1 }, forecast.getBuckets() );
+    assertEquals( 11, forecast.getExecutionCount() );
+    assertEquals( 3, forecast.getTriggerCount() );
+    // the three fires at 0 plus a's fire at 10 are all still running at 10
+    assertEquals( 4, forecast.getPeakConcurrency() );
+    assertEquals( 10 * MINUTE, forecast.getPeakTime() );
+    assertEquals( 6, forecast.getBucketsOverCapacity() );
+  }
+
+  @Test
+  public void testTopContributors() {
+    FireTimeForecast forecast = new FireTimeForecast( 0, HOUR, MINUTE, MINUTE, 10 );
+    forecast.run( Arrays.asList( every( "a", 30 * MINUTE ), every( "b", 5 * MINUTE ), every( "c", 10 * MINUTE ),
+      every( "rare", 2 * HOUR ) ), 2 );
+
+    List<FireTimeForecast.Contributor> top = forecast.getTopContributors();
+    assertEquals( 2, top.size() );
+    assertEquals( "b", top.get( 0 ).getJobId() );
+    assertEquals( 12, top.get( 0 ).getCount() );
+    assertEquals( "c", top.get( 1 ).getJobId() );
+    assertEquals( 6, top.get( 1 ).getCount() );
+  }
+
+  @Test
+  public void testTopContributorsAmongTheReportableJobs() {
+    FireTimeForecast forecast = new FireTimeForecast( 0, HOUR, MINUTE, MINUTE, 10 );
+    forecast.run( Arrays.asList( every( "a", 30 * MINUTE ), every( "b", 5 * MINUTE ), every( "c", 10 * MINUTE ) ), 1,
+      jobId -> !"b".equals( jobId ) );
+
+    // b still counts in the totals
+    assertEquals( 20, forecast.getExecutionCount() );
+    List<FireTimeForecast.Contributor> top = forecast.getTopContributors();
+    assertEquals( 1, top.size() );
+    assertEquals( "c", top.get( 0 ).getJobId() );
+  }
+
+  @Test
+  public void testForecastSkipsPausedTriggersAndBlockouts() throws Exception {
+    long start = System.currentTimeMillis();
+    Trigger hourly = cronTrigger( "admin\treport\t1", "0 0 * * * ?", start );
+    Trigger paused = cronTrigger( "admin\tpaused\t2", "0 0 * * * ?", start );
+    Trigger blockout = cronTrigger( "admin\t" + IBlockoutManager.BLOCK_OUT_JOB_NAME + "\t3", "0 0 * * * ?", start );
+
+    Scheduler scheduler = mock( Scheduler.class );
+    SchedulerMetaData metaData = mock( SchedulerMetaData.class );
+    when( metaData.getThreadPoolSize() ).thenReturn( 10 );
+    when( scheduler.getMetaData() ).thenReturn( metaData );
+    when( scheduler.getTriggerKeys( any( GroupMatcher.class ) ) )
+      .thenReturn( new HashSet<>( Arrays.asList( hourly.getKey(), paused.getKey(), blockout.getKey() ) ) );
+    when( scheduler.getTrigger( hourly.getKey() ) ).thenReturn( hourly );
+    when( scheduler.getTrigger( paused.getKey() ) ).thenReturn( paused );
+    when( scheduler.getTriggerState( hourly.getKey() ) ).thenReturn( Trigger.TriggerState.NORMAL );
+    when( scheduler.getTriggerState( paused.getKey() ) ).thenReturn( Trigger.TriggerState.PAUSED );
+
+    FireTimeForecast forecast = FireTimeForecast.forecast( scheduler, start, start + DAY, HOUR, MINUTE, 5 );
+
+    assertEquals( 1, forecast.getTriggerCount() );
+    assertEquals( 24, forecast.getExecutionCount() );
+    assertEquals( 10, forecast.getThreadCount() );
+    assertEquals( "admin\treport\t1", forecast.getTopContributors().get( 0 ).getJobId() );
+  }
+
+  @Test
+  public void testManyTriggersOverAWeek() throws Exception {
+    long start = System.currentTimeMillis();
+    List<FireTimeForecast.FireTimeStream> streams = new ArrayList<>();
+    for ( int i = 0; i < 50000; i++ ) {
+      String cron = "0 " + ( i % 60 ) + " " + ( i % 24 ) + " * * ?";
+      Trigger trigger = cronTrigger( "user" + i + "\tjob\t" + i, cron, start );
+      streams.add( new FireTimeForecast.TriggerStream( trigger.getJobKey().getName(), trigger, null ) );
+    }
+
+    FireTimeForecast forecast = new FireTimeForecast( start, start + 7 * DAY, MINUTE, MINUTE, 10 );
+    forecast.run( streams, 10 );
+
+    assertEquals( 7 * 50000, forecast.getExecutionCount() );
+    assertEquals( 7 * 24 * 60, forecast.getBuckets().length );
+    assertEquals( 10, forecast.getTopContributors().size() );
+  }
+
+  private static Trigger cronTrigger( String jobId, String cron, long start ) {
+    return TriggerBuilder.newTrigger()
+      .withIdentity( new TriggerKey( jobId, jobId.substring( 0, jobId.indexOf( '\t' ) ) ) )
+      .forJob( jobId, jobId.substring( 0, jobId.indexOf( '\t' ) ) )
+      .startAt( new Date( start ) )
+      .withSchedule( CronScheduleBuilder.cronSchedule( cron ).inTimeZone( TimeZone.getTimeZone( "UTC" ) ) )
+      .build();
+  }
+
+  private static FireTimeForecast.FireTimeStream every( String jobId, long interval ) {
+    return new FireTimeForecast.FireTimeStream( jobId ) {
+      @Override
+      long fireTimeAfter( long after ) {
+        return ( Math.floorDiv( after, interval ) + 1 ) * interval;
+      }
+    };
+  }
+}
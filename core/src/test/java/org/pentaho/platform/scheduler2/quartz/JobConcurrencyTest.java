@@ -0,0 +1,155 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JobConcurrencyTest {
+
+  private static final String JOB = "admin\treport\t1";
+
+  @Test
+  public void testGetPolicy() {
+    assertEquals( JobConcurrency.POLICY_ALLOW, JobConcurrency.getPolicy( null ) );
+    assertEquals( JobConcurrency.POLICY_ALLOW, JobConcurrency.getPolicy( "sometimes" ) );
+    assertEquals( JobConcurrency.POLICY_COALESCE, JobConcurrency.getPolicy( " Coalesce " ) );
+    assertEquals( JobConcurrency.POLICY_QUEUE, JobConcurrency.getPolicy( "queue" ) );
+  }
+
+  @Test
+  public void testRepeatedRunNowIsCoalesced() {
+    JobConcurrency concurrency = new JobConcurrency();
+    String policy = JobConcurrency.POLICY_COALESCE;
+
+    assertEquals( JobConcurrency.Admission.STARTED, concurrency.requestRun( JOB, policy ) );
+    // the second click comes before the first run has started
+    assertEquals( JobConcurrency.Admission.COALESCED, concurrency.requestRun( JOB, policy ) );
+    assertTrue( concurrency.start( JOB, policy, true ) );
+    assertEquals( JobConcurrency.Admission.COALESCED, concurrency.requestRun( JOB, policy ) );
+    // a cron fire during the run
+    assertFalse( concurrency.start( JOB, policy, false ) );
+
+    assertFalse( concurrency.finish( JOB ) );
+    assertFalse( concurrency.isBusy( JOB ) );
+    assertEquals( JobConcurrency.Admission.STARTED, concurrency.requestRun( JOB, policy ) );
+  }
+
+  @Test
+  public void testQueuedRunsFollowTheRunningOne() {
+    JobConcurrency concurrency = new JobConcurrency();
+    String policy = JobConcurrency.POLICY_QUEUE;
+
+    assertTrue( concurrency.start( JOB, policy, false ) );
+    assertEquals( JobConcurrency.Admission.QUEUED, concurrency.requestRun( JOB, policy ) );
+    assertFalse( concurrency.start( JOB, policy, false ) );
+
+    // each queued run is released as a manual run once the previous one has finished
+    assertTrue( concurrency.finish( JOB ) );
+    assertEquals( JobConcurrency.Admission.QUEUED, concurrency.requestRun( JOB, policy ) );
+    assertTrue( concurrency.start( JOB, policy, true ) );
+    assertTrue( concurrency.finish( JOB ) );
+    assertTrue( concurrency.start( JOB, policy, true ) );
+    assertTrue( concurrency.finish( JOB ) );
+    assertTrue( concurrency.start( JOB, policy, true ) );
+    assertFalse( concurrency.finish( JOB ) );
+    assertFalse( concurrency.isBusy( JOB ) );
+  }
+
+  @Test
+  public void testAllowRunsAlongside() {
+    JobConcurrency concurrency = new JobConcurrency();
+    String policy = JobConcurrency.POLICY_ALLOW;
+
+    assertTrue( concurrency.start( JOB, policy, false ) );
+    assertEquals( JobConcurrency.Admission.STARTED, concurrency.requestRun( JOB, policy ) );
+    assertTrue( concurrency.start( JOB, policy, true ) );
+    assertFalse( concurrency.finish( JOB ) );
+    assertFalse( concurrency.finish( JOB ) );
+    assertFalse( concurrency.isBusy( JOB ) );
+  }
+
+  @Test
+  public void testCancelledRunIsForgotten() {
+    JobConcurrency concurrency = new JobConcurrency();
+
+    assertEquals( JobConcurrency.Admission.STARTED, concurrency.requestRun( JOB, JobConcurrency.POLICY_COALESCE ) );
+    concurrency.cancelRun( JOB );
+    assertFalse( concurrency.isBusy( JOB ) );
+  }
+
+  @Test
+  public void testRequestWhoseFireNeverComesExpires() {
+    long[] now = { 1000 };
+    JobConcurrency concurrency = new JobConcurrency() {
+      @Override
+      long currentTimeMillis() {
+        return now[ 0 ];
+      }
+    };
+    String policy = JobConcurrency.POLICY_QUEUE;
+
+    // the job is paused before the requested run fires
+    assertEquals( JobConcurrency.Admission.STARTED, concurrency.requestRun( JOB, policy ) );
+    assertEquals( JobConcurrency.Admission.QUEUED, concurrency.requestRun( JOB, policy ) );
+    now[ 0 ] += JobConcurrency.REQUEST_TIMEOUT_MILLIS;
+    assertTrue( concurrency.isBusy( JOB ) );
+
+    now[ 0 ]++;
+    assertFalse( concurrency.isBusy( JOB ) );
+    assertEquals( JobConcurrency.Admission.STARTED, concurrency.requestRun( JOB, policy ) );
+  }
+
+  @Test
+  public void testUnrequestedFiresDoNotSettleRequests() {
+    JobConcurrency concurrency = new JobConcurrency();
+    String policy = JobConcurrency.POLICY_COALESCE;
+
+    assertEquals( JobConcurrency.Admission.STARTED, concurrency.requestRun( JOB, policy ) );
+    // a cron fire or a dependency before the requested run has started is folded into it, which is still to come
+    assertFalse( concurrency.start( JOB, policy, false ) );
+    assertTrue( concurrency.isBusy( JOB ) );
+
+    assertTrue( concurrency.start( JOB, policy, true ) );
+    assertFalse( concurrency.finish( JOB ) );
+    assertFalse( concurrency.isBusy( JOB ) );
+  }
+
+  @Test
+  public void testUnrequestedFiresQueueBehindARequestedRun() {
+    JobConcurrency concurrency = new JobConcurrency();
+    String policy = JobConcurrency.POLICY_QUEUE;
+
+    assertEquals( JobConcurrency.Admission.STARTED, concurrency.requestRun( JOB, policy ) );
+    assertFalse( concurrency.start( JOB, policy, false ) );
+    assertTrue( concurrency.start( JOB, policy, true ) );
+    assertTrue( concurrency.finish( JOB ) );
+    assertTrue( concurrency.start( JOB, policy, true ) );
+    assertFalse( concurrency.finish( JOB ) );
+    assertFalse( concurrency.isBusy( JOB ) );
+  }
+
+  @Test
+  public void testRemovedJobIsForgotten() {
+    JobConcurrency concurrency = new JobConcurrency();
+
+    assertEquals( JobConcurrency.Admission.STARTED, concurrency.requestRun( JOB, JobConcurrency.POLICY_QUEUE ) );
+    assertEquals( JobConcurrency.Admission.QUEUED, concurrency.requestRun( JOB, JobConcurrency.POLICY_QUEUE ) );
+    concurrency.forget( JOB );
+    assertFalse( concurrency.isBusy( JOB ) );
+  }
+}
@@ -0,0 +1,156 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JobDependenciesTest {
+
+  private static final String REPORT = "admin\treport\t1";
+
+  private final Map<JobKey, JobDetail> jobs = new HashMap<>();
+
+  private Scheduler scheduler;
+
+  @Before
+  public void setUp() throws Exception {
+    scheduler = mock( Scheduler.class );
+    when( scheduler.getJobDetail( any() ) ).thenAnswer( invocation -> jobs.get( invocation.getArgument( 0 ) ) );
+    doAnswer( invocation -> {
+      JobDetail jobDetail = invocation.getArgument( 0 );
+      jobs.put( jobDetail.getKey(), jobDetail );
+      return null;
+    } ).when( scheduler ).addJob( any(), anyBoolean(), anyBoolean() );
+  }
+
+  @Test
+  public void testParseLineageIds() {
+    assertEquals( Arrays.asList( "a", "b" ), JobDependencies.parseLineageIds( " a, b,,a " ) );
+    assertEquals( Arrays.asList( "a", "b" ), JobDependencies.parseLineageIds( Arrays.asList( "a", "b" ) ) );
+    assertTrue( JobDependencies.parseLineageIds( null ).isEmpty() );
+  }
+
+  @Test
+  public void testReleasedWhenAllUpstreamsComplete() throws Exception {
+    JobKey report = addReport( "etl,staging", null );
+
+    JobDependencies.upstreamFinished( scheduler, "etl", true, Collections.singletonList( REPORT ) );
+    verify( scheduler, never() ).triggerJob( report );
+    assertEquals( "etl", jobs.get( report ).getJobDataMap().get( JobDependencies.COMPLETED ) );
+
+    JobDependencies.upstreamFinished( scheduler, "staging", true, Collections.singletonList( REPORT ) );
+    verify( scheduler, times( 1 ) ).triggerJob( report );
+    assertEquals( "", jobs.get( report ).getJobDataMap().get( JobDependencies.COMPLETED ) );
+    assertEquals( "true", jobs.get( report ).getJobDataMap().get( JobDependencies.RELEASED ) );
+
+    // the batch already ran, so its own trigger does nothing and starts the next batch
+    assertFalse( JobDependencies.shouldRunScheduledFire( context( report, "admin\treport\t1" ) ) );
+    assertEquals( "false", jobs.get( report ).getJobDataMap().get( JobDependencies.RELEASED ) );
+  }
+
+  @Test
+  public void testFailedUpstreamHoldsTheJobUnlessItRunsAnyway() throws Exception {
+    JobKey report = addReport( "etl", null );
+    JobDependencies.upstreamFinished( scheduler, "etl", false, Collections.singletonList( REPORT ) );
+    verify( scheduler, never() ).triggerJob( report );
+    assertFalse( JobDependencies.shouldRunScheduledFire( context( report, "admin\treport\t1" ) ) );
+
+    report = addReport( "etl", JobDependencies.POLICY_RUN );
+    JobDependencies.upstreamFinished( scheduler, "etl", false, Collections.singletonList( REPORT ) );
+    verify( scheduler, times( 1 ) ).triggerJob( report );
+  }
+
+  @Test
+  public void testDeadlinePolicy() throws Exception {
+    JobKey report = addReport( "etl", JobDependencies.POLICY_RUN );
+    assertTrue( JobDependencies.shouldRunScheduledFire( context( report, "admin\treport\t1" ) ) );
+
+    report = addReport( "etl", "skip" );
+    assertFalse( JobDependencies.shouldRunScheduledFire( context( report, "admin\treport\t1" ) ) );
+    // a release or a run by hand always runs
+    assertTrue( JobDependencies.shouldRunScheduledFire( context( report, "MT_1234" ) ) );
+  }
+
+  @Test
+  public void testCriticalPath() {
+    ExecutionDurations durations = new ExecutionDurations();
+    durations.record( "extract", 1000, 5000 );
+    durations.record( "lookup", 1000, 2000 );
+    durations.record( "etl", 5001, 9000 );
+    durations.record( "report", 9001, 9500 );
+    Map<String, Set<String>> upstreams = new HashMap<>();
+    upstreams.put( "etl", new LinkedHashSet<>( Arrays.asList( "lookup", "extract" ) ) );
+    upstreams.put( "report", Collections.singleton( "etl" ) );
+
+    List<JobDependencies.Step> path = JobDependencies.getCriticalPath( "report",
+      lineageId -> upstreams.getOrDefault( lineageId, Collections.emptySet() ), durations );
+
+    assertEquals( 3, path.size() );
+    assertEquals( "extract", path.get( 0 ).getLineageId() );
+    assertEquals( "etl", path.get( 1 ).getLineageId() );
+    assertEquals( "report", path.get( 2 ).getLineageId() );
+    assertEquals( 1000, path.get( 0 ).getStartTime() );
+    assertEquals( 9500, path.get( 2 ).getEndTime() );
+    assertTrue( JobDependencies.getCriticalPath( "never-ran", lineageId -> Collections.emptySet(), durations )
+      .isEmpty() );
+  }
+
+  private JobKey addReport( String dependsOn, String policy ) {
+    JobKey jobKey = new JobKey( REPORT, "admin" );
+    JobBuilder builder = JobBuilder.newJob( BlockingQuartzJob.class ).withIdentity( jobKey )
+      .usingJobData( QuartzScheduler.RESERVEDMAPKEY_DEPENDS_ON, dependsOn );
+    if ( policy != null ) {
+      builder.usingJobData( QuartzScheduler.RESERVEDMAPKEY_DEPENDENCY_POLICY, policy );
+    }
+    jobs.put( jobKey, builder.build() );
+    return jobKey;
+  }
+
+  private JobExecutionContext context( JobKey jobKey, String triggerName ) {
+    Trigger trigger = mock( Trigger.class );
+    when( trigger.getKey() ).thenReturn( new TriggerKey( triggerName, "admin" ) );
+    JobExecutionContext context = mock( JobExecutionContext.class );
+    when( context.getTrigger() ).thenReturn( trigger );
+    when( context.getScheduler() ).thenReturn( scheduler );
+    when( context.getJobDetail() ).thenReturn( jobs.get( jobKey ) );
+    return context;
+  }
+}
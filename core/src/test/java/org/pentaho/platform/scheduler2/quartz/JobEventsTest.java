@@ -0,0 +1,240 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.JobListener;
+import org.quartz.ListenerManager;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerMetaData;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JobEventsTest {
+
+  private static final String JOB_ID = "admin\treport\t1";
+
+  private static final JobKey JOB_KEY = new JobKey( JOB_ID, "admin" );
+
+  private JobEvents jobEvents;
+
+  private ListenerManager listenerManager;
+
+  @Before
+  public void setUp() throws Exception {
+    jobEvents = new JobEvents();
+    listenerManager = mock( ListenerManager.class );
+    jobEvents.register( scheduler( false ) );
+  }
+
+  @Test
+  public void testEventsAfterTheCursor() throws Exception {
+    JobEvents.Batch start = jobEvents.read( null, 0, "session" );
+    assertTrue( start.isReset() );
+    assertTrue( start.getEvents().isEmpty() );
+
+    jobEvents.jobPaused( JOB_KEY );
+    jobEvents.jobResumed( JOB_KEY );
+    JobEvents.Batch batch = jobEvents.read( start.getCursor(), 0, "session" );
+    assertFalse( batch.isReset() );
+    assertEquals( 2, batch.getEvents().size() );
+    assertEquals( JobEvents.Type.PAUSED, batch.getEvents().get( 0 ).getType() );
+    assertEquals( JOB_ID, batch.getEvents().get( 0 ).getJobId() );
+    assertEquals( "admin", batch.getEvents().get( 0 ).getUserName() );
+    assertEquals( "report", batch.getEvents().get( 0 ).getJobName() );
+    assertEquals( JobEvents.Type.RESUMED, batch.getEvents().get( 1 ).getType() );
+
+    assertTrue( jobEvents.read( batch.getCursor(), 0, "session" ).getEvents().isEmpty() );
+  }
+
+  @Test
+  public void testExecutions() throws Exception {
+    JobListener jobListener = jobListener();
+    String cursor = jobEvents.read( null, 0, "session" ).getCursor();
+    Date nextRun = new Date( 2000 );
+
+    JobExecutionContext context = context( JOB_ID, nextRun );
+    jobListener.jobToBeExecuted( context );
+    when( context.get( JobEvents.FAILED_KEY ) ).thenReturn( Boolean.TRUE );
+    jobListener.jobWasExecuted( context, null );
+    // a run by hand does not tell the next run
+    jobListener.jobToBeExecuted( context( "MT_1234", nextRun ) );
+
+    JobEvents.Batch batch = jobEvents.read( cursor, 0, "session" );
+    assertEquals( 3, batch.getEvents().size() );
+    assertEquals( JobEvents.Type.STARTED, batch.getEvents().get( 0 ).getType() );
+    assertEquals( nextRun, batch.getEvents().get( 0 ).getNextRun() );
+    assertEquals( new Date( 1000 ), batch.getEvents().get( 0 ).getLastRun() );
+    assertEquals( JobEvents.Type.FAILED, batch.getEvents().get( 1 ).getType() );
+    assertNull( batch.getEvents().get( 2 ).getNextRun() );
+  }
+
+  @Test
+  public void testDeferredExecutions() throws Exception {
+    JobListener jobListener = jobListener();
+    String cursor = jobEvents.read( null, 0, "session" ).getCursor();
+
+    JobExecutionContext context = context( JOB_ID, new Date( 2000 ) );
+    jobListener.jobToBeExecuted( context );
+    when( context.get( ActionAdapterQuartzJob.DEFERRED_KEY ) ).thenReturn( Boolean.TRUE );
+    jobListener.jobWasExecuted( context, null );
+    assertEquals( 1, jobEvents.read( cursor, 0, "session" ).getEvents().size() );
+
+    // the follower of a shared execution, once the leader handed over its output
+    jobEvents.recordFinished( context, false );
+    JobEvents.Batch batch = jobEvents.read( cursor, 0, "session" );
+    assertEquals( 2, batch.getEvents().size() );
+    assertEquals( JobEvents.Type.FINISHED, batch.getEvents().get( 1 ).getType() );
+  }
+
+  @Test
+  public void testLostEventsResetTheCursor() throws Exception {
+    String cursor = jobEvents.read( null, 0, "session" ).getCursor();
+    for ( int i = 0; i <= JobEvents.CAPACITY; i++ ) {
+      jobEvents.jobDeleted( JOB_KEY );
+    }
+    JobEvents.Batch batch = jobEvents.read( cursor, 0, "session" );
+    assertTrue( batch.isReset() );
+    assertTrue( jobEvents.read( "another-server.0", 0, "session" ).isReset() );
+
+    batch = jobEvents.read( jobEvents.read( null, 0, "session" ).getCursor(), 0, "session" );
+    assertFalse( batch.isReset() );
+    assertTrue( batch.getEvents().isEmpty() );
+  }
+
+  @Test
+  public void testBatchesAreBounded() throws Exception {
+    String cursor = jobEvents.read( null, 0, "session" ).getCursor();
+    for ( int i = 0; i < JobEvents.MAX_BATCH + 1; i++ ) {
+      jobEvents.jobDeleted( JOB_KEY );
+    }
+    JobEvents.Batch batch = jobEvents.read( cursor, 0, "session" );
+    assertEquals( JobEvents.MAX_BATCH, batch.getEvents().size() );
+    assertEquals( 1, jobEvents.read( batch.getCursor(), 0, "session" ).getEvents().size() );
+  }
+
+  @Test( timeout = 10000 )
+  public void testWaitsForAnEvent() throws Exception {
+    String cursor = jobEvents.read( null, 0, "session" ).getCursor();
+    Thread writer = new Thread( () -> {
+      try {
+        Thread.sleep( 200 );
+      } catch ( InterruptedException e ) {
+        return;
+      }
+      jobEvents.jobAdded( jobDetail() );
+    } );
+    writer.start();
+    JobEvents.Batch batch = jobEvents.read( cursor, 60000, "session" );
+    assertEquals( 1, batch.getEvents().size() );
+    assertEquals( JobEvents.Type.CREATED, batch.getEvents().get( 0 ).getType() );
+    writer.join();
+  }
+
+  @Test( timeout = 10000 )
+  public void testWaitingReadersAreBoundedPerSession() throws Exception {
+    String cursor = jobEvents.read( null, 0, "session" ).getCursor();
+    Thread[] readers = new Thread[ JobEvents.MAX_WAITING_PER_SESSION ];
+    for ( int i = 0; i < readers.length; i++ ) {
+      readers[ i ] = new Thread( () -> {
+        try {
+          jobEvents.read( cursor, 60000, "session" );
+        } catch ( InterruptedException e ) {
+          // ends the reader
+        }
+      } );
+      readers[ i ].start();
+    }
+    while ( !allWaiting( readers ) ) {
+      Thread.sleep( 10 );
+    }
+
+    // over the bound, the answer comes straight away and says so
+    JobEvents.Batch refused = jobEvents.read( cursor, 60000, "session" );
+    assertTrue( refused.getEvents().isEmpty() );
+    assertTrue( refused.isRefused() );
+    assertEquals( cursor, refused.getCursor() );
+    // a reader that does not wait is not refused
+    assertFalse( jobEvents.read( cursor, 0, "session" ).isRefused() );
+
+    jobEvents.jobDeleted( JOB_KEY );
+    for ( Thread reader : readers ) {
+      reader.join();
+    }
+  }
+
+  @Test
+  public void testNoEventsWithAClusteredJobStore() throws Exception {
+    JobEvents clustered = new JobEvents();
+    clustered.register( scheduler( true ) );
+    assertNull( clustered.read( null, 0, "session" ) );
+  }
+
+  private static boolean allWaiting( Thread[] threads ) {
+    for ( Thread thread : threads ) {
+      if ( thread.getState() != Thread.State.TIMED_WAITING ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private JobListener jobListener() {
+    ArgumentCaptor<JobListener> captor = ArgumentCaptor.forClass( JobListener.class );
+    verify( listenerManager ).addJobListener( captor.capture() );
+    return captor.getValue();
+  }
+
+  private static JobDetail jobDetail() {
+    JobDetail jobDetail = mock( JobDetail.class );
+    when( jobDetail.getKey() ).thenReturn( JOB_KEY );
+    return jobDetail;
+  }
+
+  private static JobExecutionContext context( String triggerName, Date nextRun ) {
+    Trigger trigger = mock( Trigger.class );
+    when( trigger.getKey() ).thenReturn( new TriggerKey( triggerName, "admin" ) );
+    when( trigger.getJobKey() ).thenReturn( JOB_KEY );
+    when( trigger.getNextFireTime() ).thenReturn( nextRun );
+    JobDetail jobDetail = jobDetail();
+    JobExecutionContext context = mock( JobExecutionContext.class );
+    when( context.getJobDetail() ).thenReturn( jobDetail );
+    when( context.getTrigger() ).thenReturn( trigger );
+    when( context.getFireTime() ).thenReturn( new Date( 1000 ) );
+    return context;
+  }
+
+  private Scheduler scheduler( boolean clustered ) throws Exception {
+    Scheduler scheduler = mock( Scheduler.class );
+    SchedulerMetaData metaData = mock( SchedulerMetaData.class );
+    when( metaData.isJobStoreClustered() ).thenReturn( clustered );
+    when( scheduler.getMetaData() ).thenReturn( metaData );
+    when( scheduler.getListenerManager() ).thenReturn( listenerManager );
+    return scheduler;
+  }
+}
@@ -0,0 +1,168 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.simpl.SimpleClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class JournaledRAMJobStoreTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<JournaledRAMJobStore> stores = new ArrayList<>();
+
+  @After
+  public void tearDown() {
+    for ( JournaledRAMJobStore store : stores ) {
+      store.shutdown();
+    }
+  }
+
+  @Test
+  public void testRecoversJobsTriggersAndPauseState() throws Exception {
+    JournaledRAMJobStore store = open( 50, 10000 );
+    store.storeJobAndTrigger( job( "admin", "report" ), trigger( "admin", "report" ) );
+    store.storeJobAndTrigger( job( "suzy", "etl" ), trigger( "suzy", "etl" ) );
+    store.pauseTrigger( TriggerKey.triggerKey( "report", "admin" ) );
+    store.removeJob( JobKey.jobKey( "etl", "suzy" ) );
+    store.shutdown();
+
+    JournaledRAMJobStore recovered = open( 50, 10000 );
+    JobDetail job = recovered.retrieveJob( JobKey.jobKey( "report", "admin" ) );
+    assertNotNull( job );
+    assertEquals( "value", job.getJobDataMap().getString( "param" ) );
+    assertEquals( TriggerState.PAUSED, recovered.getTriggerState( TriggerKey.triggerKey( "report", "admin" ) ) );
+    assertNull( recovered.retrieveJob( JobKey.jobKey( "etl", "suzy" ) ) );
+    assertEquals( Collections.singletonList( "admin" ), recovered.getJobGroupNames() );
+  }
+
+  @Test
+  public void testRecoversAfterCrashWithoutShutdown() throws Exception {
+    JournaledRAMJobStore store = open( 0, 10000 );
+    store.storeJobAndTrigger( job( "admin", "report" ), trigger( "admin", "report" ) );
+    store.pauseJobs( GroupMatcher.jobGroupEquals( "admin" ) );
+    // no shutdown: every record was forced when it was written
+
+    JournaledRAMJobStore recovered = open( 0, 10000 );
+    assertNotNull( recovered.retrieveJob( JobKey.jobKey( "report", "admin" ) ) );
+    assertEquals( TriggerState.PAUSED, recovered.getTriggerState( TriggerKey.triggerKey( "report", "admin" ) ) );
+    assertTrue( recovered.getPausedTriggerGroups().isEmpty() );
+  }
+
+  @Test
+  public void testDiscardsTornRecordAtEndOfJournal() throws Exception {
+    JournaledRAMJobStore store = open( 0, 10000 );
+    store.storeJobAndTrigger( job( "admin", "report" ), trigger( "admin", "report" ) );
+    store.shutdown();
+
+    File journal = new File( folder.getRoot(), JournaledRAMJobStore.JOURNAL_FILE );
+    long length = journal.length();
+    try ( RandomAccessFile file = new RandomAccessFile( journal, "rw" ) ) {
+      file.seek( length );
+      file.writeInt( 4096 );
+      file.writeInt( 42 );
+      file.write( new byte[] { 1, 2, 3 } );
+    }
+
+    JournaledRAMJobStore recovered = open( 0, 10000 );
+    assertNotNull( recovered.retrieveJob( JobKey.jobKey( "report", "admin" ) ) );
+    assertEquals( length, journal.length() );
+
+    recovered.storeJob( job( "admin", "second" ), false );
+    recovered.shutdown();
+    assertNotNull( open( 0, 10000 ).retrieveJob( JobKey.jobKey( "second", "admin" ) ) );
+  }
+
+  @Test
+  public void testSnapshotCompactsJournal() throws Exception {
+    JournaledRAMJobStore store = open( 0, 5 );
+    for ( int i = 0; i < 20; i++ ) {
+      store.storeJobAndTrigger( job( "admin", "job" + i ), trigger( "admin", "job" + i ) );
+    }
+    store.removeJob( JobKey.jobKey( "job3", "admin" ) );
+    store.shutdown();
+
+    assertTrue( new File( folder.getRoot(), JournaledRAMJobStore.SNAPSHOT_FILE ).exists() );
+
+    JournaledRAMJobStore recovered = open( 0, 5 );
+    assertEquals( 19, recovered.getNumberOfJobs() );
+    assertEquals( 19, recovered.getNumberOfTriggers() );
+    assertFalse( recovered.checkExists( JobKey.jobKey( "job3", "admin" ) ) );
+  }
+
+  @Test
+  public void testFiredTriggerKeepsAdvancedFireTime() throws Exception {
+    JournaledRAMJobStore store = open( 0, 10000 );
+    store.storeJobAndTrigger( job( "admin", "report" ), trigger( "admin", "report" ) );
+    List<OperableTrigger> acquired = store.acquireNextTriggers( System.currentTimeMillis() + 1000L, 1, 0L );
+    assertEquals( 1, acquired.size() );
+    store.triggersFired( acquired );
+    Date nextFireTime = store.retrieveTrigger( TriggerKey.triggerKey( "report", "admin" ) ).getNextFireTime();
+
+    JournaledRAMJobStore recovered = open( 0, 10000 );
+    assertEquals( nextFireTime,
+      recovered.retrieveTrigger( TriggerKey.triggerKey( "report", "admin" ) ).getNextFireTime() );
+  }
+
+  private JournaledRAMJobStore open( long fsyncIntervalMillis, int snapshotThreshold ) throws Exception {
+    JournaledRAMJobStore store = new JournaledRAMJobStore();
+    store.setJournalDirectory( folder.getRoot().getAbsolutePath() );
+    store.setFsyncIntervalMillis( fsyncIntervalMillis );
+    store.setSnapshotThreshold( snapshotThreshold );
+    SimpleClassLoadHelper loadHelper = new SimpleClassLoadHelper();
+    loadHelper.initialize();
+    store.initialize( loadHelper, mock( SchedulerSignaler.class ) );
+    stores.add( store );
+    return store;
+  }
+
+  private static JobDetail job( String user, String name ) {
+    return JobBuilder.newJob( BlockingQuartzJob.class ).withIdentity( name, user )
+      .usingJobData( "param", "value" ).build();
+  }
+
+  private static OperableTrigger trigger( String user, String name ) {
+    OperableTrigger trigger = (OperableTrigger) TriggerBuilder.newTrigger().withIdentity( name, user )
+      .forJob( name, user ).startNow().withSchedule( SimpleScheduleBuilder.repeatMinutelyForever() ).build();
+    trigger.computeFirstFireTime( null );
+    return trigger;
+  }
+}
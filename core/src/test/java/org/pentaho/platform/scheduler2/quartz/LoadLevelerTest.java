@@ -0,0 +1,123 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Test;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerMetaData;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LoadLevelerTest {
+
+  @Test
+  public void testShiftCronExpression() {
+    assertEquals( "0 7 8 * * ?", LoadLeveler.shiftCronExpression( "0 0 8 * * ?", 7 ) );
+    assertEquals( "0 59 * ? * MON *", LoadLeveler.shiftCronExpression( "0 45 * ? * MON *", 14 ) );
+    // would spill into the next hour
+    assertEquals( "0 50 8 * * ?", LoadLeveler.shiftCronExpression( "0 50 8 * * ?", 10 ) );
+    // fires more than once an hour
+    assertEquals( "0 */5 * * * ?", LoadLeveler.shiftCronExpression( "0 */5 * * * ?", 1 ) );
+    assertEquals( "0 0,30 8 * * ?", LoadLeveler.shiftCronExpression( "0 0,30 8 * * ?", 1 ) );
+    assertEquals( 0, LoadLeveler.getMaxOffsetMinutes( (String) null ) );
+  }
+
+  @Test
+  public void testUnshiftCronExpression() {
+    assertEquals( "0 0 8 * * ?", LoadLeveler.unshiftCronExpression( "0 7 8 * * ?", 7 ) );
+    assertEquals( "0 45 * ? * MON *", LoadLeveler.unshiftCronExpression( "0 59 * ? * MON *", 14 ) );
+    assertEquals( "0 7 8 * * ?", LoadLeveler.unshiftCronExpression( "0 7 8 * * ?", 0 ) );
+    assertEquals( "0 */5 * * * ?", LoadLeveler.unshiftCronExpression( "0 */5 * * * ?", 1 ) );
+  }
+
+  @Test
+  public void testReplacedTriggersAreNotLoad() throws Exception {
+    Scheduler scheduler = emptyScheduler();
+    long now = System.currentTimeMillis();
+    LoadLeveler leveler = new LoadLeveler();
+    int offset = leveler.getOffsetMinutes( scheduler, "lineage", hourly( now ), 15, now );
+
+    // the job is updated: its own fires do not push it to another offset
+    Trigger leveled = cron( LoadLeveler.shiftCronExpression( "0 0 * * * ?", offset ), now );
+    assertEquals( offset, leveler.getOffsetMinutes( scheduler, "lineage", hourly( now ),
+      Collections.singletonList( leveled ), 15, now ) );
+  }
+
+  @Test
+  public void testSpreadsSchedulesOverTheWindow() throws Exception {
+    Scheduler scheduler = emptyScheduler();
+    LoadLeveler leveler = new LoadLeveler();
+    long now = System.currentTimeMillis();
+    int[] perOffset = new int[ 16 ];
+    for ( int i = 0; i < 32; i++ ) {
+      int offset = leveler.getOffsetMinutes( scheduler, "job" + i, hourly( now ), 15, now );
+      assertTrue( offset >= 0 && offset <= 15 );
+      perOffset[ offset ]++;
+    }
+    for ( int count : perOffset ) {
+      assertEquals( 2, count );
+    }
+  }
+
+  @Test
+  public void testOffsetIsDeterministic() throws Exception {
+    Scheduler scheduler = emptyScheduler();
+    long now = System.currentTimeMillis();
+    int offset = new LoadLeveler().getOffsetMinutes( scheduler, "lineage", hourly( now ), 15, now );
+
+    assertEquals( Math.floorMod( "lineage".hashCode(), 16 ), offset );
+    assertEquals( offset, new LoadLeveler().getOffsetMinutes( scheduler, "lineage", hourly( now ), 15, now ) );
+  }
+
+  @Test
+  public void testWindowIsLimitedToTheHour() throws Exception {
+    Scheduler scheduler = emptyScheduler();
+    long now = System.currentTimeMillis();
+    LoadLeveler leveler = new LoadLeveler();
+    for ( int i = 0; i < 20; i++ ) {
+      assertTrue( leveler.getOffsetMinutes( scheduler, "job" + i, cron( "0 55 * * * ?", now ), 30, now ) <= 4 );
+    }
+    assertEquals( 0, leveler.getOffsetMinutes( scheduler, "job", cron( "0 */5 * * * ?", now ), 30, now ) );
+  }
+
+  private static Scheduler emptyScheduler() throws Exception {
+    Scheduler scheduler = mock( Scheduler.class );
+    SchedulerMetaData metaData = mock( SchedulerMetaData.class );
+    when( metaData.getThreadPoolSize() ).thenReturn( 10 );
+    when( scheduler.getMetaData() ).thenReturn( metaData );
+    when( scheduler.getTriggerKeys( any() ) ).thenReturn( Collections.emptySet() );
+    return scheduler;
+  }
+
+  private static Trigger hourly( long start ) {
+    return cron( "0 0 * * * ?", start );
+  }
+
+  private static Trigger cron( String expression, long start ) {
+    return TriggerBuilder.newTrigger()
+      .startAt( new Date( start ) )
+      .withSchedule( CronScheduleBuilder.cronSchedule( expression ).inTimeZone( TimeZone.getTimeZone( "UTC" ) ) )
+      .build();
+  }
+}
@@ -0,0 +1,196 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.quartz.CronTrigger;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.ListenerManager;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerContext;
+import org.quartz.SchedulerFactory;
+import org.quartz.SchedulerMetaData;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MisfireRecoveryTest {
+
+  private static final long HOUR = 3600000;
+
+  private Scheduler scheduler;
+
+  private ListenerManager listenerManager;
+
+  private Set<TriggerKey> triggerKeys;
+
+  @Before
+  public void setUp() throws Exception {
+    scheduler = mock( Scheduler.class );
+    listenerManager = mock( ListenerManager.class );
+    triggerKeys = new HashSet<>();
+    when( scheduler.getListenerManager() ).thenReturn( listenerManager );
+    when( scheduler.getTriggerKeys( any() ) ).thenReturn( triggerKeys );
+    when( scheduler.getTriggerState( any() ) ).thenReturn( Trigger.TriggerState.NORMAL );
+  }
+
+  @Test
+  public void testPrepareFindsOnlyMisfiredTriggers() throws Exception {
+    long now = System.currentTimeMillis();
+    addTrigger( "admin", "missed", now - HOUR, now + HOUR, CronTrigger.MISFIRE_INSTRUCTION_SMART_POLICY );
+    addTrigger( "admin", "onTime", now + HOUR, now + 2 * HOUR, CronTrigger.MISFIRE_INSTRUCTION_SMART_POLICY );
+    addTrigger( "admin", "doNothing", now - HOUR, now + HOUR, CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING );
+    addTrigger( "admin", "lastFire", now - HOUR, -1, CronTrigger.MISFIRE_INSTRUCTION_SMART_POLICY );
+
+    MisfireRecovery recovery = new MisfireRecovery( scheduler, 60000, 60000 );
+    assertEquals( 1, recovery.prepare() );
+    assertEquals( 1, recovery.getPendingCount() );
+    assertTrue( recovery.isActive() );
+    verify( listenerManager ).addTriggerListener( recovery );
+  }
+
+  @Test
+  public void testNothingMisfired() throws Exception {
+    MisfireRecovery recovery = new MisfireRecovery( scheduler, 60000, 60000 );
+    assertEquals( 0, recovery.prepare() );
+    assertFalse( recovery.isActive() );
+    verify( listenerManager, never() ).addTriggerListener( any() );
+  }
+
+  @Test
+  public void testCatchUpFireIsVetoedAndReleasedLater() throws Exception {
+    long now = System.currentTimeMillis();
+    Trigger trigger =
+      addTrigger( "admin", "missed", now - HOUR, now + HOUR, CronTrigger.MISFIRE_INSTRUCTION_SMART_POLICY );
+    MisfireRecovery recovery = new MisfireRecovery( scheduler, 60000, 60000 );
+    recovery.prepare();
+
+    assertTrue( recovery.vetoJobExecution( trigger, context( now ) ) );
+    // only the first fire is held back
+    assertFalse( recovery.vetoJobExecution( trigger, context( now ) ) );
+    assertEquals( 1, recovery.getQueuedCount() );
+
+    when( trigger.getNextFireTime() ).thenReturn( new Date( now + HOUR ) );
+    recovery.tick();
+    verify( scheduler ).triggerJob( trigger.getJobKey() );
+    assertEquals( 1, recovery.getReleasedCount() );
+    assertEquals( 0, recovery.getPendingCount() );
+    assertFalse( recovery.isActive() );
+    verify( listenerManager ).removeTriggerListener( MisfireRecovery.NAME );
+  }
+
+  @Test
+  public void testCatchUpSupersededByRegularRun() throws Exception {
+    long now = System.currentTimeMillis();
+    Trigger trigger =
+      addTrigger( "admin", "missed", now - HOUR, now + HOUR, CronTrigger.MISFIRE_INSTRUCTION_SMART_POLICY );
+    MisfireRecovery recovery = new MisfireRecovery( scheduler, 60000, 60000 );
+    recovery.prepare();
+    recovery.vetoJobExecution( trigger, context( now ) );
+
+    // the regular run happened before the catch-up got its turn
+    when( trigger.getPreviousFireTime() ).thenReturn( new Date( now + HOUR ) );
+    recovery.tick();
+
+    verify( scheduler, never() ).triggerJob( any( JobKey.class ) );
+    assertEquals( 1, recovery.getSupersededCount() );
+  }
+
+  @Test
+  public void testPollOrdersByPriorityThenRotatesOwners() {
+    MisfireRecovery recovery = new MisfireRecovery( scheduler, 60000, 60000 );
+    recovery.enqueue( 5, catchUp( "suzy", "s1" ) );
+    recovery.enqueue( 5, catchUp( "suzy", "s2" ) );
+    recovery.enqueue( 5, catchUp( "suzy", "s3" ) );
+    recovery.enqueue( 5, catchUp( "admin", "a1" ) );
+    recovery.enqueue( 9, catchUp( "pat", "p1" ) );
+
+    assertEquals( "p1", recovery.poll().jobKey.getName() );
+    assertEquals( "s1", recovery.poll().jobKey.getName() );
+    assertEquals( "a1", recovery.poll().jobKey.getName() );
+    assertEquals( "s2", recovery.poll().jobKey.getName() );
+    assertEquals( "s3", recovery.poll().jobKey.getName() );
+    assertNull( recovery.poll() );
+  }
+
+  @Test
+  public void testFailedStartUnregistersTheRecovery() throws Exception {
+    long now = System.currentTimeMillis();
+    addTrigger( "admin", "missed", now - HOUR, now + HOUR, CronTrigger.MISFIRE_INSTRUCTION_SMART_POLICY );
+    when( scheduler.getContext() ).thenReturn( new SchedulerContext() );
+    when( scheduler.getMetaData() ).thenReturn( mock( SchedulerMetaData.class ) );
+    doThrow( new org.quartz.SchedulerException( "failed" ) ).when( scheduler ).start();
+    SchedulerFactory schedulerFactory = mock( SchedulerFactory.class );
+    when( schedulerFactory.getScheduler() ).thenReturn( scheduler );
+    QuartzScheduler quartzScheduler = new QuartzScheduler();
+    quartzScheduler.setQuartzSchedulerFactory( schedulerFactory );
+
+    try {
+      quartzScheduler.startWithMisfireRecovery( 60000 );
+      fail( "started a scheduler that failed to start" );
+    } catch ( org.pentaho.platform.api.scheduler2.SchedulerException e ) {
+      verify( listenerManager ).addTriggerListener( any( MisfireRecovery.class ) );
+      verify( listenerManager ).removeTriggerListener( MisfireRecovery.NAME );
+    }
+  }
+
+  private Trigger addTrigger( String owner, String jobName, long nextFireTime, long regularNextFireTime,
+                              int misfireInstruction ) throws Exception {
+    TriggerKey triggerKey = new TriggerKey( jobName, owner );
+    JobKey jobKey = new JobKey( jobName, owner );
+    CronTrigger trigger = mock( CronTrigger.class );
+    when( trigger.getKey() ).thenReturn( triggerKey );
+    when( trigger.getJobKey() ).thenReturn( jobKey );
+    when( trigger.getNextFireTime() ).thenReturn( new Date( nextFireTime ) );
+    when( trigger.getFireTimeAfter( any() ) ).thenReturn(
+      regularNextFireTime < 0 ? null : new Date( regularNextFireTime ) );
+    when( trigger.getMisfireInstruction() ).thenReturn( misfireInstruction );
+    when( trigger.getPriority() ).thenReturn( Trigger.DEFAULT_PRIORITY );
+    JobDetail jobDetail = mock( JobDetail.class );
+    when( jobDetail.getJobDataMap() ).thenReturn( new JobDataMap( Collections.emptyMap() ) );
+    when( scheduler.getJobDetail( jobKey ) ).thenReturn( jobDetail );
+    when( scheduler.getTrigger( triggerKey ) ).thenReturn( trigger );
+    triggerKeys.add( triggerKey );
+    return trigger;
+  }
+
+  private static JobExecutionContext context( long scheduledFireTime ) {
+    JobExecutionContext context = mock( JobExecutionContext.class );
+    when( context.getScheduledFireTime() ).thenReturn( new Date( scheduledFireTime ) );
+    return context;
+  }
+
+  private static MisfireRecovery.CatchUp catchUp( String owner, String jobName ) {
+    return new MisfireRecovery.CatchUp( new TriggerKey( jobName, owner ), new JobKey( jobName, owner ), new Date() );
+  }
+}
@@ -0,0 +1,113 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Test;
+import org.pentaho.platform.api.scheduler2.IScheduler;
+import org.pentaho.platform.util.ActionUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QuartzJobIndexTest {
+
+  @Test
+  public void testPutAndLookup() {
+    QuartzJobIndex index = new QuartzJobIndex();
+    index.put( "admin\treport\t1", "report", params( "lineage-1", "/home/admin/report.prpt" ) );
+    index.put( "suzy\treport\t2", "report", params( "lineage-2", "/home/suzy/report.prpt" ) );
+
+    assertEquals( Arrays.asList( "admin\treport\t1", "suzy\treport\t2" ), index.getJobIdsByName( "report" ) );
+    assertEquals( Collections.singletonList( "suzy\treport\t2" ), index.getJobIdsByLineageId( "lineage-2" ) );
+    assertEquals( Collections.singletonList( "admin\treport\t1" ),
+      index.getJobIdsByInputFile( "/home/admin/report.prpt" ) );
+    assertTrue( index.getJobIdsByName( "missing" ).isEmpty() );
+    assertTrue( index.getJobIdsByLineageId( null ).isEmpty() );
+  }
+
+  @Test
+  public void testUpdateReplacesOldKeys() {
+    QuartzJobIndex index = new QuartzJobIndex();
+    index.put( "admin\treport\t1", "report", params( "lineage-1", "/home/admin/old.prpt" ) );
+    index.put( "admin\treport\t1", "report", params( "lineage-1", "/home/admin/new.prpt" ) );
+
+    assertTrue( index.getJobIdsByInputFile( "/home/admin/old.prpt" ).isEmpty() );
+    assertEquals( Collections.singletonList( "admin\treport\t1" ),
+      index.getJobIdsByInputFile( "/home/admin/new.prpt" ) );
+    assertEquals( 1, index.getJobIdsByName( "report" ).size() );
+  }
+
+  @Test
+  public void testRemoveAndClear() {
+    QuartzJobIndex index = new QuartzJobIndex();
+    index.put( "admin\treport\t1", "report", params( "lineage-1", null ) );
+    index.put( "admin\tetl\t2", "etl", params( "lineage-2", null ) );
+    index.remove( "admin\treport\t1" );
+
+    assertTrue( index.getJobIdsByName( "report" ).isEmpty() );
+    assertTrue( index.getJobIdsByLineageId( "lineage-1" ).isEmpty() );
+    assertEquals( 1, index.getJobIdsByName( "etl" ).size() );
+
+    index.setBuilt( true );
+    index.clear();
+    assertFalse( index.isBuilt() );
+    assertTrue( index.getJobIdsByName( "etl" ).isEmpty() );
+  }
+
+  @Test
+  public void testBuiltForAWhile() {
+    QuartzJobIndex index = new QuartzJobIndex();
+    index.setBuiltFor( 60000 );
+    assertTrue( index.isBuilt() );
+    index.setBuiltFor( 0 );
+    assertFalse( index.isBuilt() );
+  }
+
+  @Test
+  public void testDependencies() {
+    QuartzJobIndex index = new QuartzJobIndex();
+    index.put( "admin\tetl\t1", "etl", params( "etl", null ) );
+    Map<String, Object> staging = params( "staging", null );
+    staging.put( QuartzScheduler.RESERVEDMAPKEY_DEPENDS_ON, "etl" );
+    index.put( "admin\tstaging\t2", "staging", staging );
+    Map<String, Object> report = params( "report", null );
+    report.put( QuartzScheduler.RESERVEDMAPKEY_DEPENDS_ON, "staging, etl" );
+    index.put( "admin\treport\t3", "report", report );
+
+    assertEquals( Arrays.asList( "admin\tstaging\t2", "admin\treport\t3" ), index.getDownstreamJobIds( "etl" ) );
+    assertEquals( new LinkedHashSet<>( Arrays.asList( "staging", "etl" ) ), index.getUpstreams( "report" ) );
+    assertTrue( index.dependsOn( "report", "etl" ) );
+    assertTrue( index.dependsOn( "staging", "etl" ) );
+    assertFalse( index.dependsOn( "etl", "report" ) );
+
+    index.remove( "admin\tstaging\t2" );
+    assertEquals( Collections.singletonList( "admin\treport\t3" ), index.getDownstreamJobIds( "etl" ) );
+    assertTrue( index.getUpstreams( "staging" ).isEmpty() );
+  }
+
+  private static Map<String, Object> params( String lineageId, String inputFile ) {
+    Map<String, Object> params = new HashMap<>();
+    params.put( IScheduler.RESERVEDMAPKEY_LINEAGE_ID, lineageId );
+    if ( inputFile != null ) {
+      params.put( ActionUtil.QUARTZ_STREAMPROVIDER_INPUT_FILE, inputFile );
+    }
+    return params;
+  }
+}
@@ -21,30 +21,41 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
 import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.scheduler2.ComplexJobTrigger;
+import org.pentaho.platform.api.scheduler2.IJob;
 import org.pentaho.platform.api.scheduler2.Job;
 import org.pentaho.platform.api.scheduler2.SchedulerException;
 import org.pentaho.platform.api.scheduler2.SimpleJobTrigger;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
-import org.quartz.CronExpression;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.CronTrigger;
+import org.quartz.JobBuilder;
+import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
+import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerFactory;
+import org.quartz.SchedulerMetaData;
 import org.quartz.Trigger;
 import org.quartz.TriggerBuilder;
+import org.quartz.impl.matchers.GroupMatcher;
 
+import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.TimeZone;
 
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.pentaho.platform.api.scheduler2.IScheduler.RESERVEDMAPKEY_ACTIONUSER;
@@ -139,15 +150,86 @@ public class QuartzSchedulerTest {
   }
 
   @Test
-  public void testSetTimezone() throws Exception {
-    CronTrigger cronTrigger = TriggerBuilder.newTrigger()
-      .withSchedule( CronScheduleBuilder.cronSchedule( new CronExpression( "0 15 10 ? * 6L 2002-2018" ) ) ).build();
-    String currentTimezoneId = TimeZone.getDefault().getID();
+  public void testStartDateTimeInDaylightSavingGap() {
+    // 2024-03-10 02:30 does not exist in New York; it moves forward by the length of the gap
+    SimpleJobTrigger trigger = startingAt( "America/New_York", 2024, 2, 10, 2, 30 );
+    assertEquals( Instant.parse( "2024-03-10T07:30:00Z" ),
+      QuartzScheduler.getStartDateTimeFromTrigger( trigger ).toInstant() );
+  }
 
-    new QuartzScheduler().setTimezone( cronTrigger, currentTimezoneId );
+  @Test
+  public void testStartDateTimeInDaylightSavingOverlap() {
+    // 2024-11-03 01:30 happens twice in New York; the later, standard time one is used
+    SimpleJobTrigger trigger = startingAt( "America/New_York", 2024, 10, 3, 1, 30 );
+    assertEquals( Instant.parse( "2024-11-03T06:30:00Z" ),
+      QuartzScheduler.getStartDateTimeFromTrigger( trigger ).toInstant() );
+  }
 
-    assertNotNull( cronTrigger.getTimeZone() );
-    assertEquals( currentTimezoneId, cronTrigger.getTimeZone().getID() );
+  @Test
+  public void testStartDateTimeRollsOverLikeCalendar() {
+    // January 32nd at 25:00 is February 2nd at 01:00
+    SimpleJobTrigger trigger = startingAt( "UTC", 2024, 0, 32, 25, 0 );
+    assertEquals( Instant.parse( "2024-02-02T01:00:00Z" ),
+      QuartzScheduler.getStartDateTimeFromTrigger( trigger ).toInstant() );
+  }
+
+  @Test
+  public void testRunOnceTriggerAcrossDaylightSavingChange() throws SchedulerException {
+    // the end time is one elapsed hour after the start, even though the wall clock jumps by two
+    SimpleJobTrigger trigger = startingAt( "Europe/Berlin", 2024, 2, 31, 1, 30 );
+    trigger.setUiPassParam( "RUN_ONCE" );
+
+    Trigger quartzTrigger = QuartzScheduler.createQuartzTrigger( trigger, new QuartzJobKey( "job", "admin" ) );
+
+    assertEquals( Instant.parse( "2024-03-31T00:30:00Z" ), quartzTrigger.getStartTime().toInstant() );
+    assertEquals( Instant.parse( "2024-03-31T01:30:00Z" ), quartzTrigger.getEndTime().toInstant() );
+  }
+
+  @Test
+  public void testCreateQuartzTriggerWithOffset() throws SchedulerException {
+    SimpleJobTrigger trigger = startingAt( "UTC", 2024, 0, 15, 8, 0 );
+    trigger.setRepeatInterval( 3600 );
+    trigger.setUiPassParam( "HOURS" );
+
+    Trigger quartzTrigger = QuartzScheduler.createQuartzTrigger( trigger, new QuartzJobKey( "job", "admin" ), 7 );
+    assertEquals( Instant.parse( "2024-01-15T08:07:00Z" ), quartzTrigger.getStartTime().toInstant() );
+
+    CronTrigger cronTrigger = (CronTrigger) QuartzScheduler.createQuartzTrigger(
+      new QuartzScheduler().createComplexTrigger( "0 0 8 * * ?" ), new QuartzJobKey( "job", "admin" ), 7 );
+    assertEquals( "7", cronTrigger.getCronExpression().split( " " )[ 1 ] );
+  }
+
+  @Test
+  public void testLeveledJobReportsTheTriggerItWasScheduledWith()
+    throws SchedulerException, org.quartz.SchedulerException {
+    SchedulerFactory mockSchedulerFactory = mock( SchedulerFactory.class );
+    Scheduler mockScheduler = mock( Scheduler.class );
+    when( mockSchedulerFactory.getScheduler() ).thenReturn( mockScheduler );
+    String jobId = "suzy\treport\t1";
+    JobKey jobKey = new JobKey( jobId, "suzy" );
+    when( mockScheduler.getJobGroupNames() ).thenReturn( Collections.singletonList( "suzy" ) );
+    when( mockScheduler.getJobKeys( GroupMatcher.jobGroupEquals( "suzy" ) ) )
+      .thenReturn( Collections.singleton( jobKey ) );
+    when( mockScheduler.getJobDetail( jobKey ) ).thenReturn( JobBuilder.newJob( BlockingQuartzJob.class )
+      .withIdentity( jobKey ).usingJobData( QuartzScheduler.RESERVEDMAPKEY_LOAD_LEVELING_OFFSET, 7 ).build() );
+    Trigger leveled = TriggerBuilder.newTrigger().withIdentity( jobId, "suzy" )
+      .withSchedule( CronScheduleBuilder.cronSchedule( "0 7 8 * * ?" ) ).build();
+    Mockito.doReturn( Collections.singletonList( leveled ) ).when( mockScheduler ).getTriggersOfJob( jobKey );
+    when( mockScheduler.getTriggerState( any() ) ).thenReturn( Trigger.TriggerState.NORMAL );
+    QuartzScheduler quartzScheduler = new QuartzScheduler();
+    quartzScheduler.setQuartzSchedulerFactory( mockSchedulerFactory );
+
+    // editing or exporting the job starts from the time the user picked
+    IJob job = quartzScheduler.getJobs( null ).get( 0 );
+    assertEquals( "0 0 8 * * ?", ( (ComplexJobTrigger) job.getJobTrigger() ).getCronString() );
+  }
+
+  @Test
+  public void testGetLoadLevelingWindow() {
+    assertEquals( 15, QuartzScheduler.getLoadLevelingWindow( 15 ) );
+    assertEquals( 15, QuartzScheduler.getLoadLevelingWindow( " 15 " ) );
+    assertEquals( 0, QuartzScheduler.getLoadLevelingWindow( "soon" ) );
+    assertEquals( 0, QuartzScheduler.getLoadLevelingWindow( null ) );
   }
 
   @Test
@@ -200,6 +282,75 @@ public class QuartzSchedulerTest {
     assertEquals( null,  job.getNextRun() );
   }
 
+  @Test
+  public void testGetJobsByOwnerReadsOnlyOwnerGroup() throws SchedulerException, org.quartz.SchedulerException {
+    SchedulerFactory mockSchedulerFactory = mock( SchedulerFactory.class );
+    Scheduler mockScheduler = mock( Scheduler.class );
+    when( mockSchedulerFactory.getScheduler() ).thenReturn( mockScheduler );
+    QuartzScheduler quartzScheduler = new QuartzScheduler();
+    quartzScheduler.setQuartzSchedulerFactory( mockSchedulerFactory );
+
+    assertTrue( quartzScheduler.getJobsByOwner( "suzy", null ).isEmpty() );
+
+    verify( mockScheduler ).getJobKeys( GroupMatcher.jobGroupEquals( "suzy" ) );
+    verify( mockScheduler, never() ).getJobGroupNames();
+  }
+
+  @Test
+  public void testClusteredStoreIsIndexedOncePerRefreshInterval()
+    throws SchedulerException, org.quartz.SchedulerException {
+    SchedulerFactory mockSchedulerFactory = mock( SchedulerFactory.class );
+    Scheduler mockScheduler = mock( Scheduler.class );
+    SchedulerMetaData metaData = mock( SchedulerMetaData.class );
+    when( metaData.isJobStoreClustered() ).thenReturn( true );
+    when( mockScheduler.getMetaData() ).thenReturn( metaData );
+    when( mockSchedulerFactory.getScheduler() ).thenReturn( mockScheduler );
+    QuartzScheduler quartzScheduler = new QuartzScheduler();
+    quartzScheduler.setQuartzSchedulerFactory( mockSchedulerFactory );
+
+    quartzScheduler.getJobsByName( "report" );
+    quartzScheduler.getJobsByName( "report" );
+    quartzScheduler.getJobsByLineageId( "lineage" );
+
+    // loaded again only once the refresh interval is over
+    verify( mockScheduler, times( 1 ) ).getJobGroupNames();
+  }
+
+  @Test
+  public void testRemovingTheLastJobOfALineageForgetsItsDurations()
+    throws SchedulerException, org.quartz.SchedulerException {
+    SchedulerFactory mockSchedulerFactory = mock( SchedulerFactory.class );
+    Scheduler mockScheduler = mock( Scheduler.class );
+    when( mockScheduler.getMetaData() ).thenReturn( mock( SchedulerMetaData.class ) );
+    when( mockSchedulerFactory.getScheduler() ).thenReturn( mockScheduler );
+    String oldJobId = "suzy\treport\t1";
+    String newJobId = "suzy\treport\t2";
+    when( mockScheduler.getJobGroupNames() ).thenReturn( Collections.singletonList( "suzy" ) );
+    when( mockScheduler.getJobKeys( GroupMatcher.jobGroupEquals( "suzy" ) ) ).thenReturn(
+      new HashSet<>( Arrays.asList( new JobKey( oldJobId, "suzy" ), new JobKey( newJobId, "suzy" ) ) ) );
+    JobDataMap jobDataMap = new JobDataMap();
+    jobDataMap.put( QuartzScheduler.RESERVEDMAPKEY_LINEAGE_ID, "removed-lineage" );
+    JobDetail jobDetail = mock( JobDetail.class );
+    when( jobDetail.getJobDataMap() ).thenReturn( jobDataMap );
+    when( mockScheduler.getJobDetail( any() ) ).thenReturn( jobDetail );
+    QuartzScheduler quartzScheduler = new QuartzScheduler();
+    quartzScheduler.setQuartzSchedulerFactory( mockSchedulerFactory );
+    ExecutionDurations.getInstance().record( "removed-lineage", 1000 );
+    try {
+      // loads the index
+      quartzScheduler.getJobsByName( "unknown" );
+
+      // an update removes the old job once the new one exists
+      quartzScheduler.removeJob( oldJobId );
+      assertEquals( 1, ExecutionDurations.getInstance().getDurations( "removed-lineage" ).length );
+
+      quartzScheduler.removeJob( newJobId );
+      assertEquals( 0, ExecutionDurations.getInstance().getDurations( "removed-lineage" ).length );
+    } finally {
+      ExecutionDurations.getInstance().remove( "removed-lineage" );
+    }
+  }
+
   @Test
   public void testTriggerEndTime() throws SchedulerException, org.quartz.SchedulerException {
     SimpleJobTrigger simpleJobTrigger = new SimpleJobTrigger();
@@ -235,6 +386,17 @@ public class QuartzSchedulerTest {
     assertEquals( testDates.getTime().getTime(), triggerCaptor.getValue().getEndTime().getTime() );
   }
 
+  private static SimpleJobTrigger startingAt( String timeZone, int year, int month, int day, int hour, int minute ) {
+    SimpleJobTrigger trigger = new SimpleJobTrigger();
+    trigger.setTimeZone( timeZone );
+    trigger.setStartYear( year - 1900 );
+    trigger.setStartMonth( month );
+    trigger.setStartDay( day );
+    trigger.setStartHour( hour );
+    trigger.setStartMin( minute );
+    return trigger;
+  }
+
   @Test
   public void testTriggerEndTimeWithTimeZone() throws SchedulerException, org.quartz.SchedulerException {
     SimpleJobTrigger simpleJobTrigger = new SimpleJobTrigger();
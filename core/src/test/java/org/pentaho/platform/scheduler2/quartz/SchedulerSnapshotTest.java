@@ -0,0 +1,204 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.OperableTrigger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SchedulerSnapshotTest {
+
+  private static final long HOUR = 3600000;
+
+  private Scheduler scheduler;
+
+  private Date nextCronFire;
+
+  private Date nextSimpleFire;
+
+  @Before
+  public void setUp() throws Exception {
+    long now = System.currentTimeMillis();
+    scheduler = mock( Scheduler.class );
+    when( scheduler.getCalendarNames() ).thenReturn( Collections.emptyList() );
+    when( scheduler.getPausedTriggerGroups() ).thenReturn( Collections.singleton( "suzy" ) );
+    when( scheduler.getJobGroupNames() ).thenReturn( Collections.singletonList( "admin" ) );
+    when( scheduler.getTriggerState( any() ) ).thenReturn( Trigger.TriggerState.NORMAL );
+
+    Map<JobKey, Trigger> triggers = new HashMap<>();
+    OperableTrigger cron = (OperableTrigger) TriggerBuilder.newTrigger().withIdentity( "cron", "admin" )
+      .startAt( new Date( now - 24 * HOUR ) ).withSchedule( CronScheduleBuilder.cronSchedule( "0 0 * * * ?" ) )
+      .build();
+    nextCronFire = cron.getFireTimeAfter( new Date( now ) );
+    cron.setNextFireTime( nextCronFire );
+    triggers.put( new JobKey( "cronJob", "admin" ), cron );
+    when( scheduler.getTriggerState( cron.getKey() ) ).thenReturn( Trigger.TriggerState.PAUSED );
+
+    // fired 3 of its 6 times
+    SimpleTriggerImpl simple = (SimpleTriggerImpl) TriggerBuilder.newTrigger().withIdentity( "simple", "admin" )
+      .startAt( new Date( now - 3 * HOUR + 60000 ) )
+      .withSchedule( SimpleScheduleBuilder.simpleSchedule().withIntervalInHours( 1 ).withRepeatCount( 5 ) ).build();
+    simple.setTimesTriggered( 3 );
+    nextSimpleFire = new Date( now + 60000 );
+    simple.setNextFireTime( nextSimpleFire );
+    triggers.put( new JobKey( "simpleJob", "admin" ), simple );
+
+    OperableTrigger done = (OperableTrigger) TriggerBuilder.newTrigger().withIdentity( "done", "admin" )
+      .startAt( new Date( now - HOUR ) ).build();
+    done.setNextFireTime( null );
+    triggers.put( new JobKey( "doneJob", "admin" ), done );
+
+    doReturn( triggers.keySet() ).when( scheduler ).getJobKeys( any() );
+    for ( Map.Entry<JobKey, Trigger> entry : triggers.entrySet() ) {
+      JobDetail jobDetail = JobBuilder.newJob( BlockingQuartzJob.class ).withIdentity( entry.getKey() )
+        .usingJobData( "lineage-id", entry.getKey().getName() ).build();
+      when( scheduler.getJobDetail( entry.getKey() ) ).thenReturn( jobDetail );
+      doReturn( Collections.singletonList( entry.getValue() ) ).when( scheduler ).getTriggersOfJob( entry.getKey() );
+    }
+  }
+
+  private byte[] write() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SchedulerSnapshot.Summary summary = SchedulerSnapshot.write( scheduler, out );
+    assertEquals( 3, summary.getJobCount() );
+    assertEquals( 3, summary.getTriggerCount() );
+    assertEquals( 1, summary.getPausedTriggerCount() );
+    assertEquals( 1, summary.getPausedGroupCount() );
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testVerify() throws Exception {
+    byte[] snapshot = write();
+    SchedulerSnapshot.Summary summary = SchedulerSnapshot.verify( new ByteArrayInputStream( snapshot ) );
+    assertEquals( SchedulerSnapshot.VERSION, summary.getVersion() );
+    assertEquals( 3, summary.getJobCount() );
+    assertEquals( 3, summary.getTriggerCount() );
+    assertEquals( 1, summary.getPausedTriggerCount() );
+    assertEquals( 0, summary.getCalendarCount() );
+  }
+
+  @Test
+  public void testVerifyRejectsTruncatedOrCorruptFiles() throws Exception {
+    byte[] snapshot = write();
+    assertInvalid( Arrays.copyOf( snapshot, snapshot.length - 10 ) );
+    snapshot[ snapshot.length / 2 ] ^= 0x55;
+    assertInvalid( snapshot );
+    assertInvalid( new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 } );
+  }
+
+  private void assertInvalid( byte[] snapshot ) {
+    try {
+      SchedulerSnapshot.verify( new ByteArrayInputStream( snapshot ) );
+      fail( "verified an invalid snapshot" );
+    } catch ( IOException e ) {
+      // expected
+    }
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void testRestoreKeepsFireTimesAndPauseFlags() throws Exception {
+    byte[] snapshot = write();
+    Scheduler target = mock( Scheduler.class );
+
+    SchedulerSnapshot.Summary restored = SchedulerSnapshot.restore( target, new ByteArrayInputStream( snapshot ) );
+    assertEquals( 2, restored.getJobCount() );
+    assertEquals( 2, restored.getTriggerCount() );
+    assertEquals( 1, restored.getPausedTriggerCount() );
+
+    ArgumentCaptor<Map> batch = ArgumentCaptor.forClass( Map.class );
+    verify( target ).scheduleJobs( batch.capture(), anyBoolean() );
+    Map<JobDetail, Set<? extends Trigger>> jobs = batch.getValue();
+    Map<String, Trigger> triggers = new HashMap<>();
+    for ( Set<? extends Trigger> jobTriggers : jobs.values() ) {
+      for ( Trigger trigger : jobTriggers ) {
+        triggers.put( trigger.getKey().getName(), trigger );
+      }
+    }
+    assertEquals( new HashSet<>( Arrays.asList( "cron", "simple" ) ), triggers.keySet() );
+    assertEquals( nextCronFire, triggers.get( "cron" ).getStartTime() );
+    SimpleTriggerImpl simple = (SimpleTriggerImpl) triggers.get( "simple" );
+    assertEquals( nextSimpleFire, simple.getStartTime() );
+    assertEquals( 2, simple.getRepeatCount() );
+    assertEquals( 0, simple.getTimesTriggered() );
+
+    verify( target ).pauseTrigger( new TriggerKey( "cron", "admin" ) );
+    verify( target ).pauseTriggers( any() );
+  }
+
+  @Test
+  public void testCorruptSnapshotRestoresNothing() throws Exception {
+    byte[] snapshot = write();
+    Scheduler target = mock( Scheduler.class );
+    try {
+      SchedulerSnapshot.restore( target, new ByteArrayInputStream( Arrays.copyOf( snapshot, snapshot.length - 4 ) ) );
+      fail( "restored a truncated snapshot" );
+    } catch ( IOException e ) {
+      verify( target, never() ).scheduleJobs( anyMap(), anyBoolean() );
+    }
+  }
+
+  @Test
+  public void testRestoreRefusesClassesAJobCannotHold() throws Exception {
+    JobKey jobKey = new JobKey( "cronJob", "admin" );
+    JobDetail jobDetail = JobBuilder.newJob( BlockingQuartzJob.class ).withIdentity( jobKey )
+      .usingJobData( "lineage-id", "cronJob" ).build();
+    jobDetail.getJobDataMap().put( "file", new File( "/etc/passwd" ) );
+    when( scheduler.getJobDetail( jobKey ) ).thenReturn( jobDetail );
+    byte[] snapshot = write();
+    SchedulerSnapshot.verify( new ByteArrayInputStream( snapshot ) );
+
+    Scheduler target = mock( Scheduler.class );
+    try {
+      SchedulerSnapshot.restore( target, new ByteArrayInputStream( snapshot ) );
+      fail( "restored a snapshot holding a refused class" );
+    } catch ( IOException e ) {
+      verify( target, never() ).scheduleJobs( anyMap(), anyBoolean() );
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.platform.scheduler2.quartz;
+
+import org.junit.Test;
+import org.pentaho.platform.api.scheduler2.IBlockoutManager;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.JobBuilder;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.matchers.GroupMatcher;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SchedulerWarmUpTest {
+
+  @Test
+  public void testWarmUpBuildsTheJobIndex() throws Exception {
+    QuartzScheduler scheduler = mock( QuartzScheduler.class );
+    when( scheduler.getJobsByName( IBlockoutManager.BLOCK_OUT_JOB_NAME ) ).thenReturn( Collections.emptyList() );
+
+    SchedulerWarmUp warmUp = new SchedulerWarmUp( scheduler, 2 );
+    warmUp.start();
+
+    assertTrue( warmUp.await( 10000 ) );
+    assertTrue( warmUp.isDone() );
+    assertTrue( warmUp.getDurationMillis() >= 0 );
+    verify( scheduler ).getJobsByName( IBlockoutManager.BLOCK_OUT_JOB_NAME );
+  }
+
+  @Test
+  public void testWarmUpPreparesEachCronExpressionOnce() throws Exception {
+    Scheduler quartzScheduler = mock( Scheduler.class );
+    QuartzScheduler scheduler = mock( QuartzScheduler.class );
+    when( scheduler.getQuartzScheduler() ).thenReturn( quartzScheduler );
+    JobKey report = new JobKey( "admin\treport\t1", "admin" );
+    JobKey etl = new JobKey( "admin\tetl\t2", "admin" );
+    JobKey leveled = new JobKey( "admin\tleveled\t3", "admin" );
+    when( quartzScheduler.getJobGroupNames() ).thenReturn( Collections.singletonList( "admin" ) );
+    when( quartzScheduler.getJobKeys( GroupMatcher.jobGroupEquals( "admin" ) ) )
+      .thenReturn( new HashSet<>( Arrays.asList( report, etl, leveled ) ) );
+    for ( JobKey jobKey : Arrays.asList( report, etl ) ) {
+      when( quartzScheduler.getJobDetail( jobKey ) ).thenReturn( JobBuilder.newJob( BlockingQuartzJob.class )
+        .withIdentity( jobKey ).build() );
+    }
+    when( quartzScheduler.getJobDetail( leveled ) ).thenReturn( JobBuilder.newJob( BlockingQuartzJob.class )
+      .withIdentity( leveled ).usingJobData( QuartzScheduler.RESERVEDMAPKEY_LOAD_LEVELING_OFFSET, 5 ).build() );
+    doReturn( Collections.singletonList( cronTrigger( "0 0 2 * * ?" ) ) ).when( quartzScheduler )
+      .getTriggersOfJob( report );
+    doReturn( Collections.singletonList( cronTrigger( "0 0 2 * * ?" ) ) ).when( quartzScheduler )
+      .getTriggersOfJob( etl );
+    // listed with the expression it was scheduled with, 0 0 2 * * ?
+    doReturn( Collections.singletonList( cronTrigger( "0 5 2 * * ?" ) ) ).when( quartzScheduler )
+      .getTriggersOfJob( leveled );
+
+    SchedulerWarmUp warmUp = new SchedulerWarmUp( scheduler, 2 );
+    SchedulerWarmUp.CronTriggers triggers = warmUp.loadCronTriggers();
+    assertEquals( 2, triggers.evaluated.size() );
+    assertEquals( Collections.singleton( "0 0 2 * * ?" ), triggers.listed );
+
+    warmUp.start();
+    assertTrue( warmUp.await( 10000 ) );
+    assertEquals( 1, warmUp.getCronCount() );
+  }
+
+  private static Trigger cronTrigger( String cronExpression ) {
+    return TriggerBuilder.newTrigger().withSchedule( CronScheduleBuilder.cronSchedule( cronExpression ) ).build();
+  }
+
+  @Test
+  public void testAwaitGivesUpAfterTimeout() throws Exception {
+    QuartzScheduler scheduler = mock( QuartzScheduler.class );
+    CountDownLatch release = new CountDownLatch( 1 );
+    when( scheduler.getJobsByName( IBlockoutManager.BLOCK_OUT_JOB_NAME ) ).thenAnswer( invocation -> {
+      release.await();
+      return Collections.emptyList();
+    } );
+
+    SchedulerWarmUp warmUp = new SchedulerWarmUp( scheduler, 2 );
+    warmUp.start();
+    try {
+      assertFalse( warmUp.await( 50 ) );
+      assertEquals( -1, warmUp.getDurationMillis() );
+    } finally {
+      release.countDown();
+    }
+    assertTrue( warmUp.await( 10000 ) );
+  }
+
+  @Test
+  public void testAwaitWithoutStart() {
+    assertTrue( new SchedulerWarmUp( mock( QuartzScheduler.class ), 2 ).await( 0 ) );
+  }
+}
@@ -20,10 +20,12 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.pentaho.platform.api.engine.IAuthorizationPolicy;
 import org.pentaho.platform.api.engine.IPentahoSession;
+import org.pentaho.platform.api.scheduler2.IJob;
 import org.pentaho.platform.api.scheduler2.IJobFilter;
 import org.pentaho.platform.api.scheduler2.IScheduler;
 import org.pentaho.platform.api.scheduler2.Job;
 import org.pentaho.platform.api.scheduler2.SchedulerException;
+import org.pentaho.platform.scheduler2.quartz.QuartzScheduler;
 import org.pentaho.platform.security.policy.rolebased.actions.SchedulerExecuteAction;
 
 import java.util.ArrayList;
@@ -32,9 +34,11 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -148,6 +152,30 @@ class DefaultSchedulerServiceTest {
     assertEquals( 10, filteredJobs.size() );
   }
 
+  @Test
+  void testGetJobsNonAdminUserUsesOwnerLookup() throws Exception {
+    IPentahoSession sessionMock = mock( IPentahoSession.class );
+    doReturn( sessionMock ).when( defaultSchedulerService ).getPentahoSession();
+
+    IAuthorizationPolicy policyMock = mock( IAuthorizationPolicy.class );
+    doReturn( policyMock ).when( defaultSchedulerService ).getAuthorizationPolicy();
+
+    QuartzScheduler schedulerMock = mock( QuartzScheduler.class );
+    doReturn( schedulerMock ).when( defaultSchedulerService ).getScheduler2();
+
+    doReturn( "testUser1" ).when( sessionMock ).getName();
+    when( policyMock.isAllowed( anyString() ) ).thenReturn( false );
+    List<IJob> ownJobs = new ArrayList<>();
+    ownJobs.add( mockJob( "testUser1", "testJobName1" ) );
+    doReturn( ownJobs ).when( schedulerMock ).getJobsByOwner( "testUser1", null );
+
+    Job[] jobs = defaultSchedulerService.getJobs();
+
+    assertEquals( 1, jobs.length );
+    assertEquals( "testJobName1", jobs[ 0 ].getJobName() );
+    verify( schedulerMock, never() ).getJobs( any() );
+  }
+
   /**
    * Helper function that creates 11 jobs being:
    * - 10 owned by `testUser[1-10]` and with name `testJobName[1-10]`;
@@ -13,6 +13,8 @@
 
 package org.pentaho.platform.web.http.api.resources;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gwt.thirdparty.guava.common.collect.Maps;
 import org.junit.After;
 import org.junit.Before;
@@ -24,24 +26,51 @@ import org.pentaho.platform.api.scheduler2.IJobTrigger;
 import org.pentaho.platform.api.scheduler2.Job;
 import org.pentaho.platform.api.scheduler2.JobState;
 import org.pentaho.platform.api.scheduler2.SchedulerException;
+import org.pentaho.platform.api.scheduler2.SimpleJobTrigger;
+import org.pentaho.platform.web.http.api.proxies.BackgroundRunProxy;
 import org.pentaho.platform.web.http.api.proxies.BlockStatusProxy;
+import org.pentaho.platform.web.http.api.proxies.CriticalPathProxy;
+import org.pentaho.platform.web.http.api.proxies.FireTimeForecastProxy;
+import org.pentaho.platform.web.http.api.proxies.JobEventsProxy;
+import org.pentaho.platform.web.http.api.proxies.MisfireRecoveryStatusProxy;
+import org.pentaho.platform.web.http.api.proxies.TriggerNowProxy;
 import org.pentaho.platform.web.http.api.resources.services.ISchedulerServicePlugin;
 
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static javax.ws.rs.core.MediaType.APPLICATION_XML_TYPE;
 import static javax.ws.rs.core.Response.Status.FORBIDDEN;
 import static javax.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
+import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 import static javax.ws.rs.core.Response.Status.OK;
 import static javax.ws.rs.core.Response.Status.UNAUTHORIZED;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -157,22 +186,22 @@ public class SchedulerResourceTest {
     String jobId = "jobId";
     doReturn( jobId ).when( mockJobRequest ).getJobId();
 
-    Job mockJob = mock( Job.class );
-    doReturn( mockJob ).when( schedulerResource.schedulerService ).triggerNow( jobId );
-
-    JobState mockJobState = JobState.BLOCKED;
-    doReturn( mockJobState ).when( mockJob ).getState();
+    TriggerNowProxy triggerNow = new TriggerNowProxy();
+    triggerNow.setJobState( JobState.BLOCKED.name() );
+    triggerNow.setOutcome( "COALESCED" );
+    doReturn( triggerNow ).when( schedulerResource.schedulerService ).triggerNowWithPolicy( jobId );
 
     Response mockResponse = mock( Response.class );
-    doReturn( mockResponse ).when( schedulerResource ).buildPlainTextOkResponse( mockJobState.name() );
+    doReturn( mockResponse ).when( schedulerResource )
+      .buildPlainTextOkResponse( JobState.BLOCKED.name(), SchedulerResource.TRIGGER_OUTCOME_HEADER, "COALESCED" );
 
     Response testResponse = schedulerResource.triggerNow( mockJobRequest );
     assertEquals( mockResponse, testResponse );
 
     verify( mockJobRequest, times( 1 ) ).getJobId();
-    verify( schedulerResource.schedulerService, times( 1 ) ).triggerNow( jobId );
-    verify( mockJob, times( 1 ) ).getState();
-    verify( schedulerResource, times( 1 ) ).buildPlainTextOkResponse( mockJobState.name() );
+    verify( schedulerResource.schedulerService, times( 1 ) ).triggerNowWithPolicy( jobId );
+    verify( schedulerResource, times( 1 ) )
+      .buildPlainTextOkResponse( JobState.BLOCKED.name(), SchedulerResource.TRIGGER_OUTCOME_HEADER, "COALESCED" );
   }
 
   @Test
@@ -183,7 +212,7 @@ public class SchedulerResourceTest {
     doReturn( jobId ).when( mockJobRequest ).getJobId();
 
     SchedulerException mockSchedulerException = mock( SchedulerException.class );
-    Mockito.doThrow( mockSchedulerException ).when( schedulerResource.schedulerService ).triggerNow( jobId );
+    Mockito.doThrow( mockSchedulerException ).when( schedulerResource.schedulerService ).triggerNowWithPolicy( jobId );
 
     try {
       schedulerResource.triggerNow( mockJobRequest );
@@ -193,7 +222,7 @@ public class SchedulerResourceTest {
     }
 
     verify( mockJobRequest, times( 1 ) ).getJobId();
-    verify( schedulerResource.schedulerService, times( 1 ) ).triggerNow( jobId );
+    verify( schedulerResource.schedulerService, times( 1 ) ).triggerNowWithPolicy( jobId );
   }
 
   @Test
@@ -264,6 +293,156 @@ public class SchedulerResourceTest {
     verify( schedulerResource.schedulerService, times( 1 ) ).getJobs();
   }
 
+  @Test
+  public void testGetAllJobsStreamsJson() throws Exception {
+    Job job = new Job();
+    job.setJobId( "admin\tjob1\t1" );
+    job.setJobName( "job1" );
+    doAnswer( invocation -> {
+      Consumer<IJob> consumer = invocation.getArgument( 0 );
+      consumer.accept( job );
+      consumer.accept( job );
+      return null;
+    } ).when( schedulerResource.schedulerService ).forEachJob( any() );
+
+    Response response = schedulerResource.getAllJobs( null, null, null );
+    assertEquals( OK.getStatusCode(), response.getStatus() );
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ( (StreamingOutput) response.getEntity() ).write( output );
+
+    String json = output.toString( "UTF-8" );
+    assertTrue( json, json.startsWith( JobsJsonOutput.JOBS_START ) );
+    assertTrue( json, json.endsWith( JobsJsonOutput.JOBS_END ) );
+    assertEquals( json, 3, json.split( "\"jobName\":\"job1\"", -1 ).length );
+    verify( schedulerResource.schedulerService, times( 0 ) ).getJobs();
+  }
+
+  @Test
+  public void testGetAllJobsStreamsEmptyListing() throws Exception {
+    Response response = schedulerResource.getAllJobs( null, null, null );
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ( (StreamingOutput) response.getEntity() ).write( output );
+
+    assertEquals( JobsJsonOutput.JOBS_START + JobsJsonOutput.JOBS_END, output.toString( "UTF-8" ) );
+  }
+
+  @Test
+  public void testGetAllJobsColumnar() throws Exception {
+    SimpleJobTrigger trigger = new SimpleJobTrigger( new Date( 0 ), null, -1, 86400 );
+    trigger.setUiPassParam( "DAILY" );
+    Job adminJob = new Job();
+    adminJob.setJobId( "admin\tjob1\t1" );
+    adminJob.setUserName( "admin" );
+    adminJob.setJobTrigger( trigger );
+    adminJob.setJobParams( Collections.<String, Object>singletonMap( "lineage-id", "1" ) );
+    Job suzyJob = new Job();
+    suzyJob.setJobId( "suzy\tjob2\t2" );
+    suzyJob.setUserName( "suzy" );
+    doAnswer( invocation -> {
+      Consumer<IJob> consumer = invocation.getArgument( 0 );
+      consumer.accept( adminJob );
+      consumer.accept( suzyJob );
+      consumer.accept( adminJob );
+      return null;
+    } ).when( schedulerResource.schedulerService ).forEachJob( any() );
+
+    Response response = schedulerResource.getAllJobs( JobsColumnarOutput.FORMAT, null, null, null );
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ( (StreamingOutput) response.getEntity() ).write( output );
+
+    JsonNode json = new ObjectMapper().readTree( output.toByteArray() );
+    assertEquals( 3, json.get( JobsColumnarOutput.COUNT ).asInt() );
+    JsonNode dictionaries = json.get( JobsColumnarOutput.DICTIONARIES );
+    JsonNode columns = json.get( JobsColumnarOutput.COLUMNS );
+    assertEquals( "[\"admin\",\"suzy\"]", dictionaries.get( "userName" ).toString() );
+    assertEquals( "[0,1,0]", columns.get( "userName" ).toString() );
+    assertEquals( "[\"admin\\tjob1\\t1\",\"suzy\\tjob2\\t2\",\"admin\\tjob1\\t1\"]",
+      columns.get( "jobId" ).toString() );
+    assertEquals( "[\"DAILY\"]", dictionaries.get( JobsColumnarOutput.SCHEDULE_TYPE ).toString() );
+    assertEquals( "[0,null,0]", columns.get( JobsColumnarOutput.SCHEDULE_TYPE ).toString() );
+    assertEquals( "[\"simpleJobTrigger\"]", dictionaries.get( JobsColumnarOutput.TRIGGER_TYPE ).toString() );
+    assertEquals( "[0,null,0]", columns.get( JobsColumnarOutput.TRIGGER_TYPE ).toString() );
+    // the fields of a simple trigger are columns of their own
+    assertEquals( "[null,null,null]", columns.get( JobsColumnarOutput.JOB_TRIGGER ).toString() );
+    assertEquals( "[\"86400\",null,\"86400\"]",
+      columns.get( JobsColumnarOutput.TRIGGER_PREFIX + "repeatInterval" ).toString() );
+    assertEquals( "[\"-1\",null,\"-1\"]",
+      columns.get( JobsColumnarOutput.TRIGGER_PREFIX + "repeatCount" ).toString() );
+    assertTrue( columns.get( JobsColumnarOutput.TRIGGER_PREFIX + "startTime" ).get( 0 ).asText().startsWith( "19" ) );
+    assertEquals( "[\"lineage-id\"]", dictionaries.get( JobsColumnarOutput.PARAM_NAME ).toString() );
+    assertEquals( "[0,\"1\"]", columns.get( "jobParams" ).get( 0 ).toString() );
+    assertTrue( columns.get( "jobParams" ).get( 1 ).isNull() );
+  }
+
+  @Test
+  public void testGetAllJobsColumnarByMediaType() throws Exception {
+    HttpHeaders headers = mock( HttpHeaders.class );
+    when( headers.getAcceptableMediaTypes() ).thenReturn(
+      Collections.singletonList( MediaType.valueOf( JobsColumnarOutput.MEDIA_TYPE ) ) );
+
+    Response response = schedulerResource.getAllJobs( null, headers, null );
+
+    assertTrue( response.getEntity() instanceof JobsColumnarOutput );
+    assertEquals( JobsColumnarOutput.MEDIA_TYPE,
+      response.getMetadata().getFirst( HttpHeaders.CONTENT_TYPE ).toString() );
+
+    // a wildcard does not ask for it
+    when( headers.getAcceptableMediaTypes() ).thenReturn( Collections.singletonList( MediaType.WILDCARD_TYPE ) );
+    assertTrue( schedulerResource.getAllJobs( null, headers, null ).getEntity() instanceof JobsJsonOutput );
+  }
+
+  @Test
+  public void testGetAllJobsXml() throws Exception {
+    List<IJob> mockJobs = new ArrayList<>();
+    doReturn( mockJobs ).when( schedulerResource.schedulerService ).getJobs();
+    HttpHeaders headers = mock( HttpHeaders.class );
+    when( headers.getAcceptableMediaTypes() ).thenReturn( Collections.singletonList( APPLICATION_XML_TYPE ) );
+
+    Response response = schedulerResource.getAllJobs( null, headers, null );
+
+    assertEquals( mockJobs, ( (GenericEntity<?>) response.getEntity() ).getEntity() );
+    verify( schedulerResource.schedulerService, times( 0 ) ).forEachJob( any() );
+  }
+
+  @Test
+  public void testGetAllJobsNotModified() throws Exception {
+    doReturn( "1.2.3" ).when( schedulerResource.schedulerService ).getCatalogVersion();
+    Request request = mock( Request.class );
+    when( request.evaluatePreconditions( new EntityTag( "1.2.3.json" ) ) )
+      .thenReturn( Response.notModified( new EntityTag( "1.2.3.json" ) ) );
+
+    Response response = schedulerResource.getAllJobs( request, null, null );
+
+    assertEquals( Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus() );
+    verify( schedulerResource.schedulerService, times( 0 ) ).forEachJob( any() );
+  }
+
+  @Test
+  public void testGetBlockoutJobsTagged() throws Exception {
+    List<IJob> mockJobs = new ArrayList<>();
+    doReturn( mockJobs ).when( schedulerResource.schedulerService ).getBlockOutJobs();
+    doReturn( "1.2.3" ).when( schedulerResource.schedulerService ).getCatalogVersion();
+    Request request = mock( Request.class );
+
+    Response response = schedulerResource.getBlockoutJobs( request, null );
+
+    assertEquals( OK.getStatusCode(), response.getStatus() );
+    assertEquals( new EntityTag( "1.2.3.json" ), response.getMetadata().getFirst( HttpHeaders.ETAG ) );
+    verify( request, times( 1 ) ).evaluatePreconditions( new EntityTag( "1.2.3.json" ) );
+  }
+
+  @Test
+  public void testHasBlockoutsWithoutCatalogVersion() throws Exception {
+    doReturn( true ).when( schedulerResource.schedulerService ).hasBlockouts();
+    Request request = mock( Request.class );
+
+    Response response = schedulerResource.hasBlockouts( request );
+
+    assertEquals( "true", response.getEntity() );
+    assertEquals( null, response.getMetadata().getFirst( HttpHeaders.ETAG ) );
+    verify( request, times( 0 ) ).evaluatePreconditions( any( EntityTag.class ) );
+  }
+
   @Test
   public void testIsScheduleAllowed() {
     String id = "id";
@@ -277,6 +456,29 @@ public class SchedulerResourceTest {
     verify( schedulerResource.schedulerService, times( 1 ) ).isScheduleAllowed( id );
   }
 
+  @Test
+  public void testPrepareBackgroundRun() throws Exception {
+    String path = "/public/report.prpt";
+    BackgroundRunProxy proxy = new BackgroundRunProxy();
+    proxy.setScheduleAllowed( true );
+    doReturn( proxy ).when( schedulerResource.schedulerService ).prepareBackgroundRun( path );
+
+    Response response = schedulerResource.prepareBackgroundRun( path );
+    assertEquals( OK.getStatusCode(), response.getStatus() );
+    assertEquals( proxy, response.getEntity() );
+  }
+
+  @Test
+  public void testPrepareBackgroundRunOfAMissingFile() throws Exception {
+    String path = "/public/missing.prpt";
+    Response mockResponse = mock( Response.class );
+    doReturn( mockResponse ).when( schedulerResource ).buildStatusResponse( NOT_FOUND );
+    doThrow( new FileNotFoundException( path ) ).when( schedulerResource.schedulerService )
+      .prepareBackgroundRun( path );
+
+    assertEquals( mockResponse, schedulerResource.prepareBackgroundRun( path ) );
+  }
+
   @Test
   public void testDoGetCanSchedule() {
     String canSchedule = "true";
@@ -329,6 +531,127 @@ public class SchedulerResourceTest {
     verify( schedulerResource.schedulerService, times( 1 ) ).getState();
   }
 
+  @Test
+  public void testGetMisfireRecoveryStatus() throws Exception {
+    MisfireRecoveryStatusProxy status = new MisfireRecoveryStatusProxy();
+    doReturn( status ).when( schedulerResource.schedulerService ).getMisfireRecoveryStatus();
+
+    Response mockResponse = mock( Response.class );
+    doReturn( mockResponse ).when( schedulerResource ).buildOkResponse( status );
+
+    assertEquals( mockResponse, schedulerResource.getMisfireRecoveryStatus() );
+    verify( schedulerResource, times( 1 ) ).buildOkResponse( status );
+  }
+
+  @Test
+  public void testGetFireTimeForecast() throws Exception {
+    FireTimeForecastProxy forecast = new FireTimeForecastProxy();
+    doReturn( forecast ).when( schedulerResource.schedulerService ).getFireTimeForecast( 168, 1, 0, 10 );
+
+    Response mockResponse = mock( Response.class );
+    doReturn( mockResponse ).when( schedulerResource ).buildOkResponse( forecast );
+
+    assertEquals( mockResponse, schedulerResource.getFireTimeForecast( 168, 1, 0, 10 ) );
+  }
+
+  @Test
+  public void testRestoreSnapshot() throws Exception {
+    InputStream snapshot = mock( InputStream.class );
+    doReturn( "version 1" ).when( schedulerResource.schedulerService ).restoreSnapshot( snapshot );
+
+    Response mockResponse = mock( Response.class );
+    doReturn( mockResponse ).when( schedulerResource ).buildPlainTextOkResponse( "version 1" );
+
+    assertEquals( mockResponse, schedulerResource.restoreSnapshot( snapshot ) );
+  }
+
+  @Test
+  public void testSnapshotForbidden() throws Exception {
+    Mockito.doThrow( new IllegalAccessException() ).when( schedulerResource.schedulerService ).writeSnapshot( any() );
+    Mockito.doThrow( new IllegalAccessException() ).when( schedulerResource.schedulerService ).restoreSnapshot( any() );
+
+    Response mockResponse = mock( Response.class );
+    doReturn( mockResponse ).when( schedulerResource ).buildStatusResponse( FORBIDDEN );
+
+    Response response = schedulerResource.getSnapshot();
+    try {
+      ( (StreamingOutput) response.getEntity() ).write( new ByteArrayOutputStream() );
+      fail();
+    } catch ( WebApplicationException e ) {
+      assertEquals( FORBIDDEN.getStatusCode(), e.getResponse().getStatus() );
+    }
+    assertEquals( mockResponse, schedulerResource.restoreSnapshot( mock( InputStream.class ) ) );
+  }
+
+  @Test
+  public void testGetFireTimeForecastForbidden() throws Exception {
+    Mockito.doThrow( new IllegalAccessException() ).when( schedulerResource.schedulerService )
+      .getFireTimeForecast( 24, 5, 0, 3 );
+
+    Response mockResponse = mock( Response.class );
+    doReturn( mockResponse ).when( schedulerResource ).buildStatusResponse( FORBIDDEN );
+
+    assertEquals( mockResponse, schedulerResource.getFireTimeForecast( 24, 5, 0, 3 ) );
+  }
+
+  @Test
+  public void testGetCriticalPath() throws Exception {
+    CriticalPathProxy criticalPath = new CriticalPathProxy();
+    doReturn( criticalPath ).when( schedulerResource.schedulerService ).getCriticalPath( "lineage" );
+
+    Response mockResponse = mock( Response.class );
+    doReturn( mockResponse ).when( schedulerResource ).buildOkResponse( criticalPath );
+
+    assertEquals( mockResponse, schedulerResource.getCriticalPath( "lineage" ) );
+  }
+
+  @Test
+  public void testGetCriticalPathForbidden() throws Exception {
+    Mockito.doThrow( new IllegalAccessException() ).when( schedulerResource.schedulerService )
+      .getCriticalPath( "lineage" );
+
+    Response mockResponse = mock( Response.class );
+    doReturn( mockResponse ).when( schedulerResource ).buildStatusResponse( FORBIDDEN );
+
+    assertEquals( mockResponse, schedulerResource.getCriticalPath( "lineage" ) );
+  }
+
+  @Test
+  public void testGetJobEvents() throws Exception {
+    JobEventsProxy jobEvents = new JobEventsProxy();
+    doReturn( jobEvents ).when( schedulerResource.schedulerService ).getJobEvents( "k3x.7", 25000 );
+
+    Response response = schedulerResource.getJobEvents( "k3x.7", 25 );
+
+    assertEquals( OK.getStatusCode(), response.getStatus() );
+    assertEquals( jobEvents, response.getEntity() );
+    assertTrue( ( (CacheControl) response.getMetadata().getFirst( HttpHeaders.CACHE_CONTROL ) ).isNoStore() );
+    assertNull( response.getMetadata().getFirst( "Retry-After" ) );
+  }
+
+  @Test
+  public void testGetJobEventsRefused() throws Exception {
+    JobEventsProxy jobEvents = new JobEventsProxy();
+    jobEvents.setRefused( true );
+    doReturn( jobEvents ).when( schedulerResource.schedulerService ).getJobEvents( "k3x.7", 25000 );
+
+    Response response = schedulerResource.getJobEvents( "k3x.7", 25 );
+
+    assertEquals( OK.getStatusCode(), response.getStatus() );
+    assertEquals( 30, response.getMetadata().getFirst( "Retry-After" ) );
+  }
+
+  @Test
+  public void testGetJobEventsForbidden() throws Exception {
+    Mockito.doThrow( new IllegalAccessException() ).when( schedulerResource.schedulerService )
+      .getJobEvents( null, 25000 );
+
+    Response mockResponse = mock( Response.class );
+    doReturn( mockResponse ).when( schedulerResource ).buildStatusResponse( FORBIDDEN );
+
+    assertEquals( mockResponse, schedulerResource.getJobEvents( null, 25 ) );
+  }
+
   @Test
   public void testStart() throws Exception {
     String status = "state";
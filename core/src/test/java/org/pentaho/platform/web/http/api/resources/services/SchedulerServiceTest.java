@@ -17,6 +17,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -36,10 +37,20 @@ import org.pentaho.platform.api.scheduler2.JobState;
 import org.pentaho.platform.api.scheduler2.SchedulerException;
 import org.pentaho.platform.api.scheduler2.SimpleJobTrigger;
 import org.pentaho.platform.api.util.IPdiContentProvider;
+import org.pentaho.platform.scheduler2.quartz.FireTimeForecast;
+import org.pentaho.platform.scheduler2.quartz.JobConcurrency;
+import org.pentaho.platform.scheduler2.quartz.JobDependencies;
+import org.pentaho.platform.scheduler2.quartz.JobEvents;
+import org.pentaho.platform.scheduler2.quartz.QuartzScheduler;
 import org.pentaho.platform.security.policy.rolebased.actions.AdministerSecurityAction;
 import org.pentaho.platform.security.policy.rolebased.actions.SchedulerAction;
 import org.pentaho.platform.security.policy.rolebased.actions.SchedulerExecuteAction;
+import org.pentaho.platform.web.http.api.proxies.BackgroundRunProxy;
 import org.pentaho.platform.web.http.api.proxies.BlockStatusProxy;
+import org.pentaho.platform.web.http.api.proxies.CriticalPathProxy;
+import org.pentaho.platform.web.http.api.proxies.FireTimeForecastProxy;
+import org.pentaho.platform.web.http.api.proxies.JobEventsProxy;
+import org.pentaho.platform.web.http.api.proxies.TriggerNowProxy;
 import org.pentaho.platform.web.http.api.resources.JobRequest;
 import org.pentaho.platform.web.http.api.resources.JobScheduleParam;
 import org.pentaho.platform.web.http.api.resources.JobScheduleRequest;
@@ -47,27 +58,38 @@ import org.pentaho.platform.web.http.api.resources.SchedulerOutputPathResolver;
 import org.pentaho.platform.web.http.api.resources.SchedulerResourceUtil;
 import org.pentaho.platform.web.http.api.resources.SessionResource;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -293,6 +315,203 @@ public class SchedulerServiceTest {
     verify( schedulerService, times( 1 ) ).isScheduleAllowed();
   }
 
+  @Test
+  public void testTriggerNowWithPolicy() throws Exception {
+    Job job = mock( Job.class );
+    doReturn( JobState.NORMAL ).when( job ).getState();
+    QuartzScheduler quartzScheduler = mock( QuartzScheduler.class );
+    schedulerService.scheduler = quartzScheduler;
+    doReturn( job ).when( quartzScheduler ).getJob( "jobId" );
+    doReturn( JobConcurrency.Admission.COALESCED ).when( quartzScheduler ).triggerNowWithPolicy( "jobId" );
+    doReturn( true ).when( schedulerService ).isScheduleAllowed();
+
+    TriggerNowProxy proxy = schedulerService.triggerNowWithPolicy( "jobId" );
+
+    assertEquals( "NORMAL", proxy.getJobState() );
+    assertEquals( "COALESCED", proxy.getOutcome() );
+    verify( quartzScheduler, times( 0 ) ).triggerNow( anyString() );
+  }
+
+  @Test
+  public void testGetCatalogVersionDependsOnTheUser() throws Exception {
+    QuartzScheduler quartzScheduler = mock( QuartzScheduler.class );
+    schedulerService.scheduler = quartzScheduler;
+    doReturn( "k3x.7" ).when( quartzScheduler ).getCatalogVersion();
+    IPentahoSession mockSession = mock( IPentahoSession.class );
+    doReturn( mockSession ).when( schedulerService ).getSession();
+    doReturn( "admin", "suzy" ).when( mockSession ).getName();
+
+    String adminVersion = schedulerService.getCatalogVersion();
+    String suzyVersion = schedulerService.getCatalogVersion();
+
+    assertTrue( adminVersion.startsWith( "k3x.7." ) );
+    assertNotEquals( adminVersion, suzyVersion );
+  }
+
+  @Test
+  public void testGetCatalogVersionWithoutQuartz() {
+    assertNull( schedulerService.getCatalogVersion() );
+  }
+
+  @Test
+  public void testGetJobEventsOfOwnJobsOnly() throws Exception {
+    doReturn( true ).when( schedulerService ).isScheduleAllowed();
+    doReturn( false ).when( schedulerService ).isExecuteScheduleAllowed();
+    doReturn( false ).when( schedulerService ).canAdminister();
+    IPentahoSession mockSession = mock( IPentahoSession.class );
+    doReturn( mockSession ).when( schedulerService ).getSession();
+    doReturn( "suzy" ).when( mockSession ).getName();
+    doReturn( "session" ).when( mockSession ).getId();
+    QuartzScheduler quartzScheduler = mock( QuartzScheduler.class );
+    schedulerService.scheduler = quartzScheduler;
+    JobEvents jobEvents = mock( JobEvents.class );
+    doReturn( jobEvents ).when( quartzScheduler ).getJobEvents();
+    JobEvents.Event adminEvent = mock( JobEvents.Event.class );
+    doReturn( JobEvents.Type.PAUSED ).when( adminEvent ).getType();
+    doReturn( "admin" ).when( adminEvent ).getUserName();
+    JobEvents.Event suzyEvent = mock( JobEvents.Event.class );
+    doReturn( JobEvents.Type.STARTED ).when( suzyEvent ).getType();
+    doReturn( "suzy" ).when( suzyEvent ).getUserName();
+    doReturn( "suzy\treport\t1" ).when( suzyEvent ).getJobId();
+    JobEvents.Batch batch = mock( JobEvents.Batch.class );
+    doReturn( Arrays.asList( adminEvent, suzyEvent ) ).when( batch ).getEvents();
+    doReturn( "k3x.9" ).when( batch ).getCursor();
+    doReturn( batch ).when( jobEvents ).read( eq( "k3x.7" ), anyLong(), eq( "session" ) );
+
+    JobEventsProxy proxy = schedulerService.getJobEvents( "k3x.7", 25000 );
+
+    assertEquals( "k3x.9", proxy.getCursor() );
+    assertFalse( proxy.isReset() );
+    assertFalse( proxy.isRefused() );
+    assertEquals( 1, proxy.getEvents().size() );
+    assertEquals( "STARTED", proxy.getEvents().get( 0 ).getType() );
+    assertEquals( "suzy\treport\t1", proxy.getEvents().get( 0 ).getJobId() );
+  }
+
+  @Test
+  public void testGetJobEventsWithoutQuartz() throws Exception {
+    doReturn( true ).when( schedulerService ).isScheduleAllowed();
+
+    assertNull( schedulerService.getJobEvents( null, 25000 ).getCursor() );
+  }
+
+  @Test
+  public void testGetJobEventsForbidden() throws Exception {
+    doReturn( false ).when( schedulerService ).isScheduleAllowed();
+    doReturn( false ).when( schedulerService ).isExecuteScheduleAllowed();
+
+    try {
+      schedulerService.getJobEvents( null, 25000 );
+      fail();
+    } catch ( IllegalAccessException e ) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testFireTimeForecastListsOnlyVisibleContributors() throws Exception {
+    doReturn( true ).when( schedulerService ).isScheduleAllowed();
+    doReturn( false ).when( schedulerService ).canAdminister();
+    doReturn( false ).when( schedulerService ).isExecuteScheduleAllowed();
+    IPentahoSession mockSession = mock( IPentahoSession.class );
+    doReturn( mockSession ).when( schedulerService ).getSession();
+    doReturn( "suzy" ).when( mockSession ).getName();
+    QuartzScheduler quartzScheduler = mock( QuartzScheduler.class );
+    schedulerService.scheduler = quartzScheduler;
+    FireTimeForecast forecast = mock( FireTimeForecast.class );
+    doReturn( new int[] { 3 } ).when( forecast ).getBuckets();
+    FireTimeForecast.Contributor suzyJob = mock( FireTimeForecast.Contributor.class );
+    doReturn( "suzy\treport\t2" ).when( suzyJob ).getJobId();
+    doReturn( Collections.singletonList( suzyJob ) ).when( forecast ).getTopContributors();
+    ArgumentCaptor<Predicate<String>> contributors = ArgumentCaptor.forClass( Predicate.class );
+    doReturn( forecast ).when( quartzScheduler )
+      .getFireTimeForecast( anyLong(), anyLong(), anyLong(), anyInt(), contributors.capture() );
+
+    FireTimeForecastProxy proxy = schedulerService.getFireTimeForecast( 24, 15, 0, 10 );
+
+    // the load is the server's, the jobs only the caller's, picked before the top is cut
+    assertEquals( Collections.singletonList( 3 ), proxy.getBuckets() );
+    assertFalse( contributors.getValue().test( "admin\treport\t1" ) );
+    assertTrue( contributors.getValue().test( "suzy\treport\t2" ) );
+    assertEquals( 1, proxy.getTopContributors().size() );
+    assertEquals( "suzy", proxy.getTopContributors().get( 0 ).getUserName() );
+    assertEquals( "report", proxy.getTopContributors().get( 0 ).getJobName() );
+  }
+
+  @Test( expected = IllegalAccessException.class )
+  public void testCreateJobRejectsADependencyOnAJobTheCallerCannotSee() throws Exception {
+    JobScheduleRequest scheduleRequest = new JobScheduleRequest();
+    scheduleRequest.setJobName( "downstream" );
+    scheduleRequest.setSimpleJobTrigger( new SimpleJobTrigger() );
+    scheduleRequest.getJobParameters()
+      .add( new JobScheduleParam( QuartzScheduler.RESERVEDMAPKEY_DEPENDS_ON, "upstream-lineage" ) );
+    doReturn( true ).when( schedulerService ).isScheduleAllowed();
+    doReturn( false ).when( schedulerService ).canAdminister();
+    doReturn( false ).when( schedulerService ).isExecuteScheduleAllowed();
+    IPentahoSession mockSession = mock( IPentahoSession.class );
+    doReturn( mockSession ).when( schedulerService ).getSession();
+    doReturn( "suzy" ).when( mockSession ).getName();
+    Job upstream = new Job();
+    upstream.setJobName( "upstream" );
+    upstream.setUserName( "admin" );
+    doReturn( Collections.singletonList( upstream ) ).when( schedulerService.scheduler )
+      .getJobsByLineageId( "upstream-lineage" );
+
+    schedulerService.createJob( scheduleRequest );
+  }
+
+  @Test
+  public void testCriticalPathShowsOnlyVisibleSteps() throws Exception {
+    doReturn( true ).when( schedulerService ).isScheduleAllowed();
+    doReturn( false ).when( schedulerService ).canAdminister();
+    doReturn( false ).when( schedulerService ).isExecuteScheduleAllowed();
+    IPentahoSession mockSession = mock( IPentahoSession.class );
+    doReturn( mockSession ).when( schedulerService ).getSession();
+    doReturn( "suzy" ).when( mockSession ).getName();
+    QuartzScheduler quartzScheduler = mock( QuartzScheduler.class );
+    schedulerService.scheduler = quartzScheduler;
+    JobDependencies.Step upstreamStep = mock( JobDependencies.Step.class );
+    doReturn( "upstream-lineage" ).when( upstreamStep ).getLineageId();
+    JobDependencies.Step reportStep = mock( JobDependencies.Step.class );
+    doReturn( "report-lineage" ).when( reportStep ).getLineageId();
+    doReturn( 600L ).when( reportStep ).getStartTime();
+    doReturn( 900L ).when( reportStep ).getEndTime();
+    doReturn( Arrays.asList( upstreamStep, reportStep ) ).when( quartzScheduler ).getCriticalPath( "report-lineage" );
+    Job upstream = new Job();
+    upstream.setJobName( "upstream" );
+    upstream.setUserName( "admin" );
+    doReturn( Collections.singletonList( upstream ) ).when( quartzScheduler ).getJobsByLineageId( "upstream-lineage" );
+    Job report = new Job();
+    report.setJobName( "report" );
+    report.setUserName( "suzy" );
+    doReturn( Collections.singletonList( report ) ).when( quartzScheduler ).getJobsByLineageId( "report-lineage" );
+
+    CriticalPathProxy proxy = schedulerService.getCriticalPath( "report-lineage" );
+
+    assertEquals( 1, proxy.getSteps().size() );
+    assertEquals( "report", proxy.getSteps().get( 0 ).getJobName() );
+    assertEquals( 300L, proxy.getLatencyMillis() );
+  }
+
+  @Test
+  public void testTriggerNowWithPolicyNotAllowed() throws Exception {
+    Job job = mock( Job.class );
+    doReturn( JobState.NORMAL ).when( job ).getState();
+    doReturn( "suzy" ).when( job ).getUserName();
+    IPentahoSession mockSession = mock( IPentahoSession.class );
+    doReturn( "admin" ).when( mockSession ).getName();
+    doReturn( mockSession ).when( schedulerService ).getSession();
+    doReturn( job ).when( schedulerService.scheduler ).getJob( "jobId" );
+    doReturn( false ).when( schedulerService ).isScheduleAllowed();
+    doReturn( false ).when( schedulerService ).isExecuteScheduleAllowed();
+
+    TriggerNowProxy proxy = schedulerService.triggerNowWithPolicy( "jobId" );
+
+    assertEquals( "NORMAL", proxy.getJobState() );
+    assertNull( proxy.getOutcome() );
+    verify( schedulerService.scheduler, times( 0 ) ).triggerNow( anyString() );
+  }
+
   @Test
   public void testTriggerNowExecuteSchedulePermission() throws Exception {
     JobRequest jobRequest = mock( JobRequest.class );
@@ -862,6 +1081,77 @@ public class SchedulerServiceTest {
     verify( schedulerService.scheduler, times( 1 ) ).getJobs( any( IJobFilter.class ) );
   }
 
+  @Test
+  public void testGetJobsNonAdminUsesOwnerLookup() throws Exception {
+    IPentahoSession mockPentahoSession = mock( IPentahoSession.class );
+
+    doReturn( mockPentahoSession ).when( schedulerService ).getSession();
+    doReturn( "suzy" ).when( mockPentahoSession ).getName();
+    doReturn( false ).when( schedulerService ).canAdminister();
+    doReturn( true ).when( schedulerService ).isScheduleAllowed();
+    doReturn( false ).when( schedulerService ).isExecuteScheduleAllowed();
+    QuartzScheduler quartzScheduler = mock( QuartzScheduler.class );
+    schedulerService.scheduler = quartzScheduler;
+    List<IJob> mockJobs = new ArrayList<>();
+    mockJobs.add( mock( IJob.class ) );
+    doReturn( mockJobs ).when( quartzScheduler ).getJobsByOwner( "suzy", null );
+
+    List<IJob> jobs = schedulerService.getJobs();
+
+    assertEquals( mockJobs, jobs );
+    verify( quartzScheduler, times( 0 ) ).getJobs( any( IJobFilter.class ) );
+  }
+
+  @Test
+  public void testForEachJobReadsTheJobStoreAsItGoes() throws Exception {
+    IPentahoSession mockPentahoSession = mock( IPentahoSession.class );
+
+    doReturn( mockPentahoSession ).when( schedulerService ).getSession();
+    doReturn( "admin" ).when( mockPentahoSession ).getName();
+    doReturn( true ).when( schedulerService ).canAdminister();
+    doReturn( true ).when( schedulerService ).isScheduleAllowed();
+    QuartzScheduler quartzScheduler = mock( QuartzScheduler.class );
+    schedulerService.scheduler = quartzScheduler;
+    Consumer<IJob> consumer = job -> { };
+
+    schedulerService.forEachJob( consumer );
+
+    verify( quartzScheduler, times( 1 ) ).forEachJob( isNull(), any( IJobFilter.class ), eq( consumer ) );
+    verify( quartzScheduler, times( 0 ) ).getJobs( any( IJobFilter.class ) );
+  }
+
+  @Test
+  public void testForEachJobNonAdminReadsOwnJobsOnly() throws Exception {
+    IPentahoSession mockPentahoSession = mock( IPentahoSession.class );
+
+    doReturn( mockPentahoSession ).when( schedulerService ).getSession();
+    doReturn( "suzy" ).when( mockPentahoSession ).getName();
+    doReturn( false ).when( schedulerService ).canAdminister();
+    doReturn( true ).when( schedulerService ).isScheduleAllowed();
+    doReturn( false ).when( schedulerService ).isExecuteScheduleAllowed();
+    QuartzScheduler quartzScheduler = mock( QuartzScheduler.class );
+    schedulerService.scheduler = quartzScheduler;
+    Consumer<IJob> consumer = job -> { };
+
+    schedulerService.forEachJob( consumer );
+
+    verify( quartzScheduler, times( 1 ) ).forEachJob( eq( "suzy" ), any( IJobFilter.class ), eq( consumer ) );
+  }
+
+  @Test
+  public void testForEachJobForbidden() throws Exception {
+    doReturn( false ).when( schedulerService ).isScheduleAllowed();
+
+    try {
+      schedulerService.forEachJob( job -> { } );
+      fail();
+    } catch ( IllegalAccessException e ) {
+      // Expected
+    }
+
+    verify( schedulerService.scheduler, times( 0 ) ).getJobs( any( IJobFilter.class ) );
+  }
+
   @Test
   public void testDoGetGeneratedContentForSchedule() throws Exception {
     String lineageId = "test.prpt";
@@ -1009,6 +1299,114 @@ public class SchedulerServiceTest {
     }
   }
 
+  @Test
+  public void testPrepareBackgroundRun() throws Exception {
+    RepositoryFile file = mock( RepositoryFile.class );
+    doReturn( "fileId" ).when( file ).getId();
+    doReturn( "/public/report.prpt" ).when( file ).getPath();
+    doReturn( file ).when( schedulerService.repository ).getFile( "/public/report.prpt" );
+    doReturn( true ).when( schedulerService ).isScheduleAllowed( "fileId" );
+    doReturn( true ).when( schedulerService ).isParameterizable( file );
+    doReturn( false ).when( schedulerService ).isEmailConfigValid();
+    doReturn( "/home/admin" ).when( schedulerService ).getDefaultOutputLocation( file );
+
+    BackgroundRunProxy proxy = schedulerService.prepareBackgroundRun( "/public/report.prpt" );
+    assertTrue( proxy.isScheduleAllowed() );
+    assertEquals( Boolean.TRUE, proxy.getParameterizable() );
+    assertFalse( proxy.isEmailConfigValid() );
+    assertEquals( "/home/admin", proxy.getDefaultOutputLocation() );
+  }
+
+  @Test
+  public void testPrepareBackgroundRunLeavesWhatIsLateToTheClient() throws Exception {
+    RepositoryFile file = mock( RepositoryFile.class );
+    doReturn( "fileId" ).when( file ).getId();
+    doReturn( file ).when( schedulerService.repository ).getFile( "/public/report.prpt" );
+    doReturn( true ).when( schedulerService ).isScheduleAllowed( "fileId" );
+    doReturn( true ).when( schedulerService ).isEmailConfigValid();
+    CountDownLatch release = new CountDownLatch( 1 );
+    CountDownLatch interrupted = new CountDownLatch( 2 );
+    doAnswer( invocation -> {
+      try {
+        release.await();
+      } catch ( InterruptedException e ) {
+        interrupted.countDown();
+      }
+      return true;
+    } ).when( schedulerService ).isParameterizable( file );
+    doAnswer( invocation -> {
+      try {
+        release.await();
+      } catch ( InterruptedException e ) {
+        interrupted.countDown();
+      }
+      return "/home/admin";
+    } ).when( schedulerService ).getDefaultOutputLocation( file );
+    schedulerService.prepareTimeoutMillis = 100;
+
+    try {
+      BackgroundRunProxy proxy = schedulerService.prepareBackgroundRun( "/public/report.prpt" );
+      assertTrue( proxy.isScheduleAllowed() );
+      assertNull( proxy.getParameterizable() );
+      assertTrue( proxy.isEmailConfigValid() );
+      assertNull( proxy.getDefaultOutputLocation() );
+      // what was given up on does not hold a preparing thread
+      assertTrue( interrupted.await( 5, TimeUnit.SECONDS ) );
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void testPrepareBackgroundRunAfterTheExecutorIsShutDown() throws Exception {
+    RepositoryFile file = mock( RepositoryFile.class );
+    doReturn( "fileId" ).when( file ).getId();
+    doReturn( file ).when( schedulerService.repository ).getFile( "/public/report.xaction" );
+    doReturn( true ).when( schedulerService ).isScheduleAllowed( "fileId" );
+    doReturn( true ).when( schedulerService ).isEmailConfigValid();
+    doReturn( "/home/admin" ).when( schedulerService ).getDefaultOutputLocation( file );
+
+    new SchedulerServiceLifecycleListener().unLoaded();
+    BackgroundRunProxy proxy = schedulerService.prepareBackgroundRun( "/public/report.xaction" );
+    assertTrue( proxy.isEmailConfigValid() );
+    assertEquals( "/home/admin", proxy.getDefaultOutputLocation() );
+  }
+
+  @Test
+  public void testPrepareBackgroundRunNotAllowed() throws Exception {
+    RepositoryFile file = mock( RepositoryFile.class );
+    doReturn( "fileId" ).when( file ).getId();
+    doReturn( file ).when( schedulerService.repository ).getFile( "/public/report.xaction" );
+    doReturn( false ).when( schedulerService ).isScheduleAllowed( "fileId" );
+
+    BackgroundRunProxy proxy = schedulerService.prepareBackgroundRun( "/public/report.xaction" );
+    assertFalse( proxy.isScheduleAllowed() );
+    assertNull( proxy.getParameterizable() );
+    verify( schedulerService, times( 0 ) ).getDefaultOutputLocation( file );
+
+    try {
+      schedulerService.prepareBackgroundRun( "/public/missing.prpt" );
+      fail();
+    } catch ( FileNotFoundException e ) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testPrepareBackgroundRunOfAnActionSequence() throws Exception {
+    RepositoryFile file = mock( RepositoryFile.class );
+    doReturn( "fileId" ).when( file ).getId();
+    doReturn( file ).when( schedulerService.repository ).getFile( "/public/report.xaction" );
+    doReturn( true ).when( schedulerService ).isScheduleAllowed( "fileId" );
+    doReturn( true ).when( schedulerService ).isEmailConfigValid();
+    doReturn( null ).when( schedulerService ).getDefaultOutputLocation( file );
+
+    BackgroundRunProxy proxy = schedulerService.prepareBackgroundRun( "/public/report.xaction" );
+    assertNull( proxy.getParameterizable() );
+    assertTrue( proxy.isEmailConfigValid() );
+    verify( schedulerService, times( 0 ) ).isParameterizable( file );
+  }
+
   @Test
   public void testIsScheduleAllowed() {
     // Test 1
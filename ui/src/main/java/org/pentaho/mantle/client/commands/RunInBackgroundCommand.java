@@ -19,6 +19,7 @@ import com.google.gwt.http.client.RequestBuilder;
 import com.google.gwt.http.client.RequestCallback;
 import com.google.gwt.http.client.RequestException;
 import com.google.gwt.http.client.Response;
+import com.google.gwt.http.client.URL;
 import com.google.gwt.i18n.client.DateTimeFormat;
 import com.google.gwt.i18n.client.DateTimeFormat.PredefinedFormat;
 import com.google.gwt.json.client.JSONBoolean;
@@ -28,6 +29,7 @@ import com.google.gwt.json.client.JSONObject;
 import com.google.gwt.json.client.JSONParser;
 import com.google.gwt.json.client.JSONString;
 import com.google.gwt.json.client.JSONValue;
+import com.google.gwt.user.client.Command;
 
 import org.pentaho.gwt.widgets.client.dialogs.MessageDialogBox;
 import org.pentaho.gwt.widgets.client.utils.NameUtils;
@@ -62,6 +64,10 @@ public class RunInBackgroundCommand extends AbstractCommand {
   private String repositoryFileId;
   private String repositoryFilePath;
 
+  // the answer of prepareBackgroundRun for preparedPath, so that the dialog and the run it leads to ask once
+  private JSONObject prepared;
+  private String preparedPath;
+
   public RunInBackgroundCommand() {
   }
 
@@ -182,9 +188,75 @@ public class RunInBackgroundCommand extends AbstractCommand {
         performOperation( feedback );
       }
     };
-    final String filePath = solutionPath;
-    String urlPath = NameUtils.URLEncode( NameUtils.encodeRepositoryPath( filePath ) );
+    final String filePath = solutionPath != null ? solutionPath : repositoryFilePath;
+
+    prepareBackgroundRun( filePath, () -> checkParameters( filePath, hasParams -> {
+      if ( !hasParams ) {
+        outputLocationDialog.setOkButtonText( Messages.getString( "ok" ) );
+      }
+      outputLocationDialog.setDefaultScheduleLocation( getPreparedString( "defaultOutputLocation" ) ); //$NON-NLS-1$
+      outputLocationDialog.center();
+    } ) );
+  }
+
+  /**
+   * Asks the server in one request whether the file may be scheduled, whether it has parameters, whether email is
+   * configured and where its output goes by default, unless it was asked for this file already, then runs
+   * <code>onPrepared</code>.
+   */
+  protected void prepareBackgroundRun( final String filePath, final Command onPrepared ) {
+    if ( prepared != null && filePath.equals( preparedPath ) ) {
+      onPrepared.execute();
+      return;
+    }
+    prepared = null;
+    RequestBuilder requestBuilder = new RequestBuilder( RequestBuilder.GET, ScheduleHelper.getPluginContextURL()
+      + "api/scheduler/prepareBackgroundRun?path=" + URL.encodeQueryString( filePath ) ); //$NON-NLS-1$
+    requestBuilder.setHeader( "accept", "application/json" ); //$NON-NLS-1$ //$NON-NLS-2$
+    try {
+      requestBuilder.sendRequest( null, new RequestCallback() {
+        public void onError( Request request, Throwable exception ) {
+          MessageDialogBox dialogBox =
+            new MessageDialogBox( Messages.getString( "error" ), exception.toString(), false, false, true ); //$NON-NLS-1$
+          dialogBox.center();
+        }
+
+        public void onResponseReceived( Request request, Response response ) {
+          if ( response.getStatusCode() == Response.SC_OK ) {
+            prepared = JSONParser.parseStrict( response.getText() ).isObject();
+            preparedPath = filePath;
+            onPrepared.execute();
+          } else {
+            MessageDialogBox dialogBox =
+              new MessageDialogBox(
+                Messages.getString( "error" ), Messages.getString( "serverErrorColon" ) + " " + response.getStatusCode(), false, false, true ); //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
+            dialogBox.center();
+          }
+        }
+      } );
+    } catch ( RequestException e ) {
+      MessageDialogBox dialogBox =
+        new MessageDialogBox( Messages.getString( "error" ), e.toString(), false, false, true ); //$NON-NLS-1$
+      dialogBox.center();
+    }
+  }
+
+  interface ParametersCallback {
+    void onChecked( boolean hasParams );
+  }
 
+  /**
+   * Tells <code>callback</code> whether the file has parameters to prompt for: as prepared, or for an action
+   * sequence, which the server cannot tell, as its parameter UI shows them.
+   */
+  private void checkParameters( String filePath, final ParametersCallback callback ) {
+    JSONValue parameterizable = prepared == null ? null : prepared.get( "parameterizable" ); //$NON-NLS-1$
+    if ( parameterizable != null && parameterizable.isNull() == null ) {
+      callback.onChecked( isTrue( parameterizable ) );
+      return;
+    }
+
+    String urlPath = NameUtils.URLEncode( NameUtils.encodeRepositoryPath( filePath ) );
     RequestBuilder scheduleFileRequestBuilder = createParametersChecker( urlPath );
     final boolean isXAction = isXAction( urlPath );
 
@@ -198,12 +270,7 @@ public class RunInBackgroundCommand extends AbstractCommand {
 
         public void onResponseReceived( Request request, Response response ) {
           if ( response.getStatusCode() == Response.SC_OK ) {
-            String responseMessage = response.getText();
-            boolean hasParams = hasParameters( responseMessage, isXAction );
-            if ( !hasParams ) {
-              outputLocationDialog.setOkButtonText( Messages.getString( "ok" ) );
-            }
-            outputLocationDialog.center();
+            callback.onChecked( hasParameters( response.getText(), isXAction ) );
           } else {
             MessageDialogBox dialogBox =
               new MessageDialogBox(
@@ -219,6 +286,26 @@ public class RunInBackgroundCommand extends AbstractCommand {
     }
   }
 
+  private boolean isPrepared( String key ) {
+    return prepared != null && isTrue( prepared.get( key ) );
+  }
+
+  private String getPreparedString( String key ) {
+    JSONValue value = prepared == null ? null : prepared.get( key );
+    return value == null || value.isString() == null ? null : value.isString().stringValue();
+  }
+
+  // booleans may come as strings, depending on how the server writes JSON
+  private static boolean isTrue( JSONValue value ) {
+    if ( value == null ) {
+      return false;
+    }
+    if ( value.isBoolean() != null ) {
+      return value.isBoolean().booleanValue();
+    }
+    return value.isString() != null && "true".equalsIgnoreCase( value.isString().stringValue() ); //$NON-NLS-1$
+  }
+
   private boolean hasParameters( String responseMessage, boolean isXAction ) {
     if ( isXAction ) {
       int numOfInputs = StringUtils.countMatches( responseMessage, "<input" );
@@ -254,188 +341,122 @@ public class RunInBackgroundCommand extends AbstractCommand {
   protected void checkSchedulePermissionAndDialog( String repositoryFileId, String repositoryFilePath ) {
     this.repositoryFileId = repositoryFileId;
     this.repositoryFilePath = repositoryFilePath;
-    final String url = ScheduleHelper.getPluginContextURL() + "api/scheduler/isScheduleAllowed?id=" + this.repositoryFileId; //$NON-NLS-1$
-    RequestBuilder requestBuilder = new RequestBuilder( RequestBuilder.GET, url );
-    requestBuilder.setHeader( "accept", "text/plain" );
-    requestBuilder.setHeader( "If-Modified-Since", "01 Jan 1970 00:00:00 GMT" );
     final MessageDialogBox errorDialog =
       new MessageDialogBox(
         Messages.getString( "error" ), Messages.getString( "noSchedulePermission" ), false, false, true ); //$NON-NLS-1$ //$NON-NLS-2$
-    try {
-      requestBuilder.sendRequest( null, new RequestCallback() {
-
-        public void onError( Request request, Throwable caught ) {
-          errorDialog.center();
-        }
-
-        public void onResponseReceived( Request request, Response response ) {
-          if ( "true".equalsIgnoreCase( response.getText() ) ) {
-            showDialog( true );
-          } else {
-            errorDialog.center();
-          }
-        }
-      } );
-    } catch ( RequestException re ) {
-      errorDialog.center();
-    }
+    prepareBackgroundRun( repositoryFilePath, () -> {
+      if ( isPrepared( "scheduleAllowed" ) ) { //$NON-NLS-1$
+        showDialog( true );
+      } else {
+        errorDialog.center();
+      }
+    } );
   }
 
   protected void performOperation( boolean feedback ) {
 
     final String filePath = ( this.getSolutionPath() != null ) ? this.getSolutionPath() : this.repositoryFilePath;
-    String urlPath = NameUtils.URLEncode( NameUtils.encodeRepositoryPath( filePath ) );
 
-    RequestBuilder scheduleFileRequestBuilder = createParametersChecker( urlPath );
-    final boolean isXAction = isXAction( urlPath );
+    prepareBackgroundRun( filePath, () -> checkParameters( filePath, hasParams -> {
+      // what was prepared is used up: the next run asks again
+      final boolean isEmailConfigValid = isPrepared( "emailConfigValid" ); //$NON-NLS-1$
+      prepared = null;
 
-    try {
-      scheduleFileRequestBuilder.sendRequest( null, new RequestCallback() {
+      final JSONObject scheduleRequest = new JSONObject();
+      scheduleRequest.put( "inputFile", new JSONString( filePath ) ); //$NON-NLS-1$
 
-        public void onError( Request request, Throwable exception ) {
-          MessageDialogBox dialogBox =
-            new MessageDialogBox( Messages.getString( "error" ), exception.toString(), false, false, true ); //$NON-NLS-1$
-          dialogBox.center();
-        }
-
-        public void onResponseReceived( Request request, Response response ) {
-          if ( response.getStatusCode() == Response.SC_OK ) {
-            final JSONObject scheduleRequest = new JSONObject();
-            scheduleRequest.put( "inputFile", new JSONString( filePath ) ); //$NON-NLS-1$
-
-            //Set date format to append to filename
-            if ( StringUtils.isEmpty( getDateFormat() ) ) {
-              scheduleRequest.put( "appendDateFormat", JSONNull.getInstance() ); //$NON-NLS-1$
-            } else {
-              scheduleRequest.put( "appendDateFormat", new JSONString( getDateFormat() ) ); //$NON-NLS-1$
-            }
+      //Set date format to append to filename
+      if ( StringUtils.isEmpty( getDateFormat() ) ) {
+        scheduleRequest.put( "appendDateFormat", JSONNull.getInstance() ); //$NON-NLS-1$
+      } else {
+        scheduleRequest.put( "appendDateFormat", new JSONString( getDateFormat() ) ); //$NON-NLS-1$
+      }
 
-            //Set whether to overwrite the file
-            if ( StringUtils.isEmpty( getOverwriteFile() ) ) {
-              scheduleRequest.put( "overwriteFile", JSONNull.getInstance() ); //$NON-NLS-1$
-            } else {
-              scheduleRequest.put( "overwriteFile", new JSONString( getOverwriteFile() ) ); //$NON-NLS-1$
-            }
+      //Set whether to overwrite the file
+      if ( StringUtils.isEmpty( getOverwriteFile() ) ) {
+        scheduleRequest.put( "overwriteFile", JSONNull.getInstance() ); //$NON-NLS-1$
+      } else {
+        scheduleRequest.put( "overwriteFile", new JSONString( getOverwriteFile() ) ); //$NON-NLS-1$
+      }
 
-            // Set job name
-            if ( StringUtils.isEmpty( getOutputName() ) ) {
-              scheduleRequest.put( "jobName", JSONNull.getInstance() ); //$NON-NLS-1$
-            } else {
-              scheduleRequest.put( "jobName", new JSONString( getOutputName() ) ); //$NON-NLS-1$
-            }
+      // Set job name
+      if ( StringUtils.isEmpty( getOutputName() ) ) {
+        scheduleRequest.put( "jobName", JSONNull.getInstance() ); //$NON-NLS-1$
+      } else {
+        scheduleRequest.put( "jobName", new JSONString( getOutputName() ) ); //$NON-NLS-1$
+      }
 
-            // Set output path location
-            if ( StringUtils.isEmpty( getOutputLocationPath() ) ) {
-              scheduleRequest.put( "outputFile", JSONNull.getInstance() ); //$NON-NLS-1$
-            } else {
-              scheduleRequest.put( "outputFile", new JSONString( getOutputLocationPath() ) ); //$NON-NLS-1$
-            }
+      // Set output path location
+      if ( StringUtils.isEmpty( getOutputLocationPath() ) ) {
+        scheduleRequest.put( "outputFile", JSONNull.getInstance() ); //$NON-NLS-1$
+      } else {
+        scheduleRequest.put( "outputFile", new JSONString( getOutputLocationPath() ) ); //$NON-NLS-1$
+      }
 
-            // BISERVER-9321
-            scheduleRequest.put( "runInBackground", JSONBoolean.getInstance( true ) );
-
-            String responseMessage = response.getText();
-            final boolean hasParams = hasParameters( responseMessage, isXAction );
-
-            RequestBuilder emailValidRequest =
-              new RequestBuilder( RequestBuilder.GET, contextURL + "api/emailconfig/isValid" ); //$NON-NLS-1$
-            emailValidRequest.setHeader( "accept", "text/plain" ); //$NON-NLS-1$ //$NON-NLS-2$
-            emailValidRequest.setHeader( "If-Modified-Since", "01 Jan 1970 00:00:00 GMT" );
-            try {
-              emailValidRequest.sendRequest( null, new RequestCallback() {
-
-                public void onError( Request request, Throwable exception ) {
-                  MessageDialogBox dialogBox =
-                    new MessageDialogBox( Messages.getString( "error" ), exception.toString(), false, false, true ); //$NON-NLS-1$
-                  dialogBox.center();
-                }
-
-                public void onResponseReceived( Request request, Response response ) {
-                  if ( response.getStatusCode() == Response.SC_OK ) {
-                    // final boolean isEmailConfValid = Boolean.parseBoolean(response.getText());
-                    // force false for now, I have a feeling PM is going to want this, making it easy to turn back
-                    // on
-                    final boolean isEmailConfValid = false;
-                    if ( hasParams ) {
-                      ScheduleParamsDialog dialog =
-                        ScheduleFactory.getInstance().createScheduleParamsDialog( filePath, scheduleRequest, isEmailConfValid );
-                      dialog.center();
-                      dialog.setAfterResponseCallback( scheduleParamsDialogCallback );
-                    } else if ( isEmailConfValid ) {
-                      ScheduleEmailDialog scheduleEmailDialog =
-                        ScheduleFactory.getInstance().createScheduleEmailDialog( null, filePath, scheduleRequest, null, null );
-                      scheduleEmailDialog.center();
-                    } else {
-                      // Handle Schedule Parameters
-                      String jsonStringScheduleParams = ScheduleParamsHelper.getScheduleParams( scheduleRequest ).toString();
-                      JSONValue scheduleParams = JSONParser.parseStrict( jsonStringScheduleParams );
-                      scheduleRequest.put( "jobParameters", scheduleParams );
-
-                      // just run it
-                      RequestBuilder scheduleFileRequestBuilder =
-                        new RequestBuilder( RequestBuilder.POST, ScheduleHelper.getPluginContextURL() + "api/scheduler/job" ); //$NON-NLS-1$
-                      scheduleFileRequestBuilder.setHeader( "Content-Type", "application/json" ); //$NON-NLS-1$//$NON-NLS-2$
-                      scheduleFileRequestBuilder.setHeader( "If-Modified-Since", "01 Jan 1970 00:00:00 GMT" );
-
-                      try {
-                        scheduleFileRequestBuilder.sendRequest( scheduleRequest.toString(), new RequestCallback() {
-
-                          @Override
-                          public void onError( Request request, Throwable exception ) {
-                            MessageDialogBox dialogBox =
-                              new MessageDialogBox(
-                                Messages.getString( "error" ), exception.toString(), false, false, true ); //$NON-NLS-1$
-                            dialogBox.center();
-                          }
-
-                          @Override
-                          public void onResponseReceived( Request request, Response response ) {
-                            if ( response.getStatusCode() == 200 ) {
-                              MessageDialogBox dialogBox =
-                                new MessageDialogBox(
-                                  Messages.getString( "runInBackground" ), Messages.getString( "backgroundExecutionStarted" ), //$NON-NLS-1$ //$NON-NLS-2$
-                                  false, false, true );
-                              dialogBox.center();
-                            } else {
-                              MessageDialogBox dialogBox =
-                                new MessageDialogBox(
-                                  Messages.getString( "error" ), Messages.getString( "serverErrorColon" ) + " " + response.getStatusCode(), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-2$ //$NON-NLS-3$
-                                  false, false, true );
-                              dialogBox.center();
-                            }
-                          }
-
-                        } );
-                      } catch ( RequestException e ) {
-                        MessageDialogBox dialogBox = new MessageDialogBox( Messages.getString( "error" ), e.toString(), //$NON-NLS-1$
-                          false, false, true );
-                        dialogBox.center();
-                      }
-                    }
-
-                  }
-                }
-              } );
-            } catch ( RequestException e ) {
+      // BISERVER-9321
+      scheduleRequest.put( "runInBackground", JSONBoolean.getInstance( true ) );
+
+      // final boolean isEmailConfValid = isEmailConfigValid;
+      // force false for now, I have a feeling PM is going to want this, making it easy to turn back
+      // on
+      final boolean isEmailConfValid = false;
+      if ( hasParams ) {
+        ScheduleParamsDialog dialog =
+          ScheduleFactory.getInstance().createScheduleParamsDialog( filePath, scheduleRequest, isEmailConfValid );
+        dialog.center();
+        dialog.setAfterResponseCallback( scheduleParamsDialogCallback );
+      } else if ( isEmailConfValid ) {
+        ScheduleEmailDialog scheduleEmailDialog =
+          ScheduleFactory.getInstance().createScheduleEmailDialog( null, filePath, scheduleRequest, null, null );
+        scheduleEmailDialog.center();
+      } else {
+        // Handle Schedule Parameters
+        String jsonStringScheduleParams = ScheduleParamsHelper.getScheduleParams( scheduleRequest ).toString();
+        JSONValue scheduleParams = JSONParser.parseStrict( jsonStringScheduleParams );
+        scheduleRequest.put( "jobParameters", scheduleParams );
+
+        // just run it
+        RequestBuilder scheduleFileRequestBuilder =
+          new RequestBuilder( RequestBuilder.POST, ScheduleHelper.getPluginContextURL() + "api/scheduler/job" ); //$NON-NLS-1$
+        scheduleFileRequestBuilder.setHeader( "Content-Type", "application/json" ); //$NON-NLS-1$//$NON-NLS-2$
+        scheduleFileRequestBuilder.setHeader( "If-Modified-Since", "01 Jan 1970 00:00:00 GMT" );
+
+        try {
+          scheduleFileRequestBuilder.sendRequest( scheduleRequest.toString(), new RequestCallback() {
+
+            @Override
+            public void onError( Request request, Throwable exception ) {
               MessageDialogBox dialogBox =
-                new MessageDialogBox( Messages.getString( "error" ), e.toString(), false, false, true ); //$NON-NLS-1$
+                new MessageDialogBox(
+                  Messages.getString( "error" ), exception.toString(), false, false, true ); //$NON-NLS-1$
               dialogBox.center();
             }
 
-          } else {
-            MessageDialogBox dialogBox =
-              new MessageDialogBox(
-                Messages.getString( "error" ), Messages.getString( "serverErrorColon" ) + " " + response.getStatusCode(), false, false, true ); //$NON-NLS-1$//$NON-NLS-2$//$NON-NLS-3$
-            dialogBox.center();
-          }
-        }
+            @Override
+            public void onResponseReceived( Request request, Response response ) {
+              if ( response.getStatusCode() == 200 ) {
+                MessageDialogBox dialogBox =
+                  new MessageDialogBox(
+                    Messages.getString( "runInBackground" ), Messages.getString( "backgroundExecutionStarted" ), //$NON-NLS-1$ //$NON-NLS-2$
+                    false, false, true );
+                dialogBox.center();
+              } else {
+                MessageDialogBox dialogBox =
+                  new MessageDialogBox(
+                    Messages.getString( "error" ), Messages.getString( "serverErrorColon" ) + " " + response.getStatusCode(), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-2$ //$NON-NLS-3$
+                    false, false, true );
+                dialogBox.center();
+              }
+            }
 
-      } );
-    } catch ( RequestException e ) {
-      MessageDialogBox dialogBox =
-        new MessageDialogBox( Messages.getString( "error" ), e.toString(), false, false, true ); //$NON-NLS-1$
-      dialogBox.center();
-    }
+          } );
+        } catch ( RequestException e ) {
+          MessageDialogBox dialogBox = new MessageDialogBox( Messages.getString( "error" ), e.toString(), //$NON-NLS-1$
+            false, false, true );
+          dialogBox.center();
+        }
+      }
+    } ) );
   }
 
   ScheduleParamsDialog.IAfterResponse scheduleParamsDialogCallback = new ScheduleParamsDialog.IAfterResponse() {
@@ -323,4 +323,15 @@ public abstract class ScheduleOutputLocationDialog extends PromptDialogBox {
     scheduleNameLabel.setText( text );
   }
 
+  /**
+   * Puts the output in <code>location</code> instead of the home folder, unless another folder was chosen already.
+   */
+  public void setDefaultScheduleLocation( String location ) {
+    if ( !StringUtils.isEmpty( location )
+      && scheduleLocationTextBox.getText().equals( getDefaultSaveLocation() ) ) {
+      setScheduleLocation( location );
+      updateButtonState();
+    }
+  }
+
 }
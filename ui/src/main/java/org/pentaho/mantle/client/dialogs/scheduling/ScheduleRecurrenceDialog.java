@@ -39,6 +39,7 @@ import org.pentaho.mantle.client.workspace.JsBlockStatus;
 import org.pentaho.mantle.client.workspace.JsJob;
 import org.pentaho.mantle.client.workspace.JsJobParam;
 import org.pentaho.mantle.client.workspace.JsJobTrigger;
+import org.pentaho.mantle.client.workspace.SchedulesPanel;
 import org.pentaho.mantle.login.client.MantleLoginDialog;
 
 import com.google.gwt.core.client.JavaScriptObject;
@@ -71,6 +72,10 @@ public class ScheduleRecurrenceDialog extends AbstractWizardDialog {
 
   private static final String HOUR_MINUTE_SECOND = "h:mm:ss a";
 
+  // the last answer to hasblockouts and its tag; the server answers 304 while it is current
+  private static Boolean hasBlockoutsAnswer;
+  private static String hasBlockoutsETag;
+
   protected String filePath;
   protected String outputLocation;
   protected String scheduleName;
@@ -187,6 +192,9 @@ public class ScheduleRecurrenceDialog extends AbstractWizardDialog {
     RequestBuilder hasBlockoutsRequest = new RequestBuilder( RequestBuilder.GET, url );
     hasBlockoutsRequest.setHeader( "If-Modified-Since", "01 Jan 1970 00:00:00 GMT" );
     hasBlockoutsRequest.setHeader( "accept", "text/plain" );
+    if ( hasBlockoutsAnswer != null && hasBlockoutsETag != null ) {
+      hasBlockoutsRequest.setHeader( SchedulesPanel.IF_NONE_MATCH, hasBlockoutsETag );
+    }
     try {
       hasBlockoutsRequest.sendRequest( url, new RequestCallback() {
 
@@ -199,7 +207,16 @@ public class ScheduleRecurrenceDialog extends AbstractWizardDialog {
 
         @Override
         public void onResponseReceived( Request request, Response response ) {
-          Boolean hasBlockouts = Boolean.valueOf( response.getText() );
+          Boolean hasBlockouts;
+          if ( response.getStatusCode() == SchedulesPanel.SC_NOT_MODIFIED && hasBlockoutsAnswer != null ) {
+            hasBlockouts = hasBlockoutsAnswer;
+          } else {
+            hasBlockouts = Boolean.valueOf( response.getText() );
+            if ( response.getStatusCode() == Response.SC_OK ) {
+              hasBlockoutsAnswer = hasBlockouts;
+              hasBlockoutsETag = response.getHeader( SchedulesPanel.ETAG );
+            }
+          }
           if ( hasBlockouts ) {
             scheduleEditor.setBlockoutButtonHandler( new ClickHandler() {
               @Override
@@ -76,6 +76,9 @@ public class BlockoutPanel extends SimplePanel {
   private Label blockoutHeading;
   private final boolean isAdmin;
 
+  // tags the blockouts shown; the server answers 304 while it is current
+  private String blockoutsETag;
+
   public BlockoutPanel( final boolean isAdmin ) {
     this.isAdmin = isAdmin;
 
@@ -253,28 +256,38 @@ public class BlockoutPanel extends SimplePanel {
   public void refresh() {
     final MessageDialogBox errorDialog = new MessageDialogBox(
       Messages.getString( "error" ), Messages.getString( "noBlockoutViewPermission" ), false, false, true );
-    makeServiceCall( "blockout/blockoutjobs", RequestBuilder.GET, null, "application/json", new RequestCallback() {
+    makeServiceCall( "blockout/blockoutjobs", RequestBuilder.GET, null, "application/json", blockoutsETag,
+      new RequestCallback() {
 
-      public void onError( Request request, Throwable exception ) {
-        errorDialog.center();
-      }
+        public void onError( Request request, Throwable exception ) {
+          errorDialog.center();
+        }
 
-      public void onResponseReceived( Request request, Response response ) {
-        if ( response.getStatusCode() == Response.SC_OK ) {
-          if ( "null".equals( response.getText() ) ) {
-            showData( null );
+        public void onResponseReceived( Request request, Response response ) {
+          if ( response.getStatusCode() == Response.SC_OK ) {
+            blockoutsETag = response.getHeader( SchedulesPanel.ETAG );
+            if ( "null".equals( response.getText() ) ) {
+              showData( null );
+            } else {
+              showData( parseJson( JsonUtils.escapeJsonForEval( response.getText() ) ) );
+            }
+          } else if ( response.getStatusCode() == SchedulesPanel.SC_NOT_MODIFIED ) {
+            // the blockouts shown are current
           } else {
-            showData( parseJson( JsonUtils.escapeJsonForEval( response.getText() ) ) );
+            errorDialog.center();
           }
-        } else {
-          errorDialog.center();
         }
-      }
-    } );
+      } );
   }
 
   private void makeServiceCall( final String urlSuffix, final RequestBuilder.Method httpMethod,
                                 final String requestData, final String acceptHeader, final RequestCallback callback ) {
+    makeServiceCall( urlSuffix, httpMethod, requestData, acceptHeader, null, callback );
+  }
+
+  private void makeServiceCall( final String urlSuffix, final RequestBuilder.Method httpMethod,
+                                final String requestData, final String acceptHeader, final String eTag,
+                                final RequestCallback callback ) {
     final String url = ScheduleHelper.getPluginContextURL() + "api/scheduler/" + urlSuffix;
     RequestBuilder builder = new RequestBuilder( httpMethod, url );
     builder.setHeader( "If-Modified-Since", "01 Jan 1970 00:00:00 GMT" );
@@ -282,6 +295,9 @@ public class BlockoutPanel extends SimplePanel {
     if ( !StringUtils.isEmpty( acceptHeader ) ) {
       builder.setHeader( "accept", acceptHeader );
     }
+    if ( !StringUtils.isEmpty( eTag ) ) {
+      builder.setHeader( SchedulesPanel.IF_NONE_MATCH, eTag );
+    }
     try {
       builder.sendRequest( requestData, callback );
     } catch ( RequestException e ) {
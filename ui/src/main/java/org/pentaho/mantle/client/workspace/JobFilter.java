@@ -0,0 +1,81 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.mantle.client.workspace;
+
+import java.util.Date;
+
+/**
+ * An immutable filter of the schedules table. Its values are taken when it is created, and two filters are equal
+ * when they test the same field against the same value, so that {@link JobsViewModel} can tell which filters a change
+ * added or removed.
+ */
+public final class JobFilter implements IJobFilter {
+
+  private final String key;
+
+  private final IJobFilter test;
+
+  private JobFilter( String key, IJobFilter test ) {
+    this.key = key;
+    this.test = test;
+  }
+
+  public static JobFilter nextRunAfter( final Date date ) {
+    final Date after = new Date( date.getTime() );
+    return new JobFilter( "nextRunAfter:" + after.getTime(), job -> job.getNextRun().after( after ) );
+  }
+
+  public static JobFilter nextRunBefore( final Date date ) {
+    final Date before = new Date( date.getTime() );
+    return new JobFilter( "nextRunBefore:" + before.getTime(), job -> job.getNextRun().before( before ) );
+  }
+
+  public static JobFilter resourceNameContains( String resourceName ) {
+    final String lowerCase = resourceName.toLowerCase();
+    return new JobFilter( "resourceName:" + lowerCase,
+      job -> job.getShortResourceName().toLowerCase().contains( lowerCase ) );
+  }
+
+  public static JobFilter userName( final String userName ) {
+    return new JobFilter( "userName:" + userName.toLowerCase(), job -> job.getUserName().equalsIgnoreCase( userName ) );
+  }
+
+  public static JobFilter state( final String state ) {
+    return new JobFilter( "state:" + state.toLowerCase(), job -> job.getState().equalsIgnoreCase( state ) );
+  }
+
+  public static JobFilter scheduleType( final String scheduleType ) {
+    return new JobFilter( "scheduleType:" + scheduleType.toLowerCase(),
+      job -> job.getJobTrigger().getScheduleType().equalsIgnoreCase( scheduleType ) );
+  }
+
+  public boolean accept( JsJob job ) {
+    return test.accept( job );
+  }
+
+  @Override
+  public boolean equals( Object obj ) {
+    return obj instanceof JobFilter && key.equals( ( (JobFilter) obj ).key );
+  }
+
+  @Override
+  public int hashCode() {
+    return key.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return key;
+  }
+}
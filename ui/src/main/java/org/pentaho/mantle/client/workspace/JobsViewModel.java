@@ -0,0 +1,265 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.mantle.client.workspace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gwt.core.client.JsArray;
+
+/**
+ * The rows of the schedules table: the jobs the filters accept, in the order of the sorted column.
+ * <p/>
+ * Each job is tested by the filters once, when it is added or changed; the jobs a filter rejects are remembered, so
+ * that a change of the filters only tests the jobs it can affect: the shown ones against the filters it added, or the
+ * hidden ones when it only removed some. Sorting reads the key of every job for a column once and keeps the order
+ * until the jobs change, so sorting again by a column, either way, or filtering a sorted table only walks that order.
+ */
+public class JobsViewModel {
+
+  /**
+   * Reads the value a column is sorted by.
+   */
+  public interface SortKey {
+    Comparable<?> of( JsJob job );
+  }
+
+  /**
+   * Always applied: the scheduled content cleaner is not listed.
+   */
+  private static final IJobFilter LISTED =
+    job -> !"GeneratedContentCleaner".equals( job.getInputFilePath() ); //$NON-NLS-1$
+
+  private final List<JsJob> jobs = new ArrayList<>();
+
+  private final Map<String, JsJob> jobsById = new HashMap<>();
+
+  private final Set<JsJob> hidden = new HashSet<>();
+
+  private List<IJobFilter> filters = Collections.emptyList();
+
+  private final Map<Object, SortKey> sortKeys = new HashMap<>();
+
+  // the jobs in the order of each column sorted so far, until the jobs change
+  private final Map<Object, List<JsJob>> sortOrders = new HashMap<>();
+
+  private Object sortColumn;
+
+  private boolean sortAscending = true;
+
+  private List<JsJob> rows = new ArrayList<>();
+
+  public void setSortKey( Object column, SortKey sortKey ) {
+    sortKeys.put( column, sortKey );
+  }
+
+  /**
+   * Replaces all the jobs.
+   */
+  public void setJobs( JsArray<JsJob> allJobs ) {
+    jobs.clear();
+    jobsById.clear();
+    hidden.clear();
+    sortOrders.clear();
+    for ( int i = 0; allJobs != null && i < allJobs.length(); i++ ) {
+      JsJob job = allJobs.get( i );
+      jobs.add( job );
+      jobsById.put( job.getJobId(), job );
+      if ( !accepts( filters, job ) ) {
+        hidden.add( job );
+      }
+    }
+    rows = buildRows();
+  }
+
+  /**
+   * Replaces the filters, testing only the jobs whose row they can show or hide.
+   */
+  public void setFilters( List<IJobFilter> newFilters ) {
+    List<IJobFilter> added = new ArrayList<>( newFilters );
+    added.removeAll( filters );
+    boolean removedAny = !newFilters.containsAll( filters );
+    filters = Collections.unmodifiableList( new ArrayList<>( newFilters ) );
+
+    if ( added.isEmpty() && !removedAny ) {
+      return;
+    }
+    if ( !removedAny ) {
+      // narrower: only shown rows can be hidden, and only by the new filters
+      for ( JsJob job : rows ) {
+        if ( !accepts( added, job ) ) {
+          hidden.add( job );
+        }
+      }
+    } else if ( added.isEmpty() ) {
+      // wider: only hidden rows can be shown
+      for ( JsJob job : new ArrayList<>( hidden ) ) {
+        if ( accepts( filters, job ) ) {
+          hidden.remove( job );
+        }
+      }
+    } else {
+      hidden.clear();
+      for ( JsJob job : jobs ) {
+        if ( !accepts( filters, job ) ) {
+          hidden.add( job );
+        }
+      }
+    }
+    rows = buildRows();
+  }
+
+  public List<IJobFilter> getFilters() {
+    return filters;
+  }
+
+  /**
+   * Sorts the rows by <code>column</code>, which needs a {@link #setSortKey(Object, SortKey)}; any other column
+   * leaves the jobs in the order they were listed.
+   */
+  public void sortBy( Object column, boolean ascending ) {
+    sortColumn = column;
+    sortAscending = ascending;
+    rows = buildRows();
+  }
+
+  public JsJob find( String jobId ) {
+    return jobsById.get( jobId );
+  }
+
+  /**
+   * Adds a job after the rows; the table is sorted again only when asked to.
+   */
+  public void add( JsJob job ) {
+    if ( jobsById.containsKey( job.getJobId() ) ) {
+      return;
+    }
+    jobs.add( job );
+    jobsById.put( job.getJobId(), job );
+    sortOrders.clear();
+    if ( accepts( filters, job ) ) {
+      rows.add( job );
+    } else {
+      hidden.add( job );
+    }
+  }
+
+  public void remove( JsJob job ) {
+    if ( jobsById.remove( job.getJobId() ) == null ) {
+      return;
+    }
+    jobs.remove( job );
+    sortOrders.clear();
+    if ( !hidden.remove( job ) ) {
+      rows.remove( job );
+    }
+  }
+
+  /**
+   * Tests a job that changed again, keeping its place among the rows if it is still shown.
+   */
+  public void update( JsJob job ) {
+    if ( !jobsById.containsKey( job.getJobId() ) ) {
+      return;
+    }
+    sortOrders.clear();
+    boolean wasShown = !hidden.contains( job );
+    boolean shown = accepts( filters, job );
+    if ( shown && !wasShown ) {
+      hidden.remove( job );
+      rows.add( job );
+    } else if ( !shown && wasShown ) {
+      hidden.add( job );
+      rows.remove( job );
+    }
+  }
+
+  /**
+   * @return the rows, in order; the list belongs to the view model and changes with it
+   */
+  public List<JsJob> getRows() {
+    return rows;
+  }
+
+  private static boolean accepts( List<IJobFilter> filters, JsJob job ) {
+    if ( !LISTED.accept( job ) ) {
+      return false;
+    }
+    for ( IJobFilter filter : filters ) {
+      if ( !filter.accept( job ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private List<JsJob> buildRows() {
+    List<JsJob> order = jobs;
+    SortKey sortKey = sortColumn == null ? null : sortKeys.get( sortColumn );
+    if ( sortKey != null ) {
+      order = sortOrders.get( sortColumn );
+      if ( order == null ) {
+        order = sort( sortKey );
+        sortOrders.put( sortColumn, order );
+      }
+    }
+
+    List<JsJob> newRows = new ArrayList<>( jobs.size() - hidden.size() );
+    boolean reverse = sortKey != null && !sortAscending;
+    for ( int i = 0; i < order.size(); i++ ) {
+      JsJob job = order.get( reverse ? order.size() - 1 - i : i );
+      if ( !hidden.contains( job ) ) {
+        newRows.add( job );
+      }
+    }
+    return newRows;
+  }
+
+  private List<JsJob> sort( SortKey sortKey ) {
+    final Object[] keys = new Object[ jobs.size() ];
+    Integer[] indexes = new Integer[ jobs.size() ];
+    for ( int i = 0; i < keys.length; i++ ) {
+      keys[ i ] = sortKey.of( jobs.get( i ) );
+      indexes[ i ] = i;
+    }
+    // stable, so jobs with equal keys stay in the order they were listed
+    Arrays.sort( indexes, ( i1, i2 ) -> compareKeys( keys[ i1 ], keys[ i2 ] ) );
+
+    List<JsJob> order = new ArrayList<>( indexes.length );
+    for ( Integer index : indexes ) {
+      order.add( jobs.get( index ) );
+    }
+    return order;
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private static int compareKeys( Object key1, Object key2 ) {
+    if ( key1 == key2 ) {
+      return 0;
+    }
+    if ( key1 == null ) {
+      return -1;
+    }
+    if ( key2 == null ) {
+      return 1;
+    }
+    return ( (Comparable<Object>) key1 ).compareTo( key2 );
+  }
+}
@@ -33,22 +33,88 @@ public class JsJob extends JavaScriptObject {
   protected JsJob() {
   }
 
-  // JSNI methods to get job data.
-  public final native String getJobId() /*-{ return this.jobId; }-*/; //
+  // A job of a columnar listing (see SchedulesPanel#parseJson) only holds the listing, _t, and its index in it, _i.
+  // Its fields are read from the columns of the listing, through their dictionaries, unless they were set on the job.
+  private final native String getField( String name )
+  /*-{
+    if (this._t == null || this.hasOwnProperty(name)) {
+      return this[name];
+    }
+    var column = this._t.columns[name];
+    var value = column == null ? null : column[this._i];
+    var dictionary = this._t.dictionaries[name];
+    return value == null || dictionary == null ? value : dictionary[value];
+  }-*/;
+
+  // Methods to get job data.
+  public final String getJobId() {
+    return getField( "jobId" );
+  }
+
+  public final String getJobName() {
+    return getField( "jobName" );
+  }
 
-  public final native String getJobName() /*-{ return this.jobName; }-*/; //
+  public final String getUserName() {
+    return getField( "userName" );
+  }
 
-  public final native String getUserName() /*-{ return this.userName; }-*/; //
+  private final String getNativeNextRun() {
+    return getField( "nextRun" );
+  }
 
-  private final native String getNativeNextRun() /*-{ return this.nextRun; }-*/; //
+  private final String getNativeLastRun() {
+    return getField( "lastRun" );
+  }
 
-  private final native String getNativeLastRun() /*-{ return this.lastRun; }-*/; //
+  public final native void setNextRun( String nextRun ) /*-{ this.nextRun = nextRun; }-*/; //
 
-  public final native JsArray<JsJobParam> getJobParams() /*-{ return this.jobParams.jobParams; }-*/; //
+  public final native void setLastRun( String lastRun ) /*-{ this.lastRun = lastRun; }-*/; //
 
-  public final native JsJobTrigger getJobTrigger() /*-{ return this.jobTrigger; }-*/; //
+  public final native JsArray<JsJobParam> getJobParams()
+  /*-{
+    if (this._t != null && !this.hasOwnProperty("jobParams")) {
+      // decoded when first needed, which is only for the jobs shown or filtered
+      var encoded = this._t.columns.jobParams == null ? null : this._t.columns.jobParams[this._i];
+      var params = [];
+      for (var i = 0; encoded != null && i < encoded.length; i += 2) {
+        params.push({ name: this._t.dictionaries.paramName[encoded[i]], value: encoded[i + 1] });
+      }
+      this.jobParams = { jobParams: params };
+    }
+    return this.jobParams.jobParams;
+  }-*/;
+
+  public final native JsJobTrigger getJobTrigger()
+  /*-{
+    if (this._t != null && !this.hasOwnProperty("jobTrigger")) {
+      // complex triggers come whole; the fields of the others are columns of their own, prefixed with "jobTrigger."
+      var columns = this._t.columns;
+      var trigger = columns.jobTrigger == null ? null : columns.jobTrigger[this._i];
+      var type = columns.triggerType == null ? null : columns.triggerType[this._i];
+      if (trigger == null && type != null) {
+        trigger = {};
+        for (var name in columns) {
+          if (name.indexOf("jobTrigger.") == 0 && columns[name][this._i] != null) {
+            trigger[name.substring("jobTrigger.".length)] = columns[name][this._i];
+          }
+        }
+      }
+      if (trigger != null && type != null) {
+        trigger['@type'] = this._t.dictionaries.triggerType[type];
+      }
+      var scheduleType = columns.scheduleType == null ? null : columns.scheduleType[this._i];
+      if (trigger != null && scheduleType != null) {
+        trigger.uiPassParam = this._t.dictionaries.scheduleType[scheduleType];
+      }
+      this.jobTrigger = trigger;
+    }
+    return this.jobTrigger;
+  }-*/;
 
-  public final native String getState() /*-{ return this.state; }-*/; //
+  public final String getState() {
+    return getField( "state" );
+  }
 
   public final native void setState( String newState ) /*-{ this.state = newState; }-*/; //
 
@@ -78,7 +144,13 @@ public class JsJob extends JavaScriptObject {
     return null;
   }
 
-  private final native boolean hasJobParams() /*-{ return this.jobParams != null; }-*/; //
+  private final native boolean hasJobParams()
+  /*-{
+    if (this._t != null && !this.hasOwnProperty("jobParams")) {
+      return this._t.columns.jobParams != null && this._t.columns.jobParams[this._i] != null;
+    }
+    return this.jobParams != null;
+  }-*/;
 
   public final boolean hasResourceName() {
     String resource = getJobParamValue( ACTION_ADAPTER_QUARTZ_JOB_STREAM_PROVIDER );
@@ -0,0 +1,35 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.mantle.client.workspace;
+
+import com.google.gwt.core.client.JavaScriptObject;
+
+/**
+ * Wraps a change to the state of a job in the JSON response of the jobs/events REST call, something like:
+ * {"type":"STARTED", "jobId":"admin\tReport\t1", "nextRun":"2014-08-15T11:46:00-04:00", ...}
+ */
+public class JsJobEvent extends JavaScriptObject {
+
+  // Overlay types always have protected, zero argument constructors.
+  protected JsJobEvent() {
+  }
+
+  public final native String getType() /*-{ return this.type; }-*/; //
+
+  public final native String getJobId() /*-{ return this.jobId; }-*/; //
+
+  public final native String getNextRun() /*-{ return this.nextRun; }-*/; //
+
+  public final native String getLastRun() /*-{ return this.lastRun; }-*/; //
+}
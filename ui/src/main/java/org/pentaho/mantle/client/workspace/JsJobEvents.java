@@ -0,0 +1,36 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.mantle.client.workspace;
+
+import com.google.gwt.core.client.JavaScriptObject;
+import com.google.gwt.core.client.JsArray;
+
+/**
+ * Wraps the JSON response of the jobs/events REST call, something like:
+ * {"cursor":"lz3q8k1c.43", "reset":"false", "refused":"false", "events":[{"type":"STARTED", ...}]}
+ */
+public class JsJobEvents extends JavaScriptObject {
+
+  // Overlay types always have protected, zero argument constructors.
+  protected JsJobEvents() {
+  }
+
+  public final native String getCursor() /*-{ return this.cursor; }-*/; //
+
+  public final native boolean isReset() /*-{ return this.reset === true || this.reset === "true"; }-*/; //
+
+  public final native boolean isRefused() /*-{ return this.refused === true || this.refused === "true"; }-*/; //
+
+  public final native JsArray<JsJobEvent> getEvents() /*-{ return this.events || []; }-*/; //
+}
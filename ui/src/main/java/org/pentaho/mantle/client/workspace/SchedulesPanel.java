@@ -13,6 +13,7 @@
 package org.pentaho.mantle.client.workspace;
 
 import com.google.gwt.cell.client.CheckboxCell;
+import com.google.gwt.core.client.Duration;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.JsArray;
 import com.google.gwt.core.client.JsonUtils;
@@ -39,12 +40,12 @@ import com.google.gwt.user.cellview.client.AbstractCellTable;
 import com.google.gwt.user.cellview.client.AbstractHeaderOrFooterBuilder;
 import com.google.gwt.user.cellview.client.CellTable;
 import com.google.gwt.user.cellview.client.Column;
-import com.google.gwt.user.cellview.client.ColumnSortEvent.ListHandler;
 import com.google.gwt.user.cellview.client.Header;
 import com.google.gwt.user.cellview.client.SimplePager;
 import com.google.gwt.user.cellview.client.SimplePager.TextLocation;
 import com.google.gwt.user.cellview.client.TextColumn;
 import com.google.gwt.user.client.Command;
+import com.google.gwt.user.client.Timer;
 import com.google.gwt.user.client.ui.HasHorizontalAlignment;
 import com.google.gwt.user.client.ui.Label;
 import com.google.gwt.user.client.ui.SimplePanel;
@@ -92,6 +93,7 @@ import static org.pentaho.mantle.client.workspace.SchedulesPerspectivePanel.PAGE
 public class SchedulesPanel extends SimplePanel {
   private static final String JOB_STATE_REMOVED = "REMOVED";
   private static final String JOB_STATE_NORMAL = "NORMAL";
+  private static final String JOB_STATE_PAUSED = "PAUSED";
   private static final String JOB_STATE_UNKNOWN_ERROR = "UNKNOWN_ERROR";
   private static final String SCHEDULER_STATE_RUNNING = "RUNNING";
 
@@ -101,6 +103,15 @@ public class SchedulesPanel extends SimplePanel {
   public static final String TEXT_PLAIN = "text/plain";
   public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
   public static final String IF_MODIFIED_SINCE_DATE = "01 Jan 1970 00:00:00 GMT";
+  public static final String TRIGGER_OUTCOME_HEADER = "X-Trigger-Outcome";
+  public static final String ETAG = "ETag";
+  public static final String IF_NONE_MATCH = "If-None-Match";
+  public static final int SC_NOT_MODIFIED = 304;
+  // the job listing in columns, see JsJob; servers without it answer with the plain JSON listing
+  public static final String APPLICATION_COLUMNAR_JSON = "application/vnd.pentaho.jobs.columnar+json";
+
+  private static final int JOB_EVENTS_WAIT_SECONDS = 25;
+  private static final int JOB_EVENTS_RETRY_MILLIS = 30000;
 
   private static final String ICON_SMALL_STYLE = "icon-small";
   private static final String ICON_RUN_STYLE = "icon-run";
@@ -130,8 +141,25 @@ public class SchedulesPanel extends SimplePanel {
 
   private JsArray<JsJob> allJobs;
 
+  // tags allJobs; the server answers 304 while it is current
+  private String allJobsETag;
+
+  // the job events polled so far have been applied to allJobs; null until the first poll
+  private String jobEventsCursor;
+
+  private boolean pollingJobEvents;
+
+  private final Timer jobEventsRetryTimer = new Timer() {
+    @Override
+    public void run() {
+      pollJobEvents();
+    }
+  };
+
   private final ArrayList<IJobFilter> filters = new ArrayList<>();
 
+  private final JobsViewModel viewModel = new JobsViewModel();
+
   private final CellTable<JsJob> table =
     new CellTable<>( PAGE_SIZE, (CellTableResources) GWT.create( CellTableResources.class ) );
 
@@ -150,33 +178,33 @@ public class SchedulesPanel extends SimplePanel {
 
       // create filters
       if ( filterDialog.getAfterDate() != null ) {
-        filters.add( job -> job.getNextRun().after( filterDialog.getAfterDate() ) );
+        filters.add( JobFilter.nextRunAfter( filterDialog.getAfterDate() ) );
       }
 
       if ( filterDialog.getBeforeDate() != null ) {
-        filters.add( job -> job.getNextRun().before( filterDialog.getBeforeDate() ) );
+        filters.add( JobFilter.nextRunBefore( filterDialog.getBeforeDate() ) );
       }
 
       if ( !StringUtils.isEmpty( filterDialog.getResourceName() ) ) {
-        filters.add(
-          job -> job.getShortResourceName().toLowerCase().contains( filterDialog.getResourceName().toLowerCase() ) );
+        filters.add( JobFilter.resourceNameContains( filterDialog.getResourceName() ) );
       }
 
       final String showAll = Messages.getString( "showAll" );
 
       if ( !StringUtils.isEmpty( filterDialog.getUserFilter() ) && !filterDialog.getUserFilter().equals( showAll ) ) {
-        filters.add( job -> job.getUserName().equalsIgnoreCase( filterDialog.getUserFilter() ) );
+        filters.add( JobFilter.userName( filterDialog.getUserFilter() ) );
       }
 
       if ( !StringUtils.isEmpty( filterDialog.getStateFilter() ) && !filterDialog.getStateFilter().equals( showAll ) ) {
-        filters.add( job -> job.getState().toLowerCase().equalsIgnoreCase( filterDialog.getStateFilter() ) );
+        filters.add( JobFilter.state( filterDialog.getStateFilter() ) );
       }
 
       if ( !StringUtils.isEmpty( filterDialog.getTypeFilter() ) && !filterDialog.getTypeFilter().equals( showAll ) ) {
-        filters.add( job -> job.getJobTrigger().getScheduleType().equalsIgnoreCase( filterDialog.getTypeFilter() ) );
+        filters.add( JobFilter.scheduleType( filterDialog.getTypeFilter() ) );
       }
 
       filterRemoveButton.setEnabled( !filters.isEmpty() );
+      viewModel.setFilters( filters );
       filterAndShowData();
     }
 
@@ -222,7 +250,10 @@ public class SchedulesPanel extends SimplePanel {
 
     RequestBuilder executableTypesRequestBuilder =
       createRequestBuilder( RequestBuilder.GET, ScheduleHelper.getPluginContextURL(), apiEndpoint );
-    executableTypesRequestBuilder.setHeader( ACCEPT, APPLICATION_JSON );
+    executableTypesRequestBuilder.setHeader( ACCEPT, APPLICATION_COLUMNAR_JSON + ", " + APPLICATION_JSON + ";q=0.9" );
+    if ( allJobs != null && allJobsETag != null ) {
+      executableTypesRequestBuilder.setHeader( IF_NONE_MATCH, allJobsETag );
+    }
     final MessageDialogBox errorDialog =
       new MessageDialogBox(
         Messages.getString( "error" ), Messages.getString( "noScheduleViewPermission" ), false, false, true );
@@ -236,7 +267,14 @@ public class SchedulesPanel extends SimplePanel {
 
         public void onResponseReceived( Request request, Response response ) {
           if ( response.getStatusCode() == Response.SC_OK ) {
+            Duration parseTime = new Duration();
             allJobs = parseJson( JsonUtils.escapeJsonForEval( response.getText() ) );
+            logParseTime( response.getHeader( CONTENT_TYPE ), allJobs.length(), parseTime.elapsedMillis() );
+            allJobsETag = response.getHeader( ETAG );
+            viewModel.setJobs( allJobs );
+            filterAndShowData();
+            startJobEvents();
+          } else if ( response.getStatusCode() == SC_NOT_MODIFIED && allJobs != null ) {
             filterAndShowData();
           } else {
             errorDialog.center();
@@ -248,32 +286,202 @@ public class SchedulesPanel extends SimplePanel {
     }
   }
 
-  private void filterAndShowData() {
-    filters.add( job -> !job.getInputFilePath().equals( "GeneratedContentCleaner" ) );
+  @Override
+  protected void onLoad() {
+    super.onLoad();
+    if ( allJobs != null ) {
+      startJobEvents();
+    }
+  }
 
-    ArrayList<JsJob> filteredList = new ArrayList<>();
+  /**
+   * Keeps allJobs up to date by long polling the changes to the jobs while the panel is attached, so that the table
+   * follows runs, pauses and new schedules without a refresh.
+   */
+  private void startJobEvents() {
+    if ( !pollingJobEvents ) {
+      pollingJobEvents = true;
+      pollJobEvents();
+    }
+  }
 
-    for ( int i = 0; i < allJobs.length(); i++ ) {
-      filteredList.add( allJobs.get( i ) );
+  private void pollJobEvents() {
+    if ( !isAttached() ) {
+      pollingJobEvents = false;
+      return;
+    }
+
+    String apiEndpoint = "api/scheduler/jobs/events?waitSeconds=" + JOB_EVENTS_WAIT_SECONDS;
+    if ( jobEventsCursor != null ) {
+      apiEndpoint += "&cursor=" + URL.encodeQueryString( jobEventsCursor );
+    }
+    RequestBuilder builder =
+      createRequestBuilder( RequestBuilder.GET, ScheduleHelper.getPluginContextURL(), apiEndpoint );
+    builder.setHeader( ACCEPT, APPLICATION_JSON );
+    builder.setTimeoutMillis( ( JOB_EVENTS_WAIT_SECONDS * 2 ) * 1000 );
+
+    try {
+      builder.sendRequest( null, new RequestCallback() {
+
+        public void onError( Request request, Throwable exception ) {
+          jobEventsRetryTimer.schedule( JOB_EVENTS_RETRY_MILLIS );
+        }
+
+        public void onResponseReceived( Request request, Response response ) {
+          if ( response.getStatusCode() != Response.SC_OK ) {
+            jobEventsRetryTimer.schedule( JOB_EVENTS_RETRY_MILLIS );
+            return;
+          }
+
+          JsJobEvents jobEvents = parseJsonJobEvents( JsonUtils.escapeJsonForEval( response.getText() ) );
+          if ( jobEvents.getCursor() == null ) {
+            // the server cannot tell the changes, e.g. with a clustered job store; refresh by hand
+            pollingJobEvents = false;
+            return;
+          }
+
+          jobEventsCursor = jobEvents.getCursor();
+          if ( jobEvents.isReset() ) {
+            refresh();
+          } else {
+            applyJobEvents( jobEvents.getEvents() );
+          }
+          if ( jobEvents.isRefused() ) {
+            // the server answered without waiting, as too many clients already wait; back off instead of spinning
+            jobEventsRetryTimer.schedule( JOB_EVENTS_RETRY_MILLIS );
+          } else {
+            pollJobEvents();
+          }
+        }
+      } );
+    } catch ( RequestException e ) {
+      jobEventsRetryTimer.schedule( JOB_EVENTS_RETRY_MILLIS );
+    }
+  }
+
+  /**
+   * Patches allJobs and the rows of the table in place.
+   */
+  private void applyJobEvents( JsArray<JsJobEvent> jobEvents ) {
+    boolean changed = false;
+
+    for ( int i = 0; i < jobEvents.length(); i++ ) {
+      JsJobEvent jobEvent = jobEvents.get( i );
+      if ( "RESET".equals( jobEvent.getType() ) ) {
+        refresh();
+        return;
+      }
+      if ( "CREATED".equals( jobEvent.getType() ) ) {
+        addJob( jobEvent.getJobId() );
+        continue;
+      }
+
+      JsJob job = findJob( jobEvent.getJobId() );
+      if ( job == null ) {
+        continue;
+      }
+      switch ( jobEvent.getType() ) {
+        case "REMOVED":
+          removeJob( job );
+          break;
+        case "PAUSED":
+          job.setState( JOB_STATE_PAUSED );
+          break;
+        case "RESUMED":
+          job.setState( JOB_STATE_NORMAL );
+          break;
+        case "STARTED":
+          job.setLastRun( jobEvent.getLastRun() );
+          if ( jobEvent.getNextRun() != null ) {
+            job.setNextRun( jobEvent.getNextRun() );
+          }
+          break;
+        case "NEXT_RUN":
+          job.setNextRun( jobEvent.getNextRun() );
+          break;
+        default:
+          // FINISHED or FAILED
+          if ( jobEvent.getNextRun() != null ) {
+            job.setNextRun( jobEvent.getNextRun() );
+          }
+          break;
+      }
+      viewModel.update( job );
+      changed = true;
+    }
+
+    if ( changed ) {
+      // allJobs is now newer than its tag
+      allJobsETag = null;
+      showRows();
+    }
+  }
+
+  private JsJob findJob( String jobId ) {
+    return allJobs == null ? null : viewModel.find( jobId );
+  }
+
+  private void addJob( final String jobId ) {
+    final String apiEndpoint = "api/scheduler/jobinfo?jobId=" + URL.encodeQueryString( jobId );
+    RequestBuilder builder =
+      createRequestBuilder( RequestBuilder.GET, ScheduleHelper.getPluginContextURL(), apiEndpoint );
+    builder.setHeader( ACCEPT, APPLICATION_JSON );
+
+    try {
+      builder.sendRequest( null, new RequestCallback() {
 
-      // filter if needed
-      for ( IJobFilter filter : filters ) {
-        if ( !filter.accept( allJobs.get( i ) ) ) {
-          filteredList.remove( allJobs.get( i ) );
+        public void onError( Request request, Throwable exception ) {
+          refresh();
         }
+
+        public void onResponseReceived( Request request, Response response ) {
+          if ( response.getStatusCode() == Response.SC_OK ) {
+            JsJob job = parseJsonJob( JsonUtils.escapeJsonForEval( response.getText() ) );
+            if ( allJobs != null && findJob( jobId ) == null ) {
+              allJobs.push( job );
+              allJobsETag = null;
+              viewModel.add( job );
+              showRows();
+            }
+          } else if ( response.getStatusCode() != Response.SC_NO_CONTENT ) {
+            // e.g. a job this user lists but cannot read by id
+            refresh();
+          }
+        }
+      } );
+    } catch ( RequestException e ) {
+      refresh();
+    }
+  }
+
+  private void removeJob( JsJob job ) {
+    JsArray<JsJob> remaining = JsArray.createArray().cast();
+    for ( int i = 0; i < allJobs.length(); i++ ) {
+      if ( allJobs.get( i ) != job ) {
+        remaining.push( allJobs.get( i ) );
       }
     }
+    allJobs = remaining;
+    viewModel.remove( job );
+    table.getSelectionModel().setSelected( job, false );
+  }
+
+  /**
+   * Shows the rows of the view model as they are, without resetting the page or the selection.
+   */
+  private void showRows() {
+    dataProvider.setList( viewModel.getRows() );
+    pager.setVisible( viewModel.getRows().size() > PAGE_SIZE );
+  }
 
-    if ( filteredList.isEmpty() ) {
+  private void filterAndShowData() {
+    if ( viewModel.getRows().isEmpty() ) {
       selectAllHeader.setHeaderStyleNames( "cellTableSelectAllHeader" );
     } else {
       selectAllHeader.setHeaderStyleNames( "" );
     }
 
-    List<JsJob> list = dataProvider.getList();
-    list.clear();
-    list.addAll( filteredList );
-    pager.setVisible( filteredList.size() > PAGE_SIZE );
+    showRows();
 
     clearJobsSelection();
 
@@ -631,137 +839,23 @@ public class SchedulesPanel extends SimplePanel {
     table.setColumnWidth( stateColumn, 90, Unit.PX );
 
     dataProvider.addDataDisplay( table );
-    List<JsJob> list = dataProvider.getList();
-
-    ListHandler<JsJob> columnSortHandler = new ListHandler<>( list );
-
-    columnSortHandler.setComparator( idColumn, ( o1, o2 ) -> {
-      if ( o1 == o2 ) {
-        return 0;
-      }
-
-      if ( o1 != null ) {
-        return ( o2 != null ) ? o1.getJobId().compareTo( o2.getJobId() ) : 1;
-      }
-      return -1;
-    } );
-
-    columnSortHandler.setComparator( nameColumn, ( o1, o2 ) -> {
-      if ( o1 == o2 ) {
-        return 0;
-      }
-
-      if ( o1 != null ) {
-        return ( o2 != null ) ? o1.getJobName().compareTo( o2.getJobName() ) : 1;
-      }
-      return -1;
-    } );
-
-    columnSortHandler.setComparator( resourceColumn, ( o1, o2 ) -> {
-      if ( o1 == o2 ) {
-        return 0;
-      }
-
-      if ( o1 != null ) {
-        String r1 = o1.getShortResourceName();
-        String r2 = null;
-
-        if ( o2 != null ) {
-          r2 = o2.getShortResourceName();
-        }
-
-        return ( o2 != null ) ? r1.compareTo( r2 ) : 1;
-      }
-      return -1;
-    } );
-
-    columnSortHandler.setComparator( outputPathColumn, ( o1, o2 ) -> {
-      if ( o1 == o2 ) {
-        return 0;
-      }
-
-      if ( o1 != null ) {
-        String r1 = o1.getOutputPath();
-        String r2 = null;
-
-        if ( o2 != null ) {
-          r2 = o2.getOutputPath();
-        }
-
-        return ( o2 != null ) ? r1.compareTo( r2 ) : 1;
-      }
-      return -1;
-    } );
-
-    columnSortHandler.setComparator( scheduleColumn, ( o1, o2 ) -> {
-      String s1 = o1.getJobTrigger().getDescription();
-      String s2 = o2.getJobTrigger().getDescription();
-      return s1.compareTo( s2 );
-    } );
-
-    columnSortHandler.setComparator( userNameColumn, ( o1, o2 ) -> {
-      if ( o1 == o2 ) {
-        return 0;
-      }
-
-      if ( o1 != null ) {
-        return ( o2 != null ) ? o1.getUserName().compareTo( o2.getUserName() ) : 1;
-      }
-      return -1;
-    } );
-
-    columnSortHandler.setComparator( stateColumn, ( o1, o2 ) -> {
-      if ( o1 == o2 ) {
-        return 0;
-      }
-
-      if ( o1 != null ) {
-        return ( o2 != null ) ? o1.getState().compareTo( o2.getState() ) : 1;
-      }
-      return -1;
-    } );
-
-    columnSortHandler.setComparator( nextFireColumn, ( o1, o2 ) -> {
-      if ( o1 == o2 ) {
-        return 0;
-      }
-
-      if ( o1 == null || o1.getNextRun() == null ) {
-        return -1;
-      }
-
-      if ( o2 == null || o2.getNextRun() == null ) {
-        return 1;
-      }
-
-      if ( o1.getNextRun() == o2.getNextRun() ) {
-        return 0;
-      }
-
-      return o1.getNextRun().compareTo( o2.getNextRun() );
-    } );
-
-    columnSortHandler.setComparator( lastFireColumn, ( o1, o2 ) -> {
-      if ( o1 == o2 ) {
-        return 0;
-      }
 
-      if ( o1 == null || o1.getLastRun() == null ) {
-        return -1;
-      }
-      if ( o2 == null || o2.getLastRun() == null ) {
-        return 1;
-      }
-
-      if ( o1.getLastRun() == o2.getLastRun() ) {
-        return 0;
-      }
-
-      return o1.getLastRun().compareTo( o2.getLastRun() );
+    // each column is sorted by a key read once per job, see JobsViewModel
+    viewModel.setSortKey( idColumn, JsJob::getJobId );
+    viewModel.setSortKey( nameColumn, JsJob::getJobName );
+    viewModel.setSortKey( resourceColumn, JsJob::getShortResourceName );
+    viewModel.setSortKey( outputPathColumn, JsJob::getOutputPath );
+    viewModel.setSortKey( scheduleColumn, job -> job.getJobTrigger().getDescription() );
+    viewModel.setSortKey( userNameColumn, JsJob::getUserName );
+    viewModel.setSortKey( stateColumn, JsJob::getState );
+    viewModel.setSortKey( nextFireColumn, JsJob::getNextRun );
+    viewModel.setSortKey( lastFireColumn, JsJob::getLastRun );
+
+    table.addColumnSortHandler( event -> {
+      viewModel.sortBy( event.getColumn(), event.isSortAscending() );
+      showRows();
     } );
 
-    table.addColumnSortHandler( columnSortHandler );
-
     table.getColumnSortList().push( idColumn );
     table.getColumnSortList().push( resourceColumn );
     table.getColumnSortList().push( outputPathColumn );
@@ -945,6 +1039,7 @@ public class SchedulesPanel extends SimplePanel {
     filterRemoveButton.setCommand( () -> {
       filterDialog = null;
       filters.clear();
+      viewModel.setFilters( filters );
       filterAndShowData();
       filterRemoveButton.setEnabled( false );
       filterButton.setImage( getThemeableImage( ICON_SMALL_STYLE, "icon-filter-add", ICON_ZOOMABLE ) );
@@ -1247,6 +1342,8 @@ public class SchedulesPanel extends SimplePanel {
             job.setState( jobState );
             table.redraw();
 
+            showTriggerOutcome( job, response.getHeader( TRIGGER_OUTCOME_HEADER ) );
+
             updateJobScheduleButtonStyle( jobState );
 
             if ( refreshData ) {
@@ -1260,6 +1357,19 @@ public class SchedulesPanel extends SimplePanel {
     }
   }
 
+  /**
+   * Tells the user when a run was not started because the job was already running, see the job's
+   * concurrency-policy parameter.
+   */
+  private void showTriggerOutcome( JsJob job, String outcome ) {
+    if ( "QUEUED".equals( outcome ) || "COALESCED".equals( outcome ) ) {
+      String key = "QUEUED".equals( outcome ) ? "executeNowQueued" : "executeNowCoalesced";
+      MessageDialogBox messageDialog = new MessageDialogBox( Messages.getString( "executeNow" ),
+        Messages.getString( key, job.getJobName() ), false, true, true );
+      messageDialog.center();
+    }
+  }
+
   private JSONArray getIds( final Set<JsJob> jobs ) {
     JSONArray result = new JSONArray();
 
@@ -1465,6 +1575,15 @@ public class SchedulesPanel extends SimplePanel {
   private native JsArray<JsJob> parseJson( String json ) /*-{
     var obj = JSON.parse(json);
 
+    if (obj != null && obj.hasOwnProperty("columns")) {
+      // a columnar listing: each job only points at its index, and JsJob reads the columns
+      var jobs = new Array(obj.count);
+      for (var i = 0; i < obj.count; i++) {
+        jobs[i] = { _t: obj, _i: i };
+      }
+      return jobs;
+    }
+
     if (obj != null && obj.hasOwnProperty("job")) {
       return obj.job;
     }
@@ -1472,10 +1591,20 @@ public class SchedulesPanel extends SimplePanel {
     return [];
   }-*/;
 
+  private static native void logParseTime( String contentType, int jobs, int millis ) /*-{
+    if ($wnd.console && $wnd.console.debug) {
+      $wnd.console.debug("Parsed " + jobs + " schedules (" + contentType + ") in " + millis + " ms");
+    }
+  }-*/;
+
   private native JsJob parseJsonJob( String json ) /*-{
     return JSON.parse(json);
   }-*/;
 
+  private native JsJobEvents parseJsonJobEvents( String json ) /*-{
+    return JSON.parse(json);
+  }-*/;
+
   private native JsPermissionsList parseJsonAccessList( String json ) /*-{
     return JSON.parse(json);
   }-*/;
@@ -0,0 +1,146 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+package org.pentaho.mantle.client.workspace;
+
+import com.google.gwt.core.client.JsArray;
+import com.google.gwtmockito.GwtMockitoTestRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith( GwtMockitoTestRunner.class )
+public class JobsViewModelTest {
+
+  private JsJob adminJob;
+  private JsJob suzyJob;
+  private JsJob cleanerJob;
+  private JsJob tiffanyJob;
+
+  private JobsViewModel viewModel;
+
+  @Before
+  @SuppressWarnings( "unchecked" )
+  public void setUp() {
+    adminJob = mockJob( "1", "admin", "c" );
+    suzyJob = mockJob( "2", "suzy", "a" );
+    cleanerJob = mockJob( "3", "admin", "b" );
+    when( cleanerJob.getInputFilePath() ).thenReturn( "GeneratedContentCleaner" );
+    tiffanyJob = mockJob( "4", "tiffany", "b" );
+
+    JsArray<JsJob> allJobs = mock( JsArray.class );
+    when( allJobs.length() ).thenReturn( 4 );
+    when( allJobs.get( 0 ) ).thenReturn( adminJob );
+    when( allJobs.get( 1 ) ).thenReturn( suzyJob );
+    when( allJobs.get( 2 ) ).thenReturn( cleanerJob );
+    when( allJobs.get( 3 ) ).thenReturn( tiffanyJob );
+
+    viewModel = new JobsViewModel();
+    viewModel.setSortKey( "name", JsJob::getJobName );
+    viewModel.setJobs( allJobs );
+  }
+
+  private JsJob mockJob( String jobId, String userName, String jobName ) {
+    JsJob job = mock( JsJob.class );
+    when( job.getJobId() ).thenReturn( jobId );
+    when( job.getUserName() ).thenReturn( userName );
+    when( job.getJobName() ).thenReturn( jobName );
+    when( job.getInputFilePath() ).thenReturn( "/public/" + jobName + ".prpt" );
+    when( job.getShortResourceName() ).thenReturn( jobName + ".prpt" );
+    return job;
+  }
+
+  @Test
+  public void testSetJobsHidesTheContentCleaner() {
+    assertEquals( Arrays.asList( adminJob, suzyJob, tiffanyJob ), viewModel.getRows() );
+    assertSame( cleanerJob, viewModel.find( "3" ) );
+  }
+
+  @Test
+  public void testNarrowerFiltersOnlyTestTheShownRows() {
+    viewModel.setFilters( Collections.singletonList( JobFilter.userName( "ADMIN" ) ) );
+    assertEquals( Collections.singletonList( adminJob ), viewModel.getRows() );
+
+    // the same filter again tests nothing
+    viewModel.setFilters( Collections.singletonList( JobFilter.userName( "admin" ) ) );
+    assertEquals( Collections.singletonList( adminJob ), viewModel.getRows() );
+
+    // only the first filter read the user names, and not that of the hidden content cleaner
+    verify( adminJob, times( 1 ) ).getUserName();
+    verify( suzyJob, times( 1 ) ).getUserName();
+    verify( cleanerJob, times( 0 ) ).getUserName();
+  }
+
+  @Test
+  public void testWiderFiltersOnlyTestTheHiddenRows() {
+    viewModel.setFilters( Arrays.asList( JobFilter.userName( "admin" ), JobFilter.resourceNameContains( "C" ) ) );
+    assertEquals( Collections.singletonList( adminJob ), viewModel.getRows() );
+
+    viewModel.setFilters( Collections.singletonList( JobFilter.userName( "admin" ) ) );
+    assertEquals( Collections.singletonList( adminJob ), viewModel.getRows() );
+    // the shown row was not tested again
+    verify( adminJob, times( 1 ) ).getUserName();
+
+    viewModel.setFilters( Collections.emptyList() );
+    assertEquals( Arrays.asList( adminJob, suzyJob, tiffanyJob ), viewModel.getRows() );
+  }
+
+  @Test
+  public void testSortByReadsEachKeyOnce() {
+    viewModel.sortBy( "name", true );
+    assertEquals( Arrays.asList( suzyJob, tiffanyJob, adminJob ), viewModel.getRows() );
+
+    viewModel.sortBy( "name", false );
+    assertEquals( Arrays.asList( adminJob, tiffanyJob, suzyJob ), viewModel.getRows() );
+
+    viewModel.setFilters( Collections.singletonList( JobFilter.userName( "suzy" ) ) );
+    assertEquals( Collections.singletonList( suzyJob ), viewModel.getRows() );
+
+    verify( adminJob, times( 1 ) ).getJobName();
+    verify( suzyJob, times( 1 ) ).getJobName();
+
+    // a column without a key keeps the listed order
+    viewModel.setFilters( Collections.emptyList() );
+    viewModel.sortBy( "parameters", true );
+    assertEquals( Arrays.asList( adminJob, suzyJob, tiffanyJob ), viewModel.getRows() );
+  }
+
+  @Test
+  public void testAddUpdateAndRemove() {
+    viewModel.setFilters( Collections.singletonList( JobFilter.userName( "admin" ) ) );
+
+    JsJob newJob = mockJob( "5", "admin", "d" );
+    viewModel.add( newJob );
+    assertEquals( Arrays.asList( adminJob, newJob ), viewModel.getRows() );
+
+    when( adminJob.getUserName() ).thenReturn( "suzy" );
+    viewModel.update( adminJob );
+    assertEquals( Collections.singletonList( newJob ), viewModel.getRows() );
+
+    viewModel.remove( newJob );
+    assertEquals( Collections.emptyList(), viewModel.getRows() );
+    assertEquals( null, viewModel.find( "5" ) );
+
+    viewModel.setFilters( Collections.emptyList() );
+    assertEquals( Arrays.asList( adminJob, suzyJob, tiffanyJob ), viewModel.getRows() );
+  }
+}